@@ -0,0 +1,675 @@
+package csx370.operator;
+
+/****************************************************************************************
+ * @file   ColumnStore.java
+ */
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/****************************************************************************************
+ * This class provides column-oriented storage for the tuples of a table. Each
+ * attribute is kept in its own vector: integer types in an int[] (or long[] for
+ * Long), real types in a double[] and strings as dictionary-encoded int[] codes.
+ * Any other domain falls back to an array of objects.
+ */
+@SuppressWarnings("rawtypes")
+class ColumnStore implements Serializable, Iterable<Comparable[]> {
+	/** Serialization */
+	private static final long serialVersionUID = 1L;
+	
+	/** The initial capacity of each column vector */
+	private static final int INIT_CAPACITY = 16;
+	
+	/** The number of rows scanned by a single task in a parallel scan */
+	private static final int CHUNK = 4096;
+	
+	/** The column vectors (one per attribute). */
+	private final Column[] column;
+	
+	/** The number of rows stored, deleted ones included. */
+	private int size = 0;
+	
+	/** The positions of the deleted rows not yet compacted away. */
+	private final BitSet dead = new BitSet();
+	
+	/** The number of deleted rows not yet compacted away. */
+	private int deadRows = 0;
+	
+	/************************************************************************************
+	 * Construct an empty column store for the given attribute domains.
+	 *
+	 * @param domain the attribute domains (data types)
+	 */
+	ColumnStore(Class[] domain) {
+		column = new Column[domain.length];
+		for (int j = 0; j < domain.length; j++) {
+			column[j] = Column.of(domain[j]);
+		} // for
+	} // constructor
+	
+	/************************************************************************************
+	 * Construct a copy of the given column store (see copy).
+	 *
+	 * @param cs the column store to copy
+	 */
+	private ColumnStore(ColumnStore cs) {
+		column = new Column[cs.column.length];
+		for (int j = 0; j < column.length; j++) {
+			column[j] = cs.column[j].copy(cs.size);
+		} // for
+		size = cs.size;
+		dead.or(cs.dead);
+		deadRows = cs.deadRows;
+	} // constructor
+	
+	/************************************************************************************
+	 * Copy the column vectors as they are now, e.g., as a snapshot to write while
+	 * the table keeps changing. Only the primitive arrays (and the dictionaries
+	 * of string columns) are copied; no row is decoded.
+	 *
+	 * @return a copy of this column store
+	 */
+	ColumnStore copy() {
+		return new ColumnStore(this);
+	} // copy
+	
+	/************************************************************************************
+	 * Append a tuple to the end of every column.
+	 *
+	 * @param tup the tuple to append
+	 * @return    the position of the new row
+	 */
+	int append(Comparable[] tup) {
+		for (int j = 0; j < column.length; j++) {
+			column[j].set(size, tup[j]);
+		} // for
+		return size++;
+	} // append
+	
+	/************************************************************************************
+	 * Overwrite the i-th row with a tuple.
+	 *
+	 * @param i   the row position
+	 * @param tup the new values of the row
+	 */
+	void set(int i, Comparable[] tup) {
+		for (int j = 0; j < column.length; j++) {
+			column[j].set(i, tup[j]);
+		} // for
+	} // set
+	
+	/************************************************************************************
+	 * Mark the row at the given position deleted. It stays in the column vectors,
+	 * skipped by every scan, until compact removes it.
+	 *
+	 * @param i the row position
+	 */
+	void kill(int i) {
+		if (!dead.get(i)) {
+			dead.set(i);
+			deadRows++;
+		} // if
+	} // kill
+	
+	/************************************************************************************
+	 * Remove the deleted rows once they outnumber the live ones, moving the rest
+	 * up to keep them in insertion order. Each column vector is compacted on its
+	 * own, without decoding any value. Waiting until then keeps the cost of a
+	 * delete constant on average.
+	 *
+	 * @return the new position of each old row position (-1 if removed), or null
+	 *         if nothing was compacted
+	 */
+	int[] compact() {
+		if (deadRows == 0 || deadRows <= size - deadRows) {
+			return null;
+		} // if
+		for (Column c : column) {
+			c.compact(dead, size);
+		} // for
+		
+		int[] to = new int[size];
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			to[i] = dead.get(i) ? -1 : kept++;
+		} // for
+		size = kept;
+		dead.clear();
+		deadRows = 0;
+		return to;
+	} // compact
+	
+	/************************************************************************************
+	 * Return the number of live (not deleted) rows.
+	 *
+	 * @return the number of rows
+	 */
+	int size() {
+		return size - deadRows;
+	} // size
+	
+	/************************************************************************************
+	 * Return the number of row positions in use, deleted rows included.
+	 *
+	 * @return one past the last row position
+	 */
+	int extent() {
+		return size;
+	} // extent
+	
+	/************************************************************************************
+	 * Return the position of the first live row at or after the given one.
+	 *
+	 * #usage for (int i = cs.next (0); i < cs.extent (); i = cs.next (i + 1))
+	 *
+	 * @param i the row position to start from
+	 * @return  the position of the live row, or extent () if there is none
+	 */
+	int next(int i) {
+		return Math.min(dead.nextClearBit(i), size);
+	} // next
+	
+	/************************************************************************************
+	 * Return the column vector at the given position.
+	 *
+	 * @param j the column position
+	 * @return  the column vector
+	 */
+	Column column(int j) {
+		return column[j];
+	} // column
+	
+	/************************************************************************************
+	 * Materialize the whole i-th row.
+	 *
+	 * @param i the row position
+	 * @return  a new tuple
+	 */
+	Comparable[] row(int i) {
+		Comparable[] tup = new Comparable[column.length];
+		fill(i, tup);
+		return tup;
+	} // row
+	
+	/************************************************************************************
+	 * Materialize only the given columns of the i-th row.
+	 *
+	 * @param i      the row position
+	 * @param colPos the column positions to extract
+	 * @return       a new (narrower) tuple
+	 */
+	Comparable[] row(int i, int[] colPos) {
+		Comparable[] tup = new Comparable[colPos.length];
+		for (int j = 0; j < colPos.length; j++) {
+			tup[j] = column[colPos[j]].get(i);
+		} // for
+		return tup;
+	} // row
+	
+	/************************************************************************************
+	 * Decode the i-th row into an existing buffer.
+	 *
+	 * @param i   the row position
+	 * @param buf the buffer receiving the attribute values
+	 */
+	void fill(int i, Comparable[] buf) {
+		for (int j = 0; j < column.length; j++) {
+			buf[j] = column[j].get(i);
+		} // for
+	} // fill
+	
+	/************************************************************************************
+	 * Materialize every row (in insertion order).
+	 *
+	 * @return a list of new tuples
+	 */
+	List<Comparable[]> rows() {
+		List<Comparable[]> rows = new ArrayList<>(size());
+		for (int i = next(0); i < size; i = next(i + 1)) {
+			rows.add(row(i));
+		} // for
+		return rows;
+	} // rows
+	
+	/************************************************************************************
+	 * Return an iterator over the live rows (in insertion order), decoding one
+	 * row at a time.
+	 *
+	 * @return an iterator over new tuples
+	 */
+	public Iterator<Comparable[]> iterator() {
+		return new Iterator<Comparable[]>() {
+			private int i = ColumnStore.this.next(0);
+			
+			public boolean hasNext() {
+				return i < size;
+			} // hasNext
+			
+			public Comparable[] next() {
+				Comparable[] tup = row(i);
+				i = ColumnStore.this.next(i + 1);
+				return tup;
+			} // next
+		};
+	} // iterator
+	
+	/************************************************************************************
+	 * Materialize the rows at the given positions.
+	 *
+	 * @param pos the row positions
+	 * @return    a list of new tuples
+	 */
+	List<Comparable[]> rows(int[] pos) {
+		List<Comparable[]> rows = new ArrayList<>(pos.length);
+		for (int i : pos) {
+			rows.add(row(i));
+		} // for
+		return rows;
+	} // rows
+	
+	/************************************************************************************
+	 * Materialize the rows satisfying the predicate (see positions).
+	 *
+	 * @param predicate the check condition for tuples
+	 * @return          the list of qualifying tuples
+	 */
+	List<Comparable[]> select(Predicate<Comparable[]> predicate) {
+		return rows(positions(predicate));
+	} // select
+	
+	/************************************************************************************
+	 * Return the positions of the live rows satisfying the predicate, in order.
+	 * A Condition is evaluated one conjunct at a time on the column vectors
+	 * themselves: the first conjunct scans its whole column vector, later ones
+	 * only re-check the surviving row positions, and no value is boxed. Any
+	 * other predicate needs whole tuples, so the columns are scanned in parallel
+	 * chunks, each decoding into its own reusable buffer.
+	 *
+	 * @param predicate the check condition for tuples
+	 * @return          the positions of the qualifying rows
+	 */
+	int[] positions(Predicate<Comparable[]> predicate) {
+		if (predicate instanceof Condition) {
+			Condition condition = (Condition) predicate;
+			int[] sel = new int[size];
+			int n = size;
+			for (int k = 0; k < condition.col.length && n > 0; k++) {
+				n = column[condition.col[k]].filter(condition.op[k], condition.value[k], sel, n, k == 0);
+			} // for
+			if (deadRows > 0) {
+				int m = 0;
+				for (int k = 0; k < n; k++) {
+					if (!dead.get(sel[k])) sel[m++] = sel[k];
+				} // for
+				n = m;
+			} // if
+			return Arrays.copyOf(sel, n);
+		} // if
+		
+		int chunks = (size + CHUNK - 1) / CHUNK;
+		return IntStream.range(0, chunks).parallel().flatMap(c -> {
+			IntStream.Builder hits = IntStream.builder();
+			Comparable[] buf = new Comparable[column.length];
+			int end = Math.min(size, (c + 1) * CHUNK);
+			for (int i = next(c * CHUNK); i < end; i = next(i + 1)) {
+				fill(i, buf);
+				if (predicate.test(buf)) {
+					hits.add(i);
+				} // if
+			} // for
+			return hits.build();
+		}).toArray();
+	} // positions
+	
+	// ----------------------------------------------------------------------------------
+	// Column Vectors
+	// ----------------------------------------------------------------------------------
+	
+	/************************************************************************************
+	 * This class defines a single growable column vector.
+	 */
+	static abstract class Column implements Serializable {
+		/** Serialization */
+		private static final long serialVersionUID = 1L;
+		
+		/********************************************************************************
+		 * Create the column vector best suited for the given domain.
+		 *
+		 * @param type the attribute domain
+		 * @return     an empty column vector
+		 */
+		static Column of(Class type) {
+			if (type == Integer.class || type == Short.class
+					|| type == Byte.class || type == Character.class) {
+				return new IntColumn(type);
+			} else if (type == Long.class) {
+				return new LongColumn();
+			} else if (type == Double.class || type == Float.class) {
+				return new DoubleColumn(type);
+			} else if (type == String.class) {
+				return new DictColumn();
+			} else {
+				return new ObjectColumn();
+			} // if
+		} // of
+		
+		/**
+		 * Store the value at row i (rows are appended in order, or overwritten).
+		 *
+		 * @param i     the row position
+		 * @param value the attribute value
+		 */
+		abstract void set(int i, Comparable value);
+		
+		/**
+		 * Drop the values of the given rows among the first n, moving the rest up
+		 * in order.
+		 *
+		 * @param gone the positions of the rows to drop
+		 * @param n    the number of rows stored
+		 */
+		abstract void compact(BitSet gone, int n);
+		
+		/**
+		 * Copy the values of the first n rows into a new column vector.
+		 *
+		 * @param n the number of rows stored
+		 * @return  the copy
+		 */
+		abstract Column copy(int n);
+		
+		/**
+		 * Decode the value at row i.
+		 *
+		 * @param i the row position
+		 * @return  the (boxed) attribute value
+		 */
+		abstract Comparable get(int i);
+		
+		/**
+		 * Keep the candidate rows whose value satisfies (value op v), compacting
+		 * the survivors to the front of sel.
+		 *
+		 * @param op  the comparison operator
+		 * @param v   the constant to compare with
+		 * @param sel the selection vector of candidate row positions
+		 * @param n   the number of candidates
+		 * @param all whether every row 0 until n is a candidate (sel not yet filled)
+		 * @return    the number of surviving candidates
+		 */
+		abstract int filter(Condition.Op op, Comparable v, int[] sel, int n, boolean all);
+	} // Column class
+	
+	/************************************************************************************
+	 * Column vector for Integer, Short, Byte and Character domains.
+	 */
+	static final class IntColumn extends Column {
+		private static final long serialVersionUID = 1L;
+		final Class type;
+		int[] value = new int[INIT_CAPACITY];
+		
+		IntColumn(Class _type) {
+			type = _type;
+		} // constructor
+		
+		void set(int i, Comparable v) {
+			if (i == value.length) {
+				value = Arrays.copyOf(value, 2 * i);
+			} // if
+			value[i] = (v instanceof Character) ? (Character) v : ((Number) v).intValue();
+		} // set
+		
+		void compact(BitSet gone, int n) {
+			int m = 0;
+			for (int i = 0; i < n; i++) {
+				if (!gone.get(i)) value[m++] = value[i];
+			} // for
+		} // compact
+		
+		Column copy(int n) {
+			IntColumn c = new IntColumn(type);
+			c.value = Arrays.copyOf(value, Math.max(n, INIT_CAPACITY));
+			return c;
+		} // copy
+		
+		Comparable get(int i) {
+			if (type == Integer.class) {
+				return value[i];
+			} else if (type == Short.class) {
+				return (short) value[i];
+			} else if (type == Byte.class) {
+				return (byte) value[i];
+			} else {
+				return (char) value[i];
+			} // if
+		} // get
+		
+		int filter(Condition.Op op, Comparable v, int[] sel, int n, boolean all) {
+			int c = (v instanceof Character) ? (Character) v : ((Number) v).intValue();
+			int m = 0;
+			if (op == Condition.Op.EQ) {
+				for (int k = 0; k < n; k++) {
+					int i = all ? k : sel[k];
+					if (value[i] == c) sel[m++] = i;
+				} // for
+			} else {
+				for (int k = 0; k < n; k++) {
+					int i = all ? k : sel[k];
+					if (Condition.holds(op, Integer.compare(value[i], c))) sel[m++] = i;
+				} // for
+			} // if
+			return m;
+		} // filter
+	} // IntColumn class
+	
+	/************************************************************************************
+	 * Column vector for the Long domain.
+	 */
+	static final class LongColumn extends Column {
+		private static final long serialVersionUID = 1L;
+		long[] value = new long[INIT_CAPACITY];
+		
+		void set(int i, Comparable v) {
+			if (i == value.length) {
+				value = Arrays.copyOf(value, 2 * i);
+			} // if
+			value[i] = (Long) v;
+		} // set
+		
+		void compact(BitSet gone, int n) {
+			int m = 0;
+			for (int i = 0; i < n; i++) {
+				if (!gone.get(i)) value[m++] = value[i];
+			} // for
+		} // compact
+		
+		Column copy(int n) {
+			LongColumn c = new LongColumn();
+			c.value = Arrays.copyOf(value, Math.max(n, INIT_CAPACITY));
+			return c;
+		} // copy
+		
+		Comparable get(int i) {
+			return value[i];
+		} // get
+		
+		int filter(Condition.Op op, Comparable v, int[] sel, int n, boolean all) {
+			long c = (Long) v;
+			int m = 0;
+			for (int k = 0; k < n; k++) {
+				int i = all ? k : sel[k];
+				if (Condition.holds(op, Long.compare(value[i], c))) sel[m++] = i;
+			} // for
+			return m;
+		} // filter
+	} // LongColumn class
+	
+	/************************************************************************************
+	 * Column vector for Double and Float domains.
+	 */
+	static final class DoubleColumn extends Column {
+		private static final long serialVersionUID = 1L;
+		final Class type;
+		double[] value = new double[INIT_CAPACITY];
+		
+		DoubleColumn(Class _type) {
+			type = _type;
+		} // constructor
+		
+		void set(int i, Comparable v) {
+			if (i == value.length) {
+				value = Arrays.copyOf(value, 2 * i);
+			} // if
+			value[i] = ((Number) v).doubleValue();
+		} // set
+		
+		void compact(BitSet gone, int n) {
+			int m = 0;
+			for (int i = 0; i < n; i++) {
+				if (!gone.get(i)) value[m++] = value[i];
+			} // for
+		} // compact
+		
+		Column copy(int n) {
+			DoubleColumn c = new DoubleColumn(type);
+			c.value = Arrays.copyOf(value, Math.max(n, INIT_CAPACITY));
+			return c;
+		} // copy
+		
+		Comparable get(int i) {
+			return (type == Double.class) ? (Comparable) value[i] : (Comparable) (float) value[i];
+		} // get
+		
+		int filter(Condition.Op op, Comparable v, int[] sel, int n, boolean all) {
+			double c = ((Number) v).doubleValue();
+			int m = 0;
+			for (int k = 0; k < n; k++) {
+				int i = all ? k : sel[k];
+				if (Condition.holds(op, Double.compare(value[i], c))) sel[m++] = i;
+			} // for
+			return m;
+		} // filter
+	} // DoubleColumn class
+	
+	/************************************************************************************
+	 * Dictionary-encoded column vector for the String domain. Each distinct
+	 * string is stored once and rows hold its int code.
+	 */
+	static final class DictColumn extends Column {
+		private static final long serialVersionUID = 1L;
+		int[] code = new int[INIT_CAPACITY];
+		final List<String> dict = new ArrayList<>();
+		final Map<String, Integer> lookup = new HashMap<>();
+		
+		void set(int i, Comparable v) {
+			if (i == code.length) {
+				code = Arrays.copyOf(code, 2 * i);
+			} // if
+			Integer c = lookup.get(v);
+			if (c == null) {
+				c = dict.size();
+				dict.add((String) v);
+				lookup.put((String) v, c);
+			} // if
+			code[i] = c;
+		} // set
+		
+		void compact(BitSet gone, int n) {
+			int m = 0;
+			for (int i = 0; i < n; i++) {
+				if (!gone.get(i)) code[m++] = code[i];
+			} // for
+		} // compact
+		
+		Column copy(int n) {
+			DictColumn c = new DictColumn();
+			c.code = Arrays.copyOf(code, Math.max(n, INIT_CAPACITY));
+			c.dict.addAll(dict);
+			c.lookup.putAll(lookup);
+			return c;
+		} // copy
+		
+		Comparable get(int i) {
+			return dict.get(code[i]);
+		} // get
+		
+		/**
+		 * Return the code for the given string or -1 if it never occurs.
+		 *
+		 * @param v the string to look up
+		 * @return  its dictionary code
+		 */
+		int codeOf(Object v) {
+			Integer c = lookup.get(v);
+			return (c == null) ? -1 : c;
+		} // codeOf
+		
+		int filter(Condition.Op op, Comparable v, int[] sel, int n, boolean all) {
+			int m = 0;
+			if (op == Condition.Op.EQ) {
+				// compare codes only; a string missing from the dictionary never matches
+				int c = codeOf(v);
+				for (int k = 0; k < n; k++) {
+					int i = all ? k : sel[k];
+					if (code[i] == c) sel[m++] = i;
+				} // for
+			} else {
+				// evaluate the operator once per distinct string, then per row by code
+				boolean[] hit = new boolean[dict.size()];
+				for (int d = 0; d < hit.length; d++) {
+					hit[d] = Condition.holds(op, dict.get(d).compareTo((String) v));
+				} // for
+				for (int k = 0; k < n; k++) {
+					int i = all ? k : sel[k];
+					if (hit[code[i]]) sel[m++] = i;
+				} // for
+			} // if
+			return m;
+		} // filter
+	} // DictColumn class
+	
+	/************************************************************************************
+	 * Fallback column vector for any other domain.
+	 */
+	static final class ObjectColumn extends Column {
+		private static final long serialVersionUID = 1L;
+		Comparable[] value = new Comparable[INIT_CAPACITY];
+		
+		void set(int i, Comparable v) {
+			if (i == value.length) {
+				value = Arrays.copyOf(value, 2 * i);
+			} // if
+			value[i] = v;
+		} // set
+		
+		void compact(BitSet gone, int n) {
+			int m = 0;
+			for (int i = 0; i < n; i++) {
+				if (!gone.get(i)) value[m++] = value[i];
+			} // for
+		} // compact
+		
+		Column copy(int n) {
+			ObjectColumn c = new ObjectColumn();
+			c.value = Arrays.copyOf(value, Math.max(n, INIT_CAPACITY));
+			return c;
+		} // copy
+		
+		Comparable get(int i) {
+			return value[i];
+		} // get
+		
+		@SuppressWarnings("unchecked")
+		int filter(Condition.Op op, Comparable v, int[] sel, int n, boolean all) {
+			int m = 0;
+			for (int k = 0; k < n; k++) {
+				int i = all ? k : sel[k];
+				if (Condition.holds(op, value[i].compareTo(v))) sel[m++] = i;
+			} // for
+			return m;
+		} // filter
+	} // ObjectColumn class
+} // ColumnStore class
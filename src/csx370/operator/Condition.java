@@ -0,0 +1,152 @@
+package csx370.operator;
+
+/****************************************************************************************
+ * @file   Condition.java
+ */
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/****************************************************************************************
+ * This class implements conjunctive selection conditions built against a table,
+ * e.g., student.where ("name", EQ, "Joe").and ("status", EQ, "UG"). Each
+ * conjunct resolves its column position and checks its value against the
+ * column's domain once, when it is built, so evaluation never calls col () or
+ * match () per tuple.
+ */
+@SuppressWarnings("rawtypes")
+public class Condition implements Predicate<Comparable[]> {
+	/************************************************************************************
+	 * Comparison operators usable in a conjunct.
+	 */
+	public enum Op { EQ, NE, LT, LE, GT, GE }
+	
+	/** The table the condition is bound to. */
+	private final Table table;
+	
+	/** Column position of each conjunct. */
+	final int[] col;
+	
+	/** Comparison operator of each conjunct. */
+	final Op[] op;
+	
+	/** Constant compared against in each conjunct. */
+	final Comparable[] value;
+	
+	/************************************************************************************
+	 * Construct a condition from already resolved conjuncts.
+	 *
+	 * @param _table the table the condition is bound to
+	 * @param _col   the column positions
+	 * @param _op    the comparison operators
+	 * @param _value the constants
+	 */
+	Condition(Table _table, int[] _col, Op[] _op, Comparable[] _value) {
+		table = _table;
+		col = _col;
+		op = _op;
+		value = _value;
+	} // constructor
+	
+	/************************************************************************************
+	 * Return a new condition that also requires attr op value.
+	 *
+	 * #usage student.where ("name", EQ, n).and ("status", EQ, s)
+	 *
+	 * @param attr   the attribute name
+	 * @param _op    the comparison operator
+	 * @param _value the constant to compare with
+	 * @return       the conjunction of this condition and the new conjunct
+	 */
+	public Condition and(String attr, Op _op, Comparable _value) {
+		Condition c = table.where(attr, _op, _value);
+		int n = col.length;
+		
+		int[] newCol = Arrays.copyOf(col, n + 1);
+		Op[] newOp = Arrays.copyOf(op, n + 1);
+		Comparable[] newValue = Arrays.copyOf(value, n + 1);
+		newCol[n] = c.col[0];
+		newOp[n] = c.op[0];
+		newValue[n] = c.value[0];
+		
+		return new Condition(table, newCol, newOp, newValue);
+	} // and
+	
+	/************************************************************************************
+	 * Select the tuples of the bound table satisfying this condition.
+	 *
+	 * @return a table with tuples satisfying the condition
+	 */
+	public Table select() {
+		return table.select(this);
+	} // select
+	
+	/************************************************************************************
+	 * Evaluate the condition on a tuple of the bound table.
+	 *
+	 * @param t the tuple to check
+	 * @return  whether every conjunct holds
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean test(Comparable[] t) {
+		for (int k = 0; k < col.length; k++) {
+			switch (op[k]) {
+			case EQ:
+				if (!value[k].equals(t[col[k]])) return false;
+				break;
+			case NE:
+				if (value[k].equals(t[col[k]])) return false;
+				break;
+			default:
+				if (!holds(op[k], t[col[k]].compareTo(value[k]))) return false;
+			} // switch
+		} // for
+		return true;
+	} // test
+	
+	/************************************************************************************
+	 * Return the constant of an equality conjunct on the given column, if any.
+	 *
+	 * @param c the column position
+	 * @return  the constant or null if no conjunct requires t[c] == constant
+	 */
+	Comparable eq(int c) {
+		for (int k = 0; k < col.length; k++) {
+			if (col[k] == c && op[k] == Op.EQ) {
+				return value[k];
+			} // if
+		} // for
+		return null;
+	} // eq
+	
+	/************************************************************************************
+	 * Determine whether a comparison result satisfies the operator.
+	 *
+	 * @param op  the comparison operator
+	 * @param cmp the result of compareTo (tuple value vs. constant)
+	 * @return    whether the comparison holds
+	 */
+	static boolean holds(Op op, int cmp) {
+		switch (op) {
+		case EQ: return cmp == 0;
+		case NE: return cmp != 0;
+		case LT: return cmp < 0;
+		case LE: return cmp <= 0;
+		case GT: return cmp > 0;
+		default: return cmp >= 0;
+		} // switch
+	} // holds
+	
+	/************************************************************************************
+	 * Convert the condition to a string.
+	 *
+	 * @return the string representation of the condition
+	 */
+	public String toString() {
+		String s = "";
+		for (int k = 0; k < col.length; k++) {
+			s += ((k > 0) ? " and " : "") + "t[" + col[k] + "] " + op[k] + " " + value[k];
+		} // for
+		return s;
+	} // toString
+} // Condition class
@@ -0,0 +1,30 @@
+package csx370.operator;
+
+/****************************************************************************************
+ * @file   Cursor.java
+ */
+
+/****************************************************************************************
+ * This interface defines pull-based (Volcano-style) operator cursors. A parent
+ * operator pulls one tuple at a time from its child, so chained operators pass
+ * tuples along without materializing intermediate tables.
+ */
+@SuppressWarnings("rawtypes")
+public interface Cursor {
+	/************************************************************************************
+	 * Prepare the cursor (and its inputs) to produce tuples from the start.
+	 */
+	void open();
+	
+	/************************************************************************************
+	 * Return the next tuple.
+	 *
+	 * @return the next tuple or null when there are no more
+	 */
+	Comparable[] next();
+	
+	/************************************************************************************
+	 * Release whatever the cursor (and its inputs) hold.
+	 */
+	void close();
+} // Cursor interface
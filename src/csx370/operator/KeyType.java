@@ -47,6 +47,16 @@ public class KeyType implements Comparable<KeyType>, Serializable {
 			key[i] = keys[i - 1];
 	} // constructor
 	
+	/*************************************************************************************
+	 * Return the attribute values of this key.
+	 * 
+	 * @return  the key values
+	 */
+	@SuppressWarnings("rawtypes")
+	Comparable[] values() {
+		return key;
+	} // values
+	
 	/*************************************************************************************
 	 * Compare two keys (negative ={@literal >} less than, zero ={@literal >} equals, 
 	 * positive ={@literal >} greater than).
@@ -71,8 +81,9 @@ public class KeyType implements Comparable<KeyType>, Serializable {
 	 * @param k  the other key (to compare with this)
 	 * @return   true if equal, false otherwise
 	 */
-	public boolean equals(KeyType k) {
-		return compareTo(k) == 0;
+	public boolean equals(Object k) {
+		return k instanceof KeyType && ((KeyType) k).key.length == key.length
+				&& compareTo((KeyType) k) == 0;
 	} // equals
 	
 	/*************************************************************************************
@@ -0,0 +1,75 @@
+package csx370.operator;
+
+/****************************************************************************************
+ * @file   ParallelJoin.java
+ */
+
+import java.util.*;
+
+/****************************************************************************************
+ * This class implements a partitioned parallel hash join. Both inputs are split
+ * into partitions by the hash of their join values, so matching tuples always
+ * land in the same partition. Each pair of partitions is then joined by its own
+ * fork/join task into its own result list, and the lists are concatenated once
+ * every task has finished.
+ */
+@SuppressWarnings("rawtypes")
+class ParallelJoin {
+	/************************************************************************************
+	 * Equijoin two lists of tuples in parallel. Output tuples list the left
+	 * tuple's values first.
+	 *
+	 * @param t_rows the tuples of the left input
+	 * @param t_cols the column positions of the left join attributes
+	 * @param u_rows the tuples of the right input
+	 * @param u_cols the column positions of the right join attributes
+	 * @return       the concatenated matching tuples
+	 */
+	static List<Comparable[]> join(List<Comparable[]> t_rows, int[] t_cols, List<Comparable[]> u_rows,
+			int[] u_cols) {
+		int parts = Partitions.count(t_rows.size() + u_rows.size());
+		Partitions left = new Partitions(t_rows, t_cols, parts);
+		Partitions right = new Partitions(u_rows, u_cols, parts);
+		
+		return Partitions.run(parts, p -> joinPartition(left, right, p));
+	} // join
+	
+	/************************************************************************************
+	 * Hash join partition p of both sides, building on the smaller one.
+	 *
+	 * @param left  the left side
+	 * @param right the right side
+	 * @param p     the partition
+	 * @return      the matching tuples of the partition
+	 */
+	private static List<Comparable[]> joinPartition(Partitions left, Partitions right, int p) {
+		boolean buildLeft = left.size(p) <= right.size(p);
+		Partitions build = (buildLeft) ? left : right;
+		Partitions probe = (buildLeft) ? right : left;
+		
+		Map<KeyType, List<Comparable[]>> hashTable = new HashMap<>(build.size(p) * 4 / 3 + 1);
+		for (int x = build.start[p]; x < build.start[p + 1]; x++) {
+			int i = build.order[x];
+			List<Comparable[]> bucket = hashTable.get(build.key[i]);
+			if (bucket == null) {
+				bucket = new ArrayList<>(1);
+				hashTable.put(build.key[i], bucket);
+			}
+			bucket.add(build.rows.get(i));
+		} // for
+		
+		List<Comparable[]> rows = new ArrayList<>();
+		for (int x = probe.start[p]; x < probe.start[p + 1]; x++) {
+			int i = probe.order[x];
+			List<Comparable[]> bucket = hashTable.get(probe.key[i]);
+			if (bucket == null) {
+				continue;
+			}
+			Comparable[] q = probe.rows.get(i);
+			for (Comparable[] b : bucket) {
+				rows.add((buildLeft) ? ArrayUtil.concat(b, q) : ArrayUtil.concat(q, b));
+			}
+		} // for
+		return rows;
+	} // joinPartition
+} // ParallelJoin class
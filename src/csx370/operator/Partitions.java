@@ -0,0 +1,169 @@
+package csx370.operator;
+
+/****************************************************************************************
+ * @file   Partitions.java
+ */
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/****************************************************************************************
+ * This class splits a list of tuples into partitions by the hash of some of
+ * their columns, so that tuples with equal values always land in the same
+ * partition. The tuples of partition p are rows[order[start[p]]] ...
+ * rows[order[start[p+1] - 1]]. Partitions are processed as fork/join tasks by
+ * run, each producing its own result list.
+ */
+@SuppressWarnings("rawtypes")
+class Partitions {
+	/** The fewest tuples worth giving a partition of its own. */
+	private static final int MIN_PARTITION = 256;
+	
+	/** The pool running the partition tasks. */
+	private static final ForkJoinPool POOL = ForkJoinPool.commonPool();
+	
+	/** The partitioned tuples. */
+	final List<Comparable[]> rows;
+	
+	/** The hashed column values of each tuple. */
+	final KeyType[] key;
+	
+	/** Where each partition starts in order (with one extra entry for the end). */
+	final int[] start;
+	
+	/** The tuple positions grouped by partition. */
+	final int[] order;
+	
+	/************************************************************************************
+	 * Hash and partition the tuples on the given columns (null for all columns).
+	 *
+	 * @param _rows the tuples to partition
+	 * @param cols  the column positions to hash on, or null for whole tuples
+	 * @param parts the number of partitions (a power of 2)
+	 */
+	Partitions(List<Comparable[]> _rows, int[] cols, int parts) {
+		rows = _rows;
+		int n = rows.size();
+		key = new KeyType[n];
+		int[] part = new int[n];
+		int shift = 32 - Integer.numberOfTrailingZeros(parts);
+		
+		// hashing is the expensive part, so it runs in parallel (unless unpartitioned)
+		IntStream range = IntStream.range(0, n);
+		(parts == 1 ? range : range.parallel()).forEach(i -> {
+			Comparable[] t = rows.get(i);
+			if (cols == null) {
+				key[i] = new KeyType(t);
+			} else {
+				Comparable[] v = new Comparable[cols.length];
+				for (int j = 0; j < cols.length; j++) {
+					v[j] = t[cols[j]];
+				}
+				key[i] = new KeyType(v);
+			} // if
+			// use the high bits, as HashMap buckets within a partition use the low ones
+			part[i] = (parts == 1) ? 0 : (key[i].hashCode() * 0x9E3779B9) >>> shift;
+		});
+		
+		// counting sort of the tuple positions by partition
+		start = new int[parts + 1];
+		for (int i = 0; i < n; i++) {
+			start[part[i] + 1]++;
+		}
+		for (int p = 0; p < parts; p++) {
+			start[p + 1] += start[p];
+		}
+		order = new int[n];
+		int[] next = Arrays.copyOf(start, parts);
+		for (int i = 0; i < n; i++) {
+			order[next[part[i]]++] = i;
+		}
+	} // constructor
+	
+	/************************************************************************************
+	 * Return the number of tuples in partition p.
+	 *
+	 * @param p the partition
+	 * @return  its number of tuples
+	 */
+	int size(int p) {
+		return start[p + 1] - start[p];
+	} // size
+	
+	/************************************************************************************
+	 * Choose the number of partitions for n tuples: a few per worker thread, so
+	 * that uneven partitions still balance, but never so many that they become
+	 * tiny.
+	 *
+	 * @param n the total number of tuples
+	 * @return  the number of partitions (a power of 2)
+	 */
+	static int count(int n) {
+		int parts = 1;
+		while (parts < 4 * POOL.getParallelism()) {
+			parts <<= 1;
+		}
+		while (parts > 1 && n / parts < MIN_PARTITION) {
+			parts >>= 1;
+		}
+		return parts;
+	} // count
+	
+	/************************************************************************************
+	 * The task running the partitions lo ... hi - 1, splitting the range in half
+	 * until a single partition is left. Each partition writes its own slot of
+	 * result, so no list is shared between threads.
+	 */
+	private static class Task extends RecursiveAction {
+		/** Serialization */
+		private static final long serialVersionUID = 1L;
+		
+		final IntFunction<List<Comparable[]>> work;
+		final List<Comparable[]>[] result;
+		final int lo, hi;
+		
+		Task(IntFunction<List<Comparable[]>> _work, List<Comparable[]>[] _result, int _lo, int _hi) {
+			work = _work;
+			result = _result;
+			lo = _lo;
+			hi = _hi;
+		} // constructor
+		
+		@Override
+		protected void compute() {
+			if (hi - lo == 1) {
+				result[lo] = work.apply(lo);
+			} else {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new Task(work, result, lo, mid), new Task(work, result, mid, hi));
+			} // if
+		} // compute
+	} // Task inner class
+	
+	/************************************************************************************
+	 * Run work on every partition as fork/join tasks and concatenate the
+	 * resulting tuples, in partition order, into one presized list.
+	 *
+	 * @param parts the number of partitions
+	 * @param work  maps a partition to its result tuples
+	 * @return      the concatenated result tuples
+	 */
+	@SuppressWarnings("unchecked")
+	static List<Comparable[]> run(int parts, IntFunction<List<Comparable[]>> work) {
+		List<Comparable[]>[] result = new List[parts];
+		POOL.invoke(new Task(work, result, 0, parts));
+		
+		int total = 0;
+		for (List<Comparable[]> r : result) {
+			total += r.size();
+		}
+		List<Comparable[]> rows = new ArrayList<>(total);
+		for (List<Comparable[]> r : result) {
+			rows.addAll(r);
+		}
+		return rows;
+	} // run
+} // Partitions class
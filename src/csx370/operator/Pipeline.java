@@ -0,0 +1,397 @@
+package csx370.operator;
+
+/****************************************************************************************
+ * @file   Pipeline.java
+ */
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/****************************************************************************************
+ * This class chains relational operators into a pull-based pipeline of cursors.
+ * Each step only wraps the cursor of the previous one, so no intermediate table
+ * is built; tuples are materialized into a Table only by toTable.
+ *
+ * #usage movie.pipeline ().where ("year", GT, 1970).project ("title studioName")
+ *            .join ("studioName", "name", studio).toTable ()
+ */
+@SuppressWarnings("rawtypes")
+public class Pipeline {
+	/** The name of the table the pipeline starts from. */
+	private final String name;
+	
+	/** The attribute names of the tuples produced. */
+	private final String[] attribute;
+	
+	/** The domains of the tuples produced. */
+	private final Class[] domain;
+	
+	/** The primary key of the tuples produced. */
+	private final String[] key;
+	
+	/** The cursor producing the tuples. */
+	private final Cursor cursor;
+	
+	/************************************************************************************
+	 * Construct a pipeline producing tuples of the given schema from a cursor.
+	 *
+	 * @param _name      the name of the table the pipeline starts from
+	 * @param _attribute the attribute names of the tuples
+	 * @param _domain    the domains of the tuples
+	 * @param _key       the primary key of the tuples
+	 * @param _cursor    the cursor producing the tuples
+	 */
+	Pipeline(String _name, String[] _attribute, Class[] _domain, String[] _key, Cursor _cursor) {
+		name = _name;
+		attribute = _attribute;
+		domain = _domain;
+		key = _key;
+		cursor = _cursor;
+	} // constructor
+	
+	/************************************************************************************
+	 * Keep the tuples satisfying the predicate.
+	 *
+	 * #usage p.select (t -{@literal >} t[p.col("year")].equals (1977))
+	 *
+	 * @param predicate the check condition for tuples
+	 * @return          the extended pipeline
+	 */
+	public Pipeline select(Predicate<Comparable[]> predicate) {
+		return new Pipeline(name, attribute, domain, key, new Filter(cursor, predicate));
+	} // select
+	
+	/************************************************************************************
+	 * Keep the tuples where attr op value holds.
+	 *
+	 * #usage p.where ("year", GT, 1970)
+	 *
+	 * @param attr  the attribute name
+	 * @param op    the comparison operator
+	 * @param value the constant to compare with
+	 * @return      the extended pipeline
+	 */
+	@SuppressWarnings("unchecked")
+	public Pipeline where(String attr, Condition.Op op, Comparable value) {
+		int j = col(attr);
+		if (j < 0) {
+			throw new IllegalArgumentException("pipeline has no attribute " + attr);
+		}
+		if (!domain[j].isInstance(value)) {
+			throw new IllegalArgumentException(value + " is not in the domain of " + attr);
+		}
+		return select(t -> Condition.holds(op, t[j].compareTo(value)));
+	} // where
+	
+	/************************************************************************************
+	 * Keep only the given attributes, dropping duplicate tuples unless the
+	 * primary key is kept.
+	 *
+	 * #usage p.project ("title year")
+	 *
+	 * @param attributes the attributes to project onto
+	 * @return           the extended pipeline
+	 */
+	public Pipeline project(String attributes) {
+		String[] attrs = attributes.split(" ");
+		int[] cols = match(attrs);
+		Class[] newDomain = new Class[cols.length];
+		for (int j = 0; j < cols.length; j++) {
+			newDomain[j] = domain[cols[j]];
+		}
+		boolean keepsKey = Arrays.asList(attrs).containsAll(Arrays.asList(key));
+		return new Pipeline(name, attrs, newDomain, (keepsKey) ? key : attrs,
+				new Project(cursor, cols, !keepsKey));
+	} // project
+	
+	/************************************************************************************
+	 * Equijoin the tuples with table2. When attribute2 is the primary key of
+	 * table2 each tuple probes table2's index, so each tuple joins at most one
+	 * and the pipeline's key stays a key; otherwise a hash table is built on
+	 * table2 when the pipeline is opened, and the key takes in table2's key too.
+	 * Output tuples list the pipeline's attributes first.
+	 *
+	 * #usage p.join ("studioName", "name", studio)
+	 *
+	 * @param attribute1 the attributes of the pipeline to be compared
+	 * @param attribute2 the attributes of table2 to be compared
+	 * @param table2     the rhs table in the join operation
+	 * @return           the extended pipeline
+	 */
+	public Pipeline join(String attribute1, String attribute2, Table table2) {
+		int[] cols = match(attribute1.split(" "));
+		String[] attrs2 = attribute2.split(" ");
+		String[] newAttribute = ArrayUtil.concat(attribute, table2.getAttribute());
+		Class[] newDomain = ArrayUtil.concat(domain, table2.getDomain());
+		if (Arrays.equals(attrs2, table2.getKey())) {
+			return new Pipeline(name, newAttribute, newDomain, key, new IndexJoin(cursor, cols, table2));
+		}
+		
+		// a tuple may join many of table2's, so only both keys together identify the output
+		Set<String> newKey = new LinkedHashSet<>(Arrays.asList(key));
+		newKey.addAll(Arrays.asList(table2.getKey()));
+		return new Pipeline(name, newAttribute, newDomain, newKey.toArray(new String[newKey.size()]),
+				new HashJoin(cursor, cols, table2, table2.pipeline().match(attrs2)));
+	} // join
+	
+	/************************************************************************************
+	 * Return the cursor at the end of the pipeline, for callers pulling tuples
+	 * themselves (open it first, close it when done).
+	 *
+	 * @return the cursor producing the pipeline's tuples
+	 */
+	public Cursor cursor() {
+		return cursor;
+	} // cursor
+	
+	/************************************************************************************
+	 * Run the pipeline and materialize its tuples into a table.
+	 *
+	 * @return a table holding the tuples produced
+	 */
+	public Table toTable() {
+		List<Comparable[]> rows = new ArrayList<>();
+		cursor.open();
+		try {
+			for (Comparable[] t = cursor.next(); t != null; t = cursor.next()) {
+				rows.add(t);
+			}
+		} finally {
+			cursor.close();
+		}
+		return new Table(Table.tempName(name), attribute, domain, key, rows);
+	} // toTable
+	
+	/************************************************************************************
+	 * Return the column position of the attribute in the pipeline's tuples.
+	 *
+	 * @param attr the attribute name
+	 * @return     the column position or -1 if not found
+	 */
+	public int col(String attr) {
+		for (int j = 0; j < attribute.length; j++) {
+			if (attr.equals(attribute[j])) {
+				return j;
+			}
+		}
+		return -1;
+	} // col
+	
+	/************************************************************************************
+	 * Resolve attribute names to column positions.
+	 *
+	 * @param attrs the attribute names
+	 * @return      their column positions
+	 */
+	private int[] match(String[] attrs) {
+		int[] cols = new int[attrs.length];
+		for (int j = 0; j < attrs.length; j++) {
+			cols[j] = col(attrs[j]);
+			if (cols[j] < 0) {
+				throw new IllegalArgumentException("pipeline has no attribute " + attrs[j]);
+			}
+		}
+		return cols;
+	} // match
+	
+	/************************************************************************************
+	 * Extract the values at the given column positions of a tuple.
+	 *
+	 * @param t    the tuple
+	 * @param cols the column positions
+	 * @return     the key of those values
+	 */
+	private static KeyType keyOf(Comparable[] t, int[] cols) {
+		Comparable[] v = new Comparable[cols.length];
+		for (int j = 0; j < cols.length; j++) {
+			v[j] = t[cols[j]];
+		}
+		return new KeyType(v);
+	} // keyOf
+	
+	// ----------------------------------------------------------------------------------
+	// Cursors
+	// ----------------------------------------------------------------------------------
+	
+	/************************************************************************************
+	 * Cursor reading the stored tuples of a table.
+	 */
+	static class Scan implements Cursor {
+		private final Table table;
+		private Iterator<Comparable[]> it;
+		
+		Scan(Table _table) {
+			table = _table;
+		} // constructor
+		
+		public void open() {
+			it = table.scan();
+		} // open
+		
+		public Comparable[] next() {
+			return (it.hasNext()) ? it.next() : null;
+		} // next
+		
+		public void close() {
+			it = null;
+		} // close
+	} // Scan class
+	
+	/************************************************************************************
+	 * Cursor passing on the input tuples satisfying a predicate.
+	 */
+	private static class Filter implements Cursor {
+		private final Cursor in;
+		private final Predicate<Comparable[]> predicate;
+		
+		Filter(Cursor _in, Predicate<Comparable[]> _predicate) {
+			in = _in;
+			predicate = _predicate;
+		} // constructor
+		
+		public void open() {
+			in.open();
+		} // open
+		
+		public Comparable[] next() {
+			for (Comparable[] t = in.next(); t != null; t = in.next()) {
+				if (predicate.test(t)) {
+					return t;
+				}
+			}
+			return null;
+		} // next
+		
+		public void close() {
+			in.close();
+		} // close
+	} // Filter class
+	
+	/************************************************************************************
+	 * Cursor keeping some columns of the input tuples, optionally dropping
+	 * duplicates (remembering only the keys seen so far).
+	 */
+	private static class Project implements Cursor {
+		private final Cursor in;
+		private final int[] cols;
+		private final boolean distinct;
+		private Set<KeyType> seen;
+		
+		Project(Cursor _in, int[] _cols, boolean _distinct) {
+			in = _in;
+			cols = _cols;
+			distinct = _distinct;
+		} // constructor
+		
+		public void open() {
+			in.open();
+			seen = (distinct) ? new HashSet<>() : null;
+		} // open
+		
+		public Comparable[] next() {
+			for (Comparable[] t = in.next(); t != null; t = in.next()) {
+				Comparable[] v = new Comparable[cols.length];
+				for (int j = 0; j < cols.length; j++) {
+					v[j] = t[cols[j]];
+				}
+				if (!distinct || seen.add(new KeyType(v))) {
+					return v;
+				}
+			}
+			return null;
+		} // next
+		
+		public void close() {
+			in.close();
+			seen = null;
+		} // close
+	} // Project class
+	
+	/************************************************************************************
+	 * Cursor joining each input tuple with the tuple of table2 whose primary key
+	 * equals its join values.
+	 */
+	private static class IndexJoin implements Cursor {
+		private final Cursor in;
+		private final int[] cols;
+		private final Table table2;
+		
+		IndexJoin(Cursor _in, int[] _cols, Table _table2) {
+			in = _in;
+			cols = _cols;
+			table2 = _table2;
+		} // constructor
+		
+		public void open() {
+			in.open();
+		} // open
+		
+		public Comparable[] next() {
+			for (Comparable[] t = in.next(); t != null; t = in.next()) {
+				Comparable[] u = table2.get(keyOf(t, cols));
+				if (u != null) {
+					return ArrayUtil.concat(t, u);
+				}
+			}
+			return null;
+		} // next
+		
+		public void close() {
+			in.close();
+		} // close
+	} // IndexJoin class
+	
+	/************************************************************************************
+	 * Cursor joining each input tuple with every tuple of table2 sharing its
+	 * join values, through a hash table built on table2 when opened.
+	 */
+	private static class HashJoin implements Cursor {
+		private final Cursor in;
+		private final int[] cols;
+		private final Table table2;
+		private final int[] cols2;
+		private Map<KeyType, List<Comparable[]>> hashTable;
+		private Comparable[] t;
+		private List<Comparable[]> matches;
+		private int m;
+		
+		HashJoin(Cursor _in, int[] _cols, Table _table2, int[] _cols2) {
+			in = _in;
+			cols = _cols;
+			table2 = _table2;
+			cols2 = _cols2;
+		} // constructor
+		
+		public void open() {
+			hashTable = new HashMap<>();
+			Cursor build = new Scan(table2);
+			build.open();
+			for (Comparable[] u = build.next(); u != null; u = build.next()) {
+				hashTable.computeIfAbsent(keyOf(u, cols2), k -> new ArrayList<>(1)).add(u);
+			}
+			build.close();
+			matches = Collections.emptyList();
+			m = 0;
+			in.open();
+		} // open
+		
+		public Comparable[] next() {
+			while (m >= matches.size()) {
+				t = in.next();
+				if (t == null) {
+					return null;
+				}
+				matches = hashTable.getOrDefault(keyOf(t, cols), Collections.emptyList());
+				m = 0;
+			}
+			return ArrayUtil.concat(t, matches.get(m++));
+		} // next
+		
+		public void close() {
+			in.close();
+			hashTable = null;
+			matches = null;
+			t = null;
+		} // close
+	} // HashJoin class
+} // Pipeline class
@@ -0,0 +1,157 @@
+package csx370.operator;
+
+/****************************************************************************************
+ * @file   Plan.java
+ */
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/****************************************************************************************
+ * This class holds prepared (immutable) operator plans. A plan resolves the
+ * attribute names of an operator to column positions and builds its output
+ * schema once, so executing it again only touches the tuples. Plans are made
+ * by Table.prepareJoin, Table.prepareProject and Table.prepareSelect.
+ */
+@SuppressWarnings("rawtypes")
+public abstract class Plan {
+	/** The table the plan reads from. */
+	final Table table;
+	
+	/** The attributes of the result. */
+	final String[] attribute;
+	
+	/** The domains of the result. */
+	final Class[] domain;
+	
+	/** The primary key of the result. */
+	final String[] key;
+	
+	/************************************************************************************
+	 * Construct a plan producing the given schema.
+	 *
+	 * @param _table     the table the plan reads from
+	 * @param _attribute the attributes of the result
+	 * @param _domain    the domains of the result
+	 * @param _key       the primary key of the result
+	 */
+	Plan(Table _table, String[] _attribute, Class[] _domain, String[] _key) {
+		table = _table;
+		attribute = _attribute;
+		domain = _domain;
+		key = _key;
+	} // constructor
+	
+	/************************************************************************************
+	 * A prepared index join of table with table2 on table's attributes (foreign
+	 * key) and table2's primary key.
+	 */
+	public static final class Join extends Plan {
+		/** The rhs table (held weakly, so a cached plan does not keep it alive). */
+		private final WeakReference<Table> table2;
+		
+		/** The column positions of the join attributes in table. */
+		final int[] col;
+		
+		Join(Table _table, Table _table2, int[] _col, String[] _attribute, Class[] _domain, String[] _key) {
+			super(_table, _attribute, _domain, _key);
+			table2 = new WeakReference<>(_table2);
+			col = _col;
+		} // constructor
+		
+		/********************************************************************************
+		 * Return the rhs table.
+		 *
+		 * @return the rhs table
+		 * @throws IllegalStateException if the rhs table is no longer referenced
+		 */
+		Table table2() {
+			Table t = table2.get();
+			if (t == null) {
+				throw new IllegalStateException("join: the rhs table is gone");
+			}
+			return t;
+		} // table2
+		
+		/********************************************************************************
+		 * Run the join against the current contents of both tables.
+		 *
+		 * @return a table with tuples satisfying the equality predicate
+		 */
+		public Table execute() {
+			return table.run(this);
+		} // execute
+	} // Join class
+	
+	/************************************************************************************
+	 * A prepared projection of table onto some of its attributes.
+	 */
+	public static final class Project extends Plan {
+		/** The column positions of the projected attributes. */
+		final int[] col;
+		
+		Project(Table _table, int[] _col, String[] _attribute, Class[] _domain, String[] _key) {
+			super(_table, _attribute, _domain, _key);
+			col = _col;
+		} // constructor
+		
+		/********************************************************************************
+		 * Run the projection against the current contents of the table.
+		 *
+		 * @return a table of the projected, distinct tuples
+		 */
+		public Table execute() {
+			return table.run(this);
+		} // execute
+	} // Project class
+	
+	/************************************************************************************
+	 * A prepared equality selection on some attributes of table, whose values
+	 * are supplied on each execution (a parametrized query).
+	 */
+	public static final class Select extends Plan {
+		/** The column positions of the parameters. */
+		final int[] col;
+		
+		/** The operator of every conjunct (all EQ). */
+		private final Condition.Op[] op;
+		
+		/** Whether the parameters are exactly the primary key, in order. */
+		final boolean primary;
+		
+		Select(Table _table, int[] _col, boolean _primary, String[] _attribute, Class[] _domain, String[] _key) {
+			super(_table, _attribute, _domain, _key);
+			col = _col;
+			op = new Condition.Op[col.length];
+			Arrays.fill(op, Condition.Op.EQ);
+			primary = _primary;
+		} // constructor
+		
+		/********************************************************************************
+		 * Select the tuples whose parameter attributes equal the given values. A
+		 * primary key lookup goes straight to the index; otherwise the selection
+		 * runs as a condition (using a secondary index when one fits).
+		 *
+		 * #usage plan.execute ("Joe", "UG")
+		 *
+		 * @param values one value per parameter attribute
+		 * @return       a table with tuples satisfying the selection
+		 */
+		public Table execute(Comparable... values) {
+			if (values.length != col.length) {
+				throw new IllegalArgumentException("expected " + col.length + " values, got " + values.length);
+			}
+			for (int k = 0; k < col.length; k++) {
+				if (!domain[col[k]].isInstance(values[k])) {
+					throw new IllegalArgumentException(values[k] + " is not in the domain of "
+							+ attribute[col[k]]);
+				}
+			} // for
+			
+			if (primary) {
+				return table.select(new KeyType(values.clone()));
+			}
+			return table.select(new Condition(table, col, op, values.clone()));
+		} // execute
+	} // Select class
+} // Plan class
@@ -0,0 +1,48 @@
+package csx370.operator;
+
+/****************************************************************************************
+ * @file   PlanCache.java
+ */
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/****************************************************************************************
+ * This class implements a bounded cache of prepared plans, evicting the least
+ * recently used plan once full. Each table keeps its own caches, keyed by the
+ * operator and attribute strings, e.g., ["select", "name status"].
+ *
+ * @param <K> the type of the keys
+ * @param <P> the type of the plans
+ */
+class PlanCache<K, P extends Plan> {
+	/** The most plans kept at once. */
+	private static final int CAPACITY = 64;
+	
+	/** The cached plans, in access order. */
+	private final Map<K, P> plans = new LinkedHashMap<K, P>(16, 0.75f, true) {
+		/** Serialization */
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, P> eldest) {
+			return size() > CAPACITY;
+		} // removeEldestEntry
+	};
+	
+	/************************************************************************************
+	 * Return the cached plan for the key, preparing and caching it if absent.
+	 *
+	 * @param key     the operator and attributes of the plan
+	 * @param prepare builds the plan on a miss
+	 * @return        the plan
+	 */
+	synchronized P get(K key, Supplier<P> prepare) {
+		P plan = plans.get(key);
+		if (plan == null) {
+			plan = prepare.get();
+			plans.put(key, plan);
+		}
+		return plan;
+	} // get
+} // PlanCache class
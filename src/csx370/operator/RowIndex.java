@@ -0,0 +1,161 @@
+package csx370.operator;
+
+/****************************************************************************************
+ * @file   RowIndex.java
+ */
+
+import java.io.Serializable;
+import java.util.*;
+
+/****************************************************************************************
+ * This class presents a map from keys to row positions as the primary index of a
+ * columnar table. Only the position of each row is indexed, not a boxed copy of
+ * its tuple, and a lookup decodes just that row from the column vectors. The
+ * positions are kept in any of the index structures (TreeMap, BPTreeMap,
+ * LinHashMap, ExtHashMap).
+ */
+@SuppressWarnings("rawtypes")
+class RowIndex extends AbstractMap<KeyType, Comparable[]> implements Serializable {
+	/** Serialization */
+	private static final long serialVersionUID = 1L;
+	
+	/** The row position of each key. */
+	private final Map<KeyType, Integer> position;
+	
+	/** The column vectors the positions point into. */
+	private final ColumnStore columns;
+	
+	/************************************************************************************
+	 * Construct an index over the rows of a column store.
+	 *
+	 * @param _position the (empty) map to keep the row positions in
+	 * @param _columns  the column vectors
+	 */
+	RowIndex(Map<KeyType, Integer> _position, ColumnStore _columns) {
+		position = _position;
+		columns = _columns;
+	} // constructor
+	
+	/************************************************************************************
+	 * Return the map from keys to row positions.
+	 *
+	 * @return the row positions
+	 */
+	Map<KeyType, Integer> positions() {
+		return position;
+	} // positions
+	
+	/************************************************************************************
+	 * Return the row position of the given key.
+	 *
+	 * @param key the key
+	 * @return    the row position, or -1 if the key is not indexed
+	 */
+	int position(KeyType key) {
+		Integer i = position.get(key);
+		return (i == null) ? -1 : i;
+	} // position
+	
+	/************************************************************************************
+	 * Index the row at the given position under the given key.
+	 *
+	 * @param key the key of the row
+	 * @param i   the row position
+	 */
+	void put(KeyType key, int i) {
+		position.put(key, i);
+	} // put
+	
+	/************************************************************************************
+	 * Move every indexed row to its new position after rows were removed from
+	 * the column vectors, dropping the keys of removed rows.
+	 *
+	 * @param to the new position of each old row position (-1 if removed)
+	 */
+	void remap(int[] to) {
+		for (KeyType k : new ArrayList<>(position.keySet())) {
+			int i = position.get(k);
+			if (to[i] < 0) {
+				position.remove(k);
+			} else if (to[i] != i) {
+				position.put(k, to[i]);
+			} // if
+		} // for
+	} // remap
+	
+	/************************************************************************************
+	 * Look up the tuple with the given key, decoding its row.
+	 *
+	 * @param key the key (a KeyType)
+	 * @return    the tuple, or null if there is none
+	 */
+	@Override
+	public Comparable[] get(Object key) {
+		Integer i = position.get(key);
+		return (i == null) ? null : columns.row(i);
+	} // get
+	
+	/************************************************************************************
+	 * Determine whether a row with the given key is indexed.
+	 *
+	 * @param key the key (a KeyType)
+	 * @return    whether the key is in the index
+	 */
+	@Override
+	public boolean containsKey(Object key) {
+		return position.get(key) != null;
+	} // containsKey
+	
+	/************************************************************************************
+	 * Stop indexing the row with the given key (the row itself stays stored).
+	 *
+	 * @param key the key (a KeyType)
+	 * @return    the tuple, or null if there was none
+	 */
+	@Override
+	public Comparable[] remove(Object key) {
+		Integer i = position.remove(key);
+		return (i == null) ? null : columns.row(i);
+	} // remove
+	
+	/************************************************************************************
+	 * Return the number of keys in the index.
+	 *
+	 * @return the number of keys
+	 */
+	@Override
+	public int size() {
+		return position.size();
+	} // size
+	
+	/************************************************************************************
+	 * Return the entries in the order of the underlying map, decoding each row
+	 * only as the iteration reaches it.
+	 *
+	 * @return the set of entries
+	 */
+	@Override
+	public Set<Map.Entry<KeyType, Comparable[]>> entrySet() {
+		return new AbstractSet<Map.Entry<KeyType, Comparable[]>>() {
+			@Override
+			public Iterator<Map.Entry<KeyType, Comparable[]>> iterator() {
+				Iterator<Map.Entry<KeyType, Integer>> it = position.entrySet().iterator();
+				return new Iterator<Map.Entry<KeyType, Comparable[]>>() {
+					public boolean hasNext() {
+						return it.hasNext();
+					} // hasNext
+					
+					public Map.Entry<KeyType, Comparable[]> next() {
+						Map.Entry<KeyType, Integer> e = it.next();
+						return new SimpleImmutableEntry<>(e.getKey(), columns.row(e.getValue()));
+					} // next
+				};
+			} // iterator
+			
+			@Override
+			public int size() {
+				return position.size();
+			} // size
+		};
+	} // entrySet
+} // RowIndex class
@@ -0,0 +1,118 @@
+package csx370.operator;
+
+/****************************************************************************************
+ * @file   SecondaryIndex.java
+ */
+
+import java.io.Serializable;
+import java.util.*;
+
+/****************************************************************************************
+ * This class implements a secondary index on an arbitrary set of attributes of a
+ * table. Since those attributes need not be unique, each key maps to the list of
+ * tuples sharing its values.
+ */
+@SuppressWarnings("rawtypes")
+class SecondaryIndex implements Serializable {
+	/** Serialization */
+	private static final long serialVersionUID = 1L;
+	
+	/** The indexed attribute names. */
+	final String[] attribute;
+	
+	/** The column positions of the indexed attributes. */
+	final int[] col;
+	
+	/** The index (maps key values to the tuples holding them). */
+	private final Map<KeyType, List<Comparable[]>> map;
+	
+	/************************************************************************************
+	 * Construct an empty secondary index.
+	 * 
+	 * @param _attribute the indexed attribute names
+	 * @param _col       their column positions
+	 * @param _map       the (empty) map structure to index with
+	 */
+	SecondaryIndex(String[] _attribute, int[] _col, Map<KeyType, List<Comparable[]>> _map) {
+		attribute = _attribute;
+		col = _col;
+		map = _map;
+	} // constructor
+	
+	/************************************************************************************
+	 * Add a tuple to the index.
+	 * 
+	 * @param tup the tuple to index
+	 */
+	void add(Comparable[] tup) {
+		Comparable[] keyVal = new Comparable[col.length];
+		for (int j = 0; j < col.length; j++) {
+			keyVal[j] = tup[col[j]];
+		} // for
+		
+		KeyType k = new KeyType(keyVal);
+		List<Comparable[]> list = map.get(k);
+		if (list == null) {
+			list = new ArrayList<>(1);
+			map.put(k, list);
+		} // if
+		list.add(tup);
+	} // add
+	
+	/************************************************************************************
+	 * Remove a tuple (or one equal to it) from the index, dropping its key once
+	 * no tuple holds it.
+	 * 
+	 * @param tup the tuple to unindex
+	 */
+	void remove(Comparable[] tup) {
+		Comparable[] keyVal = new Comparable[col.length];
+		for (int j = 0; j < col.length; j++) {
+			keyVal[j] = tup[col[j]];
+		} // for
+		
+		KeyType k = new KeyType(keyVal);
+		List<Comparable[]> list = map.get(k);
+		if (list == null) {
+			return;
+		} // if
+		for (int i = 0; i < list.size(); i++) {
+			if (Arrays.equals(list.get(i), tup)) {
+				list.remove(i);
+				break;
+			} // if
+		} // for
+		if (list.isEmpty()) {
+			map.remove(k);
+		} // if
+	} // remove
+	
+	/************************************************************************************
+	 * Return the tuples whose indexed attributes equal the given key.
+	 * 
+	 * @param k the key values (in the order of the indexed attributes)
+	 * @return  the matching tuples (empty if none)
+	 */
+	List<Comparable[]> get(KeyType k) {
+		List<Comparable[]> list = map.get(k);
+		return (list == null) ? Collections.<Comparable[]>emptyList() : list;
+	} // get
+	
+	/************************************************************************************
+	 * Find the key for an index lookup answering the condition, i.e., one
+	 * equality conjunct for every indexed attribute.
+	 * 
+	 * @param condition the selection condition
+	 * @return          the key values or null if the index cannot be used
+	 */
+	Comparable[] lookupKey(Condition condition) {
+		Comparable[] keyVal = new Comparable[col.length];
+		for (int j = 0; j < col.length; j++) {
+			keyVal[j] = condition.eq(col[j]);
+			if (keyVal[j] == null) {
+				return null;
+			} // if
+		} // for
+		return keyVal;
+	} // lookupKey
+} // SecondaryIndex class
@@ -0,0 +1,196 @@
+package csx370.operator;
+
+/****************************************************************************************
+ * @file   SortedRun.java
+ */
+
+import java.util.*;
+
+/****************************************************************************************
+ * This class presents keys sorted in ascending order (without duplicates) and
+ * their values, held in two arrays, as a read-only SortedMap. Passing it to
+ * putAll lets an empty ordered index build itself bottom-up in one pass, as
+ * TreeMap and BpTreeMap do for sorted maps, instead of inserting each key.
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+class SortedRun<K, V> extends AbstractMap<K, V> implements SortedMap<K, V> {
+	/** The keys in ascending order. */
+	private final Object[] key;
+
+	/** The value of each key. */
+	private final Object[] value;
+
+	/** The range of positions [lo, hi) in the run. */
+	private final int lo, hi;
+
+	/************************************************************************************
+	 * Construct a run over the first n keys and values.
+	 *
+	 * @param _key   the keys in ascending order
+	 * @param _value the value of each key
+	 * @param n      the number of keys
+	 */
+	SortedRun(Object[] _key, Object[] _value, int n) {
+		this(_key, _value, 0, n);
+	} // constructor
+
+	/************************************************************************************
+	 * Construct a run over the positions [lo, hi).
+	 */
+	private SortedRun(Object[] _key, Object[] _value, int _lo, int _hi) {
+		key = _key;
+		value = _value;
+		lo = _lo;
+		hi = _hi;
+	} // constructor
+
+	/************************************************************************************
+	 * Return the number of keys in the run.
+	 *
+	 * @return the number of keys
+	 */
+	@Override
+	public int size() {
+		return hi - lo;
+	} // size
+
+	/************************************************************************************
+	 * Look up the value of a key by binary search.
+	 *
+	 * @param k the key
+	 * @return  the value, or null if the key is not in the run
+	 */
+	@Override
+	public V get(Object k) {
+		int i = Arrays.binarySearch(key, lo, hi, k);
+		return (i >= 0) ? (V) value[i] : null;
+	} // get
+
+	/************************************************************************************
+	 * Determine whether a key is in the run.
+	 *
+	 * @param k the key
+	 * @return  whether it is in the run
+	 */
+	@Override
+	public boolean containsKey(Object k) {
+		return Arrays.binarySearch(key, lo, hi, k) >= 0;
+	} // containsKey
+
+	/************************************************************************************
+	 * Return the entries in key order.
+	 *
+	 * @return the set of entries
+	 */
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		return new AbstractSet<Map.Entry<K, V>>() {
+			@Override
+			public int size() {
+				return hi - lo;
+			} // size
+
+			@Override
+			public Iterator<Map.Entry<K, V>> iterator() {
+				return new Iterator<Map.Entry<K, V>>() {
+					private int i = lo;
+
+					@Override
+					public boolean hasNext() {
+						return i < hi;
+					} // hasNext
+
+					@Override
+					public Map.Entry<K, V> next() {
+						if (i >= hi) {
+							throw new NoSuchElementException();
+						}
+						i++;
+						return new SimpleImmutableEntry<>((K) key[i - 1], (V) value[i - 1]);
+					} // next
+				};
+			} // iterator
+		};
+	} // entrySet
+
+	/************************************************************************************
+	 * Return null, as the keys are in their natural order.
+	 *
+	 * @return null
+	 */
+	@Override
+	public Comparator<? super K> comparator() {
+		return null;
+	} // comparator
+
+	/************************************************************************************
+	 * Return the part of the run from fromKey (inclusive) to toKey (exclusive).
+	 *
+	 * @param fromKey the low key
+	 * @param toKey   the high key
+	 * @return        the part of the run
+	 */
+	@Override
+	public SortedMap<K, V> subMap(K fromKey, K toKey) {
+		if (((Comparable) fromKey).compareTo(toKey) > 0) {
+			throw new IllegalArgumentException("fromKey > toKey");
+		}
+		return new SortedRun<>(key, value, position(fromKey), position(toKey));
+	} // subMap
+
+	/************************************************************************************
+	 * Return the part of the run below toKey.
+	 *
+	 * @param toKey the high key (exclusive)
+	 * @return      the part of the run
+	 */
+	@Override
+	public SortedMap<K, V> headMap(K toKey) {
+		return new SortedRun<>(key, value, lo, position(toKey));
+	} // headMap
+
+	/************************************************************************************
+	 * Return the part of the run from fromKey on.
+	 *
+	 * @param fromKey the low key (inclusive)
+	 * @return        the part of the run
+	 */
+	@Override
+	public SortedMap<K, V> tailMap(K fromKey) {
+		return new SortedRun<>(key, value, position(fromKey), hi);
+	} // tailMap
+
+	/************************************************************************************
+	 * Return the smallest key.
+	 *
+	 * @return the first key
+	 */
+	@Override
+	public K firstKey() {
+		if (lo == hi) {
+			throw new NoSuchElementException();
+		}
+		return (K) key[lo];
+	} // firstKey
+
+	/************************************************************************************
+	 * Return the largest key.
+	 *
+	 * @return the last key
+	 */
+	@Override
+	public K lastKey() {
+		if (lo == hi) {
+			throw new NoSuchElementException();
+		}
+		return (K) key[hi - 1];
+	} // lastKey
+
+	/************************************************************************************
+	 * Return the position of the first key at or above k within the run.
+	 */
+	private int position(Object k) {
+		int i = Arrays.binarySearch(key, lo, hi, k);
+		return (i >= 0) ? i : -i - 1;
+	} // position
+} // SortedRun class
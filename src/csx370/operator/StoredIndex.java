@@ -0,0 +1,189 @@
+package csx370.operator;
+
+/****************************************************************************************
+ * @file   StoredIndex.java
+ */
+
+import java.util.*;
+import java.util.function.ObjLongConsumer;
+
+import csx370.storage.BpTreeFile;
+import csx370.storage.MappedTable;
+
+/****************************************************************************************
+ * This class presents the row locators of a mapped table as its (read-only)
+ * primary index. They come from a B+Tree index file, whose tree a lookup
+ * descends, so nothing is loaded or rebuilt when the table is opened; a table
+ * without one has the locators of its keys gathered in memory instead. Either
+ * way a lookup decodes just the tuple it finds from the mapped table file.
+ * Changes logged since the file was written are kept in memory and override
+ * the stored locators.
+ */
+@SuppressWarnings("rawtypes")
+class StoredIndex extends AbstractMap<KeyType, Comparable[]> {
+	/** The index file (null when the locators are kept in memory). */
+	private final BpTreeFile tree;
+	
+	/** The locator of each key (null when the index file holds them). */
+	private final Map<KeyType, Long> located;
+	
+	/** The table file the locators point into. */
+	private final MappedTable table;
+	
+	/** The column positions of the primary key. */
+	private final int[] keyPos;
+	
+	/** The tuple of each key changed since the file was written (null if deleted). */
+	private final Map<KeyType, Comparable[]> changed = new HashMap<>();
+	
+	/************************************************************************************
+	 * Construct an index over a mapped table from its index file.
+	 *
+	 * @param _tree  the index file
+	 * @param _table the mapped table file
+	 * @param _keyPos the column positions of the primary key
+	 */
+	StoredIndex(BpTreeFile _tree, MappedTable _table, int[] _keyPos) {
+		tree = _tree;
+		located = null;
+		table = _table;
+		keyPos = _keyPos;
+	} // constructor
+	
+	/************************************************************************************
+	 * Construct an index over a mapped table by decoding the key columns of its
+	 * tuples. As when loading the table, a later tuple with the same key
+	 * replaces an earlier one.
+	 *
+	 * @param _table the mapped table file
+	 * @param _keyPos the column positions of the primary key
+	 */
+	StoredIndex(MappedTable _table, int[] _keyPos) {
+		tree = null;
+		located = new HashMap<>();
+		table = _table;
+		keyPos = _keyPos;
+		table.forEach(keyPos, (k, loc) -> located.put(new KeyType(k), loc));
+	} // constructor
+	
+	/************************************************************************************
+	 * Index a tuple inserted since the file was written (a logged insert). As
+	 * when loading the table, it replaces any tuple with the same key.
+	 *
+	 * @param t the inserted tuple
+	 */
+	void add(Comparable[] t) {
+		changed.put(key(t), t);
+	} // add
+	
+	/************************************************************************************
+	 * Unindex a tuple deleted since the file was written (a logged delete). As
+	 * when loading the table, its key goes only if the key still indexes it.
+	 *
+	 * @param t the deleted tuple
+	 */
+	void remove(Comparable[] t) {
+		KeyType k = key(t);
+		if (Arrays.equals(get(k), t)) {
+			changed.put(k, null);
+		}
+	} // remove
+	
+	/************************************************************************************
+	 * Return the primary key of a tuple.
+	 *
+	 * @param t the tuple
+	 * @return  its key
+	 */
+	private KeyType key(Comparable[] t) {
+		Comparable[] k = new Comparable[keyPos.length];
+		for (int j = 0; j < k.length; j++) {
+			k[j] = t[keyPos[j]];
+		}
+		return new KeyType(k);
+	} // key
+	
+	/************************************************************************************
+	 * Return the locator of the tuple with the given key.
+	 *
+	 * @param key the key
+	 * @return    the locator, or -1 if there is none
+	 */
+	private long find(KeyType key) {
+		if (tree != null) {
+			return tree.find(key.values());
+		}
+		Long loc = located.get(key);
+		return (loc == null) ? -1 : loc;
+	} // find
+	
+	/************************************************************************************
+	 * Look up the tuple with the given key.
+	 *
+	 * @param key the key (a KeyType)
+	 * @return    the tuple, or null if there is none
+	 */
+	@Override
+	public Comparable[] get(Object key) {
+		if (!(key instanceof KeyType)) {
+			return null;
+		}
+		if (changed.containsKey(key)) {
+			return changed.get(key);
+		}
+		long loc = find((KeyType) key);
+		return (loc < 0) ? null : table.tuple(loc);
+	} // get
+	
+	/************************************************************************************
+	 * Determine whether a tuple with the given key exists.
+	 *
+	 * @param key the key (a KeyType)
+	 * @return    whether the key is in the index
+	 */
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	} // containsKey
+	
+	/************************************************************************************
+	 * Return the number of keys in the index.
+	 *
+	 * @return the number of keys
+	 */
+	@Override
+	public int size() {
+		if (!changed.isEmpty()) {
+			return entrySet().size(); // which stored keys the changes hide is only known by looking
+		}
+		return (tree != null) ? (int) tree.size() : located.size();
+	} // size
+	
+	/************************************************************************************
+	 * Return the entries (stored ones in key order when they come from an index
+	 * file, then those of keys inserted since), decoding every indexed tuple.
+	 *
+	 * @return the set of entries
+	 */
+	@Override
+	public Set<Map.Entry<KeyType, Comparable[]>> entrySet() {
+		Set<Map.Entry<KeyType, Comparable[]>> entries = new LinkedHashSet<>();
+		ObjLongConsumer<KeyType> entry = (k, loc) -> {
+			Comparable[] t = changed.containsKey(k) ? changed.get(k) : table.tuple(loc);
+			if (t != null) {
+				entries.add(new SimpleImmutableEntry<>(k, t));
+			}
+		};
+		if (tree != null) {
+			tree.forEach((k, loc) -> entry.accept(new KeyType(k), loc));
+		} else {
+			located.forEach((k, loc) -> entry.accept(k, loc));
+		} // if
+		changed.forEach((k, t) -> {
+			if (t != null && find(k) < 0) {
+				entries.add(new SimpleImmutableEntry<>(k, t));
+			}
+		});
+		return entries;
+	} // entrySet
+} // StoredIndex class
@@ -6,22 +6,36 @@ package csx370.operator;
  */
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import csx370.structure.BpTreeMap;
 import csx370.structure.ExtHashMap;
 import csx370.structure.LinHashMap;
+import csx370.storage.BpTreeFile;
+import csx370.storage.DelimitedFile;
+import csx370.storage.MappedTable;
+import csx370.storage.Schema;
+import csx370.storage.TableFile;
+import csx370.storage.WriteAheadLog;
 import static java.lang.System.out;
 import static java.lang.System.err;
 
 /****************************************************************************************
  * This class implements relational database tables (including attribute names,
  * domains and a list of tuples. Five basic relational algebra operators are
- * provided: project, select, union, minus join. The insert data manipulation
- * operator is also provided. Missing are update and delete data manipulation
- * operators.
+ * provided: project, select, union, minus join. The insert, update and delete
+ * data manipulation operators are also provided.
  */
 public class Table implements Serializable {
 	/** Debugger */
@@ -36,6 +50,22 @@ public class Table implements Serializable {
 	/** Filename extension for database files */
 	private static final String EXT = ".dbf";
 	
+	/** Filename extension for B+Tree index files */
+	private static final String IDX = ".idx";
+	
+	/** Filename extension for write-ahead log files */
+	private static final String WAL = ".wal";
+	
+	/** Filename suffix for files being written */
+	private static final String TMP = ".tmp";
+	
+	/** Writes table snapshots in the background, one at a time (see saveAsync). */
+	private static final ExecutorService SNAPSHOTS = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "table-snapshots");
+		t.setDaemon(true);
+		return t;
+	});
+	
 	/** Counter for naming temporary tables. */
 	private static int count = 0;
 	
@@ -56,6 +86,13 @@ public class Table implements Serializable {
 	@SuppressWarnings("rawtypes")
 	private final List<Comparable[]> tuples;
 	
+	/** Tuples deleted (mapped to null) or updated (mapped to their replacement) but still in the tuple list. */
+	@SuppressWarnings("rawtypes")
+	private final Map<Comparable[], Comparable[]> pending = new IdentityHashMap<>();
+	
+	/** The number of deleted tuples still in the tuple list. */
+	private int deleted = 0;
+	
 	/** Primary key. */
 	private final String[] key;
 	
@@ -63,6 +100,33 @@ public class Table implements Serializable {
 	@SuppressWarnings("rawtypes")
 	private final Map<KeyType, Comparable[]> index;
 	
+	/** Column vectors (data storage when the table is columnar, otherwise null). */
+	private final ColumnStore columns;
+	
+	/** The primary index of a columnar table, mapping keys to row positions (otherwise null). */
+	private final RowIndex rowIndex;
+	
+	/** Secondary indexes on non-key attributes (maintained by insert, update and delete). */
+	private final List<SecondaryIndex> secondary;
+	
+	/** Index structure (data structure selection) used for the primary index. */
+	private final String structure;
+	
+	/** Memory-mapped table file (read-only storage when the table is mapped, otherwise null). */
+	private final transient MappedTable mapped;
+	
+	/** Recently prepared projections and selections of this table, by operator and attributes. */
+	private final transient PlanCache<List<String>, Plan> plans = new PlanCache<>();
+	
+	/** Recently prepared joins of this table, by rhs table (held weakly) and join attributes. */
+	private final transient Map<Table, PlanCache<List<String>, Plan.Join>> joins = new WeakHashMap<>();
+	
+	/** Write-ahead log of changes since the last save (null until the table is saved or loaded). */
+	private transient WriteAheadLog log;
+	
+	/** The number of log records the tuples reflect: the last snapshot's and those appended since. */
+	private transient long logged;
+	
 	// ----------------------------------------------------------------------------------
 	// Constructors
 	// ----------------------------------------------------------------------------------
@@ -78,22 +142,36 @@ public class Table implements Serializable {
 	 */
 	@SuppressWarnings("rawtypes")
 	public Table(String _name, String[] _attribute, Class[] _domain, String[] _key, String structure) {
+		this(_name, _attribute, _domain, _key, structure, false);
+	} // constructor
+	
+	/************************************************************************************
+	 * Construct an empty table from the meta-data specifications, optionally
+	 * storing the tuples column by column.
+	 * 
+	 * @param _name      the name of the relation
+	 * @param _attribute the string containing attributes names
+	 * @param _domain    the string containing attribute domains (data types)
+	 * @param _key       the primary key
+	 * @param structure  the data structure selection
+	 * @param columnar   whether to store the tuples in column vectors
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public Table(String _name, String[] _attribute, Class[] _domain, String[] _key, String structure,
+			boolean columnar) {
 		name = _name;
 		attribute = _attribute;
 		domain = _domain;
 		key = _key;
 		tuples = new ArrayList<>();
+		columns = (columnar) ? new ColumnStore(_domain) : null;
+		secondary = new ArrayList<>();
+		this.structure = structure;
+		mapped = null;
 		
-		// also try BPTreeMap, LinHashMap or ExtHashMap
-		if (structure.equalsIgnoreCase("BPTreeMap")) {
-			index = new BpTreeMap<>(KeyType.class, Comparable[].class);
-		} else if (structure.equalsIgnoreCase("LinHashMap")) {
-			index = new LinHashMap<>(KeyType.class, Comparable[].class, 4);
-		} else if (structure.equalsIgnoreCase("ExtHashMap")) {
-			index = new ExtHashMap<>(KeyType.class, Comparable[].class, 4);
-		} else {
-			index = new TreeMap<>();
-		}
+		// also try BPTreeMap, LinHashMap or ExtHashMap; a columnar table indexes row positions
+		rowIndex = (columnar) ? new RowIndex(makeIndex(structure, Integer.class), columns) : null;
+		index = (columnar) ? rowIndex : makeIndex(structure, Comparable[].class);
 	} // constructor
 	
 	/************************************************************************************
@@ -115,6 +193,35 @@ public class Table implements Serializable {
 		key = _key;
 		tuples = _tuples;
 		index = new TreeMap<>(); // also try BPTreeMap, LinHashMap or ExtHashMap
+		columns = null;
+		rowIndex = null;
+		secondary = new ArrayList<>();
+		structure = "TreeMap";
+		mapped = null;
+	} // constructor
+	
+	/************************************************************************************
+	 * Construct a read-only table over a memory-mapped table file. Its tuples
+	 * stay in the file; scans decode them from the mapped pages.
+	 * 
+	 * @param _name   the name of the relation
+	 * @param _mapped the mapped table file
+	 * @param _index  the primary index (see StoredIndex)
+	 */
+	@SuppressWarnings("rawtypes")
+	private Table(String _name, MappedTable _mapped, Map<KeyType, Comparable[]> _index) {
+		Schema s = _mapped.schema();
+		name = _name;
+		attribute = s.attribute;
+		domain = s.domain;
+		key = s.key;
+		tuples = new ArrayList<>();
+		index = _index;
+		columns = null;
+		rowIndex = null;
+		secondary = new ArrayList<>();
+		structure = s.structure;
+		mapped = _mapped;
 	} // constructor
 	
 	/************************************************************************************
@@ -144,8 +251,26 @@ public class Table implements Serializable {
 	 * @param structure  the data structure selection
 	 */
 	public Table(String name, String attributes, String domains, String _key, String structure) {
+		this(name, attributes, domains, _key, structure, false);
+	} // constructor
+	
+	/************************************************************************************
+	 * Construct an empty table from the raw string specifications, optionally
+	 * storing the tuples column by column.
+	 * 
+	 * #usage new Table ("Student", "id name", "Integer String", "id", "TreeMap", true)
+	 * 
+	 * @param name       the name of the relation
+	 * @param attributes the string containing attributes names
+	 * @param domains    the string containing attribute domains (data types)
+	 * @param _key       the string containing table key
+	 * @param structure  the data structure selection
+	 * @param columnar   whether to store the tuples in column vectors
+	 */
+	public Table(String name, String attributes, String domains, String _key, String structure,
+			boolean columnar) {
 		this(name, attributes.split(" "), findClass(domains.split(" ")), _key
-				.split(" "), structure);
+				.split(" "), structure, columnar);
 		
 		if (CONSOLE_OUTPUT) {
 			out.println("DDL> create table " + name + " (" + attributes + ")");
@@ -165,51 +290,67 @@ public class Table implements Serializable {
 	 * @param attributes the attributes to project onto
 	 * @return           a table of projected tuples
 	 */
-	@SuppressWarnings("rawtypes")
 	public Table project(String attributes) {
-
+		return prepareProject(attributes).execute();
+	} // project
+	
+	/************************************************************************************
+	 * Prepare a projection onto the given attributes, resolving their column
+	 * positions and the result schema once. Recently used plans are cached by
+	 * the table, so projecting the same attributes again reuses the plan.
+	 * 
+	 * #usage movie.prepareProject ("title year").execute ()
+	 * 
+	 * @param attributes the attributes to project onto
+	 * @return           the prepared projection
+	 */
+	@SuppressWarnings("rawtypes")
+	public Plan.Project prepareProject(String attributes) {
+		return (Plan.Project) plans.get(Arrays.asList("project", attributes), () -> {
+			String[] attrs = attributes.split(" ");
+			int[] colPos = match(attrs);
+			Class[] colDomain = extractDom(colPos, domain);
+			String[] newKey = (Arrays.asList(attrs).containsAll(Arrays.asList(key))) ? key
+					: attrs;
+			return new Plan.Project(this, colPos, attrs, colDomain, newKey);
+		});
+	} // prepareProject
+	
+	/************************************************************************************
+	 * Run a prepared projection of this table.
+	 * 
+	 * @param plan the prepared projection
+	 * @return     a table of projected tuples
+	 */
+	@SuppressWarnings("rawtypes")
+	Table run(Plan.Project plan) {
 		if (CONSOLE_OUTPUT) {
-			out.println("RA> " + name + ".project (" + attributes + ")");
+			out.println("RA> " + name + ".project (" + String.join(" ", plan.attribute) + ")");
 		}
-
-		String[] attrs = attributes.split(" ");
-		Class[] colDomain = extractDom(match(attrs), domain);
-		String[] newKey = (Arrays.asList(attrs).containsAll(Arrays.asList(key))) ? key
-				: attrs;
-		
-		List<Comparable[]> rows = null;
 		
-		// Intialize data structure
-		rows = new ArrayList<Comparable[]>();
+		// The index holds each tuple under its own key unless duplicate keys were inserted
+		// (a mapped table is still scanned in file order rather than through its index)
+		int stored = stored();
+		boolean unique = index.size() == stored && mapped == null;
 		
-		/*
-		 * Used for checking if projected tuple is a duplicate (Avoids O(n^2)
-		 * searching) hashCode() is from original object not the projected
-		 * object?
-		 */
-		List<Integer> deepHashCodes = new ArrayList<Integer>();
+		// Gather the projected tuples (columnar tables only touch the projected column vectors)
+		int[] colPos = plan.col;
+		List<Comparable[]> rows = new ArrayList<Comparable[]>(stored);
+		if (columns != null) {
+			for (int i = columns.next(0); i < columns.extent(); i = columns.next(i + 1))
+				rows.add(columns.row(i, colPos));
+		} else {
+			for (Comparable[] t : (unique) ? index.values() : rows())
+				rows.add(extract(t, colPos));
+		}
 		
-		// Iterate through tuples
-		for (Map.Entry<KeyType, Comparable[]> e : index.entrySet()) {
-			// use the extract method to only select the colums needed
-			Comparable[] tuple = extract(e.getValue(), attrs);
-			
-			// Generate a Deep Hash Code
-			int deepHashCode = Arrays.deepHashCode(tuple);
-			
-			// If this tuple is a duplicate, don't add to rows List
-			if (deepHashCodes.contains(deepHashCode)) {
-				continue;
-			}
-			// add to the rows List
-			rows.add(tuple);
-			
-			// add to the deepHashCodes List
-			deepHashCodes.add(deepHashCode);
+		// Projections keeping the primary key cannot produce duplicates
+		if (plan.key != key || !unique) {
+			rows = TupleSet.distinct(rows);
 		}
 		
-		return new Table(name + count++, attrs, colDomain, newKey, rows);
-	} // project
+		return new Table(name + count++, plan.attribute, plan.domain, plan.key, rows);
+	} // run
 	
 	/************************************************************************************
 	 * Select the tuples satisfying the given predicate (Boolean function).
@@ -225,10 +366,75 @@ public class Table implements Serializable {
 			out.println("RA> " + name + ".select (" + predicate + ")");
 		}
 
+		if (predicate instanceof Condition) {
+			return select((Condition) predicate);
+		}
+
+		List<Comparable[]> rows = null;
+		
+		if (mapped != null) {
+			// Parallel scan decoding straight from the mapped pages
+			rows = mapped.select(predicate, null);
+		} else if (columns != null) {
+			// Parallel chunked scan over the column vectors
+			rows = columns.select(predicate);
+		} else {
+			// Parallel Reduction with predicate filter
+			rows = live().parallelStream().filter(predicate).collect(Collectors.toList());
+		}
+		
+		return new Table(name + count++, attribute, domain, key, rows);
+	} // select
+	
+	/************************************************************************************
+	 * Select the tuples satisfying the given condition. Column positions were
+	 * resolved when the condition was built. When the equality conjuncts cover
+	 * the attributes of a secondary index, only the tuples it returns are
+	 * checked; otherwise columnar tables evaluate the condition directly on
+	 * their column vectors.
+	 * 
+	 * #usage movie.select (movie.where ("year", EQ, 1977).and ("genre", EQ, "sciFi"))
+	 * 
+	 * @param condition the conjunctive condition built by where
+	 * @return          a table with tuples satisfying the condition
+	 */
+	@SuppressWarnings("rawtypes")
+	public Table select(Condition condition) {
+		if (CONSOLE_OUTPUT) {
+			out.println("RA> " + name + ".select (" + condition + ")");
+		}
+
 		List<Comparable[]> rows = null;
 		
-		// Parallel Reduction with predicate filter
-		rows = tuples.parallelStream().filter(predicate).collect(Collectors.toList());
+		// Find the widest secondary index the condition can probe
+		SecondaryIndex best = null;
+		Comparable[] bestKey = null;
+		for (SecondaryIndex idx : secondary) {
+			Comparable[] keyVal = idx.lookupKey(condition);
+			if (keyVal != null && (best == null || keyVal.length > bestKey.length)) {
+				best = idx;
+				bestKey = keyVal;
+			}
+		}
+		
+		if (best != null) {
+			// Check the remaining conjuncts on the indexed tuples only
+			rows = new ArrayList<Comparable[]>();
+			for (Comparable[] tup : best.get(new KeyType(bestKey))) {
+				if (condition.test(tup)) {
+					rows.add(tup);
+				}
+			}
+		} else if (mapped != null) {
+			// Decode the condition's columns first, the rest only for matches
+			rows = mapped.select(condition, condition.col);
+		} else if (columns != null) {
+			// Tight loops over the column vectors
+			rows = columns.select(condition);
+		} else {
+			// Parallel Reduction with condition filter
+			rows = live().parallelStream().filter(condition).collect(Collectors.toList());
+		}
 		
 		return new Table(name + count++, attribute, domain, key, rows);
 	} // select
@@ -252,20 +458,46 @@ public class Table implements Serializable {
 		rows = new ArrayList<Comparable[]>();
 		
 		// Get the tuple which has the corresponding key
-		rows.add(index.get(keyVal));
+		Comparable[] tup = index.get(keyVal);
+		if (tup != null) {
+			rows.add(tup);
+		}
 		
 		return new Table(name + count++, attribute, domain, key, rows);
 	} // select
 	
+	/************************************************************************************
+	 * Prepare an equality selection on the given attributes whose values are
+	 * supplied each time the plan is executed. When the attributes are exactly
+	 * the primary key the plan looks tuples up in the index. Plans are cached.
+	 * 
+	 * #usage Plan.Select byName = student.prepareSelect ("name status");
+	 *        byName.execute ("Joe", "UG")
+	 * 
+	 * @param attributes the attributes compared with the parameters
+	 * @return           the prepared selection
+	 */
+	public Plan.Select prepareSelect(String attributes) {
+		return (Plan.Select) plans.get(Arrays.asList("select", attributes), () -> {
+			String[] attrs = attributes.split(" ");
+			for (String a : attrs) {
+				if (col(a) < 0) {
+					throw new IllegalArgumentException(name + " has no attribute " + a);
+				}
+			}
+			return new Plan.Select(this, match(attrs), Arrays.equals(attrs, key), attribute, domain, key);
+		});
+	} // prepareSelect
+	
 	/************************************************************************************
 	 * Union this table and table2. Check that the two tables are compatible.
+	 * Whole tuples are compared, so a tuple held by both tables appears once.
 	 * 
 	 * #usage movie.union (show)
 	 * 
 	 * @param table2 the rhs table in the union operation
 	 * @return       a table representing the union
 	 */
-	@SuppressWarnings("rawtypes")
 	public Table union(Table table2) {
 		if (CONSOLE_OUTPUT) {
 			out.println("RA> " + name + ".union (" + table2.name + ")");
@@ -275,34 +507,47 @@ public class Table implements Serializable {
 			return null;
 		}
 		
-		List<Comparable[]> rows = null;
-		
-		// Intialize data structure
-		rows = new ArrayList<>();
-		
-		// Iterate through current tuples
-		for (Map.Entry<KeyType, Comparable[]> e : index.entrySet())
-			// Add current table tupples
-			rows.add(e.getValue());
+		return new Table(name + count++, attribute, domain, key, TupleSet.union(rows(), table2.rows()));
+	} // union
+	
+	/************************************************************************************
+	 * Union this table and table2 keeping duplicates (bag union). Check that the
+	 * two tables are compatible.
+	 * 
+	 * #usage movie.unionAll (show)
+	 * 
+	 * @param table2 the rhs table in the union operation
+	 * @return       a table holding the tuples of both tables
+	 */
+	@SuppressWarnings("rawtypes")
+	public Table unionAll(Table table2) {
+		if (CONSOLE_OUTPUT) {
+			out.println("RA> " + name + ".unionAll (" + table2.name + ")");
+		}
+
+		if (!compatible(table2)) {
+			return null;
+		}
 		
-		// Iterate through table2 tuples
-		for (Map.Entry<KeyType, Comparable[]> e : table2.index.entrySet())
-			// Add table2 table tupples
-			rows.add(e.getValue());
+		List<Comparable[]> t_rows = rows();
+		List<Comparable[]> u_rows = table2.rows();
+		List<Comparable[]> rows = new ArrayList<>(t_rows.size() + u_rows.size());
+		rows.addAll(t_rows);
+		rows.addAll(u_rows);
 		
 		return new Table(name + count++, attribute, domain, key, rows);
-	} // union
+	} // unionAll
 	
 	/************************************************************************************
 	 * Take the difference of this table and table2. Check that the two tables
-	 * are compatible.
+	 * are compatible. Whole tuples are compared (not just primary keys) and the
+	 * result holds each remaining tuple once.
 	 * 
 	 * #usage movie.minus (show)
 	 * 
 	 * @param table2 The rhs table in the minus operation
 	 * @return       a table representing the difference
 	 */
-	@SuppressWarnings("rawtypes")
 	public Table minus(Table table2) {
 		if (CONSOLE_OUTPUT) {
 			out.println("RA> " + name + ".minus (" + table2.name + ")");
@@ -311,7 +556,6 @@ public class Table implements Serializable {
 		if (!compatible(table2)) {
 			return null;
 		}
-		List<Comparable[]> rows = null;
 		
 		/*
 		 * http://www.orafaq.com/wiki/Minus
@@ -330,18 +574,29 @@ public class Table implements Serializable {
 		 * from the result set.
 		 */
 		
-		// Intialize data structure
-		rows = new ArrayList<Comparable[]>();
+		return new Table(name + count++, attribute, domain, key, TupleSet.minus(rows(), table2.rows()));
+	} // minus
+	
+	/************************************************************************************
+	 * Intersect this table and table2: the distinct tuples held by both. Check
+	 * that the two tables are compatible.
+	 * 
+	 * #usage movie.intersect (show)
+	 * 
+	 * @param table2 the rhs table in the intersect operation
+	 * @return       a table representing the intersection
+	 */
+	public Table intersect(Table table2) {
+		if (CONSOLE_OUTPUT) {
+			out.println("RA> " + name + ".intersect (" + table2.name + ")");
+		}
 		
-		// Iterate through tuples
-		for (Map.Entry<KeyType, Comparable[]> e : index.entrySet())
-			// If key is in the table2 map then do not add to List
-			if (!table2.index.containsKey(e.getKey())) {
-				rows.add(e.getValue());
-			}
+		if (!compatible(table2)) {
+			return null;
+		}
 		
-		return new Table(name + count++, attribute, domain, key, rows);
-	} // minus
+		return new Table(name + count++, attribute, domain, key, TupleSet.intersect(rows(), table2.rows()));
+	} // intersect
 
 	/************************************************************************************
 	 * Join this table and table2 by performing an equijoin. Tuples from both
@@ -364,11 +619,12 @@ public class Table implements Serializable {
 		String[] u_attrs = attribute2.split(" ");
 
 		List<Comparable[]> rows = new ArrayList<Comparable[]>();
+		List<Comparable[]> inner = table2.rows();
 
 		// Iterate through tuples of each with nested loop
-		for (Comparable[] e : this.tuples)
+		for (Comparable[] e : this.rows())
 		{               
-			for (Comparable[] e2 : table2.tuples)
+			for (Comparable[] e2 : inner)
 			{   
 				// check for match
 				boolean match = true;
@@ -403,6 +659,153 @@ public class Table implements Serializable {
 				key, rows);
 	}// nestedLoopJoin
 
+	/************************************************************************************
+	 * Join this table and table2 by performing a hash equijoin. A hash table is
+	 * built on the join attributes of the smaller input and probed with each
+	 * tuple of the larger one, so neither side needs to be keyed on its join
+	 * attributes and duplicate join values on both sides are handled. Output
+	 * tuples always list this table's attributes first.
+	 * 
+	 * #usage teaching.hashJoin ("crsCode semester", "crsCode semester", transcript)
+	 * 
+	 * @param attribute1 the attributes of this table to be compared
+	 * @param attribute2 the attributes of table2 to be compared
+	 * @param table2     the rhs table in the join operation
+	 * @return           a table with tuples satisfying the equality predicate
+	 */
+	@SuppressWarnings("rawtypes")
+	public Table hashJoin(String attribute1, String attribute2, Table table2) {
+		if (CONSOLE_OUTPUT) {
+			out.println("RA> " + name + ".hashJoin (" + attribute1 + ", " + attribute2 + ", " + table2.name + ")");
+		}
+		
+		int[] t_cols = match(attribute1.split(" "));
+		int[] u_cols = table2.match(attribute2.split(" "));
+		List<Comparable[]> t_rows = rows();
+		List<Comparable[]> u_rows = table2.rows();
+		
+		// Build on the smaller input, probe with the larger one
+		boolean buildLeft = t_rows.size() <= u_rows.size();
+		List<Comparable[]> build = (buildLeft) ? t_rows : u_rows;
+		List<Comparable[]> probe = (buildLeft) ? u_rows : t_rows;
+		int[] buildCols = (buildLeft) ? t_cols : u_cols;
+		int[] probeCols = (buildLeft) ? u_cols : t_cols;
+		
+		// Build phase: join values -> all tuples holding them
+		Map<KeyType, List<Comparable[]>> hashTable = new HashMap<>(build.size() * 4 / 3 + 1);
+		for (Comparable[] b : build) {
+			KeyType k = new KeyType(extract(b, buildCols));
+			List<Comparable[]> bucket = hashTable.get(k);
+			if (bucket == null) {
+				bucket = new ArrayList<>(1);
+				hashTable.put(k, bucket);
+			}
+			bucket.add(b);
+		}
+		
+		// Probe phase: emit one tuple per matching pair
+		List<Comparable[]> rows = new ArrayList<Comparable[]>();
+		for (Comparable[] p : probe) {
+			List<Comparable[]> bucket = hashTable.get(new KeyType(extract(p, probeCols)));
+			if (bucket == null) {
+				continue;
+			}
+			for (Comparable[] b : bucket) {
+				rows.add((buildLeft) ? ArrayUtil.concat(b, p) : ArrayUtil.concat(p, b));
+			}
+		}
+		
+		return new Table(name + count++, ArrayUtil.concat(attribute, table2.attribute),
+				ArrayUtil.concat(domain, table2.domain), key, rows);
+	} // hashJoin
+
+	/************************************************************************************
+	 * Join this table and table2 by performing a sort-merge equijoin. Each input
+	 * is read in join attribute order: straight from its index when that is
+	 * ordered (TreeMap or BPTreeMap) and the join attributes are a prefix of the
+	 * primary key, otherwise from a sorted copy of its tuples. Both inputs are
+	 * then merged in a single sequential pass. Output tuples always list this
+	 * table's attributes first.
+	 * 
+	 * #usage transcript.mergeJoin ("crsCode semester", "crsCode semester", teaching)
+	 * 
+	 * @param attribute1 the attributes of this table to be compared
+	 * @param attribute2 the attributes of table2 to be compared
+	 * @param table2     the rhs table in the join operation
+	 * @return           a table with tuples satisfying the equality predicate
+	 */
+	@SuppressWarnings("rawtypes")
+	public Table mergeJoin(String attribute1, String attribute2, Table table2) {
+		if (CONSOLE_OUTPUT) {
+			out.println("RA> " + name + ".mergeJoin (" + attribute1 + ", " + attribute2 + ", " + table2.name + ")");
+		}
+		
+		int[] t_cols = match(attribute1.split(" "));
+		int[] u_cols = table2.match(attribute2.split(" "));
+		Iterator<Comparable[]> t_it = sortedOn(t_cols);
+		Iterator<Comparable[]> u_it = table2.sortedOn(u_cols);
+		
+		List<Comparable[]> rows = new ArrayList<Comparable[]>();
+		List<Comparable[]> run = new ArrayList<Comparable[]>();
+		Comparable[] t = (t_it.hasNext()) ? t_it.next() : null;
+		Comparable[] u = (u_it.hasNext()) ? u_it.next() : null;
+		
+		while (t != null && u != null) {
+			int cmp = compare(t, t_cols, u, u_cols);
+			if (cmp < 0) {
+				t = (t_it.hasNext()) ? t_it.next() : null;
+			} else if (cmp > 0) {
+				u = (u_it.hasNext()) ? u_it.next() : null;
+			} else {
+				// Gather the run of table2 tuples sharing this join value
+				run.clear();
+				run.add(u);
+				u = (u_it.hasNext()) ? u_it.next() : null;
+				while (u != null && compare(run.get(0), u_cols, u, u_cols) == 0) {
+					run.add(u);
+					u = (u_it.hasNext()) ? u_it.next() : null;
+				}
+				
+				// Pair it with every tuple of this table sharing the value
+				while (t != null && compare(t, t_cols, run.get(0), u_cols) == 0) {
+					for (Comparable[] r : run) {
+						rows.add(ArrayUtil.concat(t, r));
+					}
+					t = (t_it.hasNext()) ? t_it.next() : null;
+				}
+			}
+		}
+		
+		return new Table(name + count++, ArrayUtil.concat(attribute, table2.attribute),
+				ArrayUtil.concat(domain, table2.domain), key, rows);
+	} // mergeJoin
+
+	/************************************************************************************
+	 * Join this table and table2 by performing an equijoin in parallel. Both
+	 * inputs are partitioned by the hash of their join attributes and each pair
+	 * of partitions is joined as a separate fork/join task. Output tuples always
+	 * list this table's attributes first.
+	 * 
+	 * #usage transcript.parallelJoin ("studId", "id", student)
+	 * 
+	 * @param attribute1 the attributes of this table to be compared
+	 * @param attribute2 the attributes of table2 to be compared
+	 * @param table2     the rhs table in the join operation
+	 * @return           a table with tuples satisfying the equality predicate
+	 */
+	@SuppressWarnings("rawtypes")
+	public Table parallelJoin(String attribute1, String attribute2, Table table2) {
+		if (CONSOLE_OUTPUT) {
+			out.println("RA> " + name + ".parallelJoin (" + attribute1 + ", " + attribute2 + ", " + table2.name + ")");
+		}
+		
+		List<Comparable[]> rows = ParallelJoin.join(rows(), match(attribute1.split(" ")), table2.rows(),
+				table2.match(attribute2.split(" ")));
+		
+		return new Table(name + count++, ArrayUtil.concat(attribute, table2.attribute),
+				ArrayUtil.concat(domain, table2.domain), key, rows);
+	} // parallelJoin
+
 	/************************************************************************************
 	 * Join this table and table2 by performing an equijoin. Tuples from both
 	 * tables are compared requiring attributes1 to equal attributes2.
@@ -417,49 +820,141 @@ public class Table implements Serializable {
 	 * @param table2     the rhs table in the join operation
 	 * @return           a table with tuples satisfying the equality predicate
 	 */
-	@SuppressWarnings({ "rawtypes", "unused" })
 	public Table join(String attribute1, String attribute2, Table table2) {
+		return prepareJoin(attribute1, attribute2, table2).execute();
+	} // join
+	
+	/************************************************************************************
+	 * Prepare an index join with table2, resolving the join columns and the
+	 * result schema once. Recently used plans are cached by the table, so
+	 * repeating the same join reuses the plan; the cache holds table2 (and the
+	 * plan holds it) only weakly, so plans go away with either table.
+	 * 
+	 * #usage teaching.prepareJoin ("profId", "id", professor).execute ()
+	 * 
+	 * @param attribute1 the attributes of this table to be compared (Foreign Key)
+	 * @param attribute2 the attributes of table2 to be compared (Primary Key)
+	 * @param table2     the rhs table in the join operation
+	 * @return           the prepared join
+	 */
+	public Plan.Join prepareJoin(String attribute1, String attribute2, Table table2) {
+		PlanCache<List<String>, Plan.Join> cache;
+		synchronized (joins) {
+			cache = joins.computeIfAbsent(table2, t -> new PlanCache<>());
+		} // synchronized
+		return cache.get(Arrays.asList(attribute1, attribute2), () -> new Plan.Join(this, table2,
+				match(attribute1.split(" ")), ArrayUtil.concat(attribute, table2.attribute),
+				ArrayUtil.concat(domain, table2.domain), key));
+	} // prepareJoin
+	
+	/************************************************************************************
+	 * Run a prepared index join of this table with the plan's rhs table.
+	 * 
+	 * @param plan the prepared join
+	 * @return     a table with tuples satisfying the equality predicate
+	 */
+	@SuppressWarnings("rawtypes")
+	Table run(Plan.Join plan) {
+		Table table2 = plan.table2();
 		if (CONSOLE_OUTPUT) {
-			out.println("RA> " + name + ".join (" + attribute1 + ", " + attribute2 + ", " + table2.name + ")");
+			out.println("RA> " + name + ".join (" + Arrays.toString(plan.col) + ", " + table2.name + ")");
 		}
 
-		String[] t_attrs = attribute1.split(" ");
-		String[] u_attrs = attribute2.split(" ");
-
 		List<Comparable[]> rows = null;
 
 		// Intialize data structure
 		rows = new ArrayList<Comparable[]>();
 
-		// Iterate through tuples
-		for (Map.Entry<KeyType, Comparable[]> e : index.entrySet()) {
+		if (columns != null) {
+			// Probe with keys read straight out of the join column vectors
+			for (int i = columns.next(0); i < columns.extent(); i = columns.next(i + 1)) {
+				Comparable[] table2Temp = table2.index.get(new KeyType(columns.row(i, plan.col)));
+				if (table2Temp != null) {
+					rows.add(ArrayUtil.concat(columns.row(i), table2Temp));
+				}
+			}
+			return new Table(name + count++, plan.attribute, plan.domain, plan.key, rows);
+		}
+
+		// Iterate through tuples (all stored ones when the index does not hold them)
+		Collection<Comparable[]> t_rows = (index.size() == stored() && mapped == null) ? index.values() : rows();
+		for (Comparable[] t : t_rows) {
 			// Get the tuple from table2 which matches with the foreign key from
 			// current table
 			Comparable[] table2Temp = table2.index.get(new KeyType(extract(
-					e.getValue(), t_attrs)));
+					t, plan.col)));
 
 			// Check if tupple from table2 exists
 			if (table2Temp == null) {
 				continue;
 			}
 			// Create a new tupple for concat
-			Comparable[] combined = new Comparable[attribute.length
-			                                       + table2.attribute.length];
+			Comparable[] combined = new Comparable[plan.attribute.length];
 
 			// Do the concat
-			System.arraycopy(e.getValue(), 0, combined, 0, e.getValue().length);
-			System.arraycopy(table2Temp, 0, combined, e.getValue().length,
+			System.arraycopy(t, 0, combined, 0, t.length);
+			System.arraycopy(table2Temp, 0, combined, t.length,
 					table2Temp.length);
 
 			// Add tupple to List
 			rows.add(combined);
 		}
 
-		return new Table(name + count++, ArrayUtil.concat(attribute,
-				table2.attribute), ArrayUtil.concat(domain, table2.domain),
-				key, rows);
-	} // join
+		return new Table(name + count++, plan.attribute, plan.domain, plan.key, rows);
+	} // run
 
+	/************************************************************************************
+	 * Start a selection condition on this table requiring attr op value. The
+	 * column position and domain are checked here, once.
+	 * 
+	 * #usage movie.where ("year", EQ, 1977).and ("genre", EQ, "sciFi").select ()
+	 * 
+	 * @param attr  the attribute name
+	 * @param op    the comparison operator
+	 * @param value the constant to compare with
+	 * @return      a condition bound to this table
+	 */
+	@SuppressWarnings("rawtypes")
+	public Condition where(String attr, Condition.Op op, Comparable value) {
+		int j = col(attr);
+		if (j < 0) {
+			throw new IllegalArgumentException("where: attribute not found " + attr);
+		} // if
+		if (!domain[j].isInstance(value)) {
+			throw new IllegalArgumentException("where: " + value + " is not in domain "
+					+ domain[j].getSimpleName() + " of " + attr);
+		} // if
+		
+		return new Condition(this, new int[] { j }, new Condition.Op[] { op }, new Comparable[] { value });
+	} // where
+	
+	/************************************************************************************
+	 * Create a secondary index on the given attributes. The index is kept up to
+	 * date by insert, update and delete and used by select (Condition) whenever the condition has
+	 * an equality conjunct for each indexed attribute.
+	 * 
+	 * #usage student.createIndex ("name", "BPTreeMap")
+	 * 
+	 * @param attributes the attributes to index on
+	 * @param structure  the data structure selection
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void createIndex(String attributes, String structure) {
+		if (CONSOLE_OUTPUT) {
+			out.println("DDL> create index on " + name + " (" + attributes + ") using " + structure);
+		}
+		
+		String[] attrs = attributes.split(" ");
+		SecondaryIndex idx = new SecondaryIndex(attrs, match(attrs), makeIndex(structure, List.class));
+		
+		// Index the tuples already stored
+		for (Comparable[] tup : rows()) {
+			idx.add(tup);
+		}
+		
+		secondary.add(idx);
+	} // createIndex
+	
 	/************************************************************************************
 	 * Return the column position for the given attribute name.
 	 * 
@@ -490,20 +985,510 @@ public class Table implements Serializable {
 			out.println("DML> insert into " + name + " values ( " + Arrays.toString(tup) + " )");
 		}
 		
-		if (typeCheck(tup, this.domain)) {
-			tuples.add(tup);
+		if (mapped != null) {
+			err.println("insert: " + name + " is a read-only mapped table");
+			return false;
+		}
+		
+		if (typeCheck(tup, this.domain)) {
+			// Log the tuple before applying it, once the table has a snapshot on disk
+			if (log != null) {
+				try {
+					log.append(tup);
+					logged++;
+				} catch (IOException ex) {
+					err.println("insert: IO Exception");
+					ex.printStackTrace();
+					return false;
+				} // try
+			} // if
+			
 			Comparable[] keyVal = new Comparable[key.length];
 			int[] cols = match(key);
 			for (int j = 0; j < keyVal.length; j++) {
 				keyVal[j] = tup[cols[j]];
 			}
-			index.put(new KeyType(keyVal), tup);
+			if (columns != null) {
+				rowIndex.put(new KeyType(keyVal), columns.append(tup));
+			} else {
+				// A tuple deleted or updated earlier is inserted again: resolve it first
+				if (pending.containsKey(tup)) {
+					live();
+				}
+				tuples.add(tup);
+				index.put(new KeyType(keyVal), tup);
+			}
+			for (SecondaryIndex idx : secondary) {
+				idx.add(tup);
+			}
 			return true;
 		} else {
 			return false;
 		} // if
 	} // insert
 	
+	/************************************************************************************
+	 * Insert many tuples at once, e.g., the output of a TupleGenerator. Unlike
+	 * calling insert for each tuple, the values are type checked one column at
+	 * a time, the tuple list grows once and the primary index is built in one
+	 * pass: an empty ordered index (TreeMap, BPTreeMap) bottom-up from the keys
+	 * sorted once, a hash index (LinHashMap, ExtHashMap) presized for all of
+	 * them. Tuples of the wrong arity or with values outside their column's
+	 * domain are skipped. As with insert, a later tuple with the same key
+	 * replaces an earlier one in the index.
+	 *
+	 * #usage movie.bulkLoad (generator.generate (sizes) [0])
+	 *
+	 * @param rows the tuples to insert
+	 * @return     the number of tuples inserted
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public int bulkLoad(Comparable[][] rows) {
+		if (mapped != null) {
+			err.println("bulkLoad: " + name + " is a read-only mapped table");
+			return 0;
+		}
+		
+		// Type check column by column, then keep the tuples that passed
+		boolean[] valid = new boolean[rows.length];
+		for (int i = 0; i < rows.length; i++) {
+			valid[i] = rows[i] != null && rows[i].length == domain.length;
+		}
+		for (int j = 0; j < domain.length; j++) {
+			Class d = domain[j];
+			for (int i = 0; i < rows.length; i++) {
+				valid[i] = valid[i] && d.isInstance(rows[i][j]);
+			}
+		}
+		int n = 0;
+		Comparable[][] load = new Comparable[rows.length][];
+		for (int i = 0; i < rows.length; i++) {
+			if (valid[i]) {
+				load[n++] = rows[i];
+			}
+		}
+		
+		// Log the tuples before applying them, once the table has a snapshot on disk
+		if (log != null) {
+			try {
+				for (int i = 0; i < n; i++) {
+					log.append(load[i]);
+					logged++;
+				}
+			} catch (IOException ex) {
+				err.println("bulkLoad: IO Exception");
+				ex.printStackTrace();
+				return 0;
+			} // try
+		} // if
+		
+		// A columnar table indexes the rows' positions rather than the tuples
+		int first = (columns != null) ? columns.extent() : 0;
+		Map target = index;
+		if (columns != null) {
+			for (int i = 0; i < n; i++) {
+				columns.append(load[i]);
+			}
+			target = rowIndex.positions();
+		} else {
+			for (int i = 0; i < n && !pending.isEmpty(); i++) {
+				if (pending.containsKey(load[i])) {
+					live();
+				}
+			}
+			tuples.addAll(Arrays.asList(load).subList(0, n));
+		} // if
+		
+		int[] keyPos = match(key);
+		if (target instanceof SortedMap && target.isEmpty()) {
+			// Sort once (stably, so the last tuple with a key wins) and build bottom-up
+			Map.Entry<KeyType, Object>[] e = new Map.Entry[n];
+			for (int i = 0; i < n; i++) {
+				e[i] = new AbstractMap.SimpleImmutableEntry<>(new KeyType(extract(load[i], keyPos)),
+						(columns != null) ? (Object) (first + i) : load[i]);
+			}
+			Arrays.parallelSort(e, Map.Entry.comparingByKey());
+			KeyType[] keys = new KeyType[n];
+			Object[] values = new Object[n];
+			int m = 0;
+			for (int i = 0; i < n; i++) {
+				if (i + 1 < n && e[i].getKey().equals(e[i + 1].getKey())) {
+					continue;
+				}
+				keys[m] = e[i].getKey();
+				values[m++] = e[i].getValue();
+			}
+			target.putAll(new SortedRun<>(keys, values, m));
+		} else {
+			// Hash indexes take the tuples in any order; a duplicate key is put like an insert
+			List<Map.Entry<KeyType, Object>> e = new ArrayList<>(n);
+			for (int i = 0; i < n; i++) {
+				e.add(new AbstractMap.SimpleImmutableEntry<>(new KeyType(extract(load[i], keyPos)),
+						(columns != null) ? (Object) (first + i) : load[i]));
+			}
+			target.putAll(new AbstractMap<KeyType, Object>() {
+				@Override
+				public Set<Map.Entry<KeyType, Object>> entrySet() {
+					return new AbstractSet<Map.Entry<KeyType, Object>>() {
+						@Override
+						public Iterator<Map.Entry<KeyType, Object>> iterator() {
+							return e.iterator();
+						} // iterator
+						
+						@Override
+						public int size() {
+							return e.size();
+						} // size
+					};
+				} // entrySet
+			});
+		} // if
+		
+		for (SecondaryIndex idx : secondary) {
+			for (int i = 0; i < n; i++) {
+				idx.add(load[i]);
+			}
+		}
+		return n;
+	} // bulkLoad
+	
+	/************************************************************************************
+	 * Insert a stream of tuples at once (see bulkLoad).
+	 *
+	 * @param rows the tuples to insert
+	 * @return     the number of tuples inserted
+	 */
+	@SuppressWarnings("rawtypes")
+	public int bulkLoad(Stream<Comparable[]> rows) {
+		return bulkLoad(rows.toArray(Comparable[][]::new));
+	} // bulkLoad
+	
+	/************************************************************************************
+	 * Delete the tuple with the given primary key. The index finds the tuple,
+	 * which is then removed from the primary index and every secondary index,
+	 * whose structures shrink as tuples go (see remove in BpTreeMap, LinHashMap
+	 * and ExtHashMap). The tuple list (or column vectors) only marks it deleted
+	 * and drops it at the next scan (or compaction), so a delete costs about as
+	 * much as the index lookup. Like an insert, the delete is logged once the
+	 * table has a snapshot on disk.
+	 *
+	 * #usage movie.delete (new KeyType ("Star_Wars", 1977))
+	 *
+	 * @param keyVal the primary key of the tuple to delete
+	 * @return       whether a tuple was deleted
+	 */
+	@SuppressWarnings("rawtypes")
+	public boolean delete(KeyType keyVal) {
+		if (CONSOLE_OUTPUT) {
+			out.println("DML> delete from " + name + " where key = " + keyVal);
+		}
+		
+		if (mapped != null) {
+			err.println("delete: " + name + " is a read-only mapped table");
+			return false;
+		}
+		
+		Comparable[] tup = index.get(keyVal);
+		if (tup == null || !logChanges("delete", Collections.singletonList(tup), null)) {
+			return false;
+		}
+		
+		if (columns != null) {
+			columns.kill(rowIndex.position(keyVal));
+			rowIndex.positions().remove(keyVal);
+			compact();
+		} else {
+			pending.put(tup, null);
+			deleted++;
+			index.remove(keyVal);
+		} // if
+		for (SecondaryIndex idx : secondary) {
+			idx.remove(tup);
+		}
+		return true;
+	} // delete
+	
+	/************************************************************************************
+	 * Delete the tuples satisfying the given predicate in one pass over the
+	 * tuple list (or column vectors), removing them from the indexes as well.
+	 *
+	 * #usage movie.delete (t -{@literal >} t[movie.col("year")].equals (1977))
+	 *
+	 * @param predicate the check condition for the tuples to delete
+	 * @return          the number of tuples deleted
+	 */
+	@SuppressWarnings("rawtypes")
+	public int delete(Predicate<Comparable[]> predicate) {
+		if (CONSOLE_OUTPUT) {
+			out.println("DML> delete from " + name + " where (" + predicate + ")");
+		}
+		
+		if (mapped != null) {
+			err.println("delete: " + name + " is a read-only mapped table");
+			return 0;
+		}
+		
+		int[] pos = (columns != null) ? columns.positions(predicate) : null;
+		List<Comparable[]> doomed = (columns != null) ? columns.rows(pos)
+				: live().parallelStream().filter(predicate).collect(Collectors.toList());
+		if (doomed.isEmpty() || !logChanges("delete", doomed, null)) {
+			return 0;
+		}
+		
+		if (columns != null) {
+			// A row's key goes unless the index holds a later row with it
+			int[] keyPos = match(key);
+			for (int k = 0; k < pos.length; k++) {
+				KeyType keyVal = new KeyType(extract(doomed.get(k), keyPos));
+				if (rowIndex.position(keyVal) == pos[k]) {
+					rowIndex.positions().remove(keyVal);
+				}
+				columns.kill(pos[k]);
+			} // for
+			compact();
+		} else {
+			Set<Comparable[]> gone = Collections.newSetFromMap(new IdentityHashMap<>(2 * doomed.size()));
+			gone.addAll(doomed);
+			tuples.removeIf(gone::contains);
+			
+			// A tuple leaves the index unless the index holds a later one with its key
+			int[] keyPos = match(key);
+			for (Comparable[] tup : doomed) {
+				KeyType keyVal = new KeyType(extract(tup, keyPos));
+				if (index.get(keyVal) == tup) {
+					index.remove(keyVal);
+				}
+			} // for
+		} // if
+		for (Comparable[] tup : doomed) {
+			for (SecondaryIndex idx : secondary) {
+				idx.remove(tup);
+			}
+		} // for
+		return doomed.size();
+	} // delete
+	
+	/************************************************************************************
+	 * Delete one stored tuple holding exactly the given values, as logged by a
+	 * delete or update (see load). A delete by predicate also logs tuples the
+	 * index no longer holds, as a later tuple was inserted with the same key,
+	 * so the tuple under the key is only deleted if its values match; any
+	 * other tuple is found by a scan.
+	 *
+	 * @param tup the values of the tuple to delete
+	 * @return    whether a tuple was deleted
+	 */
+	@SuppressWarnings("rawtypes")
+	private boolean remove(Comparable[] tup) {
+		KeyType keyVal = new KeyType(extract(tup, match(key)));
+		if (Arrays.equals(index.get(keyVal), tup)) {
+			return delete(keyVal);
+		}
+		
+		if (columns != null) {
+			int[] pos = columns.positions(t -> Arrays.equals(t, tup));
+			if (pos.length == 0) {
+				return false;
+			}
+			columns.kill(pos[0]);
+			compact();
+		} else {
+			List<Comparable[]> list = live();
+			int i = 0;
+			while (i < list.size() && !Arrays.equals(list.get(i), tup)) {
+				i++;
+			}
+			if (i == list.size()) {
+				return false;
+			}
+			list.remove(i);
+		} // if
+		for (SecondaryIndex idx : secondary) {
+			idx.remove(tup);
+		}
+		return true;
+	} // remove
+	
+	/************************************************************************************
+	 * Update the tuple with the given primary key, setting the given attributes
+	 * to new values. The tuple is replaced by an updated copy rather than changed
+	 * in place, so a snapshot being saved (see saveAsync) and tables selected
+	 * earlier keep seeing the old values. An update may change the primary key,
+	 * unless another tuple holds the new one. The update is logged as a delete
+	 * of the old tuple and an insert of the new one.
+	 *
+	 * #usage movie.update (new KeyType ("Star_Wars", 1977), "length studio", 121, "Lucasfilm")
+	 *
+	 * @param keyVal     the primary key of the tuple to update
+	 * @param attributes the attributes to set
+	 * @param values     the new values of the attributes
+	 * @return           whether a tuple was updated
+	 */
+	@SuppressWarnings("rawtypes")
+	public boolean update(KeyType keyVal, String attributes, Comparable... values) {
+		if (CONSOLE_OUTPUT) {
+			out.println("DML> update " + name + " set (" + attributes + ") = " + Arrays.toString(values)
+					+ " where key = " + keyVal);
+		}
+		
+		if (mapped != null) {
+			err.println("update: " + name + " is a read-only mapped table");
+			return false;
+		}
+		
+		Comparable[] old = index.get(keyVal);
+		if (old == null) {
+			return false;
+		}
+		
+		// Build the updated copy, type checking the new values
+		String[] attrs = attributes.split(" ");
+		if (attrs.length != values.length) {
+			err.println("update: " + attrs.length + " attributes but " + values.length + " values");
+			return false;
+		}
+		Comparable[] tup = old.clone();
+		for (int j = 0; j < attrs.length; j++) {
+			int c = col(attrs[j]);
+			if (c < 0 || !domain[c].isInstance(values[j])) {
+				err.println("update: " + values[j] + " is not a value of " + attrs[j]);
+				return false;
+			}
+			tup[c] = values[j];
+		} // for
+		KeyType newKey = new KeyType(extract(tup, match(key)));
+		if (!newKey.equals(keyVal) && index.get(newKey) != null) {
+			err.println("update: another tuple holds the key " + newKey);
+			return false;
+		}
+		if (!logChanges("update", Collections.singletonList(old), tup)) {
+			return false;
+		}
+		
+		if (columns != null) {
+			int i = rowIndex.position(keyVal);
+			columns.set(i, tup);
+			rowIndex.positions().remove(keyVal);
+			rowIndex.put(newKey, i);
+		} else {
+			pending.put(old, tup);
+			if (!newKey.equals(keyVal)) {
+				index.remove(keyVal);
+			}
+			index.put(newKey, tup);
+		} // if
+		for (SecondaryIndex idx : secondary) {
+			idx.remove(old);
+			idx.add(tup);
+		}
+		return true;
+	} // update
+	
+	/************************************************************************************
+	 * Import the tuples of a delimited text file with a header line, parsing it
+	 * in parallel. Files ending in .tsv or .tab are tab separated, others comma
+	 * separated.
+	 *
+	 * #usage movie.importDelimited (Paths.get ("movie.csv"))
+	 *
+	 * @param path the file to import
+	 * @return     the number of tuples inserted
+	 */
+	public int importDelimited(Path path) {
+		return importDelimited(path, delimiter(path), true, true);
+	} // importDelimited
+	
+	/************************************************************************************
+	 * Import the tuples of a delimited text file, whose fields are in the order
+	 * of the attributes (see DelimitedFile). The fields are converted to the
+	 * attributes' domains as they are parsed and the tuples are bulk loaded,
+	 * skipping lines that do not parse (see bulkLoad).
+	 *
+	 * #usage movie.importDelimited (Paths.get ("movie.tsv"), '\t', false, true)
+	 *
+	 * @param path      the file to import
+	 * @param delimiter the field delimiter
+	 * @param header    whether the first line holds the attribute names (and is skipped)
+	 * @param parallel  whether to parse chunks of the file on several threads
+	 * @return          the number of tuples inserted
+	 */
+	public int importDelimited(Path path, char delimiter, boolean header, boolean parallel) {
+		try {
+			return bulkLoad(DelimitedFile.read(path, domain, delimiter, header, parallel));
+		} catch (IOException ex) {
+			err.println("importDelimited: IO Exception");
+			ex.printStackTrace();
+		} // try
+		return 0;
+	} // importDelimited
+	
+	/************************************************************************************
+	 * Export the tuples of this table to a delimited text file with a header
+	 * line of attribute names. Files ending in .tsv or .tab are tab separated,
+	 * others comma separated.
+	 *
+	 * #usage movie.exportDelimited (Paths.get ("movie.csv"))
+	 *
+	 * @param path the file to write
+	 * @return     whether the file was written
+	 */
+	public boolean exportDelimited(Path path) {
+		return exportDelimited(path, delimiter(path), true);
+	} // exportDelimited
+	
+	/************************************************************************************
+	 * Export the tuples of this table to a delimited text file (replacing any
+	 * old one), one line per tuple, streaming them without materializing them.
+	 *
+	 * #usage movie.exportDelimited (Paths.get ("movie.tsv"), '\t', false)
+	 *
+	 * @param path      the file to write
+	 * @param delimiter the field delimiter
+	 * @param header    whether to write a first line of attribute names
+	 * @return          whether the file was written
+	 */
+	public boolean exportDelimited(Path path, char delimiter, boolean header) {
+		try {
+			DelimitedFile.write(path, header ? attribute : null, this::scan, delimiter);
+			return true;
+		} catch (IOException ex) {
+			err.println("exportDelimited: IO Exception");
+			ex.printStackTrace();
+		} // try
+		return false;
+	} // exportDelimited
+	
+	/************************************************************************************
+	 * Return the delimiter for a file by its extension: tab for .tsv and .tab,
+	 * otherwise comma.
+	 */
+	private static char delimiter(Path path) {
+		String file = path.getFileName().toString().toLowerCase();
+		return (file.endsWith(".tsv") || file.endsWith(".tab")) ? '\t' : ',';
+	} // delimiter
+	
+	/************************************************************************************
+	 * Make every change since the last save or commit durable, by committing the
+	 * pending group of the write-ahead log with one fsync. Changes are also
+	 * committed whenever a group fills up. Tables never saved or loaded have no
+	 * log, so this does nothing for them.
+	 * 
+	 * @return whether the changes are durable
+	 */
+	public boolean commit() {
+		if (log == null) {
+			return false;
+		}
+		try {
+			log.commit();
+			return true;
+		} catch (IOException ex) {
+			err.println("commit: IO Exception");
+			ex.printStackTrace();
+		} // try
+		return false;
+	} // commit
+	
 	/************************************************************************************
 	 * Get the name of the table.
 	 * 
@@ -513,6 +1498,93 @@ public class Table implements Serializable {
 		return name;
 	} // getName
 	
+	/************************************************************************************
+	 * Start a pull-based pipeline of operators reading this table. Nothing is
+	 * materialized until the pipeline's toTable is called.
+	 * 
+	 * #usage movie.pipeline ().where ("year", GT, 1970).project ("title").toTable ()
+	 * 
+	 * @return a pipeline scanning this table
+	 */
+	public Pipeline pipeline() {
+		return new Pipeline(name, attribute, domain, key, new Pipeline.Scan(this));
+	} // pipeline
+	
+	/************************************************************************************
+	 * Get the attribute names of the table.
+	 * 
+	 * @return the table's attributes
+	 */
+	String[] getAttribute() {
+		return attribute;
+	} // getAttribute
+	
+	/************************************************************************************
+	 * Get the attribute domains of the table.
+	 * 
+	 * @return the table's domains
+	 */
+	@SuppressWarnings("rawtypes")
+	Class[] getDomain() {
+		return domain;
+	} // getDomain
+	
+	/************************************************************************************
+	 * Get the primary key of the table.
+	 * 
+	 * @return the table's key attributes
+	 */
+	String[] getKey() {
+		return key;
+	} // getKey
+	
+	/************************************************************************************
+	 * Return the number of stored tuples.
+	 * 
+	 * @return the number of tuples in the tuple list or column vectors
+	 */
+	int stored() {
+		if (mapped != null) {
+			return (int) mapped.rows();
+		}
+		return (columns != null) ? columns.size() : tuples.size() - deleted;
+	} // stored
+	
+	/************************************************************************************
+	 * Return an iterator over the stored tuples. Columnar tables decode one
+	 * tuple at a time and mapped tables one page at a time.
+	 * 
+	 * @return an iterator over the stored tuples
+	 */
+	@SuppressWarnings("rawtypes")
+	Iterator<Comparable[]> scan() {
+		if (mapped != null) {
+			return mapped.iterator();
+		}
+		return (columns != null) ? columns.iterator() : live().iterator();
+	} // scan
+	
+	/************************************************************************************
+	 * Look up a tuple by its primary key in the index.
+	 * 
+	 * @param keyVal the key value
+	 * @return       the tuple or null if absent
+	 */
+	@SuppressWarnings("rawtypes")
+	Comparable[] get(KeyType keyVal) {
+		return index.get(keyVal);
+	} // get
+	
+	/************************************************************************************
+	 * Return a fresh name for a temporary table derived from the named one.
+	 * 
+	 * @param base the name of the table derived from
+	 * @return     the name with the temporary table counter appended
+	 */
+	static String tempName(String base) {
+		return base + count++;
+	} // tempName
+	
 	/************************************************************************************
 	 * Print this table.
 	 */
@@ -534,7 +1606,7 @@ public class Table implements Serializable {
 			out.print("---------------");
 		}
 		out.println("-|");
-		for (Comparable[] tup : tuples) {
+		for (Comparable[] tup : rows()) {
 			out.print("| ");
 			for (Comparable attr : tup) {
 				out.printf("%15s", attr);
@@ -562,54 +1634,213 @@ public class Table implements Serializable {
 	} // printIndex
 	
 	/************************************************************************************
-	 * Load the table with the given name into memory.
+	 * Load the table with the given name into memory. The table file is read
+	 * one page at a time and the index is bulk loaded from its tuples, then the
+	 * changes logged since the table was saved are replayed on top. Further
+	 * changes are appended to the same log.
 	 * 
 	 * @param name the name of the table to load
 	 * @return     a Table
 	 */
+	@SuppressWarnings("rawtypes")
 	public static Table load(String name) {
 		Table tab = null;
-		try {
-			ObjectInputStream ois = new ObjectInputStream(new FileInputStream(
-					DIR + name + EXT));
-			tab = (Table) ois.readObject();
-			ois.close();
+		try (TableFile file = TableFile.open(Paths.get(DIR + name + EXT))) {
+			Schema s = file.schema();
+			Table t = new Table(name, s.attribute, s.domain, s.key, s.structure, s.columnar);
+			List<Comparable[]> rows = new ArrayList<>((int) file.rows());
+			for (int p = 0; p < file.pages(); p++) {
+				rows.addAll(Arrays.asList(file.page(p).tuples()));
+			} // for
+			t.bulkLoad(rows.toArray(new Comparable[rows.size()][]));
+			
+			// Replay the logged changes (the log is not open yet, so they are not logged again)
+			t.logged = file.logged();
+			t.log = WriteAheadLog.open(Paths.get(DIR + name + WAL), s.domain, file.logged(), tup -> {
+				t.insert(tup);
+				t.logged++;
+			}, tup -> {
+				t.remove(tup);
+				t.logged++;
+			});
+			tab = t;
 		} catch (IOException ex) {
 			err.println("load: IO Exception");
 			ex.printStackTrace();
-		} catch (ClassNotFoundException ex) {
-			err.println("load: Class Not Found Exception");
-			ex.printStackTrace();
 		} // try
 		return tab;
 	} // load
 	
 	/************************************************************************************
-	 * Save this table in a file.
+	 * Open the stored table with the given name in read-only, memory-mapped
+	 * mode. No tuple is read up front: selections and scans decode tuples
+	 * straight from the mapped file pages, materializing only their results,
+	 * so tables larger than the heap can be queried. A BPTreeMap table also
+	 * reopens the B+Tree index file written by save, so key lookups and joins
+	 * probing it descend the stored tree instead of rebuilding an index; any
+	 * other table decodes just its key columns once to locate each key's tuple.
+	 * Changes committed to the log since the save are read (the log is left
+	 * as is) and kept in memory over the file, so the table shows what load
+	 * would. Mapped tables cannot be inserted into.
+	 * 
+	 * #usage Table movie = Table.map ("movie")
+	 * 
+	 * @param name the name of the table to map
+	 * @return     a read-only Table over the file
 	 */
-	public void save() {
+	@SuppressWarnings("rawtypes")
+	public static Table map(String name) {
 		try {
-			//Create the directory if it does not exist
-			File oosDirectory = new File(DIR);
-			if(!oosDirectory.exists()) {
-				oosDirectory.mkdir();
-			} 
-			
-			ObjectOutputStream oos = new ObjectOutputStream(
-					new FileOutputStream(DIR + name + EXT));
+			MappedTable file = new MappedTable(Paths.get(DIR + name + EXT));
+			Schema s = file.schema();
+			Path idx = Paths.get(DIR + name + IDX);
+			int[] keyPos = new int[s.key.length];
+			for (int j = 0; j < keyPos.length; j++) {
+				keyPos[j] = Arrays.asList(s.attribute).indexOf(s.key[j]);
+			}
+			StoredIndex index;
+			if (isBpTree(s.structure) && Files.exists(idx)) {
+				index = new StoredIndex(new BpTreeFile(idx), file, keyPos);
+			} else {
+				// no index file to reopen: locate the keys (only their columns are decoded)
+				index = new StoredIndex(file, keyPos);
+			} // if
 			
-			oos.writeObject(this);
-			oos.close();
+			// Overlay the changes committed since the save, which the file and index lack
+			WriteAheadLog.read(Paths.get(DIR + name + WAL), s.domain, file.logged(), tup -> {
+				file.add(tup);
+				index.add(tup);
+			}, tup -> {
+				file.remove(tup);
+				index.remove(tup);
+			});
+			return new Table(name, file, index);
 		} catch (IOException ex) {
-			err.println("save: IO Exception");
+			err.println("map: IO Exception");
+			ex.printStackTrace();
+		} // try
+		return null;
+	} // map
+	
+	/************************************************************************************
+	 * Save this table in a file of fixed-size pages holding the schema and the
+	 * binary encoded tuples (see TableFile). A BPTreeMap table also gets a B+Tree
+	 * index file of page-sized nodes mapping each key to where its tuple was
+	 * written (see BpTreeFile), which map reopens. The write-ahead log is
+	 * restarted, so later inserts are logged instead of rewriting the file.
+	 * Returns once the snapshot is on disk (see saveAsync).
+	 */
+	public void save() {
+		try {
+			saveAsync().get();
+		} catch (InterruptedException | ExecutionException ex) {
+			err.println("save: snapshot failed");
 			ex.printStackTrace();
 		} // try
 	} // save
 	
+	/************************************************************************************
+	 * Save this table in the background. The tuples stored so far are captured
+	 * as the snapshot (tuples are never changed in place, as update replaces
+	 * them, so this copies references, not tuples; a columnar table copies its
+	 * column vectors, and its rows are only decoded by the background thread)
+	 * and written by a background thread, while changes carry on and are logged
+	 * as usual. The files are written under temporary names and atomically
+	 * moved into place, and the log is then restarted after the snapshot (see
+	 * WriteAheadLog.checkpoint), so a crash at any point leaves a loadable
+	 * table. Snapshots are written one at a time, in order.
+	 * 
+	 * #usage Future <Boolean> done = movie.saveAsync ()
+	 * 
+	 * @return a future telling whether the snapshot was written
+	 */
+	@SuppressWarnings("rawtypes")
+	public Future<Boolean> saveAsync() {
+		if (mapped != null) {
+			err.println("save: " + name + " is mapped from its file already");
+			return CompletableFuture.completedFuture(false);
+		}
+		
+		//Create the directory if it does not exist
+		File oosDirectory = new File(DIR);
+		if(!oosDirectory.exists()) {
+			oosDirectory.mkdir();
+		} 
+		
+		Iterable<Comparable[]> snapshot = (columns != null) ? columns.copy() : new ArrayList<>(live());
+		long snapshotLogged = logged;
+		try {
+			// Log from here on, so changes made while the snapshot is written are not lost;
+			// a new log starts beside any old one, which it replaces once the snapshot is on disk
+			if (log == null) {
+				log = WriteAheadLog.create(Paths.get(DIR + name + WAL + TMP), domain, logged);
+			}
+		} catch (IOException ex) {
+			err.println("save: IO Exception");
+			ex.printStackTrace();
+			return CompletableFuture.completedFuture(false);
+		} // try
+		WriteAheadLog snapshotLog = log;
+		return SNAPSHOTS.submit(() -> writeSnapshot(snapshot, snapshotLogged, snapshotLog));
+	} // saveAsync
+	
 	// ----------------------------------------------------------------------------------
 	// Private Methods
 	// ----------------------------------------------------------------------------------
 	
+	/************************************************************************************
+	 * Write a snapshot of this table (and its B+Tree index file) under temporary
+	 * names, move the files into place and restart the log after the snapshot.
+	 * 
+	 * @param snapshot    the tuples to write
+	 * @param logged      the number of log records the tuples reflect
+	 * @param snapshotLog the log of changes made since the previous snapshot
+	 * @return            whether the snapshot was written
+	 */
+	@SuppressWarnings("rawtypes")
+	private boolean writeSnapshot(Iterable<Comparable[]> snapshot, long logged, WriteAheadLog snapshotLog) {
+		try {
+			Schema schema = new Schema(attribute, domain, key, structure, columns != null);
+			Path dbf = Paths.get(DIR + name + EXT), idx = Paths.get(DIR + name + IDX);
+			Path dbfTmp = Paths.get(DIR + name + EXT + TMP), idxTmp = Paths.get(DIR + name + IDX + TMP);
+			boolean indexed = isBpTree(structure);
+			if (indexed) {
+				// Record where each key's tuple lands (the last one wins, as in the index)
+				int[] keyPos = match(key);
+				TreeMap<KeyType, Long> placed = new TreeMap<>();
+				TableFile.write(dbfTmp, schema, snapshot, logged,
+						(t, loc) -> placed.put(new KeyType(extract(t, keyPos)), loc));
+				
+				Comparable[][] keys = new Comparable[placed.size()][];
+				long[] locs = new long[keys.length];
+				int i = 0;
+				for (Map.Entry<KeyType, Long> e : placed.entrySet()) {
+					keys[i] = e.getKey().values();
+					locs[i++] = e.getValue();
+				}
+				BpTreeFile.write(idxTmp, extractDom(keyPos, domain), keys, locs);
+			} else {
+				TableFile.write(dbfTmp, schema, snapshot, logged);
+			} // if
+			
+			// An index file never outlives the table file its locators point into
+			Files.deleteIfExists(idx);
+			TableFile.replace(dbfTmp, dbf);
+			if (indexed) {
+				TableFile.replace(idxTmp, idx);
+			}
+			
+			// The snapshot holds the changes logged before it and is durably in place
+			// (forced and renamed, see TableFile.replace), so the log restarts after them
+			snapshotLog.checkpoint(logged, Paths.get(DIR + name + WAL));
+			return true;
+		} catch (IOException ex) {
+			err.println("save: IO Exception");
+			ex.printStackTrace();
+		} // try
+		return false;
+	} // writeSnapshot
+	
 	/************************************************************************************
 	 * Determine whether the two tables (this and table2) are compatible, i.e.,
 	 * have the same number of attributes each with the same corresponding
@@ -673,6 +1904,154 @@ public class Table implements Serializable {
 		return tup;
 	} // extract
 	
+	/************************************************************************************
+	 * Extract the attributes at the given column positions from tuple t.
+	 * 
+	 * @param t      the tuple to extract from
+	 * @param colPos the column positions to extract
+	 * @return       a smaller tuple extracted from tuple t
+	 */
+	@SuppressWarnings("rawtypes")
+	private Comparable[] extract(Comparable[] t, int[] colPos) {
+		Comparable[] tup = new Comparable[colPos.length];
+		for (int j = 0; j < colPos.length; j++)
+			tup[j] = t[colPos[j]];
+		return tup;
+	} // extract
+	
+	/************************************************************************************
+	 * Return an iterator over the tuples of this table in order of the given
+	 * columns. An ordered index holding every tuple already yields that order
+	 * when the columns are a prefix of the primary key; otherwise the tuples
+	 * are sorted.
+	 * 
+	 * @param colPos the column positions to order by
+	 * @return       an iterator over the tuples in ascending order
+	 */
+	@SuppressWarnings("rawtypes")
+	private Iterator<Comparable[]> sortedOn(int[] colPos) {
+		int[] keyPos = match(key);
+		Map ordered = (columns != null) ? rowIndex.positions() : index;
+		boolean prefix = ordered instanceof SortedMap && colPos.length <= keyPos.length;
+		for (int j = 0; prefix && j < colPos.length; j++) {
+			prefix = colPos[j] == keyPos[j];
+		}
+		
+		if (prefix && index.size() == stored()) {
+			return index.values().iterator();
+		}
+		
+		List<Comparable[]> sorted = new ArrayList<Comparable[]>(rows());
+		sorted.sort((a, b) -> compare(a, colPos, b, colPos));
+		return sorted.iterator();
+	} // sortedOn
+	
+	/************************************************************************************
+	 * Compare tuple a on columns aPos with tuple b on columns bPos.
+	 * 
+	 * @param a    the first tuple
+	 * @param aPos the column positions in a
+	 * @param b    the second tuple
+	 * @param bPos the column positions in b
+	 * @return     negative, zero or positive as a is less, equal or greater
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static int compare(Comparable[] a, int[] aPos, Comparable[] b, int[] bPos) {
+		for (int j = 0; j < aPos.length; j++) {
+			int cmp = a[aPos[j]].compareTo(b[bPos[j]]);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return 0;
+	} // compare
+	
+	/************************************************************************************
+	 * Log deleted and then inserted tuples before they are applied, once the
+	 * table has a snapshot on disk.
+	 * 
+	 * @param op       the operation logging them (for error messages)
+	 * @param deleted  the tuples being deleted
+	 * @param inserted the tuple being inserted (or null)
+	 * @return         whether the changes were logged (or there is no log yet)
+	 */
+	@SuppressWarnings("rawtypes")
+	private boolean logChanges(String op, List<Comparable[]> deleted, Comparable[] inserted) {
+		if (log == null) {
+			return true;
+		}
+		try {
+			for (Comparable[] tup : deleted) {
+				log.appendDelete(tup);
+				logged++;
+			}
+			if (inserted != null) {
+				log.append(inserted);
+				logged++;
+			}
+			return true;
+		} catch (IOException ex) {
+			err.println(op + ": IO Exception");
+			ex.printStackTrace();
+		} // try
+		return false;
+	} // logChanges
+	
+	/************************************************************************************
+	 * Return the tuple list with the pending deletes and updates applied. Each
+	 * pending tuple is resolved at its last occurrence, following the chain of
+	 * updates made to it, in one pass over the list.
+	 * 
+	 * @return the tuple list
+	 */
+	@SuppressWarnings("rawtypes")
+	private List<Comparable[]> live() {
+		if (pending.isEmpty()) {
+			return tuples;
+		}
+		Comparable[][] t = tuples.toArray(new Comparable[tuples.size()][]);
+		for (int i = t.length - 1; i >= 0 && !pending.isEmpty(); i--) {
+			while (t[i] != null && pending.containsKey(t[i])) {
+				t[i] = pending.remove(t[i]);
+			}
+		}
+		int m = 0;
+		for (Comparable[] tup : t) {
+			if (tup != null) {
+				tuples.set(m++, tup);
+			}
+		}
+		tuples.subList(m, t.length).clear();
+		pending.clear();
+		deleted = 0;
+		return tuples;
+	} // live
+	
+	/************************************************************************************
+	 * Drop the deleted rows of a columnar table once they outnumber the live
+	 * ones, moving the primary index to the rows' new positions.
+	 */
+	private void compact() {
+		int[] to = columns.compact();
+		if (to != null) {
+			rowIndex.remap(to);
+		}
+	} // compact
+	
+	/************************************************************************************
+	 * Return the tuples of this table, materializing them from the column
+	 * vectors when the table is columnar (or from the file when it is mapped).
+	 * 
+	 * @return the list of tuples
+	 */
+	@SuppressWarnings("rawtypes")
+	private List<Comparable[]> rows() {
+		if (mapped != null) {
+			return mapped.select(t -> true, new int[0]);
+		}
+		return (columns != null) ? columns.rows() : live();
+	} // rows
+	
 	/************************************************************************************
 	 * Check the size of the tuple (number of elements in list) as well as the
 	 * type of each value to ensure it is from the right domain.
@@ -715,6 +2094,43 @@ public class Table implements Serializable {
 		return true;
 	}
 	
+	/************************************************************************************
+	 * Create an empty index (Map) keyed on KeyType using the selected data
+	 * structure: TreeMap (default), BPTreeMap, LinHashMap or ExtHashMap. The
+	 * order of a B+Tree may follow a colon (e.g., "BPTreeMap:64").
+	 * 
+	 * @param structure the data structure selection
+	 * @param classV    the class of the values stored in the index
+	 * @return          an empty map
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static Map makeIndex(String structure, Class classV) {
+		if (isBpTree(structure)) {
+			int colon = structure.indexOf(':');
+			if (colon < 0) {
+				return new BpTreeMap<>(KeyType.class, classV);
+			}
+			return new BpTreeMap<>(KeyType.class, classV, Integer.parseInt(structure.substring(colon + 1).trim()));
+		} else if (structure.equalsIgnoreCase("LinHashMap")) {
+			return new LinHashMap<>(KeyType.class, classV, 4);
+		} else if (structure.equalsIgnoreCase("ExtHashMap")) {
+			return new ExtHashMap<>(KeyType.class, classV, 4);
+		} else {
+			return new TreeMap<>();
+		}
+	} // makeIndex
+	
+	/************************************************************************************
+	 * Determine whether a data structure selection is a B+Tree (of any order).
+	 * 
+	 * @param structure the data structure selection
+	 * @return          whether it selects BPTreeMap
+	 */
+	private static boolean isBpTree(String structure) {
+		int colon = structure.indexOf(':');
+		return (colon < 0 ? structure : structure.substring(0, colon)).trim().equalsIgnoreCase("BPTreeMap");
+	} // isBpTree
+	
 	/************************************************************************************
 	 * Find the classes in the "java.lang" package with given names.
 	 * 
@@ -756,7 +2172,9 @@ public class Table implements Serializable {
 	
 	// returns number of tuples (for validation)
 	public int size() {
+		int stored = stored();
+		
 		// return the one with higher value
-		return (index.size() > tuples.size()) ? index.size() : tuples.size();
+		return (index.size() > stored) ? index.size() : stored;
 	}
 } // Table class
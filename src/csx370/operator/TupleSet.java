@@ -0,0 +1,148 @@
+package csx370.operator;
+
+/****************************************************************************************
+ * @file   TupleSet.java
+ */
+
+import java.util.*;
+
+/****************************************************************************************
+ * This class implements set operations on lists of whole tuples through hash
+ * tables keyed on the tuple values (KeyType), so they run in linear time.
+ * Large inputs are hash partitioned and each partition is processed as its own
+ * fork/join task (see Partitions).
+ */
+@SuppressWarnings("rawtypes")
+class TupleSet {
+	/** Inputs with fewer tuples than this are processed by a single thread. */
+	static final int PARALLEL_MIN = 1 << 13;
+	
+	/************************************************************************************
+	 * Return the number of partitions to use for n input tuples.
+	 *
+	 * @param n the total number of input tuples
+	 * @return  1 for small inputs, otherwise a power of 2
+	 */
+	private static int parts(int n) {
+		return (n < PARALLEL_MIN) ? 1 : Partitions.count(n);
+	} // parts
+	
+	/************************************************************************************
+	 * Remove duplicate tuples, keeping the first occurrence of each.
+	 *
+	 * @param rows the tuples
+	 * @return     the distinct tuples
+	 */
+	static List<Comparable[]> distinct(List<Comparable[]> rows) {
+		int parts = parts(rows.size());
+		Partitions in = new Partitions(rows, null, parts);
+		return Partitions.run(parts, p -> {
+			Set<KeyType> seen = new HashSet<>(in.size(p) * 4 / 3 + 1);
+			List<Comparable[]> out = new ArrayList<>();
+			for (int x = in.start[p]; x < in.start[p + 1]; x++) {
+				int i = in.order[x];
+				if (seen.add(in.key[i])) {
+					out.add(in.rows.get(i));
+				}
+			} // for
+			return out;
+		});
+	} // distinct
+	
+	/************************************************************************************
+	 * Return the distinct tuples occurring in either list.
+	 *
+	 * @param a the first tuples
+	 * @param b the second tuples
+	 * @return  the distinct tuples of a and b
+	 */
+	static List<Comparable[]> union(List<Comparable[]> a, List<Comparable[]> b) {
+		List<Comparable[]> both = new ArrayList<>(a.size() + b.size());
+		both.addAll(a);
+		both.addAll(b);
+		return distinct(both);
+	} // union
+	
+	/************************************************************************************
+	 * Return the distinct tuples of a that do not occur in b. Within each
+	 * partition the hash table is built on the smaller side.
+	 *
+	 * @param a the tuples to keep
+	 * @param b the tuples to remove
+	 * @return  the distinct tuples of a not in b
+	 */
+	static List<Comparable[]> minus(List<Comparable[]> a, List<Comparable[]> b) {
+		int parts = parts(a.size() + b.size());
+		Partitions pa = new Partitions(a, null, parts);
+		Partitions pb = new Partitions(b, null, parts);
+		return Partitions.run(parts, p -> {
+			if (pa.size(p) <= pb.size(p)) {
+				// build on a, then strike out whatever b holds
+				Map<KeyType, Comparable[]> keep = new LinkedHashMap<>(pa.size(p) * 4 / 3 + 1);
+				for (int x = pa.start[p]; x < pa.start[p + 1]; x++) {
+					int i = pa.order[x];
+					keep.putIfAbsent(pa.key[i], pa.rows.get(i));
+				} // for
+				for (int x = pb.start[p]; x < pb.start[p + 1] && !keep.isEmpty(); x++) {
+					keep.remove(pb.key[pb.order[x]]);
+				} // for
+				return new ArrayList<>(keep.values());
+			} // if
+			
+			// build on b, then keep the tuples of a it lacks
+			Set<KeyType> drop = keys(pb, p);
+			Set<KeyType> seen = new HashSet<>();
+			List<Comparable[]> out = new ArrayList<>();
+			for (int x = pa.start[p]; x < pa.start[p + 1]; x++) {
+				int i = pa.order[x];
+				if (!drop.contains(pa.key[i]) && seen.add(pa.key[i])) {
+					out.add(pa.rows.get(i));
+				}
+			} // for
+			return out;
+		});
+	} // minus
+	
+	/************************************************************************************
+	 * Return the distinct tuples occurring in both lists. Within each partition
+	 * the hash table is built on the smaller side and probed with the larger.
+	 *
+	 * @param a the first tuples
+	 * @param b the second tuples
+	 * @return  the distinct tuples of a also in b
+	 */
+	static List<Comparable[]> intersect(List<Comparable[]> a, List<Comparable[]> b) {
+		int parts = parts(a.size() + b.size());
+		Partitions pa = new Partitions(a, null, parts);
+		Partitions pb = new Partitions(b, null, parts);
+		return Partitions.run(parts, p -> {
+			boolean buildA = pa.size(p) <= pb.size(p);
+			Partitions probe = (buildA) ? pb : pa;
+			Set<KeyType> build = keys((buildA) ? pa : pb, p);
+			Set<KeyType> seen = new HashSet<>();
+			List<Comparable[]> out = new ArrayList<>();
+			for (int x = probe.start[p]; x < probe.start[p + 1]; x++) {
+				int i = probe.order[x];
+				if (build.contains(probe.key[i]) && seen.add(probe.key[i])) {
+					out.add(probe.rows.get(i));
+				}
+			} // for
+			return out;
+		});
+	} // intersect
+	
+	/************************************************************************************
+	 * Collect the tuple values of partition p into a hash set.
+	 *
+	 * @param in the partitioned tuples
+	 * @param p  the partition
+	 * @return   the set of tuple values in the partition
+	 */
+	private static Set<KeyType> keys(Partitions in, int p) {
+		Set<KeyType> set = new HashSet<>(in.size(p) * 4 / 3 + 1);
+		for (int x = in.start[p]; x < in.start[p + 1]; x++) {
+			set.add(in.key[in.order[x]]);
+		} // for
+		return set;
+	} // keys
+} // TupleSet class
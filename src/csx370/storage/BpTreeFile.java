@@ -0,0 +1,447 @@
+package csx370.storage;
+
+/****************************************************************************************
+ * @file   BpTreeFile.java
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+
+/****************************************************************************************
+ * This class implements a disk-resident B+Tree index whose nodes are fixed-size
+ * pages of an index file. Internal pages hold keys and child page ids, leaf
+ * pages hold keys and row locators (data page and slot in the table file), and
+ * each leaf links to the next one. The tree is bulk built bottom-up from sorted
+ * keys, so its pages are packed full; opening it reads only the header, so an
+ * index is reopened without being rebuilt. Nodes are read through the shared
+ * BufferPool, so the upper levels of the tree stay cached across lookups.
+ *
+ * <pre>
+ * page 0:  int magic | int version | int pageSize | int root | int height |
+ *          long size | int nKeys | domain*
+ * page 1+: byte type | short n | int link | short offset[n] | entries
+ *          leaf entry     = key | long locator   (link = next leaf, or -1)
+ *          internal entry = key | int child      (link = leftmost child)
+ * </pre>
+ */
+@SuppressWarnings("rawtypes")
+public class BpTreeFile {
+	/** The size of every page in bytes. */
+	public static final int PAGE_SIZE = TableFile.PAGE_SIZE;
+	
+	/** Marks an index file ("BPT1"). */
+	private static final int MAGIC = 0x42505431;
+	
+	/** The version of the file format. */
+	private static final int VERSION = 1;
+	
+	/** Node types. */
+	private static final byte LEAF = 0, INTERNAL = 1;
+	
+	/** The size of a node's fixed header (type, n, link). */
+	private static final int NODE_HEADER = 7;
+	
+	/** The key domains. */
+	private final Class[] domain;
+	
+	/** The page id of the root. */
+	private final int root;
+	
+	/** The number of levels above the leaves. */
+	private final int height;
+	
+	/** The number of keys. */
+	private final long size;
+	
+	/** The index file. */
+	private final Path path;
+	
+	/************************************************************************************
+	 * Open an index file and read its header.
+	 *
+	 * @param _path the index file
+	 * @throws IOException if the file cannot be read or is not an index file
+	 */
+	public BpTreeFile(Path _path) throws IOException {
+		path = _path;
+		ByteBuffer b = BufferPool.shared().copy(path, 0);
+		try {
+			if (b.getInt() != MAGIC) {
+				throw new IOException(path + " is not an index file");
+			}
+			if (b.getInt() != VERSION || b.getInt() != PAGE_SIZE) {
+				throw new IOException(path + " has an unsupported version or page size");
+			}
+			root = b.getInt();
+			height = b.getInt();
+			size = b.getLong();
+			domain = new Class[b.getInt()];
+			for (int j = 0; j < domain.length; j++) {
+				byte[] bytes = new byte[b.getShort() & 0xFFFF];
+				b.get(bytes);
+				domain[j] = Class.forName(new String(bytes, StandardCharsets.UTF_8));
+			}
+		} catch (ClassNotFoundException | RuntimeException ex) {
+			throw new IOException("bad header in " + path, ex);
+		} // try
+	} // constructor
+	
+	/************************************************************************************
+	 * Return the number of keys in the index.
+	 *
+	 * @return the number of keys
+	 */
+	public long size() {
+		return size;
+	} // size
+	
+	/************************************************************************************
+	 * Find the locator of the given key, descending from the root to a leaf.
+	 *
+	 * @param key the key values
+	 * @return    the row locator, or -1 if the key is absent
+	 */
+	public long find(Comparable[] key) {
+		int id = root;
+		for (int level = 0; level < height; level++) {
+			int parent = id;
+			ByteBuffer node = pin(parent);
+			try {
+				// the child left of the first separator greater than key
+				int lo = 0, hi = count(node);
+				while (lo < hi) {
+					int mid = (lo + hi) >>> 1;
+					if (compare(key(node, mid, null), key) <= 0) {
+						lo = mid + 1;
+					} else {
+						hi = mid;
+					}
+				} // while
+				if (lo == 0) {
+					id = node.getInt(3);
+				} else {
+					ByteBuffer e = node.duplicate();
+					key(node, lo - 1, e);
+					id = e.getInt();
+				}
+			} finally {
+				BufferPool.shared().unpin(path, parent, false);
+			} // try
+		} // for
+		
+		ByteBuffer node = pin(id);
+		try {
+			int lo = 0, hi = count(node) - 1;
+			ByteBuffer e = node.duplicate();
+			while (lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				int c = compare(key(node, mid, e), key);
+				if (c == 0) {
+					return e.getLong();
+				} else if (c < 0) {
+					lo = mid + 1;
+				} else {
+					hi = mid - 1;
+				}
+			} // while
+			return -1;
+		} finally {
+			BufferPool.shared().unpin(path, id, false);
+		} // try
+	} // find
+	
+	/************************************************************************************
+	 * Pass every key and its locator, in key order, to the action by walking the
+	 * linked leaves.
+	 *
+	 * @param action receives each key and locator
+	 */
+	public void forEach(ObjLongConsumer<Comparable[]> action) {
+		int id = root;
+		for (int level = 0; level < height; level++) {
+			id = copy(id).getInt(3);
+		}
+		while (id >= 0) {
+			// decode from a copy, so no page stays pinned while action runs
+			ByteBuffer node = copy(id);
+			ByteBuffer e = node.duplicate();
+			for (int i = 0; i < count(node); i++) {
+				action.accept(key(node, i, e), e.getLong());
+			}
+			id = node.getInt(3);
+		} // while
+	} // forEach
+	
+	/************************************************************************************
+	 * Make a row locator from a data page number and a slot within the page.
+	 *
+	 * @param page the data page number
+	 * @param slot the slot of the row in the page
+	 * @return     the locator
+	 */
+	public static long locator(int page, int slot) {
+		return ((long) page << 32) | slot;
+	} // locator
+	
+	/************************************************************************************
+	 * Return the data page number of a row locator.
+	 *
+	 * @param loc the locator
+	 * @return    the data page number
+	 */
+	public static int page(long loc) {
+		return (int) (loc >>> 32);
+	} // page
+	
+	/************************************************************************************
+	 * Return the slot of a row locator.
+	 *
+	 * @param loc the locator
+	 * @return    the slot within the data page
+	 */
+	public static int slot(long loc) {
+		return (int) loc;
+	} // slot
+	
+	/************************************************************************************
+	 * Write an index file for the given keys, bulk building the tree bottom-up:
+	 * the leaves are filled in key order, then each level of internal nodes is
+	 * filled with the first key and page id of the nodes below it, until a
+	 * single root remains.
+	 *
+	 * @param path    the file to write (replacing any old one)
+	 * @param _domain the key domains
+	 * @param keys    the keys, sorted ascending without duplicates
+	 * @param loc     the row locator of each key
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(Path path, Class[] _domain, Comparable[][] keys, long[] loc) throws IOException {
+		for (Class d : _domain) {
+			if (d != String.class) {
+				Page.width(d); // reject domains without a binary form before writing
+			}
+		}
+		
+		BufferPool.shared().invalidate(path);
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer page = ByteBuffer.allocateDirect(PAGE_SIZE);
+			ByteBuffer entry = ByteBuffer.allocate(PAGE_SIZE);
+			int next = 1;
+			
+			// the leaves, each linked to the one written after it
+			List<Comparable[]> first = new ArrayList<>();
+			List<Integer> ids = new ArrayList<>();
+			NodeWriter node = new NodeWriter(LEAF);
+			for (int i = 0; i < keys.length; i++) {
+				entry.clear();
+				putKey(entry, _domain, keys[i]);
+				entry.putLong(loc[i]);
+				entry.flip();
+				if (!node.fits(entry)) {
+					node.flush(page, next + 1);
+					writeFully(ch, page, next);
+					next++;
+					node = new NodeWriter(LEAF);
+				}
+				if (node.count() == 0) {
+					first.add(keys[i]);
+					ids.add(next);
+				}
+				node.add(entry);
+			} // for
+			node.flush(page, -1);
+			writeFully(ch, page, next);
+			if (ids.isEmpty()) {
+				ids.add(next);
+			}
+			next++;
+			
+			// the internal levels, until one node covers all of the one below
+			int height = 0;
+			while (ids.size() > 1) {
+				List<Comparable[]> upFirst = new ArrayList<>();
+				List<Integer> upIds = new ArrayList<>();
+				node = null;
+				int child0 = 0;
+				for (int c = 0; c < ids.size(); c++) {
+					if (node != null) {
+						entry.clear();
+						putKey(entry, _domain, first.get(c));
+						entry.putInt(ids.get(c));
+						entry.flip();
+						if (node.fits(entry)) {
+							node.add(entry);
+							continue;
+						}
+						node.flush(page, child0);
+						writeFully(ch, page, next++);
+					} // if
+					// child c starts a new node
+					node = new NodeWriter(INTERNAL);
+					child0 = ids.get(c);
+					upFirst.add(first.get(c));
+					upIds.add(next);
+				} // for
+				node.flush(page, child0);
+				writeFully(ch, page, next++);
+				first = upFirst;
+				ids = upIds;
+				height++;
+			} // while
+			
+			writeFully(ch, header(_domain, ids.get(0), height, keys.length), 0);
+			ch.force(true);
+		} // try
+	} // write
+	
+	/************************************************************************************
+	 * This inner class fills one node page: entries are staged in order and
+	 * their offsets recorded, so the page can be laid out once it is full.
+	 */
+	private static class NodeWriter {
+		private final byte type;
+		private final ByteBuffer entries = ByteBuffer.allocate(PAGE_SIZE);
+		private final List<Integer> offset = new ArrayList<>();
+		
+		NodeWriter(byte _type) {
+			type = _type;
+		} // constructor
+		
+		int count() {
+			return offset.size();
+		} // count
+		
+		boolean fits(ByteBuffer entry) {
+			return NODE_HEADER + 2 * (offset.size() + 1) + entries.position() + entry.remaining() <= PAGE_SIZE;
+		} // fits
+		
+		void add(ByteBuffer entry) {
+			if (!fits(entry)) {
+				throw new IllegalArgumentException("key does not fit in a " + PAGE_SIZE + " byte page");
+			}
+			offset.add(entries.position());
+			entries.put(entry);
+		} // add
+		
+		void flush(ByteBuffer page, int link) {
+			int base = NODE_HEADER + 2 * offset.size();
+			page.clear();
+			page.put(type).putShort((short) offset.size()).putInt(link);
+			for (int off : offset) {
+				page.putShort((short) (base + off));
+			}
+			entries.flip();
+			page.put(entries);
+			while (page.hasRemaining()) {
+				page.put((byte) 0);
+			}
+			page.flip();
+		} // flush
+	} // NodeWriter inner class
+	
+	/************************************************************************************
+	 * Pin node page id in the shared buffer pool.
+	 */
+	private ByteBuffer pin(int id) {
+		try {
+			return BufferPool.shared().pin(path, id);
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		} // try
+	} // pin
+	
+	/************************************************************************************
+	 * Read a copy of node page id through the shared buffer pool.
+	 */
+	private ByteBuffer copy(int id) {
+		try {
+			return BufferPool.shared().copy(path, id);
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		} // try
+	} // copy
+	
+	/************************************************************************************
+	 * Return the number of entries in a node.
+	 */
+	private static int count(ByteBuffer node) {
+		return node.getShort(1) & 0xFFFF;
+	} // count
+	
+	/************************************************************************************
+	 * Decode the key of entry i in a node. When e is given it is left positioned
+	 * just past the key, at the entry's locator or child id.
+	 */
+	private Comparable[] key(ByteBuffer node, int i, ByteBuffer e) {
+		if (e == null) {
+			e = node.duplicate();
+		}
+		e.position(node.getShort(NODE_HEADER + 2 * i) & 0xFFFF);
+		Comparable[] k = new Comparable[domain.length];
+		for (int j = 0; j < domain.length; j++) {
+			k[j] = Page.get(e, domain[j]);
+		}
+		return k;
+	} // key
+	
+	/************************************************************************************
+	 * Compare two keys column by column (the order of KeyType).
+	 */
+	@SuppressWarnings("unchecked")
+	private static int compare(Comparable[] a, Comparable[] b) {
+		for (int j = 0; j < a.length; j++) {
+			int c = a[j].compareTo(b[j]);
+			if (c != 0) {
+				return c;
+			}
+		}
+		return 0;
+	} // compare
+	
+	/************************************************************************************
+	 * Encode the values of a key.
+	 */
+	private static void putKey(ByteBuffer b, Class[] _domain, Comparable[] key) {
+		for (int j = 0; j < _domain.length; j++) {
+			if (!Page.put(b, _domain[j], key[j])) {
+				throw new IllegalArgumentException("key does not fit in a " + PAGE_SIZE + " byte page");
+			}
+		}
+	} // putKey
+	
+	/************************************************************************************
+	 * Lay out the header page.
+	 */
+	private static ByteBuffer header(Class[] _domain, int root, int height, long size) throws IOException {
+		ByteBuffer b = ByteBuffer.allocate(PAGE_SIZE);
+		try {
+			b.putInt(MAGIC).putInt(VERSION).putInt(PAGE_SIZE).putInt(root).putInt(height).putLong(size);
+			b.putInt(_domain.length);
+			for (Class d : _domain) {
+				byte[] bytes = d.getName().getBytes(StandardCharsets.UTF_8);
+				b.putShort((short) bytes.length);
+				b.put(bytes);
+			}
+		} catch (java.nio.BufferOverflowException ex) {
+			throw new IOException("key domains do not fit in the header page");
+		} // try
+		b.clear();
+		return b;
+	} // header
+	
+	/************************************************************************************
+	 * Write a laid out page as node page id.
+	 */
+	private static void writeFully(FileChannel ch, ByteBuffer page, int id) throws IOException {
+		TableFile.writeFully(ch, page, (long) id * PAGE_SIZE);
+	} // writeFully
+} // BpTreeFile class
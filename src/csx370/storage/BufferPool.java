@@ -0,0 +1,320 @@
+package csx370.storage;
+
+/****************************************************************************************
+ * @file   BufferPool.java
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/****************************************************************************************
+ * This class implements a buffer pool: a fixed number of page-sized frames
+ * caching the pages of table and index files, so repeated reads of hot pages
+ * are served from memory. A page is pinned while in use and unpinned (possibly
+ * marked dirty) afterwards; when a missing page needs a frame, the CLOCK hand
+ * sweeps the frames, giving recently referenced ones a second chance, and
+ * evicts the first unpinned, unreferenced frame, writing it back if dirty.
+ * Files are identified by their absolute path and opened by the pool itself.
+ */
+public class BufferPool {
+	/** The size of every page (and frame) in bytes. */
+	public static final int PAGE_SIZE = TableFile.PAGE_SIZE;
+	
+	/** The memory budget of the shared pool in bytes (64 MB unless set by -Dcsx370.bufferpool=bytes). */
+	public static final long DEFAULT_BUDGET = Long.getLong("csx370.bufferpool", 64L << 20);
+	
+	/** The pool shared by the table and index files. */
+	private static final BufferPool SHARED = new BufferPool(DEFAULT_BUDGET);
+	
+	/** The page held by each frame (null when the frame is free). */
+	private final PageId[] page;
+	
+	/** The contents of each frame. */
+	private final ByteBuffer[] data;
+	
+	/** The pin count of each frame. */
+	private final int[] pins;
+	
+	/** The CLOCK reference bit of each frame. */
+	private final boolean[] referenced;
+	
+	/** Whether each frame was modified since it was read. */
+	private final boolean[] dirty;
+	
+	/** The frame holding each cached page. */
+	private final Map<PageId, Integer> frame = new HashMap<>();
+	
+	/** The open files. */
+	private final Map<Path, FileChannel> files = new HashMap<>();
+	
+	/** The CLOCK hand. */
+	private int hand = 0;
+	
+	/** Counters. */
+	private long hits = 0, misses = 0, evictions = 0;
+	
+	/************************************************************************************
+	 * A page of a file.
+	 */
+	private static final class PageId {
+		final Path file;
+		final long page;
+		
+		PageId(Path _file, long _page) {
+			file = _file;
+			page = _page;
+		} // constructor
+		
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof PageId && ((PageId) o).page == page && ((PageId) o).file.equals(file);
+		} // equals
+		
+		@Override
+		public int hashCode() {
+			return file.hashCode() * 31 + Long.hashCode(page);
+		} // hashCode
+	} // PageId inner class
+	
+	/************************************************************************************
+	 * Construct a buffer pool with the given memory budget.
+	 *
+	 * @param budget the memory for frames in bytes (at least one page)
+	 */
+	public BufferPool(long budget) {
+		if (budget < PAGE_SIZE) {
+			throw new IllegalArgumentException("a buffer pool needs at least " + PAGE_SIZE + " bytes");
+		}
+		int n = (int) Math.min(budget / PAGE_SIZE, Integer.MAX_VALUE);
+		page = new PageId[n];
+		data = new ByteBuffer[n];
+		pins = new int[n];
+		referenced = new boolean[n];
+		dirty = new boolean[n];
+	} // constructor
+	
+	/************************************************************************************
+	 * Return the buffer pool shared by the table and index files.
+	 *
+	 * @return the shared pool
+	 */
+	public static BufferPool shared() {
+		return SHARED;
+	} // shared
+	
+	/************************************************************************************
+	 * Pin a page of a file, reading it into a frame unless it is cached. The
+	 * returned buffer is the frame itself (position 0, limit PAGE_SIZE) and is
+	 * only valid until the page is unpinned. Bytes past the end of the file read
+	 * as zeros.
+	 *
+	 * @param file the file
+	 * @param p    the page number (0 for the first page)
+	 * @return     the contents of the page
+	 * @throws IOException if the page cannot be read (or a dirty victim written)
+	 */
+	public synchronized ByteBuffer pin(Path file, long p) throws IOException {
+		PageId id = new PageId(file.toAbsolutePath().normalize(), p);
+		Integer f = frame.get(id);
+		if (f != null) {
+			hits++;
+		} else {
+			misses++;
+			f = victim();
+			if (data[f] == null) {
+				data[f] = ByteBuffer.allocate(PAGE_SIZE);
+			}
+			ByteBuffer b = data[f];
+			b.clear();
+			FileChannel ch = channel(id.file);
+			long pos = p * PAGE_SIZE;
+			while (b.hasRemaining()) {
+				int n = ch.read(b, pos);
+				if (n < 0) {
+					break;
+				}
+				pos += n;
+			}
+			while (b.hasRemaining()) {
+				b.put((byte) 0);
+			}
+			page[f] = id;
+			frame.put(id, f);
+		} // if
+		
+		pins[f]++;
+		referenced[f] = true;
+		ByteBuffer b = data[f].duplicate();
+		b.clear();
+		return b;
+	} // pin
+	
+	/************************************************************************************
+	 * Unpin a page pinned earlier.
+	 *
+	 * @param file     the file
+	 * @param p        the page number
+	 * @param modified whether the page was modified (it is written back before eviction)
+	 */
+	public synchronized void unpin(Path file, long p, boolean modified) {
+		Integer f = frame.get(new PageId(file.toAbsolutePath().normalize(), p));
+		if (f == null || pins[f] == 0) {
+			throw new IllegalStateException("page " + p + " of " + file + " is not pinned");
+		}
+		pins[f]--;
+		dirty[f] |= modified;
+	} // unpin
+	
+	/************************************************************************************
+	 * Read a copy of a page, pinning it only while copying.
+	 *
+	 * @param file the file
+	 * @param p    the page number
+	 * @return     a private copy of the page
+	 * @throws IOException if the page cannot be read
+	 */
+	public ByteBuffer copy(Path file, long p) throws IOException {
+		ByteBuffer b = pin(file, p);
+		try {
+			ByteBuffer c = ByteBuffer.allocate(PAGE_SIZE);
+			c.put(b);
+			c.flip();
+			return c;
+		} finally {
+			unpin(file, p, false);
+		} // try
+	} // copy
+	
+	/************************************************************************************
+	 * Write the dirty cached pages of a file back to it.
+	 *
+	 * @param file the file
+	 * @throws IOException if a page cannot be written
+	 */
+	public synchronized void flush(Path file) throws IOException {
+		Path abs = file.toAbsolutePath().normalize();
+		for (int f = 0; f < page.length; f++) {
+			if (page[f] != null && dirty[f] && page[f].file.equals(abs)) {
+				writeBack(f);
+			}
+		}
+	} // flush
+	
+	/************************************************************************************
+	 * Drop every cached page of a file (without writing dirty ones back) and close
+	 * it, e.g., because the file is about to be rewritten.
+	 *
+	 * @param file the file
+	 * @throws IOException if the file cannot be closed
+	 */
+	public synchronized void invalidate(Path file) throws IOException {
+		Path abs = file.toAbsolutePath().normalize();
+		for (int f = 0; f < page.length; f++) {
+			if (page[f] != null && page[f].file.equals(abs)) {
+				if (pins[f] > 0) {
+					throw new IllegalStateException("page " + page[f].page + " of " + file + " is pinned");
+				}
+				frame.remove(page[f]);
+				page[f] = null;
+				referenced[f] = dirty[f] = false;
+			}
+		} // for
+		FileChannel ch = files.remove(abs);
+		if (ch != null) {
+			ch.close();
+		}
+	} // invalidate
+	
+	/************************************************************************************
+	 * Return the number of frames.
+	 *
+	 * @return the number of frames
+	 */
+	public int frames() {
+		return page.length;
+	} // frames
+	
+	/************************************************************************************
+	 * Return the number of pins served from a cached page.
+	 *
+	 * @return the number of hits
+	 */
+	public synchronized long hits() {
+		return hits;
+	} // hits
+	
+	/************************************************************************************
+	 * Return the number of pins that had to read their page.
+	 *
+	 * @return the number of misses
+	 */
+	public synchronized long misses() {
+		return misses;
+	} // misses
+	
+	/************************************************************************************
+	 * Return the number of cached pages evicted to make room.
+	 *
+	 * @return the number of evictions
+	 */
+	public synchronized long evictions() {
+		return evictions;
+	} // evictions
+	
+	/************************************************************************************
+	 * Choose a frame for a new page: a free one, or else the first unpinned frame
+	 * the CLOCK hand finds unreferenced (clearing reference bits as it passes).
+	 */
+	private int victim() throws IOException {
+		for (int sweep = 0; sweep < 2 * page.length; sweep++) {
+			int f = hand;
+			hand = (hand + 1) % page.length;
+			if (page[f] == null) {
+				return f;
+			}
+			if (pins[f] > 0) {
+				continue;
+			}
+			if (referenced[f]) {
+				referenced[f] = false;
+				continue;
+			}
+			if (dirty[f]) {
+				writeBack(f);
+			}
+			frame.remove(page[f]);
+			page[f] = null;
+			evictions++;
+			return f;
+		} // for
+		throw new IllegalStateException("all " + page.length + " buffer pool frames are pinned");
+	} // victim
+	
+	/************************************************************************************
+	 * Write frame f back to its file.
+	 */
+	private void writeBack(int f) throws IOException {
+		ByteBuffer b = data[f].duplicate();
+		b.clear();
+		TableFile.writeFully(channel(page[f].file), b, page[f].page * PAGE_SIZE);
+		dirty[f] = false;
+	} // writeBack
+	
+	/************************************************************************************
+	 * Return the open channel of a file, opening it on first use.
+	 */
+	private FileChannel channel(Path abs) throws IOException {
+		FileChannel ch = files.get(abs);
+		if (ch == null) {
+			ch = (Files.isWritable(abs)) ? FileChannel.open(abs, StandardOpenOption.READ, StandardOpenOption.WRITE)
+					: FileChannel.open(abs, StandardOpenOption.READ);
+			files.put(abs, ch);
+		}
+		return ch;
+	} // channel
+} // BufferPool class
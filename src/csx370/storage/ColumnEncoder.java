@@ -0,0 +1,348 @@
+package csx370.storage;
+
+/****************************************************************************************
+ * @file   ColumnEncoder.java
+ */
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/****************************************************************************************
+ * This class stages the values of one column of a data page and encodes them
+ * with whichever encoding takes the fewest bytes (see Page for the layouts).
+ * The exact size of every candidate encoding is kept up to date as values are
+ * added, so the page writer can pack as many tuples into a page as fit once
+ * compressed, and the choice is only made when the page is flushed.
+ */
+@SuppressWarnings("rawtypes")
+class ColumnEncoder {
+	/** The domain of the column. */
+	private final Class domain;
+	
+	/** Whether the domain is integral (FOR and DELTA apply). */
+	private final boolean integral;
+	
+	/** The staged values. */
+	private final List<Comparable> values = new ArrayList<>();
+	
+	/** The size of the values in PLAIN encoding. */
+	private int plain;
+	
+	/** The id of each distinct value, in order of first appearance. */
+	private final Map<Comparable, Integer> dict = new HashMap<>();
+	
+	/** The distinct values in id order. */
+	private final List<Comparable> distinct = new ArrayList<>();
+	
+	/** The size of the distinct values in PLAIN encoding. */
+	private int dictBytes;
+	
+	/** Strings: the common prefix, its UTF-8 length and the total UTF-8 length of the values. */
+	private String prefix;
+	private int prefixBytes;
+	private long utf8;
+	
+	/** Strings: the common text before a number, and the range of the numbers (PREFIX_NUM). */
+	private String head;
+	private boolean numeric;
+	private long numMin, numMax;
+	
+	/** Integral domains: the range of the values and of the differences between neighbors. */
+	private long min, max, last, dMin, dMax;
+	
+	/************************************************************************************
+	 * Construct an encoder for a column.
+	 *
+	 * @param _domain the domain of the column
+	 */
+	ColumnEncoder(Class _domain) {
+		domain = _domain;
+		integral = domain == Integer.class || domain == Long.class || domain == Short.class
+				|| domain == Byte.class || domain == Character.class;
+		clear();
+	} // constructor
+	
+	/************************************************************************************
+	 * Return the number of staged values.
+	 *
+	 * @return the number of values
+	 */
+	int rows() {
+		return values.size();
+	} // rows
+	
+	/************************************************************************************
+	 * Check that a value can be stored in the column.
+	 *
+	 * @param v the value
+	 */
+	void check(Comparable v) {
+		if (v == null) {
+			throw new IllegalArgumentException("null values cannot be stored");
+		}
+		if (domain == String.class && utf8Length((String) v) > 0xFFFF) {
+			throw new IllegalArgumentException("string longer than 65535 bytes");
+		}
+	} // check
+	
+	/************************************************************************************
+	 * Stage a value (checked earlier), updating the size of every encoding.
+	 *
+	 * @param v the value
+	 */
+	void add(Comparable v) {
+		int n = values.size();
+		values.add(v);
+		int size = plainSize(v);
+		plain += size;
+		if (dict.size() <= 0xFFFF && !dict.containsKey(v)) {
+			dict.put(v, distinct.size());
+			distinct.add(v);
+			dictBytes += size;
+		}
+		
+		if (domain == String.class) {
+			String s = (String) v;
+			utf8 += size - 2;
+			if (n == 0) {
+				prefix = s;
+				prefixBytes = size - 2;
+			} else if (!s.startsWith(prefix)) {
+				int k = 0;
+				while (k < prefix.length() && k < s.length() && prefix.charAt(k) == s.charAt(k)) {
+					k++;
+				}
+				if (k > 0 && Character.isHighSurrogate(prefix.charAt(k - 1))) {
+					k--; // never split a surrogate pair
+				}
+				prefix = prefix.substring(0, k);
+				prefixBytes = utf8Length(prefix);
+			} // if
+			
+			int split = numberStart(s);
+			if (split < 0) {
+				numeric = false;
+			} else if (numeric) {
+				long x = Long.parseLong(s.substring(split));
+				if (n == 0) {
+					head = s.substring(0, split);
+					numMin = numMax = x;
+				} else if (head.length() == split && s.startsWith(head)) {
+					numMin = Math.min(numMin, x);
+					numMax = Math.max(numMax, x);
+				} else {
+					numeric = false;
+				}
+			} // if
+		} else if (integral) {
+			long x = toLong(v);
+			if (n == 0) {
+				min = max = x;
+			} else {
+				min = Math.min(min, x);
+				max = Math.max(max, x);
+				long d = x - last;
+				if (n == 1) {
+					dMin = dMax = d;
+				} else {
+					dMin = Math.min(dMin, d);
+					dMax = Math.max(dMax, d);
+				}
+			} // if
+			last = x;
+		} // if
+	} // add
+	
+	/************************************************************************************
+	 * Unstage the last value added.
+	 */
+	void removeLast() {
+		List<Comparable> keep = new ArrayList<>(values.subList(0, values.size() - 1));
+		clear();
+		for (Comparable v : keep) {
+			add(v);
+		}
+	} // removeLast
+	
+	/************************************************************************************
+	 * Unstage every value.
+	 */
+	void clear() {
+		values.clear();
+		dict.clear();
+		distinct.clear();
+		plain = dictBytes = prefixBytes = 0;
+		utf8 = 0;
+		prefix = head = null;
+		numeric = true;
+	} // clear
+	
+	/************************************************************************************
+	 * Return the size of the chunk in its smallest encoding, including the
+	 * encoding byte.
+	 *
+	 * @return the size in bytes
+	 */
+	int size() {
+		return size(encoding());
+	} // size
+	
+	/************************************************************************************
+	 * Choose the encoding taking the fewest bytes (PLAIN on ties).
+	 *
+	 * @return the encoding
+	 */
+	byte encoding() {
+		byte best = Page.PLAIN;
+		for (byte e = Page.DICT; e <= Page.DELTA; e++) {
+			if (size(e) < size(best)) {
+				best = e;
+			}
+		}
+		return best;
+	} // encoding
+	
+	/************************************************************************************
+	 * Write the chunk (encoding byte and values) in its smallest encoding.
+	 *
+	 * @param b the page buffer, positioned at the start of the chunk
+	 */
+	void write(ByteBuffer b) {
+		byte e = encoding();
+		b.put(e);
+		int n = values.size();
+		switch (e) {
+		case Page.PLAIN:
+			for (Comparable v : values) {
+				Page.put(b, domain, v);
+			}
+			break;
+		case Page.DICT:
+			b.putShort((short) distinct.size());
+			for (Comparable v : distinct) {
+				Page.put(b, domain, v);
+			}
+			int w = Page.codeWidth(distinct.size());
+			for (Comparable v : values) {
+				Page.putWidth(b, dict.get(v), w);
+			}
+			break;
+		case Page.PREFIX:
+			Page.put(b, String.class, prefix);
+			for (Comparable v : values) {
+				Page.put(b, String.class, ((String) v).substring(prefix.length()));
+			}
+			break;
+		case Page.PREFIX_NUM:
+			Page.put(b, String.class, head);
+			w = width(numMax - numMin);
+			b.putLong(numMin).put((byte) w);
+			for (Comparable v : values) {
+				Page.putWidth(b, Long.parseLong(((String) v).substring(head.length())) - numMin, w);
+			}
+			break;
+		case Page.FOR:
+			w = width(max - min);
+			b.putLong(min).put((byte) w);
+			for (Comparable v : values) {
+				Page.putWidth(b, toLong(v) - min, w);
+			}
+			break;
+		default: // DELTA
+			w = width(dMax - dMin);
+			long prev = toLong(values.get(0));
+			b.putLong(prev).putLong(dMin).put((byte) w);
+			for (int i = 1; i < n; i++) {
+				long x = toLong(values.get(i));
+				Page.putWidth(b, x - prev - dMin, w);
+				prev = x;
+			}
+		} // switch
+	} // write
+	
+	/************************************************************************************
+	 * Return the size of the chunk in encoding e (Integer.MAX_VALUE if e does not
+	 * apply), including the encoding byte.
+	 */
+	private int size(byte e) {
+		int n = values.size();
+		switch (e) {
+		case Page.PLAIN:
+			return 1 + plain;
+		case Page.DICT:
+			return (n > 0 && dict.size() <= 0xFFFF)
+					? 3 + dictBytes + n * Page.codeWidth(distinct.size()) : Integer.MAX_VALUE;
+		case Page.PREFIX:
+			return (domain == String.class && n > 0)
+					? (int) Math.min(Integer.MAX_VALUE, 3 + prefixBytes + 2L * n + utf8 - (long) n * prefixBytes)
+					: Integer.MAX_VALUE;
+		case Page.PREFIX_NUM:
+			return (domain == String.class && n > 0 && numeric)
+					? 3 + utf8Length(head) + 9 + n * width(numMax - numMin) : Integer.MAX_VALUE;
+		case Page.FOR:
+			return (integral && n > 0) ? 10 + n * width(max - min) : Integer.MAX_VALUE;
+		default: // DELTA
+			return (integral && n > 1) ? 18 + (n - 1) * width(dMax - dMin) : Integer.MAX_VALUE;
+		} // switch
+	} // size
+	
+	/************************************************************************************
+	 * Return the size of a value in PLAIN encoding.
+	 */
+	private int plainSize(Comparable v) {
+		return (domain == String.class) ? 2 + utf8Length((String) v) : Page.width(domain);
+	} // plainSize
+	
+	/************************************************************************************
+	 * Return the number of bytes needed for unsigned offsets up to range.
+	 */
+	private static int width(long range) {
+		return (64 - Long.numberOfLeadingZeros(range) + 7) / 8;
+	} // width
+	
+	/************************************************************************************
+	 * Return where the trailing number of a string starts, or -1 if the string
+	 * does not end in a number that prints back the same way (no leading zeros,
+	 * at most 18 digits).
+	 */
+	private static int numberStart(String s) {
+		int k = s.length();
+		while (k > 0 && s.charAt(k - 1) >= '0' && s.charAt(k - 1) <= '9') {
+			k--;
+		}
+		int digits = s.length() - k;
+		if (digits == 0 || digits > 18 || (digits > 1 && s.charAt(k) == '0')) {
+			return -1;
+		}
+		return k;
+	} // numberStart
+	
+	/************************************************************************************
+	 * Return the value of an integral domain as a long.
+	 */
+	private static long toLong(Comparable v) {
+		return (v instanceof Character) ? (Character) v : ((Number) v).longValue();
+	} // toLong
+	
+	/************************************************************************************
+	 * Return the number of bytes a string takes in UTF-8.
+	 */
+	private static int utf8Length(String s) {
+		int bytes = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				bytes += 1;
+			} else if (c < 0x800) {
+				bytes += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+					&& Character.isLowSurrogate(s.charAt(i + 1))) {
+				bytes += 4;
+				i++;
+			} else {
+				bytes += 3; // an unpaired surrogate becomes '?', so this never under-counts
+			}
+		} // for
+		return bytes;
+	} // utf8Length
+} // ColumnEncoder class
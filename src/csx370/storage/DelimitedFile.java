@@ -0,0 +1,411 @@
+package csx370.storage;
+
+/****************************************************************************************
+ * @file   DelimitedFile.java
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/****************************************************************************************
+ * This class reads and writes delimited text files (CSV, TSV): one tuple per
+ * line, fields separated by the delimiter, and fields holding the delimiter,
+ * a quote or a line break enclosed in double quotes (with quotes doubled), as
+ * in RFC 4180. Files are read through a FileChannel into a reused buffer and
+ * each field is converted to its domain straight from the bytes (integral
+ * domains without creating a String), so no line is split into strings first.
+ * A file can be read in chunks on several threads, each starting at the first
+ * line beginning in its chunk.
+ */
+@SuppressWarnings("rawtypes")
+public class DelimitedFile {
+	/** The number of bytes read from the file at a time. */
+	private static final int BLOCK = 1 << 20;
+	
+	/** The number of bytes of the file parsed by a single task when reading in parallel. */
+	private static final long CHUNK = 16L << 20;
+	
+	/** The domains fields can be converted to. */
+	private static final List<Class> DOMAINS = Arrays.asList(String.class, Integer.class, Long.class,
+			Double.class, Float.class, Short.class, Byte.class, Character.class);
+	
+	/** The bytes with a special meaning in delimited text. */
+	private static final byte QUOTE = '"', CR = '\r', LF = '\n';
+	
+	/** The channel being read. */
+	private final FileChannel channel;
+	
+	/** The domain of each field. */
+	private final Class[] domain;
+	
+	/** The field delimiter. */
+	private final byte delim;
+	
+	/** The buffer holding the bytes read, grown for lines longer than a block. */
+	private byte[] buf = new byte[BLOCK];
+	
+	/** The buffer holding a quoted field without its quotes. */
+	private byte[] field = new byte[256];
+	
+	/************************************************************************************
+	 * Construct a reader for one chunk of an open file.
+	 */
+	private DelimitedFile(FileChannel _channel, Class[] _domain, byte _delim) {
+		channel = _channel;
+		domain = _domain;
+		delim = _delim;
+	} // constructor
+	
+	/************************************************************************************
+	 * Read the tuples of a delimited file. A line with the wrong number of
+	 * fields is read as a null tuple and a field that does not parse as its
+	 * domain as a null value, both of which Table.bulkLoad skips. Blank lines
+	 * are ignored. When reading in parallel, the file is split into chunks of
+	 * 16 MB at line breaks, so quoted fields must not contain line breaks.
+	 *
+	 * @param path      the file to read
+	 * @param domain    the domain of each field
+	 * @param delimiter the field delimiter (e.g., ',' or '\t')
+	 * @param header    whether the first line holds the attribute names (and is skipped)
+	 * @param parallel  whether to parse the chunks of the file on several threads
+	 * @return          the tuples in file order
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Comparable[][] read(Path path, Class[] domain, char delimiter, boolean header, boolean parallel)
+			throws IOException {
+		check(delimiter);
+		for (Class d : domain) {
+			if (!DOMAINS.contains(d)) {
+				throw new IllegalArgumentException("cannot parse fields of " + d.getName());
+			}
+		}
+		
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = ch.size();
+			int chunks = parallel ? (int) Math.min(size / CHUNK + 1, Integer.MAX_VALUE) : 1;
+			List<List<Comparable[]>> parts;
+			try {
+				parts = IntStream.range(0, chunks).parallel().mapToObj(c -> {
+					long start = size / chunks * c, end = (c == chunks - 1) ? size : size / chunks * (c + 1);
+					try {
+						return new DelimitedFile(ch, domain, (byte) delimiter).parse(start, end, size, header && c == 0);
+					} catch (IOException ex) {
+						throw new UncheckedIOException(ex);
+					} // try
+				}).collect(Collectors.toList());
+			} catch (UncheckedIOException ex) {
+				throw ex.getCause();
+			} // try
+			
+			int n = 0;
+			for (List<Comparable[]> part : parts) {
+				n += part.size();
+			}
+			Comparable[][] rows = new Comparable[n][];
+			n = 0;
+			for (List<Comparable[]> part : parts) {
+				for (Comparable[] t : part) {
+					rows[n++] = t;
+				}
+			}
+			return rows;
+		} // try
+	} // read
+	
+	/************************************************************************************
+	 * Write tuples to a delimited file (replacing any old one). Values are
+	 * written as by toString, quoting strings and characters that hold the
+	 * delimiter, a quote or a line break.
+	 *
+	 * @param path      the file to write
+	 * @param attribute the attribute names for the first line, or null for no header
+	 * @param tuples    the tuples to write
+	 * @param delimiter the field delimiter (e.g., ',' or '\t')
+	 * @return          the number of tuples written
+	 * @throws IOException if the file cannot be written
+	 */
+	public static long write(Path path, String[] attribute, Iterable<Comparable[]> tuples, char delimiter)
+			throws IOException {
+		check(delimiter);
+		CharsetEncoder enc = StandardCharsets.UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		ByteBuffer b = ByteBuffer.allocate(BLOCK);
+		StringBuilder text = new StringBuilder();
+		long n = 0;
+		
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			if (attribute != null) {
+				append(text, attribute, delimiter);
+			}
+			for (Comparable[] t : tuples) {
+				append(text, t, delimiter);
+				n++;
+				if (text.length() >= BLOCK / 4) {
+					encode(ch, enc, text, b);
+				}
+			}
+			encode(ch, enc, text, b);
+		} // try
+		return n;
+	} // write
+	
+	/************************************************************************************
+	 * Check that a delimiter is a single byte that cannot be mistaken for part
+	 * of a field.
+	 */
+	private static void check(char delimiter) {
+		if (delimiter > 0x7F || delimiter == QUOTE || delimiter == CR || delimiter == LF) {
+			throw new IllegalArgumentException("invalid delimiter '" + delimiter + "'");
+		}
+	} // check
+	
+	/************************************************************************************
+	 * Parse the lines beginning in [start, end) of the file into tuples. A
+	 * chunk not at the start of the file begins after the first line break at
+	 * or after start - 1, which ends the last line of the previous chunk.
+	 *
+	 * @param start the position of the chunk in the file
+	 * @param end   the position after the chunk
+	 * @param size  the size of the file
+	 * @param skip  whether to skip the first line of the chunk (the header)
+	 * @return      the tuples
+	 */
+	private List<Comparable[]> parse(long start, long end, long size, boolean skip) throws IOException {
+		List<Comparable[]> rows = new ArrayList<>();
+		long base = (start > 0) ? start - 1 : 0; // position of buf [0] in the file
+		int len = 0, p = 0;
+		skip = skip || start > 0;
+		
+		while (true) {
+			ByteBuffer b = ByteBuffer.wrap(buf, len, buf.length - len);
+			boolean eof = false;
+			while (b.hasRemaining() && !eof) {
+				eof = base + b.position() >= size || channel.read(b, base + b.position()) < 0;
+			}
+			len = b.position();
+			eof = eof || base + len >= size;
+			
+			while (p < len) {
+				if (skip) {
+					int i = p;
+					while (i < len && buf[i] != LF) {
+						i++;
+					}
+					if (i == len && !eof) {
+						break;
+					}
+					p = i + 1;
+					skip = false;
+				} else {
+					if (base + p >= end) {
+						return rows;
+					}
+					int q = record(p, len, eof, rows);
+					if (q < 0) {
+						break;
+					}
+					p = q;
+				} // if
+			} // while
+			if (eof) {
+				return rows;
+			}
+			
+			// Keep the partial line at the front, growing the buffer if it fills it
+			if (p == 0) {
+				buf = Arrays.copyOf(buf, 2 * buf.length);
+			} else {
+				System.arraycopy(buf, p, buf, 0, len - p);
+				base += p;
+				len -= p;
+				p = 0;
+			} // if
+		} // while
+	} // parse
+	
+	/************************************************************************************
+	 * Parse the line starting at position p of the buffer into a tuple.
+	 *
+	 * @param p    the position of the line
+	 * @param len  the number of bytes in the buffer
+	 * @param eof  whether the buffer holds the rest of the file
+	 * @param rows the tuples to add the tuple to (unless the line is blank)
+	 * @return     the position after the line, or -1 if the line is not all in the buffer
+	 */
+	private int record(int p, int len, boolean eof, List<Comparable[]> rows) {
+		Comparable[] t = new Comparable[domain.length];
+		int i = p, j = 0;
+		
+		while (true) {
+			if (i < len && buf[i] == QUOTE) {
+				int n = 0;
+				for (i++;; i++) {
+					if (i >= len) {
+						if (!eof) {
+							return -1;
+						}
+						break;
+					}
+					if (buf[i] == QUOTE) {
+						if (i + 1 >= len && !eof) {
+							return -1;
+						}
+						if (i + 1 >= len || buf[i + 1] != QUOTE) {
+							i++;
+							break;
+						}
+						i++;
+					} // if
+					if (n == field.length) {
+						field = Arrays.copyOf(field, 2 * n);
+					}
+					field[n++] = buf[i];
+				} // for
+				while (i < len && buf[i] != delim && buf[i] != LF) {
+					i++;
+				}
+				if (i >= len && !eof) {
+					return -1;
+				}
+				if (j < t.length) {
+					t[j] = convert(domain[j], field, 0, n);
+				}
+			} else {
+				int a = i;
+				while (i < len && buf[i] != delim && buf[i] != LF) {
+					i++;
+				}
+				if (i >= len && !eof) {
+					return -1;
+				}
+				int e = (i > a && buf[i - 1] == CR) ? i - 1 : i;
+				if (j == 0 && e == a && (i >= len || buf[i] == LF)) {
+					return i + 1; // blank line
+				}
+				if (j < t.length) {
+					t[j] = convert(domain[j], buf, a, e);
+				}
+			} // if
+			j++;
+			if (i >= len || buf[i] == LF) {
+				rows.add((j == t.length) ? t : null);
+				return i + 1;
+			}
+			i++;
+		} // while
+	} // record
+	
+	/************************************************************************************
+	 * Convert the bytes [a, e) of a field to a value of the given domain.
+	 *
+	 * @return the value, or null if the field does not parse
+	 */
+	private static Comparable convert(Class d, byte[] b, int a, int e) {
+		if (d == String.class) {
+			return new String(b, a, e - a, StandardCharsets.UTF_8);
+		}
+		if (d == Character.class) {
+			String s = new String(b, a, e - a, StandardCharsets.UTF_8);
+			return (s.length() == 1) ? s.charAt(0) : null;
+		}
+		if (d == Double.class || d == Float.class) {
+			try {
+				String s = new String(b, a, e - a, StandardCharsets.ISO_8859_1);
+				return (d == Double.class) ? (Comparable) Double.parseDouble(s) : Float.parseFloat(s);
+			} catch (NumberFormatException ex) {
+				return null;
+			} // try
+		} // if
+		
+		// Integral domains: accumulate negatively, so Long.MIN_VALUE parses too
+		boolean neg = a < e && b[a] == '-';
+		if (neg || (a < e && b[a] == '+')) {
+			a++;
+		}
+		if (a == e) {
+			return null;
+		}
+		long limit = neg ? Long.MIN_VALUE : -Long.MAX_VALUE, x = 0;
+		for (int i = a; i < e; i++) {
+			int c = b[i] - '0';
+			if (c < 0 || c > 9 || x < limit / 10 || x * 10 < limit + c) {
+				return null;
+			}
+			x = x * 10 - c;
+		}
+		if (!neg) {
+			x = -x;
+		}
+		if (d == Long.class) {
+			return x;
+		} else if (d == Integer.class) {
+			return (x == (int) x) ? (Comparable) (int) x : null;
+		} else if (d == Short.class) {
+			return (x == (short) x) ? (Comparable) (short) x : null;
+		} else {
+			return (x == (byte) x) ? (Comparable) (byte) x : null;
+		} // if
+	} // convert
+	
+	/************************************************************************************
+	 * Append the values of a tuple to the text as a line.
+	 */
+	private static void append(StringBuilder text, Object[] t, char delimiter) {
+		for (int j = 0; j < t.length; j++) {
+			if (j > 0) {
+				text.append(delimiter);
+			}
+			String s = String.valueOf(t[j]);
+			boolean quote = false;
+			if (t[j] instanceof String || t[j] instanceof Character) {
+				for (int i = 0; i < s.length() && !quote; i++) {
+					char c = s.charAt(i);
+					quote = c == delimiter || c == QUOTE || c == CR || c == LF;
+				}
+			}
+			if (quote) {
+				text.append('"').append(s.replace("\"", "\"\"")).append('"');
+			} else {
+				text.append(s);
+			}
+		} // for
+		text.append('\n');
+	} // append
+	
+	/************************************************************************************
+	 * Encode the text into the buffer, writing it to the channel whenever it
+	 * fills up, and clear the text.
+	 */
+	private static void encode(FileChannel ch, CharsetEncoder enc, StringBuilder text, ByteBuffer b)
+			throws IOException {
+		CharBuffer chars = CharBuffer.wrap(text);
+		while (true) {
+			CoderResult r = enc.encode(chars, b, true);
+			b.flip();
+			while (b.hasRemaining()) {
+				ch.write(b);
+			}
+			b.clear();
+			if (!r.isOverflow()) {
+				break;
+			}
+		} // while
+		enc.reset();
+		text.setLength(0);
+	} // encode
+} // DelimitedFile class
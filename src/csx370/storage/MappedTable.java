@@ -0,0 +1,329 @@
+package csx370.storage;
+
+/****************************************************************************************
+ * @file   MappedTable.java
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/****************************************************************************************
+ * This class gives read-only access to a table file through memory mapping. The
+ * file is mapped in segments, so nothing is read up front and tables larger than
+ * the heap can be scanned; the operating system pages data in as it is touched.
+ * Selections decode the columns the predicate needs first and decode the other
+ * columns only for pages holding a match, materializing just the matching
+ * tuples. Changes logged since the file was written are kept in memory as an
+ * overlay: logged tuples follow the stored ones and deleted ones are skipped.
+ */
+@SuppressWarnings("rawtypes")
+public class MappedTable {
+	/** The number of pages per mapped segment (256 MB segments). */
+	private static final int SEGMENT_PAGES = (1 << 28) / TableFile.PAGE_SIZE;
+	
+	/** The schema of the stored table. */
+	private final Schema schema;
+	
+	/** The number of stored tuples. */
+	private final long rows;
+	
+	/** The number of data pages. */
+	private final int pages;
+	
+	/** The mapped segments of the file (segment s starts at page s * SEGMENT_PAGES). */
+	private final MappedByteBuffer[] segment;
+	
+	/** The number of records logged before the file was written. */
+	private final long logged;
+	
+	/** The tuples inserted since the file was written. */
+	private final List<Comparable[]> added = new ArrayList<>();
+	
+	/** The number of copies of each stored tuple deleted since (by value). */
+	private final Map<List<Comparable>, Integer> removed = new HashMap<>();
+	
+	/** The number of stored tuples deleted since the file was written. */
+	private long dropped = 0;
+	
+	/************************************************************************************
+	 * Map a table file for reading.
+	 *
+	 * @param path the table file
+	 * @throws IOException if the file cannot be read or is not a table file
+	 */
+	public MappedTable(Path path) throws IOException {
+		try (TableFile file = TableFile.open(path);
+				FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+			schema = file.schema();
+			rows = file.rows();
+			pages = file.pages();
+			logged = file.logged();
+			
+			// the mappings stay valid once the channel is closed
+			long total = (long) (pages + 1) * TableFile.PAGE_SIZE;
+			long size = (long) SEGMENT_PAGES * TableFile.PAGE_SIZE;
+			segment = new MappedByteBuffer[(int) ((total + size - 1) / size)];
+			for (int s = 0; s < segment.length; s++) {
+				long start = s * size;
+				segment[s] = ch.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size, total - start));
+			} // for
+		} // try
+	} // constructor
+	
+	/************************************************************************************
+	 * Return the schema of the stored table.
+	 *
+	 * @return the schema
+	 */
+	public Schema schema() {
+		return schema;
+	} // schema
+	
+	/************************************************************************************
+	 * Return the number of tuples, counting the logged changes.
+	 *
+	 * @return the number of tuples
+	 */
+	public long rows() {
+		return rows - dropped + added.size();
+	} // rows
+	
+	/************************************************************************************
+	 * Return the number of records logged before the file was written, i.e.,
+	 * how many records of the log the stored tuples already reflect.
+	 *
+	 * @return the number of records
+	 */
+	public long logged() {
+		return logged;
+	} // logged
+	
+	/************************************************************************************
+	 * Add a tuple inserted since the file was written (a logged insert).
+	 *
+	 * @param t the inserted tuple
+	 */
+	public void add(Comparable[] t) {
+		added.add(t);
+	} // add
+	
+	/************************************************************************************
+	 * Remove a tuple deleted since the file was written (a logged delete), by
+	 * value: a logged tuple equal to it goes first, else a stored one is
+	 * skipped from then on.
+	 *
+	 * @param t the deleted tuple
+	 */
+	public void remove(Comparable[] t) {
+		for (Iterator<Comparable[]> it = added.iterator(); it.hasNext();) {
+			if (Arrays.equals(it.next(), t)) {
+				it.remove();
+				return;
+			}
+		} // for
+		removed.merge(Arrays.asList(t), 1, Integer::sum);
+		dropped++;
+	} // remove
+	
+	/************************************************************************************
+	 * Return data page p, backed directly by the mapped file.
+	 *
+	 * @param p the data page number (0 for the first data page)
+	 * @return  the page
+	 */
+	public Page page(int p) {
+		long abs = (long) (p + 1) * TableFile.PAGE_SIZE;
+		long size = (long) SEGMENT_PAGES * TableFile.PAGE_SIZE;
+		ByteBuffer b = segment[(int) (abs / size)].duplicate();
+		int off = (int) (abs % size);
+		b.position(off);
+		b.limit(off + TableFile.PAGE_SIZE);
+		return new Page(b.slice(), schema.domain);
+	} // page
+	
+	/************************************************************************************
+	 * Decode the tuple at a row locator (see BpTreeFile.locator).
+	 *
+	 * @param loc the row locator
+	 * @return    the tuple
+	 */
+	public Comparable[] tuple(long loc) {
+		return page(BpTreeFile.page(loc)).row(BpTreeFile.slot(loc));
+	} // tuple
+	
+	/************************************************************************************
+	 * Pass the given columns of every stored tuple and its row locator, in
+	 * stored order, to the action. Only those columns are decoded.
+	 *
+	 * @param cols   the column positions to pass, e.g., those of the primary key
+	 * @param action receives the values of the columns and the locator of each tuple
+	 */
+	public void forEach(int[] cols, ObjLongConsumer<Comparable[]> action) {
+		for (int p = 0; p < pages; p++) {
+			Page pg = page(p);
+			Comparable[][] column = new Comparable[cols.length][];
+			for (int j = 0; j < cols.length; j++) {
+				column[j] = pg.column(cols[j]);
+			} // for
+			for (int i = 0; i < pg.rows(); i++) {
+				Comparable[] v = new Comparable[cols.length];
+				for (int j = 0; j < cols.length; j++) {
+					v[j] = column[j][i];
+				} // for
+				action.accept(v, BpTreeFile.locator(p, i));
+			} // for
+		} // for
+	} // forEach
+	
+	/************************************************************************************
+	 * Select the tuples satisfying the predicate, scanning the pages in
+	 * parallel. Only the given columns are filled in when the predicate is
+	 * tested on a stored tuple, so it must not read any other column.
+	 *
+	 * @param predicate the check condition for tuples
+	 * @param needed    the column positions the predicate reads (null for all)
+	 * @return          the matching tuples in stored order, then logged ones
+	 */
+	public List<Comparable[]> select(Predicate<Comparable[]> predicate, int[] needed) {
+		int[] cols = (needed != null) ? needed : IntStream.range(0, schema.domain.length).toArray();
+		List<Comparable[]> out = IntStream.range(0, pages).parallel().mapToObj(p -> select(page(p), predicate, cols))
+				.flatMap(List::stream).collect(Collectors.toList());
+		if (dropped > 0) {
+			out.removeIf(skip());
+		}
+		for (Comparable[] t : added) {
+			if (predicate.test(t)) {
+				out.add(t);
+			}
+		} // for
+		return out;
+	} // select
+	
+	/************************************************************************************
+	 * Return a test for the stored tuples deleted since the file was written,
+	 * to be applied once to each stored tuple in stored order. Each deleted
+	 * copy of a tuple skips one stored tuple equal to it.
+	 *
+	 * @return a test that is true for the tuples to skip
+	 */
+	private Predicate<Comparable[]> skip() {
+		Map<List<Comparable>, Integer> left = new HashMap<>(removed);
+		return t -> {
+			if (left.isEmpty()) {
+				return false;
+			}
+			List<Comparable> v = Arrays.asList(t);
+			Integer n = left.get(v);
+			if (n == null) {
+				return false;
+			}
+			if (n == 1) {
+				left.remove(v);
+			} else {
+				left.put(v, n - 1);
+			}
+			return true;
+		};
+	} // skip
+	
+	/************************************************************************************
+	 * Select the matching tuples of one page.
+	 *
+	 * @param pg        the page
+	 * @param predicate the check condition for tuples
+	 * @param cols      the column positions the predicate reads
+	 * @return          the matching tuples
+	 */
+	private List<Comparable[]> select(Page pg, Predicate<Comparable[]> predicate, int[] cols) {
+		int n = pg.rows();
+		Comparable[][] column = new Comparable[schema.domain.length][];
+		for (int j : cols) {
+			if (column[j] == null) {
+				column[j] = pg.column(j);
+			}
+		}
+		
+		// test on a reused probe tuple holding only the needed columns
+		Comparable[] probe = new Comparable[schema.domain.length];
+		int[] sel = new int[n];
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			for (int j : cols) {
+				probe[j] = column[j][i];
+			}
+			if (predicate.test(probe)) {
+				sel[m++] = i;
+			}
+		} // for
+		if (m == 0) {
+			return Collections.emptyList();
+		}
+		
+		for (int j = 0; j < column.length; j++) {
+			if (column[j] == null) {
+				column[j] = pg.column(j);
+			}
+		}
+		List<Comparable[]> out = new ArrayList<>(m);
+		for (int k = 0; k < m; k++) {
+			Comparable[] t = new Comparable[column.length];
+			for (int j = 0; j < column.length; j++) {
+				t[j] = column[j][sel[k]];
+			}
+			out.add(t);
+		} // for
+		return out;
+	} // select
+	
+	/************************************************************************************
+	 * Return an iterator decoding the stored tuples one page at a time,
+	 * followed by the logged ones.
+	 *
+	 * @return an iterator over the tuples
+	 */
+	public Iterator<Comparable[]> iterator() {
+		Predicate<Comparable[]> skip = (dropped > 0) ? skip() : null;
+		Iterator<Comparable[]> more = added.iterator();
+		return new Iterator<Comparable[]>() {
+			private int p = 0;
+			private Comparable[][] buf = new Comparable[0][];
+			private int i = 0;
+			private boolean tail = false;
+			
+			public boolean hasNext() {
+				while (!tail && (i < buf.length || p < pages)) {
+					if (i >= buf.length) {
+						buf = page(p++).tuples();
+						i = 0;
+					} else if (skip != null && skip.test(buf[i])) {
+						i++;
+					} else {
+						return true;
+					}
+				} // while
+				if (i >= buf.length && more.hasNext()) {
+					tail = true; // the stored tuples are done, so none is skipped any more
+					buf = new Comparable[][] { more.next() };
+					i = 0;
+				}
+				return i < buf.length;
+			} // hasNext
+			
+			public Comparable[] next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return buf[i++];
+			} // next
+		};
+	} // iterator
+} // MappedTable class
@@ -0,0 +1,410 @@
+package csx370.storage;
+
+/****************************************************************************************
+ * @file   Page.java
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/****************************************************************************************
+ * This class reads data pages of a table file. Pages use a column-major (PAX)
+ * layout: after the tuple count and the offset of each column chunk, the
+ * values of each column are stored together in a chunk that starts with its
+ * encoding. Reading one column therefore never touches the others, and a
+ * column is only decoded when it is asked for.
+ *
+ * <pre>
+ * int nRows | int offset[nCols] | chunk 0 | chunk 1 | ...
+ * chunk = byte encoding | encoded values
+ *
+ * PLAIN:      value*
+ * DICT:       short nDistinct | value[nDistinct] | code* (1 byte if nDistinct &lt;= 256, else 2)
+ * PREFIX:     string prefix | string suffix*
+ * PREFIX_NUM: string head | long base | byte width | (number - base)*
+ * FOR:        long base | byte width | (value - base)*
+ * DELTA:      long first | long base | byte width | (value - previous - base)*
+ * </pre>
+ *
+ * The writer picks, per page and column, the encoding taking the fewest bytes
+ * (see ColumnEncoder). Offsets in FOR, DELTA and PREFIX_NUM chunks are unsigned,
+ * big-endian and take the same number of bytes (0 to 8) within a chunk; PREFIX_NUM stores strings made of a
+ * common head followed by a number, such as "name123456".
+ */
+@SuppressWarnings("rawtypes")
+public class Page {
+	/** Encoding: values stored one after another in their natural binary form. */
+	public static final byte PLAIN = 0;
+	
+	/** Encoding: the distinct values once, then a code per value. */
+	public static final byte DICT = 1;
+	
+	/** Encoding (strings): the common prefix once, then the rest of each value. */
+	public static final byte PREFIX = 2;
+	
+	/** Encoding (strings): the common head once, then the trailing numbers frame-of-reference encoded. */
+	public static final byte PREFIX_NUM = 3;
+	
+	/** Encoding (integral domains): the minimum once, then each value's offset from it. */
+	public static final byte FOR = 4;
+	
+	/** Encoding (integral domains): the first value, then the differences between neighbors. */
+	public static final byte DELTA = 5;
+	
+	/** The page contents. */
+	private final ByteBuffer buf;
+	
+	/** The attribute domains. */
+	private final Class[] domain;
+	
+	/** The number of tuples in the page. */
+	private final int rows;
+	
+	/************************************************************************************
+	 * Wrap the contents of a data page.
+	 *
+	 * @param _buf    the page contents (position 0 at the start of the page)
+	 * @param _domain the attribute domains
+	 */
+	public Page(ByteBuffer _buf, Class[] _domain) {
+		buf = _buf;
+		domain = _domain;
+		rows = buf.getInt(0);
+	} // constructor
+	
+	/************************************************************************************
+	 * Return the number of tuples in the page.
+	 *
+	 * @return the number of tuples
+	 */
+	public int rows() {
+		return rows;
+	} // rows
+	
+	/************************************************************************************
+	 * Decode the values of column j.
+	 *
+	 * @param j the column position
+	 * @return  the values of the column, one per tuple
+	 */
+	public Comparable[] column(int j) {
+		ByteBuffer b = buf.duplicate();
+		b.position(buf.getInt(4 + 4 * j));
+		byte encoding = b.get();
+		Class d = domain[j];
+		Comparable[] v = new Comparable[rows];
+		switch (encoding) {
+		case PLAIN:
+			for (int i = 0; i < rows; i++) {
+				v[i] = get(b, d);
+			}
+			break;
+		case DICT:
+			Comparable[] dict = new Comparable[b.getShort() & 0xFFFF];
+			for (int k = 0; k < dict.length; k++) {
+				dict[k] = get(b, d);
+			}
+			int w = codeWidth(dict.length);
+			for (int i = 0; i < rows; i++) {
+				v[i] = dict[(int) getWidth(b, w)];
+			}
+			break;
+		case PREFIX:
+			String prefix = (String) get(b, String.class);
+			for (int i = 0; i < rows; i++) {
+				v[i] = prefix + get(b, String.class);
+			}
+			break;
+		case PREFIX_NUM:
+			String head = (String) get(b, String.class);
+			long base = b.getLong();
+			w = b.get();
+			for (int i = 0; i < rows; i++) {
+				v[i] = head + (base + getWidth(b, w));
+			}
+			break;
+		case FOR:
+			base = b.getLong();
+			w = b.get();
+			for (int i = 0; i < rows; i++) {
+				v[i] = fromLong(d, base + getWidth(b, w));
+			}
+			break;
+		case DELTA:
+			long x = b.getLong();
+			base = b.getLong();
+			w = b.get();
+			for (int i = 0; i < rows; i++) {
+				if (i > 0) {
+					x += base + getWidth(b, w);
+				}
+				v[i] = fromLong(d, x);
+			}
+			break;
+		default:
+			throw new IllegalStateException("unknown encoding " + encoding);
+		} // switch
+		return v;
+	} // column
+	
+	/************************************************************************************
+	 * Decode the tuple in slot i, skipping over the values before it in each
+	 * column chunk rather than decoding them.
+	 *
+	 * @param i the slot of the tuple
+	 * @return  the tuple
+	 */
+	public Comparable[] row(int i) {
+		if (i < 0 || i >= rows) {
+			throw new IndexOutOfBoundsException("slot " + i + " of a page with " + rows + " tuples");
+		}
+		Comparable[] t = new Comparable[domain.length];
+		for (int j = 0; j < domain.length; j++) {
+			ByteBuffer b = buf.duplicate();
+			b.position(buf.getInt(4 + 4 * j));
+			byte encoding = b.get();
+			Class d = domain[j];
+			switch (encoding) {
+			case PLAIN:
+				skip(b, d, i);
+				t[j] = get(b, d);
+				break;
+			case DICT:
+				int n = b.getShort() & 0xFFFF, dictStart = b.position();
+				skip(b, d, n);
+				int w = codeWidth(n);
+				b.position(b.position() + i * w);
+				int code = (int) getWidth(b, w);
+				b.position(dictStart);
+				skip(b, d, code);
+				t[j] = get(b, d);
+				break;
+			case PREFIX:
+				String prefix = (String) get(b, String.class);
+				skip(b, String.class, i);
+				t[j] = prefix + get(b, String.class);
+				break;
+			case PREFIX_NUM:
+				String head = (String) get(b, String.class);
+				long base = b.getLong();
+				w = b.get();
+				b.position(b.position() + i * w);
+				t[j] = head + (base + getWidth(b, w));
+				break;
+			case FOR:
+				base = b.getLong();
+				w = b.get();
+				b.position(b.position() + i * w);
+				t[j] = fromLong(d, base + getWidth(b, w));
+				break;
+			case DELTA:
+				long x = b.getLong();
+				base = b.getLong();
+				w = b.get();
+				for (int k = 0; k < i; k++) {
+					x += base + getWidth(b, w);
+				}
+				t[j] = fromLong(d, x);
+				break;
+			default:
+				throw new IllegalStateException("unknown encoding " + encoding);
+			} // switch
+		} // for
+		return t;
+	} // row
+	
+	/************************************************************************************
+	 * Decode every tuple of the page.
+	 *
+	 * @return the tuples
+	 */
+	public Comparable[][] tuples() {
+		Comparable[][] t = new Comparable[rows][domain.length];
+		for (int j = 0; j < domain.length; j++) {
+			Comparable[] v = column(j);
+			for (int i = 0; i < rows; i++) {
+				t[i][j] = v[i];
+			}
+		}
+		return t;
+	} // tuples
+	
+	/************************************************************************************
+	 * Encode a value of the given domain at the buffer's position.
+	 *
+	 * @param b the buffer to write to
+	 * @param d the domain of the value
+	 * @param v the value
+	 * @return  whether the value fit in the buffer (if not, the position is unchanged)
+	 */
+	static boolean put(ByteBuffer b, Class d, Comparable v) {
+		if (v == null) {
+			throw new IllegalArgumentException("null values cannot be stored");
+		}
+		if (d == String.class) {
+			byte[] bytes = ((String) v).getBytes(StandardCharsets.UTF_8);
+			if (bytes.length > 0xFFFF) {
+				throw new IllegalArgumentException("string longer than 65535 bytes");
+			}
+			if (b.remaining() < 2 + bytes.length) {
+				return false;
+			}
+			b.putShort((short) bytes.length);
+			b.put(bytes);
+			return true;
+		} // if
+		if (b.remaining() < width(d)) {
+			return false;
+		}
+		if (d == Integer.class) {
+			b.putInt((Integer) v);
+		} else if (d == Long.class) {
+			b.putLong((Long) v);
+		} else if (d == Double.class) {
+			b.putDouble((Double) v);
+		} else if (d == Float.class) {
+			b.putFloat((Float) v);
+		} else if (d == Short.class) {
+			b.putShort((Short) v);
+		} else if (d == Byte.class) {
+			b.put((Byte) v);
+		} else {
+			b.putChar((Character) v);
+		} // if
+		return true;
+	} // put
+	
+	/************************************************************************************
+	 * Decode a value of the given domain at the buffer's position.
+	 *
+	 * @param b the buffer to read from
+	 * @param d the domain of the value
+	 * @return  the value
+	 */
+	static Comparable get(ByteBuffer b, Class d) {
+		if (d == String.class) {
+			byte[] bytes = new byte[b.getShort() & 0xFFFF];
+			b.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		} else if (d == Integer.class) {
+			return b.getInt();
+		} else if (d == Long.class) {
+			return b.getLong();
+		} else if (d == Double.class) {
+			return b.getDouble();
+		} else if (d == Float.class) {
+			return b.getFloat();
+		} else if (d == Short.class) {
+			return b.getShort();
+		} else if (d == Byte.class) {
+			return b.get();
+		} else {
+			return b.getChar();
+		} // if
+	} // get
+	
+	/************************************************************************************
+	 * Move the buffer's position past n values of the given domain.
+	 */
+	private static void skip(ByteBuffer b, Class d, int n) {
+		if (d == String.class) {
+			for (int k = 0; k < n; k++) {
+				b.position(b.position() + 2 + (b.getShort(b.position()) & 0xFFFF));
+			}
+		} else {
+			b.position(b.position() + n * width(d));
+		} // if
+	} // skip
+	
+	/************************************************************************************
+	 * Return the value of an integral domain from a long.
+	 */
+	private static Comparable fromLong(Class d, long x) {
+		if (d == Integer.class) {
+			return (int) x;
+		} else if (d == Long.class) {
+			return x;
+		} else if (d == Short.class) {
+			return (short) x;
+		} else if (d == Byte.class) {
+			return (byte) x;
+		} // if
+		return (char) x;
+	} // fromLong
+	
+	/************************************************************************************
+	 * Return the width in bytes of the codes of a dictionary.
+	 *
+	 * @param n the number of distinct values
+	 * @return  the width of a code
+	 */
+	static int codeWidth(int n) {
+		return (n <= 256) ? 1 : 2;
+	} // codeWidth
+	
+	/************************************************************************************
+	 * Encode an unsigned offset in w bytes (0 to 8) at the buffer's position.
+	 *
+	 * @param b the buffer to write to
+	 * @param x the offset
+	 * @param w the width in bytes
+	 */
+	static void putWidth(ByteBuffer b, long x, int w) {
+		if (w == 1) {
+			b.put((byte) x);
+		} else if (w == 2) {
+			b.putShort((short) x);
+		} else if (w == 4) {
+			b.putInt((int) x);
+		} else if (w == 8) {
+			b.putLong(x);
+		} else {
+			for (int k = w - 1; k >= 0; k--) {
+				b.put((byte) (x >>> 8 * k));
+			}
+		} // if
+	} // putWidth
+	
+	/************************************************************************************
+	 * Decode an unsigned offset of w bytes (0 to 8) at the buffer's position.
+	 *
+	 * @param b the buffer to read from
+	 * @param w the width in bytes
+	 * @return  the offset
+	 */
+	static long getWidth(ByteBuffer b, int w) {
+		if (w == 1) {
+			return b.get() & 0xFFL;
+		} else if (w == 2) {
+			return b.getShort() & 0xFFFFL;
+		} else if (w == 4) {
+			return b.getInt() & 0xFFFFFFFFL;
+		} else if (w == 8) {
+			return b.getLong();
+		} // if
+		long x = 0;
+		for (int k = 0; k < w; k++) {
+			x = x << 8 | (b.get() & 0xFF);
+		}
+		return x;
+	} // getWidth
+	
+	/************************************************************************************
+	 * Return the number of bytes a value of a fixed width domain takes.
+	 *
+	 * @param d the domain (not String)
+	 * @return  the width in bytes
+	 */
+	static int width(Class d) {
+		if (d == Integer.class || d == Float.class) {
+			return 4;
+		} else if (d == Long.class || d == Double.class) {
+			return 8;
+		} else if (d == Short.class || d == Character.class) {
+			return 2;
+		} else if (d == Byte.class) {
+			return 1;
+		} // if
+		throw new IllegalArgumentException("domain " + d.getName() + " cannot be stored");
+	} // width
+} // Page class
@@ -0,0 +1,109 @@
+package csx370.storage;
+
+/****************************************************************************************
+ * @file   PageWriter.java
+ */
+
+import java.nio.ByteBuffer;
+
+/****************************************************************************************
+ * This class fills data pages (see Page) one tuple at a time. Each value is
+ * staged with the encoder of its column, which tracks how small the column
+ * chunk would be in each encoding; a tuple is accepted as long as the page
+ * fits once compressed, and when the next tuple would overflow it, the caller
+ * flushes the page and starts the next one.
+ */
+@SuppressWarnings("rawtypes")
+class PageWriter {
+	/** The attribute domains. */
+	private final Class[] domain;
+	
+	/** The page size in bytes (also the most tuples a page may hold). */
+	private final int pageSize;
+	
+	/** The encoder staging each column. */
+	private final ColumnEncoder[] chunk;
+	
+	/** The number of tuples staged. */
+	private int rows;
+	
+	/************************************************************************************
+	 * Construct a page writer.
+	 *
+	 * @param _domain   the attribute domains
+	 * @param _pageSize the page size in bytes
+	 */
+	PageWriter(Class[] _domain, int _pageSize) {
+		domain = _domain;
+		pageSize = _pageSize;
+		chunk = new ColumnEncoder[domain.length];
+		for (int j = 0; j < domain.length; j++) {
+			chunk[j] = new ColumnEncoder(domain[j]);
+		}
+	} // constructor
+	
+	/************************************************************************************
+	 * Return the number of tuples staged for the current page.
+	 *
+	 * @return the number of tuples
+	 */
+	int rows() {
+		return rows;
+	} // rows
+	
+	/************************************************************************************
+	 * Stage a tuple for the current page.
+	 *
+	 * @param t the tuple
+	 * @return  whether it fit (if not, the page is unchanged and must be flushed)
+	 */
+	boolean add(Comparable[] t) {
+		for (int j = 0; j < domain.length; j++) {
+			chunk[j].check(t[j]);
+		}
+		if (rows == pageSize) {
+			return false;
+		}
+		int used = 4 + 4 * domain.length;
+		for (int j = 0; j < domain.length; j++) {
+			chunk[j].add(t[j]);
+			used += chunk[j].size();
+		}
+		
+		if (used > pageSize) {
+			for (ColumnEncoder c : chunk) {
+				c.removeLast();
+			}
+			if (rows == 0) {
+				throw new IllegalArgumentException("tuple does not fit in a " + pageSize + " byte page");
+			}
+			return false;
+		} // if
+		rows++;
+		return true;
+	} // add
+	
+	/************************************************************************************
+	 * Lay out the staged tuples as a page and start a new, empty page.
+	 *
+	 * @param page the buffer receiving the page (cleared first, flipped after)
+	 */
+	void flush(ByteBuffer page) {
+		page.clear();
+		page.putInt(rows);
+		int offset = 4 + 4 * domain.length;
+		for (int j = 0; j < domain.length; j++) {
+			page.putInt(offset);
+			offset += chunk[j].size();
+		}
+		for (int j = 0; j < domain.length; j++) {
+			chunk[j].write(page);
+			chunk[j].clear();
+		}
+		while (page.hasRemaining()) {
+			page.put((byte) 0);
+		}
+		page.flip();
+		rows = 0;
+	} // flush
+} // PageWriter class
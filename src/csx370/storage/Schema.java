@@ -0,0 +1,45 @@
+package csx370.storage;
+
+/****************************************************************************************
+ * @file   Schema.java
+ */
+
+/****************************************************************************************
+ * This class holds the schema of a stored table: everything needed to rebuild
+ * the table around its tuples. It is written to the header page of a table
+ * file.
+ */
+@SuppressWarnings("rawtypes")
+public class Schema {
+	/** The attribute names. */
+	public final String[] attribute;
+	
+	/** The attribute domains. */
+	public final Class[] domain;
+	
+	/** The primary key. */
+	public final String[] key;
+	
+	/** The index structure of the table (e.g., "TreeMap" or "BPTreeMap"). */
+	public final String structure;
+	
+	/** Whether the table keeps its tuples in column vectors. */
+	public final boolean columnar;
+	
+	/************************************************************************************
+	 * Construct a schema.
+	 *
+	 * @param _attribute the attribute names
+	 * @param _domain    the attribute domains
+	 * @param _key       the primary key
+	 * @param _structure the index structure
+	 * @param _columnar  whether the table is columnar
+	 */
+	public Schema(String[] _attribute, Class[] _domain, String[] _key, String _structure, boolean _columnar) {
+		attribute = _attribute;
+		domain = _domain;
+		key = _key;
+		structure = _structure;
+		columnar = _columnar;
+	} // constructor
+} // Schema class
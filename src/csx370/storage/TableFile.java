@@ -0,0 +1,336 @@
+package csx370.storage;
+
+/****************************************************************************************
+ * @file   TableFile.java
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.ObjLongConsumer;
+
+/****************************************************************************************
+ * This class reads and writes table files: a header page holding the schema and
+ * counts, followed by fixed-size data pages of encoded tuples (see Page). All
+ * I/O goes through a FileChannel, one page at a time, so a table can be read
+ * page by page without loading the whole file; data pages are read through the
+ * shared BufferPool, so pages read again are served from memory.
+ *
+ * <pre>
+ * page 0:  int magic | int version | int pageSize | long rows | long logged | int pages |
+ *          byte columnar | structure | int nAttrs | (name, domain)* | int nKeys | key*
+ * page 1+: data pages
+ * </pre>
+ *
+ * logged is the number of write-ahead log records the snapshot holds (see
+ * WriteAheadLog). Version 1 files lack it: their tables were only inserted
+ * into, so it is their number of rows.
+ */
+@SuppressWarnings("rawtypes")
+public class TableFile implements Closeable {
+	/** The size of every page in bytes. */
+	public static final int PAGE_SIZE = 8192;
+	
+	/** Marks a table file ("TBL1"). */
+	private static final int MAGIC = 0x54424C31;
+	
+	/** The version of the file format (version 1 files are read too). */
+	private static final int VERSION = 2;
+	
+	/** The path of the file. */
+	private final Path path;
+	
+	/** The open file. */
+	private final FileChannel channel;
+	
+	/** The schema of the stored table. */
+	private final Schema schema;
+	
+	/** The number of stored tuples. */
+	private final long rows;
+	
+	/** The number of log records the stored tuples hold. */
+	private final long logged;
+	
+	/** The number of data pages. */
+	private final int pages;
+	
+	/************************************************************************************
+	 * Construct a table file reader from its parsed header.
+	 */
+	private TableFile(Path _path, FileChannel _channel, Schema _schema, long _rows, long _logged, int _pages) {
+		path = _path;
+		channel = _channel;
+		schema = _schema;
+		rows = _rows;
+		logged = _logged;
+		pages = _pages;
+	} // constructor
+	
+	/************************************************************************************
+	 * Write the tuples of a table to a new table file (replacing any old one).
+	 *
+	 * @param path   the file to write
+	 * @param schema the schema of the table
+	 * @param tuples the tuples of the table
+	 * @param logged the number of log records the tuples hold
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(Path path, Schema schema, Iterable<Comparable[]> tuples, long logged)
+			throws IOException {
+		write(path, schema, tuples, logged, null);
+	} // write
+	
+	/************************************************************************************
+	 * Write the tuples of a table to a new table file (replacing any old one),
+	 * reporting where each tuple was placed (see BpTreeFile.locator).
+	 *
+	 * @param path   the file to write
+	 * @param schema the schema of the table
+	 * @param tuples the tuples of the table
+	 * @param logged the number of log records the tuples hold
+	 * @param placed receives each tuple with its row locator (may be null)
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(Path path, Schema schema, Iterable<Comparable[]> tuples, long logged,
+			ObjLongConsumer<Comparable[]> placed) throws IOException {
+		for (Class d : schema.domain) {
+			if (d != String.class) {
+				Page.width(d); // reject domains without a binary form before writing
+			}
+		}
+		
+		BufferPool.shared().invalidate(path);
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			PageWriter writer = new PageWriter(schema.domain, PAGE_SIZE);
+			ByteBuffer page = ByteBuffer.allocateDirect(PAGE_SIZE);
+			long rows = 0;
+			int pages = 0;
+			
+			for (Comparable[] t : tuples) {
+				if (!writer.add(t)) {
+					writer.flush(page);
+					writeFully(ch, page, (long) ++pages * PAGE_SIZE);
+					writer.add(t);
+				}
+				if (placed != null) {
+					placed.accept(t, BpTreeFile.locator(pages, writer.rows() - 1));
+				}
+				rows++;
+			} // for
+			if (writer.rows() > 0) {
+				writer.flush(page);
+				writeFully(ch, page, (long) ++pages * PAGE_SIZE);
+			}
+			
+			writeFully(ch, header(schema, rows, logged, pages), 0);
+			ch.force(true);
+		} // try
+	} // write
+	
+	/************************************************************************************
+	 * Atomically and durably replace a table (or index) file with a newly written
+	 * one, dropping the pages of the replaced file from the shared buffer pool.
+	 *
+	 * @param from the newly written file
+	 * @param to   the file to replace
+	 * @throws IOException if the file cannot be moved
+	 */
+	public static void replace(Path from, Path to) throws IOException {
+		Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		syncDirectory(to);
+		BufferPool.shared().invalidate(to);
+	} // replace
+	
+	/************************************************************************************
+	 * Force the directory holding a file to disk, so that the file's creation or
+	 * renaming survives a crash. Platforms that cannot open a directory as a
+	 * channel (Windows) are skipped.
+	 *
+	 * @param file the file whose directory entry to force
+	 * @throws IOException if the directory cannot be forced
+	 */
+	static void syncDirectory(Path file) throws IOException {
+		try (FileChannel dir = FileChannel.open(file.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+			dir.force(true);
+		} catch (AccessDeniedException ex) {
+			// no directory handles on this platform
+		} // try
+	} // syncDirectory
+	
+	/************************************************************************************
+	 * Open a table file for reading and parse its header.
+	 *
+	 * @param path the file to open
+	 * @return     the open table file
+	 * @throws IOException if the file cannot be read or is not a table file
+	 */
+	public static TableFile open(Path path) throws IOException {
+		FileChannel ch = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			ByteBuffer b = ByteBuffer.allocate(PAGE_SIZE);
+			readFully(ch, b, 0);
+			if (b.getInt() != MAGIC) {
+				throw new IOException(path + " is not a table file");
+			}
+			int version = b.getInt();
+			if ((version != 1 && version != VERSION) || b.getInt() != PAGE_SIZE) {
+				throw new IOException(path + " has an unsupported version or page size");
+			}
+			long rows = b.getLong();
+			long logged = (version == 1) ? rows : b.getLong();
+			int pages = b.getInt();
+			boolean columnar = b.get() != 0;
+			String structure = getString(b);
+			
+			String[] attribute = new String[b.getInt()];
+			Class[] domain = new Class[attribute.length];
+			for (int j = 0; j < attribute.length; j++) {
+				attribute[j] = getString(b);
+				domain[j] = Class.forName(getString(b));
+			}
+			String[] key = new String[b.getInt()];
+			for (int j = 0; j < key.length; j++) {
+				key[j] = getString(b);
+			}
+			
+			return new TableFile(path, ch, new Schema(attribute, domain, key, structure, columnar), rows, logged,
+					pages);
+		} catch (IOException | ClassNotFoundException | RuntimeException ex) {
+			ch.close();
+			throw (ex instanceof IOException) ? (IOException) ex : new IOException("bad header in " + path, ex);
+		} // try
+	} // open
+	
+	/************************************************************************************
+	 * Return the schema of the stored table.
+	 *
+	 * @return the schema
+	 */
+	public Schema schema() {
+		return schema;
+	} // schema
+	
+	/************************************************************************************
+	 * Return the number of stored tuples.
+	 *
+	 * @return the number of tuples
+	 */
+	public long rows() {
+		return rows;
+	} // rows
+	
+	/************************************************************************************
+	 * Return the number of write-ahead log records the stored tuples hold, i.e.,
+	 * how many records of the table's log the snapshot reflects.
+	 *
+	 * @return the number of log records
+	 */
+	public long logged() {
+		return logged;
+	} // logged
+	
+	/************************************************************************************
+	 * Return the number of data pages.
+	 *
+	 * @return the number of data pages
+	 */
+	public int pages() {
+		return pages;
+	} // pages
+	
+	/************************************************************************************
+	 * Read data page p through the shared buffer pool.
+	 *
+	 * @param p the data page number (0 for the first data page)
+	 * @return  the page
+	 * @throws IOException if the page cannot be read
+	 */
+	public Page page(int p) throws IOException {
+		if (p < 0 || p >= pages) {
+			throw new IndexOutOfBoundsException("data page " + p + " of " + pages);
+		}
+		return new Page(BufferPool.shared().copy(path, p + 1), schema.domain);
+	} // page
+	
+	/************************************************************************************
+	 * Close the file.
+	 */
+	public void close() throws IOException {
+		channel.close();
+	} // close
+	
+	/************************************************************************************
+	 * Lay out the header page.
+	 */
+	private static ByteBuffer header(Schema schema, long rows, long logged, int pages) throws IOException {
+		ByteBuffer b = ByteBuffer.allocate(PAGE_SIZE);
+		try {
+			b.putInt(MAGIC).putInt(VERSION).putInt(PAGE_SIZE).putLong(rows).putLong(logged).putInt(pages);
+			b.put((byte) (schema.columnar ? 1 : 0));
+			putString(b, schema.structure);
+			b.putInt(schema.attribute.length);
+			for (int j = 0; j < schema.attribute.length; j++) {
+				putString(b, schema.attribute[j]);
+				putString(b, schema.domain[j].getName());
+			}
+			b.putInt(schema.key.length);
+			for (String k : schema.key) {
+				putString(b, k);
+			}
+		} catch (java.nio.BufferOverflowException ex) {
+			throw new IOException("schema does not fit in the header page");
+		} // try
+		b.clear();
+		return b;
+	} // header
+	
+	/************************************************************************************
+	 * Write a length-prefixed UTF-8 string.
+	 */
+	private static void putString(ByteBuffer b, String s) {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		b.putShort((short) bytes.length);
+		b.put(bytes);
+	} // putString
+	
+	/************************************************************************************
+	 * Read a length-prefixed UTF-8 string.
+	 */
+	private static String getString(ByteBuffer b) {
+		byte[] bytes = new byte[b.getShort() & 0xFFFF];
+		b.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	} // getString
+	
+	/************************************************************************************
+	 * Write all remaining bytes of the buffer at the given file position.
+	 */
+	static void writeFully(FileChannel ch, ByteBuffer b, long pos) throws IOException {
+		while (b.hasRemaining()) {
+			pos += ch.write(b, pos);
+		}
+	} // writeFully
+	
+	/************************************************************************************
+	 * Fill the buffer from the given file position, then flip it for reading.
+	 */
+	static void readFully(FileChannel ch, ByteBuffer b, long pos) throws IOException {
+		while (b.hasRemaining()) {
+			int n = ch.read(b, pos);
+			if (n < 0) {
+				throw new IOException("unexpected end of file");
+			}
+			pos += n;
+		}
+		b.flip();
+	} // readFully
+} // TableFile class
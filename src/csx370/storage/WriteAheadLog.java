@@ -0,0 +1,422 @@
+package csx370.storage;
+
+/****************************************************************************************
+ * @file   WriteAheadLog.java
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/****************************************************************************************
+ * This class implements an append-only write-ahead log of the tuples inserted
+ * into and deleted from a table since its last saved snapshot. Each change
+ * appends one compact record to an in-memory group buffer; the group is written
+ * and forced to disk with a single fsync when it fills up or when commit is
+ * called, so a burst of changes shares one fsync (group commit). Loading
+ * replays the log on top of the snapshot, stopping at the first torn or
+ * corrupt record.
+ *
+ * <pre>
+ * header: int magic | int version | long base
+ * record: int length | int crc32 | encoded values (see Page)
+ * </pre>
+ *
+ * An insert record holds the inserted tuple; a delete record holds the deleted
+ * tuple and has its length negated. An update is logged as a delete followed by
+ * an insert. base is the number of records logged (over the life of the table)
+ * before the snapshot the log extends. A newer snapshot, taken after the first
+ * (logged - base) records, holds them already, so they are skipped on replay; a
+ * checkpoint then rewrites the log to start at the newer snapshot. Snapshots
+ * and checkpoints can thus be taken while changes go on, and a save interrupted
+ * at any point never replays a change twice. (Version 1 logs hold inserts only,
+ * so for them the number of records logged is the number of tuples.)
+ */
+@SuppressWarnings("rawtypes")
+public class WriteAheadLog implements Closeable {
+	/** Marks a log file ("WAL1"). */
+	private static final int MAGIC = 0x57414C31;
+	
+	/** The version of the file format (version 1 logs are read too). */
+	private static final int VERSION = 2;
+	
+	/** The size of the header in bytes. */
+	public static final int HEADER = 16;
+	
+	/** The size of the group buffer in bytes (a full group is committed). */
+	private static final int GROUP = 1 << 16;
+	
+	/** The log file. */
+	private Path path;
+	
+	/** The open log file. */
+	private FileChannel channel;
+	
+	/** The number of records logged before the snapshot the log extends. */
+	private long base;
+	
+	/** The attribute domains. */
+	private final Class[] domain;
+	
+	/** The records appended but not yet committed. */
+	private final ByteBuffer group = ByteBuffer.allocate(GROUP);
+	
+	/** Scratch space for encoding one record. */
+	private ByteBuffer record = ByteBuffer.allocate(TableFile.PAGE_SIZE);
+	
+	/** The file position after the last committed record. */
+	private long end;
+	
+	/** The number of fsyncs, for measuring group commit. */
+	private long syncs = 0;
+	
+	/************************************************************************************
+	 * Construct a log appending at the given position.
+	 */
+	private WriteAheadLog(Path _path, FileChannel _channel, Class[] _domain, long _base, long _end) {
+		path = _path;
+		channel = _channel;
+		domain = _domain;
+		base = _base;
+		end = _end;
+	} // constructor
+	
+	/************************************************************************************
+	 * Start a new, empty log for a snapshot (replacing any old log).
+	 *
+	 * @param path     the log file
+	 * @param _domain  the attribute domains
+	 * @param logged   the number of records logged before the snapshot
+	 * @return         the open log
+	 * @throws IOException if the log cannot be written
+	 */
+	public static WriteAheadLog create(Path path, Class[] _domain, long logged) throws IOException {
+		FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			ByteBuffer b = ByteBuffer.allocate(HEADER);
+			b.putInt(MAGIC).putInt(VERSION).putLong(logged);
+			b.flip();
+			TableFile.writeFully(ch, b, 0);
+			ch.force(true);
+			TableFile.syncDirectory(path);
+		} catch (IOException ex) {
+			ch.close();
+			throw ex;
+		} // try
+		return new WriteAheadLog(path, ch, _domain, logged, HEADER);
+	} // create
+	
+	/************************************************************************************
+	 * Open the log of a snapshot, passing every intact record the snapshot does
+	 * not hold yet to replay (inserts) or remove (deletes) and cutting off a
+	 * torn tail. A missing log, or one that does not extend the snapshot, is
+	 * replaced by a new, empty log.
+	 *
+	 * @param path     the log file
+	 * @param _domain  the attribute domains
+	 * @param logged   the number of records logged before the snapshot
+	 * @param replay   receives each logged inserted tuple in order
+	 * @param remove   receives each logged deleted tuple in order
+	 * @return         the open log, positioned after the last intact record
+	 * @throws IOException if the log cannot be read or written
+	 */
+	public static WriteAheadLog open(Path path, Class[] _domain, long logged, Consumer<Comparable[]> replay,
+			Consumer<Comparable[]> remove) throws IOException {
+		if (!Files.exists(path) || Files.size(path) < HEADER) {
+			return create(path, _domain, logged);
+		}
+		FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			ByteBuffer h = ByteBuffer.allocate(HEADER);
+			int version = header(ch, h, path);
+			long base = h.getLong();
+			if (base > logged) {
+				ch.close();
+				return create(path, _domain, logged);
+			}
+			if (version == 1) {
+				// its records read the same in version 2, which later appends may need
+				TableFile.writeFully(ch, (ByteBuffer) ByteBuffer.allocate(4).putInt(VERSION).flip(), 4);
+			}
+			
+			long pos = replay(ch, version, _domain, logged - base, replay, remove);
+			if (pos < 0) {
+				ch.close();
+				return create(path, _domain, logged); // the log is shorter than the snapshot it should extend
+			}
+			
+			// drop a torn tail, so new records follow the last intact one
+			if (pos < ch.size()) {
+				ch.truncate(pos);
+				ch.force(true);
+			}
+			return new WriteAheadLog(path, ch, _domain, base, pos);
+		} catch (IOException | RuntimeException ex) {
+			ch.close();
+			throw ex;
+		} // try
+	} // open
+	
+	/************************************************************************************
+	 * Read the log of a snapshot without changing it, passing every intact
+	 * record the snapshot does not hold yet to replay (inserts) or remove
+	 * (deletes), as open would. A missing log, or one that does not extend the
+	 * snapshot, holds no such records.
+	 *
+	 * @param path     the log file
+	 * @param _domain  the attribute domains
+	 * @param logged   the number of records logged before the snapshot
+	 * @param replay   receives each logged inserted tuple in order
+	 * @param remove   receives each logged deleted tuple in order
+	 * @throws IOException if the log cannot be read
+	 */
+	public static void read(Path path, Class[] _domain, long logged, Consumer<Comparable[]> replay,
+			Consumer<Comparable[]> remove) throws IOException {
+		if (!Files.exists(path) || Files.size(path) < HEADER) {
+			return;
+		}
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer h = ByteBuffer.allocate(HEADER);
+			int version = header(ch, h, path);
+			long base = h.getLong();
+			if (base <= logged) {
+				replay(ch, version, _domain, logged - base, replay, remove);
+			}
+		} // try
+	} // read
+	
+	/************************************************************************************
+	 * Read and check the header of a log, leaving its base next in the buffer.
+	 *
+	 * @param ch   the open log file
+	 * @param h    a buffer of HEADER bytes
+	 * @param path the log file (for the error message)
+	 * @return     the version of the log
+	 * @throws IOException if the file is not a log file
+	 */
+	private static int header(FileChannel ch, ByteBuffer h, Path path) throws IOException {
+		TableFile.readFully(ch, h, 0);
+		int version = (h.getInt() == MAGIC) ? h.getInt() : -1;
+		if (version != 1 && version != VERSION) {
+			throw new IOException(path + " is not a log file");
+		}
+		return version;
+	} // header
+	
+	/************************************************************************************
+	 * Read the intact records of a log, stopping at the first torn or corrupt
+	 * one, and pass all but the first skip of them to replay or remove.
+	 *
+	 * @param ch       the open log file
+	 * @param version  the version of the log
+	 * @param _domain  the attribute domains
+	 * @param skip     the number of records the snapshot holds already
+	 * @param replay   receives each logged inserted tuple in order
+	 * @param remove   receives each logged deleted tuple in order
+	 * @return         the position after the last intact record, or -1 if the
+	 *                 log holds fewer than skip records (none were passed on)
+	 * @throws IOException if the log cannot be read
+	 */
+	private static long replay(FileChannel ch, int version, Class[] _domain, long skip,
+			Consumer<Comparable[]> replay, Consumer<Comparable[]> remove) throws IOException {
+		long pos = HEADER, size = ch.size();
+		ByteBuffer lh = ByteBuffer.allocate(8);
+		CRC32 crc = new CRC32();
+		while (pos + 8 <= size) {
+			lh.clear();
+			TableFile.readFully(ch, lh, pos);
+			int length = lh.getInt();
+			int sum = lh.getInt();
+			boolean delete = length < 0 && version > 1;
+			length = delete ? -length : length;
+			if (length <= 0 || pos + 8 + length > size) {
+				break;
+			}
+			ByteBuffer payload = ByteBuffer.allocate(length);
+			TableFile.readFully(ch, payload, pos + 8);
+			crc.reset();
+			crc.update(payload.array(), 0, length);
+			if ((int) crc.getValue() != sum) {
+				break;
+			}
+			if (skip > 0) {
+				skip--; // the snapshot holds this change already
+			} else {
+				Comparable[] t = new Comparable[_domain.length];
+				for (int j = 0; j < t.length; j++) {
+					t[j] = Page.get(payload, _domain[j]);
+				}
+				(delete ? remove : replay).accept(t);
+			} // if
+			pos += 8 + length;
+		} // while
+		return (skip > 0) ? -1 : pos;
+	} // replay
+	
+	/************************************************************************************
+	 * Append an inserted tuple to the current group. It becomes durable when the
+	 * group is committed: once it fills up, or on the next call to commit.
+	 *
+	 * @param t the inserted tuple
+	 * @throws IOException if a full group cannot be committed
+	 */
+	public void append(Comparable[] t) throws IOException {
+		append(t, false);
+	} // append
+	
+	/************************************************************************************
+	 * Append a deleted tuple to the current group (see append).
+	 *
+	 * @param t the deleted tuple
+	 * @throws IOException if a full group cannot be committed
+	 */
+	public void appendDelete(Comparable[] t) throws IOException {
+		append(t, true);
+	} // appendDelete
+	
+	/************************************************************************************
+	 * Append an insert or delete record for a tuple to the current group.
+	 *
+	 * @param t      the tuple
+	 * @param delete whether the tuple was deleted
+	 * @throws IOException if a full group cannot be committed
+	 */
+	private synchronized void append(Comparable[] t, boolean delete) throws IOException {
+		record.clear();
+		record.position(8);
+		for (int j = 0; j < domain.length; j++) {
+			if (!Page.put(record, domain[j], t[j])) {
+				// grow the scratch space for an unusually wide tuple and encode again
+				record = ByteBuffer.allocate(2 * record.capacity());
+				record.position(8);
+				j = -1;
+			}
+		} // for
+		int length = record.position() - 8;
+		CRC32 crc = new CRC32();
+		crc.update(record.array(), 8, length);
+		record.putInt(0, delete ? -length : length).putInt(4, (int) crc.getValue());
+		record.flip();
+		
+		if (record.remaining() > group.remaining()) {
+			commit();
+		}
+		if (record.remaining() > group.capacity()) {
+			TableFile.writeFully(channel, record, end); // larger than a group: write it alone
+			end += record.limit();
+			channel.force(false);
+			syncs++;
+		} else {
+			group.put(record);
+		}
+	} // append
+	
+	/************************************************************************************
+	 * Write the records of the current group and force them to disk with one
+	 * fsync, making every appended tuple durable.
+	 *
+	 * @throws IOException if the log cannot be written
+	 */
+	public synchronized void commit() throws IOException {
+		if (group.position() == 0) {
+			return;
+		}
+		group.flip();
+		TableFile.writeFully(channel, group, end);
+		end += group.limit();
+		group.clear();
+		channel.force(false);
+		syncs++;
+	} // commit
+	
+	/************************************************************************************
+	 * Restart the log at a newer snapshot holding its first (logged - base)
+	 * records: the records after those are copied to a new log file, which then
+	 * atomically replaces this one. Appends wait while the log is rewritten.
+	 *
+	 * @param logged the number of records logged before the newer snapshot
+	 * @throws IOException if the log cannot be read or written
+	 */
+	public void checkpoint(long logged) throws IOException {
+		checkpoint(logged, path);
+	} // checkpoint
+	
+	/************************************************************************************
+	 * Restart the log at a newer snapshot, as above, moving it to the given file.
+	 * A log started beside an older one (whose records the older snapshot still
+	 * needs) thus replaces it only once the newer snapshot is on disk.
+	 *
+	 * @param logged the number of records logged before the newer snapshot
+	 * @param target the log file to replace
+	 * @throws IOException if the log cannot be read or written
+	 */
+	public synchronized void checkpoint(long logged, Path target) throws IOException {
+		if (logged < base) {
+			throw new IllegalArgumentException("snapshot after " + logged + " records precedes the log (" + base + ")");
+		}
+		commit();
+		long pos = HEADER;
+		ByteBuffer lh = ByteBuffer.allocate(4);
+		for (long r = base; r < logged; r++) {
+			if (pos >= end) {
+				throw new IllegalArgumentException("snapshot after " + logged + " records is ahead of the log");
+			}
+			lh.clear();
+			TableFile.readFully(channel, lh, pos);
+			pos += 8 + Math.abs(lh.getInt());
+		} // for
+		
+		Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+		try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer b = ByteBuffer.allocate(HEADER);
+			b.putInt(MAGIC).putInt(VERSION).putLong(logged);
+			b.flip();
+			TableFile.writeFully(out, b, 0);
+			out.position(HEADER);
+			for (long p = pos; p < end; ) {
+				p += channel.transferTo(p, end - p, out);
+			}
+			out.force(true);
+		} // try
+		Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		TableFile.syncDirectory(target);
+		
+		channel.close();
+		if (!target.equals(path)) {
+			Files.deleteIfExists(path);
+			path = target;
+		}
+		channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		end = HEADER + end - pos;
+		base = logged;
+	} // checkpoint
+	
+	/************************************************************************************
+	 * Return the number of fsyncs issued for appended records.
+	 *
+	 * @return the number of fsyncs
+	 */
+	public synchronized long syncs() {
+		return syncs;
+	} // syncs
+	
+	/************************************************************************************
+	 * Commit the current group and close the log.
+	 */
+	public synchronized void close() throws IOException {
+		try {
+			commit();
+		} finally {
+			channel.close();
+		} // try
+	} // close
+} // WriteAheadLog class
@@ -0,0 +1,4 @@
+/**
+ * Implementation for the Storage Layer: Paged Table Files
+ */
+package csx370.storage;
@@ -15,7 +15,14 @@ import java.util.*;
 /************************************************************************************
  * This class provides B+Tree maps. B+Trees are used as multi-level index
  * structures that provide efficient access for both point queries and range
- * queries.
+ * queries. The order (maximum fanout) is chosen per map: wide nodes make for
+ * shallow trees, and keys are found within a node by binary search. The entry
+ * set and the range views (subMap, headMap, tailMap) are lazy: iterating one
+ * descends to its first leaf and then follows the leaf chain, and the size and
+ * the first and last leaves are kept up to date as keys are inserted and
+ * removed. Removal keeps every node but the root at least half full by
+ * borrowing from or merging with a sibling, so the tree stays as shallow and
+ * dense after heavy churn as after the puts alone.
  */
 public class BpTreeMap<K extends Comparable<K>, V> extends AbstractMap<K, V> 
 	implements Serializable, Cloneable, SortedMap<K, V> {
@@ -25,14 +32,14 @@ public class BpTreeMap<K extends Comparable<K>, V> extends AbstractMap<K, V>
 	/** Serialize */
 	private static final long serialVersionUID = 1L;
 	
-	/** The maximum fanout for a B+Tree node. */
+	/** The default maximum fanout for a B+Tree node. */
 	private static final int ORDER = 5;
 	
-	/** The FLOOR(maximum fanout / 2) for a B+Tree node. */
-	private static final int HALF = ORDER/2;
+	/** The maximum fanout for a B+Tree node. */
+	private final int order;
 	
-	/** The CEILING(maximum fanout / 2) for a B+Tree node. */
-	private static final int MIDDLE = (int) Math.ceil(ORDER/2.0);
+	/** The FLOOR(maximum fanout / 2) for a B+Tree node. */
+	private final int half;
 	
 	/** The class for type K. */
 	private final Class <K> classK;
@@ -53,32 +60,68 @@ public class BpTreeMap<K extends Comparable<K>, V> extends AbstractMap<K, V>
 		Node(boolean _isLeaf) {
 			isLeaf = _isLeaf;
 			nKeys = 0;
-			key = (K[]) Array.newInstance(classK, ORDER - 1);
+			key = (K[]) Array.newInstance(classK, order - 1);
 			if (isLeaf) {
-				ref = new Object[ORDER];
+				ref = new Object[order];
 			} else {
-				ref = (Node[]) Array.newInstance(Node.class, ORDER);
+				ref = (Node[]) Array.newInstance(Node.class, order);
 			} // if
 		} // constructor
 	} // Node inner class
 	
-	/** The root of the B+Tree */
-	private Node root;
+	/** The root of the B+Tree (streamed as sorted pairs by writeObject) */
+	private transient Node root;
+	
+	/** The first and last leaves of the B+Tree. */
+	private transient Node head, tail;
+	
+	/** The number of key-value pairs in the B+Tree. */
+	private transient int nPairs;
+	
+	/** The nodes on the path to the leaf last located, reused by every insert. */
+	private transient Node[] path;
+	
+	/** The child positions taken on the path to the leaf last located. */
+	private transient int[] slot;
 	
 	/** The counter for the number nodes accessed (for performance testing). */
 	private int count = 0;
 	
 	/********************************************************************************
-	 * Construct an empty B+Tree map.
+	 * Construct an empty B+Tree map of the default order.
 	 * @param _classK  the class for keys (K)
 	 * @param _classV  the class for values (V)
 	 */
 	public BpTreeMap(Class<K> _classK, Class<V> _classV) {
+		this(_classK, _classV, ORDER);
+	} // constructor
+	
+	/********************************************************************************
+	 * Construct an empty B+Tree map whose nodes hold up to order - 1 keys (and
+	 * internal nodes up to order children).
+	 * @param _classK  the class for keys (K)
+	 * @param _classV  the class for values (V)
+	 * @param _order   the maximum fanout for a node (at least 3)
+	 */
+	public BpTreeMap(Class<K> _classK, Class<V> _classV, int _order) {
+		if (_order < 3) {
+			throw new IllegalArgumentException("order " + _order + " is less than 3");
+		}
 		classK = _classK;
 		classV = _classV;
-		root = new Node(true);
+		order = _order;
+		half = order / 2;
+		root = head = tail = new Node(true);
 	} // constructor
 	
+	/********************************************************************************
+	 * Return the order (maximum fanout) of the nodes.
+	 * @return  the order of the B+Tree
+	 */
+	public int order() {
+		return order;
+	} // order
+	
 	/********************************************************************************
 	 * Return null to use the natural order based on the key type.  This requires the
 	 * key type to implement Comparable.
@@ -88,34 +131,37 @@ public class BpTreeMap<K extends Comparable<K>, V> extends AbstractMap<K, V>
 	} // comparator
 	
 	/********************************************************************************
-	 * Return a set containing all the entries as pairs of keys and values.
+	 * Return a set containing all the entries as pairs of keys and values. The
+	 * set is a view: its iterator walks the linked leaves in key order.
 	 * @return  the set view of the map
 	 */
-	@SuppressWarnings("unchecked")
 	public Set<Map.Entry<K, V>> entrySet() {
-		Set<Map.Entry<K, V>> enSet = new LinkedHashSet<>();
-		
-		//set the starting node
+		return new AbstractSet<Map.Entry<K, V>>() {
+			@Override
+			public Iterator<Map.Entry<K, V>> iterator() {
+				return new Cursor(head, 0, null);
+			} // iterator
+			
+			@Override
+			public int size() {
+				return nPairs;
+			} // size
+		};
+	} // entrySet
+	
+	/********************************************************************************
+	 * Determine whether the B+Tree map holds the key.
+	 * @param key  the key to look for
+	 * @return     whether the key is in the map
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean containsKey(Object key) {
 		Node node = root;
-		
-		//go to first leaf
 		while (!node.isLeaf) {
-			node = (Node) node.ref[0];
-		}
-		
-		//add entries until full
-		while (node != null) {
-			//iterate through current node
-			for (int i = 0; i < node.nKeys; i++) {
-				enSet.add(new SimpleEntry<K, V>(node.key[i], (V) node.ref[i]));
-			}
-			
-			//get next linked leaf
-			node = (Node) node.ref[ORDER-1];
+			node = child(node, (K) key);
 		}
-		
-		return enSet;
-	} // entrySet
+		return Arrays.binarySearch(node.key, 0, node.nKeys, key) >= 0;
+	} // containsKey
 	
 	/********************************************************************************
 	 * Given the key, look up the value in the B+Tree map.
@@ -127,213 +173,495 @@ public class BpTreeMap<K extends Comparable<K>, V> extends AbstractMap<K, V>
 		//correctly type key
 		K keyy = (K) key;
 		
-		//set the starting node
+		//descend from the root to the leaf
 		Node node = root;
-		
-		//find the value
 		count++;
-		for (int i = 0; i < node.nKeys; i++) {
-			//node is a leaf
-			if (node.isLeaf) {
-				//match
-				if (keyy.compareTo(node.key[i]) == 0) {
-					return (V) node.ref[i];
-				} else if (keyy.compareTo(node.key[i]) < 0) { //key is less than node's current value
-					return null;
-				} continue;
-			}
-			
-			//traverse non-leaf
-			if (i == 0 && keyy.compareTo(node.key[i]) < 0) { //first reference
-				node = (Node) node.ref[i];
-				i = -1;
-				count++;
-			} else if (i > 0 && keyy.compareTo(node.key[i-1]) >= 0 && keyy.compareTo(node.key[i]) < 0) { //go left
-				node = (Node) node.ref[i];
-				i = -1;
-				count++;
-			} else if (i == node.nKeys-1) { //go right
-				node = (Node) node.ref[i+1];
-				i = -1;
-				count++;
-			}
+		while (!node.isLeaf) {
+			node = child(node, keyy);
+			count++;
 		}
 		
-		return null;
+		//find the value
+		int i = Arrays.binarySearch(node.key, 0, node.nKeys, keyy);
+		return (i >= 0) ? (V) node.ref[i] : null;
 	} // get
 	
 	/********************************************************************************
 	 * Put the key-value pair in the B+Tree map.
 	 * @param key    the key to insert
 	 * @param value  the value to insert
-	 * @return       null (not the previous value)
+	 * @return       the previous value of the key, or null if it was absent
 	 */
 	public V put(K key, V value) {
-		insert(key, value, root, null);
-		return null;
+		return insert(key, value);
 	} // put
 	
 	/********************************************************************************
-	 * Return the first (smallest) key in the B+Tree map.
+	 * Remove the key and its value from the B+Tree map.
+	 * @param key  the key to remove
+	 * @return     the value the key had, or null if it was absent
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(Object key) {
+		return delete((K) key);
+	} // remove
+	
+	/********************************************************************************
+	 * Put all the pairs of the given map in the B+Tree map. An empty B+Tree is
+	 * bulk loaded with full nodes from a map already sorted by the keys' natural
+	 * order, otherwise the pairs are put one at a time.
+	 * @param m  the map whose pairs to put
+	 */
+	@Override
+	public void putAll(Map<? extends K, ? extends V> m) {
+		if (nPairs > 0 || !(m instanceof SortedMap) || ((SortedMap<?, ?>) m).comparator() != null) {
+			super.putAll(m);
+			return;
+		}
+		bulkLoad(m.entrySet(), 1.0);
+	} // putAll
+	
+	/********************************************************************************
+	 * Load pairs sorted by key into the empty B+Tree map bottom-up, rather than
+	 * putting them one at a time: the leaves are packed left to right to the
+	 * fill factor and linked, then each level of internal nodes is built over
+	 * the level below in one pass (see build). A fill factor of 1 packs the
+	 * nodes full, for the shallowest and densest tree; lower ones leave room
+	 * for later puts before nodes split. Nodes are never packed below half
+	 * full (as a split leaves them), so fill factors below 0.5 act as 0.5.
+	 * @param sorted      the pairs in ascending order of their keys (no duplicates)
+	 * @param fillFactor  the fraction of each node to fill, in (0, 1]
+	 * @throws IllegalStateException     if the map is not empty
+	 * @throws IllegalArgumentException  if the fill factor is out of range or the
+	 *                                   keys are not in ascending order
+	 */
+	@SuppressWarnings("unchecked")
+	public void bulkLoad(Iterable<? extends Map.Entry<? extends K, ? extends V>> sorted, double fillFactor) {
+		if (nPairs > 0) {
+			throw new IllegalStateException("bulkLoad into a non-empty map");
+		}
+		if (!(fillFactor > 0 && fillFactor <= 1)) {
+			throw new IllegalArgumentException("fill factor " + fillFactor + " is not in (0, 1]");
+		}
+		List<K> keys = new ArrayList<>();
+		List<Object> values = new ArrayList<>();
+		K prev = null;
+		for (Map.Entry<? extends K, ? extends V> e : sorted) {
+			K key = e.getKey();
+			if (prev != null && key.compareTo(prev) <= 0) {
+				throw new IllegalArgumentException("key " + key + " does not follow " + prev);
+			}
+			keys.add(key);
+			values.add(e.getValue());
+			prev = key;
+		} // for
+		build(keys.toArray((K[]) Array.newInstance(classK, keys.size())), values.toArray(), fillFactor);
+	} // bulkLoad
+	
+	/********************************************************************************
+	 * Remove every pair from the B+Tree map.
+	 */
+	@Override
+	public void clear() {
+		root = head = tail = new Node(true);
+		nPairs = 0;
+	} // clear
+	
+	/********************************************************************************
+	 * Return the first (smallest) key in the B+Tree map, from the first leaf.
 	 * @return  the first key in the B+Tree map.
+	 * @throws NoSuchElementException  if the map is empty
 	 */
 	public K firstKey() {
-		//checks for first time
-		boolean first = true;
-		
-		//contains smallest value
-		K smallest = null;
-		
-		//loop through whole map
-		for (Map.Entry<K, V> item : entrySet()) {
-			//get key from set
-			K key = item.getKey();
-			
-			//checks if smallest is initialized
-			if (first) {
-				smallest = key;
-				first = false;
-			} else { //checks whether current key is less than 'smallest'
-				if (key.compareTo(smallest) < 0) {
-					smallest = key;
-				}
-			}
+		if (nPairs == 0) {
+			throw new NoSuchElementException();
 		}
-		
-		//return smallest item
-		return smallest;
+		return head.key[0];
 	} // firstKey
 	
 	/********************************************************************************
-	 * Return the last (largest) key in the B+Tree map.
+	 * Return the last (largest) key in the B+Tree map, from the last leaf.
 	 * @return  the last key in the B+Tree map.
+	 * @throws NoSuchElementException  if the map is empty
 	 */
 	public K lastKey() {
-		//checks for first time
-		boolean first = true;
-		
-		//contains largest value
-		K largest = null;
-		
-		//loop through whole map
-		for (Map.Entry<K, V> item : entrySet()) {
-			//get key from set
-			K key = item.getKey();
-			
-			//checks if largest is initialized
-			if (first) {
-				largest = key;
-				first = false;
-			} else { //checks whether current key is less than 'largest'
-				if (key.compareTo(largest) > 0) {
-					largest = key;
-				}
-			}
+		if (nPairs == 0) {
+			throw new NoSuchElementException();
 		}
-		
-		//return largest item
-		return largest;
+		return tail.key[tail.nKeys - 1];
 	} // lastKey
 	
 	/********************************************************************************
 	 * Return the portion of the B+Tree map where key {@literal <} toKey.
-	 * @return  the submap with keys in the range [firstKey, toKey)
+	 * @return  the submap view with keys in the range [firstKey, toKey)
 	 */
 	public SortedMap<K,V> headMap(K toKey) {
-		return subMap(firstKey(), toKey);
+		return new Range(null, Objects.requireNonNull(toKey));
 	} // headMap
 	
 	/********************************************************************************
 	 * Return the portion of the B+Tree map where fromKey {@literal <}= key.
-	 * @return  the submap with keys in the range [fromKey, lastKey]
+	 * @return  the submap view with keys in the range [fromKey, lastKey]
 	 */
-	@SuppressWarnings("unchecked")
 	public SortedMap<K,V> tailMap(K fromKey) {
-		SortedMap<K,V> mapper = new TreeMap<>();
-		
-		//set the starting node
+		return new Range(Objects.requireNonNull(fromKey), null);
+	} // tailMap
+	
+	/********************************************************************************
+	 * Return the portion of the B+Tree map whose keys are between fromKey and toKey,
+	 * i.e., fromKey {@literal <}= key {@literal <} toKey. The submap is a view:
+	 * nothing is copied, and iterating it descends to the leaf holding fromKey
+	 * and follows the leaf chain up to toKey.
+	 * @return  the submap view with keys in the range [fromKey, toKey)
+	 */
+	public SortedMap<K,V> subMap(K fromKey, K toKey) {
+		if (fromKey.compareTo(Objects.requireNonNull(toKey)) > 0) {
+			throw new IllegalArgumentException("fromKey > toKey");
+		}
+		return new Range(fromKey, toKey);
+	} // subMap
+	
+	/********************************************************************************
+	 * Return the height (number of levels) of the B+Tree, 1 for a single leaf.
+	 * @return  the height of the B+Tree
+	 */
+	@SuppressWarnings("unchecked")
+	public int height() {
+		int h = 1;
+		for (Node node = root; !node.isLeaf; node = (Node) node.ref[0]) {
+			h++;
+		}
+		return h;
+	} // height
+	
+	/********************************************************************************
+	 * Return the size (number of keys) in the B+Tree.
+	 * @return  the size of the B+Tree
+	 */
+	public int size() {
+		return nPairs;
+	} // size
+	
+	/********************************************************************************
+	 * Return a cursor positioned at the first key {@literal >}= lo, found by
+	 * descending from the root (or at the first leaf when lo is null).
+	 * @param lo  the low key (inclusive), or null
+	 * @param hi  the high key (exclusive) the cursor stops at, or null
+	 * @return    the cursor
+	 */
+	private Cursor seek(K lo, K hi) {
+		if (lo == null) {
+			return new Cursor(head, 0, hi);
+		}
 		Node node = root;
-		
-		//go to first leaf
 		while (!node.isLeaf) {
-			node = (Node) node.ref[0];
+			node = child(node, lo);
 		}
+		int i = Arrays.binarySearch(node.key, 0, node.nKeys, lo);
+		return new Cursor(node, (i >= 0) ? i : -i - 1, hi);
+	} // seek
+	
+	/********************************************************************************
+	 * Return the largest key {@literal <} hi in the subtree rooted at node n (any
+	 * key when hi is null), descending into the child that would hold hi and
+	 * backing up to the children left of it while they hold no smaller key.
+	 * @param n   the root of the subtree
+	 * @param hi  the high key (exclusive), or null
+	 * @return    the largest key below hi, or null if there is none
+	 */
+	private K lastBelow(Node n, K hi) {
+		if (n.isLeaf) {
+			int i = n.nKeys;
+			if (hi != null) {
+				i = Arrays.binarySearch(n.key, 0, n.nKeys, hi);
+				i = (i >= 0) ? i : -i - 1;
+			}
+			return (i > 0) ? n.key[i - 1] : null;
+		} // if
+		for (int c = (hi == null) ? n.nKeys : position(n, hi); c >= 0; c--) {
+			@SuppressWarnings("unchecked")
+			K k = lastBelow((Node) n.ref[c], hi);
+			if (k != null) {
+				return k;
+			}
+		} // for
+		return null;
+	} // lastBelow
+	
+	/********************************************************************************
+	 * This inner class iterates over the pairs of the B+Tree in key order, from
+	 * a position in a leaf along the leaf chain, stopping before a high key.
+	 */
+	private class Cursor implements Iterator<Map.Entry<K, V>> {
+		/** The current leaf (null when past the last one). */
+		private Node leaf;
 		
-		//add entries
-		while (node != null) {
-			//iterate through current node
-			for (int i = 0; i < node.nKeys; i++) {
-				if (fromKey.compareTo(node.key[i]) <= 0) {
-					mapper.put(node.key[i], (V) node.ref[i]);
-				}
+		/** The position of the next pair in the leaf. */
+		private int i;
+		
+		/** The high key (exclusive), or null for none. */
+		private final K hi;
+		
+		Cursor(Node _leaf, int _i, K _hi) {
+			leaf = _leaf;
+			i = _i;
+			hi = _hi;
+		} // constructor
+		
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean hasNext() {
+			while (leaf != null && i >= leaf.nKeys) {
+				leaf = (Node) leaf.ref[order - 1];
+				i = 0;
 			}
-			
-			//get next linked leaf
-			node = (Node) node.ref[ORDER-1];
-		}
+			return leaf != null && (hi == null || leaf.key[i].compareTo(hi) < 0);
+		} // hasNext
 		
-		return mapper;
-	} // tailMap
+		@SuppressWarnings("unchecked")
+		@Override
+		public Map.Entry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Map.Entry<K, V> e = new SimpleImmutableEntry<>(leaf.key[i], (V) leaf.ref[i]);
+			i++;
+			return e;
+		} // next
+	} // Cursor inner class
 	
 	/********************************************************************************
-	 * Return the portion of the B+Tree map whose keys are between fromKey and toKey,
-	 * i.e., fromKey {@literal <}= key {@literal <} toKey.
-	 * @return  the submap with keys in the range [fromKey, toKey)
+	 * This inner class is the view of the pairs of the B+Tree with keys in a
+	 * range [lo, hi) returned by subMap, headMap and tailMap. It holds only the
+	 * bounds: lookups go to the B+Tree and iterating seeks to lo.
 	 */
-	@SuppressWarnings("unchecked")
-	public SortedMap<K,V> subMap(K fromKey, K toKey) {
-		SortedMap<K,V> mapper = new TreeMap<>();
+	private class Range extends AbstractMap<K, V> implements SortedMap<K, V> {
+		/** The low key (inclusive), or null for none. */
+		private final K lo;
 		
-		//set the starting node
-		Node node = root;
+		/** The high key (exclusive), or null for none. */
+		private final K hi;
 		
-		//go to first leaf
-		while (!node.isLeaf) {
-			node = (Node) node.ref[0];
-		}
+		Range(K _lo, K _hi) {
+			lo = _lo;
+			hi = _hi;
+		} // constructor
 		
-		//add entries
-		while (node != null) {
-			//iterate through current node
-			for (int i = 0; i < node.nKeys; i++) {
-				if (fromKey.compareTo(node.key[i]) <= 0 && toKey.compareTo(node.key[i]) > 0) {
-					mapper.put(node.key[i], (V) node.ref[i]);
-				}
+		/****************************************************************************
+		 * Determine whether a key lies in the range (or at its high end, if toHi).
+		 */
+		@SuppressWarnings("unchecked")
+		private boolean inRange(Object key, boolean toHi) {
+			K k = (K) key;
+			return (lo == null || k.compareTo(lo) >= 0) && (hi == null || k.compareTo(hi) < (toHi ? 1 : 0));
+		} // inRange
+		
+		/****************************************************************************
+		 * Check that the bounds of a range within this one are in this one.
+		 */
+		private Range range(K _lo, K _hi) {
+			if ((_lo != null && !inRange(_lo, true)) || (_hi != null && !inRange(_hi, true))) {
+				throw new IllegalArgumentException("key out of range");
 			}
-			
-			//get next linked leaf
-			node = (Node) node.ref[ORDER-1];
-		}
+			if (_lo != null && _hi != null && _lo.compareTo(_hi) > 0) {
+				throw new IllegalArgumentException("fromKey > toKey");
+			}
+			return new Range(_lo == null ? lo : _lo, _hi == null ? hi : _hi);
+		} // range
 		
-		return mapper;
-	} // subMap
+		@Override
+		public Set<Map.Entry<K, V>> entrySet() {
+			return new AbstractSet<Map.Entry<K, V>>() {
+				@Override
+				public Iterator<Map.Entry<K, V>> iterator() {
+					return seek(lo, hi);
+				} // iterator
+				
+				@Override
+				public int size() {
+					return Range.this.size();
+				} // size
+			};
+		} // entrySet
+		
+		@Override
+		public int size() {
+			if (lo == null && hi == null) {
+				return nPairs;
+			}
+			int n = 0;
+			for (Cursor c = seek(lo, hi); c.hasNext(); c.next()) {
+				n++;
+			}
+			return n;
+		} // size
+		
+		@Override
+		public boolean isEmpty() {
+			return !seek(lo, hi).hasNext();
+		} // isEmpty
+		
+		@Override
+		public V get(Object key) {
+			return inRange(key, false) ? BpTreeMap.this.get(key) : null;
+		} // get
+		
+		@Override
+		public boolean containsKey(Object key) {
+			return inRange(key, false) && BpTreeMap.this.containsKey(key);
+		} // containsKey
+		
+		@Override
+		public V put(K key, V value) {
+			if (!inRange(key, false)) {
+				throw new IllegalArgumentException("key out of range");
+			}
+			return BpTreeMap.this.put(key, value);
+		} // put
+		
+		@Override
+		public V remove(Object key) {
+			return inRange(key, false) ? BpTreeMap.this.remove(key) : null;
+		} // remove
+		
+		@Override
+		public Comparator<? super K> comparator() {
+			return null;
+		} // comparator
+		
+		@Override
+		public SortedMap<K, V> subMap(K fromKey, K toKey) {
+			return range(Objects.requireNonNull(fromKey), Objects.requireNonNull(toKey));
+		} // subMap
+		
+		@Override
+		public SortedMap<K, V> headMap(K toKey) {
+			return range(null, Objects.requireNonNull(toKey));
+		} // headMap
+		
+		@Override
+		public SortedMap<K, V> tailMap(K fromKey) {
+			return range(Objects.requireNonNull(fromKey), null);
+		} // tailMap
+		
+		@Override
+		public K firstKey() {
+			Cursor c = seek(lo, hi);
+			if (!c.hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return c.next().getKey();
+		} // firstKey
+		
+		@Override
+		public K lastKey() {
+			K k = lastBelow(root, hi);
+			if (k == null || (lo != null && k.compareTo(lo) < 0)) {
+				throw new NoSuchElementException();
+			}
+			return k;
+		} // lastKey
+	} // Range inner class
 	
 	/********************************************************************************
-	 * Return the size (number of keys) in the B+Tree.
-	 * @return  the size of the B+Tree
+	 * Serialize the B+Tree compactly: the number of keys, then the key-value
+	 * pairs in key order, read off the linked leaves.
+	 * @param stream  the stream to write to
+	 * @throws IOException  if the stream cannot be written
+	 */
+	private void writeObject(ObjectOutputStream stream) throws IOException {
+		stream.defaultWriteObject();
+		stream.writeInt(size());
+		for (Map.Entry<K, V> e : entrySet()) {
+			stream.writeObject(e.getKey());
+			stream.writeObject(e.getValue());
+		}
+	} // writeObject
+	
+	/********************************************************************************
+	 * Rebuild a serialized B+Tree by bulk loading its sorted pairs.
+	 * @param stream  the stream to read from
+	 * @throws IOException             if the stream cannot be read
+	 * @throws ClassNotFoundException  if a key or value class cannot be found
 	 */
 	@SuppressWarnings("unchecked")
-	public int size() {
-		int sum = 0;
-		
-		//set the starting node
-		Node node = root;
-		
-		//go to first leaf
-		while (!node.isLeaf) {
-			node = (Node) node.ref[0];
+	private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+		stream.defaultReadObject();
+		int n = stream.readInt();
+		K[] keys = (K[]) Array.newInstance(classK, n);
+		Object[] values = new Object[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = (K) stream.readObject();
+			values[i] = stream.readObject();
+		}
+		build(keys, values, 1.0);
+	} // readObject
+	
+	/********************************************************************************
+	 * Build the B+Tree bottom-up from pairs sorted by key, rather than inserting
+	 * them one at a time. The pairs are spread evenly over as few leaves as
+	 * will hold them at the fill factor, but no more than keep every leaf at
+	 * least half full, and the leaves are linked; then each level of internal
+	 * nodes is built the same way over the level below, each separator being
+	 * the smallest key under its right child, until one root remains.
+	 * @param keys    the keys in ascending order (no duplicates)
+	 * @param values  the value of each key
+	 * @param fill    the fraction of each node to fill
+	 */
+	private void build(K[] keys, Object[] values, double fill) {
+		int n = keys.length;
+		nPairs = n;
+		if (n == 0) {
+			root = head = tail = new Node(true);
+			return;
 		}
 		
-		//loop through bottom row
-		while (node != null) {
-			sum += node.nKeys;
-			
-			//get next linked leaf
-			node = (Node) node.ref[ORDER-1];
+		//fill and link the leaves
+		List<Node> level = new ArrayList<>();
+		List<K> first = new ArrayList<>();
+		int leafKeys = Math.max(half, (int) Math.ceil((order - 1) * fill));
+		int leaves = Math.max(1, Math.min((n + leafKeys - 1) / leafKeys, n / half));
+		Node prev = null;
+		for (int l = 0, i = 0; l < leaves; l++) {
+			Node leaf = new Node(true);
+			leaf.nKeys = (n - i) / (leaves - l);
+			System.arraycopy(keys, i, leaf.key, 0, leaf.nKeys);
+			System.arraycopy(values, i, leaf.ref, 0, leaf.nKeys);
+			i += leaf.nKeys;
+			if (prev != null) {
+				prev.ref[order - 1] = leaf;
+			}
+			prev = leaf;
+			level.add(leaf);
+			first.add(leaf.key[0]);
 		}
+		head = level.get(0);
+		tail = prev;
 		
-		return sum;
-	} // size
+		//build internal levels until a single root is left
+		int fanout = Math.max(order - half, (int) Math.ceil(order * fill));
+		while (level.size() > 1) {
+			List<Node> up = new ArrayList<>();
+			List<K> upFirst = new ArrayList<>();
+			int nodes = Math.max(1, Math.min((level.size() + fanout - 1) / fanout, level.size() / (order - half)));
+			for (int p = 0, i = 0; p < nodes; p++) {
+				Node node = new Node(false);
+				int children = (level.size() - i) / (nodes - p);
+				upFirst.add(first.get(i));
+				for (int j = 0; j < children; j++, i++) {
+					node.ref[j] = level.get(i);
+					if (j > 0) {
+						node.key[j - 1] = first.get(i);
+					}
+				}
+				node.nKeys = children - 1;
+				up.add(node);
+			}
+			level = up;
+			first = upFirst;
+		}
+		root = level.get(0);
+	} // build
 	
 	/********************************************************************************
 	 * Debugger method listing vitial stats about the B+ Tree during testing
@@ -380,7 +708,7 @@ public class BpTreeMap<K extends Comparable<K>, V> extends AbstractMap<K, V>
 			}
 		} // if
 		
-		if (n.isLeaf && n.ref[ORDER - 1] == null) {
+		if (n.isLeaf && n.ref[order - 1] == null) {
 			out.println ("-------------------------------------------");
 		}
 	} // print
@@ -408,579 +736,404 @@ public class BpTreeMap<K extends Comparable<K>, V> extends AbstractMap<K, V>
 	} // find
 	
 	/********************************************************************************
-	 * Non-Recursive helper function for inserting a key in B+trees.
+	 * Non-Recursive helper function for inserting a key in B+trees. The key is
+	 * found or placed in its leaf by binary search; a full leaf is split and the
+	 * first key of the new right node pushed up into the parent, splitting full
+	 * parents in turn up the path to the root, which gets a new root above it
+	 * if it splits too. Keys and references are shifted in place, so nothing
+	 * but the new nodes is allocated.
 	 * @param key  the key to insert
-	 * @param ref  the value/node to insert
-	 * @param n    the current node
-	 * @param p    the parent node
+	 * @param ref  the value to insert
+	 * @return     the previous value of the key, or null if it was absent
 	 */
 	@SuppressWarnings("unchecked")
-	private void insert(K key, V ref, Node n, Node p) {
+	private V insert(K key, V ref) {
 		if (DEBUG) out.println("insert--" + key);
 		
-		//only one node
-		if (root.isLeaf) {
-			//empty or not full yet
-			if (n.nKeys < ORDER - 1) {
-				wedge(key, ref, n, 0);
-			} else { //is full
-				//key is a duplicate
-				if (Arrays.stream(n.key).anyMatch(key::equals)) {
-					wedge(key, ref, n, 0);
-				} else { //not duplicate
-					//split the node n
-					Node right = split(key, ref, n);
-					
-					//push up first key of right to new root node
-					root = new Node(false);
-					root.key[0] = right.key[0];
-					root.nKeys++;
-					
-					//link root to n and right
-					root.ref[0] = n;
-					root.ref[1] = right;
-				}
-			}
-		} else { //more than one node
-			//keep track of path through tree
-			Stack<Node> stack = new Stack<Node>();
-			
-			//find leaf to insert on
-			Node node = locate(key, stack);
+		//find leaf to insert on, recording the path through the tree
+		int depth = locate(key);
+		Node node = path[depth];
+		
+		//key is a duplicate: replace its value
+		int i = Arrays.binarySearch(node.key, 0, node.nKeys, key);
+		if (i >= 0) {
+			V old = (V) node.ref[i];
+			node.ref[i] = ref;
+			return old;
+		}
+		i = -i - 1;
+		nPairs++;
+		
+		//not full yet
+		if (node.nKeys < order - 1) {
+			wedge(key, ref, node, i);
+			return null;
+		}
+		
+		//split the leaf, then push up the first key of the right node
+		Node left = node;
+		Node right = split(key, ref, node, i);
+		K middleKey = right.key[0];
+		while (depth > 0) {
+			Node parent = path[--depth];
+			i = slot[depth];
 			
-			if (DEBUG) out.println("STACK: " + stack);
+			//parent is not full
+			if (parent.nKeys < order - 1) {
+				wedge(middleKey, right, parent, i);
+				return null;
+			}
 			
-			//empty or not full yet
-			if (node.nKeys < ORDER - 1) {
-				wedge(key, ref, node, 0);
-			} else { //is full
-				//key is a duplicate
-				if (Arrays.stream(node.key).anyMatch(key::equals)) {
-					wedge(key, ref, node, 0);
-				} else { //not duplicate
-					//split the node n
-					Node right = split(key, ref, node);
-					
-					//get parent - push up first key of right to parent node
-					Node parent = stack.pop();
-					
-					//not full parent add
-					if (parent.nKeys < ORDER-1) {
-						wedge(right.key[0], (V) right, parent, 1);
-						return;
-					}
-					//full parent split
-					else {
-						if (DEBUG) out.println("Parent is full " + parent.nKeys);
-						
-						//split internal node
-						Node rParent = new Node(false);
-						K middleKey = iSplit(right.key[0], (V) right, parent, rParent);
-						
-						//root
-						if (parent == root) {
-							Node newRoot = new Node(false);
-							newRoot.key[0] = middleKey;
-							newRoot.ref[0] = parent;
-							newRoot.ref[1] = rParent;
-							newRoot.nKeys++;
-							
-							//set new root
-							root = newRoot;
-							
-							return;
-						} else { // not root
-							if (DEBUG) out.println("=STEP ONE");
-							
-							//don't need to check, bc parent not root, must be good
-							Node parent1 = stack.pop();
-							
-							//parent is not full
-							if (parent1.nKeys < ORDER -1) {
-								//link parent to right child
-								wedge(middleKey, (V) rParent, parent1, 1);
-								return;
-							} else { //its full split
-								//split the parent
-								Node rParent1 = new Node(false);
-								K middleKey1 = iSplit(middleKey, (V) rParent, parent1, rParent1);
-								
-								//parent is root
-								if (parent1 == root) {
-									Node newRoot = new Node(false);
-									newRoot.key[0] = middleKey1;
-									newRoot.ref[0] = parent1;
-									newRoot.ref[1] = rParent1;
-									newRoot.nKeys++;
-									
-									//set new root
-									root = newRoot;
-									
-									return;
-								} else { //not root
-									if (DEBUG) out.println("=STEP TWO");
-									
-									//don't need to check, bc parent not root, must be good
-									Node parent2 = stack.pop();
-									
-									//parent is not full
-									if (parent2.nKeys < ORDER -1) {
-										//link parent to right child
-										wedge(middleKey1, (V) rParent1, parent2, 1);
-										return;
-									} else { //its full split
-										//split the parent
-										Node rParent2 = new Node(false);
-										K middleKey2 = iSplit(middleKey1, (V) rParent1, parent2, rParent2);
-										
-										//parent is root
-										if (parent2 == root) {
-											Node newRoot = new Node(false);
-											newRoot.key[0] = middleKey2;
-											newRoot.ref[0] = parent2;
-											newRoot.ref[1] = rParent2;
-											newRoot.nKeys++;
-											
-											//set new root
-											root = newRoot;
-											
-											return;
-										} else { //not root
-											if (DEBUG) out.println("=STEP THREE");
-											
-											//don't need to check, bc parent not root, must be good
-											Node parent3 = stack.pop();
-											
-											//parent is not full
-											if (parent3.nKeys < ORDER -1) {
-												//link parent to right child
-												wedge(middleKey2, (V) rParent2, parent3, 1);
-												return;
-											} else { //its full split
-												//split the parent
-												Node rParent3 = new Node(false);
-												K middleKey3 = iSplit(middleKey2, (V) rParent2, parent3, rParent3);
-												
-												//parent is root
-												if (parent3 == root) {
-													Node newRoot = new Node(false);
-													newRoot.key[0] = middleKey3;
-													newRoot.ref[0] = parent3;
-													newRoot.ref[1] = rParent3;
-													newRoot.nKeys++;
-													
-													//set new root
-													root = newRoot;
-													
-													return;
-												} else { //not root
-													if (DEBUG) out.println("=STEP FOUR");
-													
-													//don't need to check, bc parent not root, must be good
-													Node parent4 = stack.pop();
-													
-													//parent is not full
-													if (parent4.nKeys < ORDER -1) {
-														//link parent to right child
-														wedge(middleKey3, (V) rParent3, parent4, 1);
-														return;
-													} else { //its full split
-														//split the parent
-														Node rParent4 = new Node(false);
-														K middleKey4 = iSplit(middleKey3, (V) rParent3, parent4, rParent4);
-														
-														//parent is root
-														if (parent4 == root) {
-															Node newRoot = new Node(false);
-															newRoot.key[0] = middleKey4;
-															newRoot.ref[0] = parent4;
-															newRoot.ref[1] = rParent4;
-															newRoot.nKeys++;
-															
-															//set new root
-															root = newRoot;
-															
-															return;
-														} else { //not root
-															if (DEBUG) out.println("=STEP FIVE");
-															
-															//don't need to check, bc parent not root, must be good
-															Node parent5 = stack.pop();
-															
-															//parent is not full
-															if (parent5.nKeys < ORDER -1) {
-																//link parent to right child
-																wedge(middleKey4, (V) rParent4, parent5, 1);
-																return;
-															} else { //its full split
-																//split the parent
-																Node rParent5 = new Node(false);
-																K middleKey5 = iSplit(middleKey4, (V) rParent4, parent5, rParent5);
-																
-																//parent is root
-																if (parent5 == root) {
-																	Node newRoot = new Node(false);
-																	newRoot.key[0] = middleKey5;
-																	newRoot.ref[0] = parent5;
-																	newRoot.ref[1] = rParent5;
-																	newRoot.nKeys++;
-																	
-																	//set new root
-																	root = newRoot;
-																	
-																	return;
-																} else { //not root
-																	if (DEBUG) out.println("=STEP SIX");
-																	
-																	//don't need to check, bc parent not root, must be good
-																	Node parent6 = stack.pop();
-																	
-																	//parent is not full
-																	if (parent6.nKeys < ORDER -1) {
-																		//link parent to right child
-																		wedge(middleKey5, (V) rParent5, parent6, 1);
-																		return;
-																	} else { //its full split
-																		//split the parent
-																		Node rParent6 = new Node(false);
-																		K middleKey6 = iSplit(middleKey5, (V) rParent5, parent6, rParent6);
-																		
-																		//parent is root
-																		if (parent6 == root) {
-																			Node newRoot = new Node(false);
-																			newRoot.key[0] = middleKey6;
-																			newRoot.ref[0] = parent6;
-																			newRoot.ref[1] = rParent6;
-																			newRoot.nKeys++;
-																			
-																			//set new root
-																			root = newRoot;
-																			
-																			return;
-																		} else { //not root
-																			if (DEBUG) out.println("=STEP SEVEN");
-																			
-																			//don't need to check, bc parent not root, must be good
-																			Node parent7 = stack.pop();
-																			
-																			//parent is not full
-																			if (parent7.nKeys < ORDER -1) {
-																				//link parent to right child
-																				wedge(middleKey6, (V) rParent6, parent7, 1);
-																				return;
-																			} else { //its full split
-																				//split the parent
-																				Node rParent7 = new Node(false);
-																				K middleKey7 = iSplit(middleKey6, (V) rParent6, parent7, rParent7);
-																				
-																				//parent is root
-																				if (parent7 == root) {
-																					Node newRoot = new Node(false);
-																					newRoot.key[0] = middleKey7;
-																					newRoot.ref[0] = parent7;
-																					newRoot.ref[1] = rParent7;
-																					newRoot.nKeys++;
-																					
-																					//set new root
-																					root = newRoot;
-																					
-																					return;
-																				} else { //not root
-																					if (DEBUG) out.println("=STEP EIGHT");
-																					
-																					//don't need to check, bc parent not root, must be good
-																					Node parent8 = stack.pop();
-																					
-																					//parent is not full
-																					if (parent8.nKeys < ORDER -1) {
-																						//link parent to right child
-																						wedge(middleKey7, (V) rParent7, parent8, 1);
-																						return;
-																					} else { //its full split
-																						//split the parent
-																						Node rParent8 = new Node(false);
-																						K middleKey8 = iSplit(middleKey7, (V) rParent7, parent8, rParent8);
-																						
-																						//parent is root
-																						if (parent8 == root) {
-																							Node newRoot = new Node(false);
-																							newRoot.key[0] = middleKey8;
-																							newRoot.ref[0] = parent8;
-																							newRoot.ref[1] = rParent8;
-																							newRoot.nKeys++;
-																							
-																							//set new root
-																							root = newRoot;
-																							
-																							return;
-																						} else { //not root
-																							if (DEBUG) out.println("=STEP NINE");
-																							
-																							//don't need to check, bc parent not root, must be good
-																							Node parent9 = stack.pop();
-																							
-																							//parent is not full
-																							if (parent9.nKeys < ORDER -1) {
-																								//link parent to right child
-																								wedge(middleKey8, (V) rParent8, parent9, 1);
-																								return;
-																							} else { //its full split
-																								//split the parent
-																								Node rParent9 = new Node(false);
-																								K middleKey9 = iSplit(middleKey8, (V) rParent8, parent9, rParent9);
-																								
-																								//parent is root
-																								if (parent9 == root) {
-																									Node newRoot = new Node(false);
-																									newRoot.key[0] = middleKey9;
-																									newRoot.ref[0] = parent9;
-																									newRoot.ref[1] = rParent9;
-																									newRoot.nKeys++;
-																									
-																									//set new root
-																									root = newRoot;
-																									
-																									return;
-																								} else { //not root
-																									if (DEBUG) out.println("=STEP TEN");
-																									
-																									//don't need to check, bc parent not root, must be good
-																									Node parent10 = stack.pop();
-																									
-																									//parent is not full
-																									if (parent10.nKeys < ORDER -1) {
-																										//link parent to right child
-																										wedge(middleKey9, (V) rParent9, parent10, 1);
-																										return;
-																									} else { //its full split
-																										//split the parent
-																										Node rParent10 = new Node(false);
-																										K middleKey10 = iSplit(middleKey9, (V) rParent9, parent10, rParent10);
-																										
-																										//parent is root
-																										if (parent10 == root) {
-																											Node newRoot = new Node(false);
-																											newRoot.key[0] = middleKey10;
-																											newRoot.ref[0] = parent10;
-																											newRoot.ref[1] = rParent10;
-																											newRoot.nKeys++;
-																											
-																											//set new root
-																											root = newRoot;
-																											
-																											return;
-																										} else {
-																											if (DEBUG) System.out.println("HELLO");
-																										}
-																									}
-																								}
-																							}
-																						}
-																					}
-																				}
-																			}
-																		}
-																	}
-																}
-															}
-														}
-													}
-												}
-											}
-										}
-									}
-								}
-							}
-						}
-					}
-				}
+			//its full split
+			if (DEBUG) out.println("Parent is full " + parent.nKeys);
+			Node rParent = new Node(false);
+			middleKey = iSplit(middleKey, right, parent, rParent, i);
+			left = parent;
+			right = rParent;
+		} // while
+		
+		//the root was split
+		Node newRoot = new Node(false);
+		newRoot.key[0] = middleKey;
+		newRoot.ref[0] = left;
+		newRoot.ref[1] = right;
+		newRoot.nKeys++;
+		root = newRoot;
+		return null;
+	} // insert
+	
+	/********************************************************************************
+	 * Non-Recursive helper function for deleting a key from B+trees. The key is
+	 * removed from its leaf; a leaf left less than half full (fewer than half
+	 * keys) borrows a pair from a sibling that can spare one, or else is merged
+	 * with a sibling, which removes a separator from the parent. An internal
+	 * node left with fewer than order - half children is fixed the same way,
+	 * rotating a key through the parent or merging, up the path to the root,
+	 * which is dropped when it is left with a single child.
+	 * @param key  the key to delete
+	 * @return     the value the key had, or null if it was absent
+	 */
+	@SuppressWarnings("unchecked")
+	private V delete(K key) {
+		if (DEBUG) out.println("delete--" + key);
+		
+		//find the leaf holding the key, recording the path through the tree
+		int depth = locate(key);
+		Node node = path[depth];
+		int i = Arrays.binarySearch(node.key, 0, node.nKeys, key);
+		if (i < 0) {
+			return null;
+		}
+		V old = (V) node.ref[i];
+		int n = --node.nKeys;
+		System.arraycopy(node.key, i + 1, node.key, i, n - i);
+		System.arraycopy(node.ref, i + 1, node.ref, i, n - i);
+		node.key[n] = null;
+		node.ref[n] = null;
+		nPairs--;
+		
+		//fix underflow up the path, stopping at the first node borrowed into
+		while (depth > 0 && node.nKeys < (node.isLeaf ? half : order - half - 1)) {
+			Node parent = path[--depth];
+			int s = slot[depth];
+			Node left = (s > 0) ? (Node) parent.ref[s - 1] : null;
+			Node right = (s < parent.nKeys) ? (Node) parent.ref[s + 1] : null;
+			if (left != null && left.nKeys > (left.isLeaf ? half : order - half - 1)) {
+				borrowLeft(parent, s, left, node);
+				break;
+			}
+			if (right != null && right.nKeys > (right.isLeaf ? half : order - half - 1)) {
+				borrowRight(parent, s, node, right);
+				break;
 			}
+			if (left != null) {
+				merge(parent, s - 1, left, node);
+			} else {
+				merge(parent, s, node, right);
+			}
+			node = parent;
+		} // while
+		
+		//the root was left with a single child
+		if (!root.isLeaf && root.nKeys == 0) {
+			root = (Node) root.ref[0];
 		}
-	} // insert
+		return old;
+	} // delete
 	
 	/********************************************************************************
-	 * Non-Recursive helper function for locating tuple where insertion will occur
-	 * @param key   the key to insert
-	 * @param stack trace to root
-	 * @return      located node
+	 * Move the last pair (or child) of node left to the front of its right
+	 * sibling n, the child at position s of parent, updating the separator
+	 * between them.
+	 * @param parent  the parent of both nodes
+	 * @param s       the position of n in parent
+	 * @param left    the sibling to borrow from
+	 * @param n       the node borrowing
+	 */
+	private void borrowLeft(Node parent, int s, Node left, Node n) {
+		int last = --left.nKeys;
+		if (n.isLeaf) {
+			System.arraycopy(n.key, 0, n.key, 1, n.nKeys);
+			System.arraycopy(n.ref, 0, n.ref, 1, n.nKeys);
+			n.key[0] = left.key[last];
+			n.ref[0] = left.ref[last];
+			left.ref[last] = null;
+			parent.key[s - 1] = n.key[0];
+		} else {
+			System.arraycopy(n.key, 0, n.key, 1, n.nKeys);
+			System.arraycopy(n.ref, 0, n.ref, 1, n.nKeys + 1);
+			n.key[0] = parent.key[s - 1];
+			n.ref[0] = left.ref[last + 1];
+			left.ref[last + 1] = null;
+			parent.key[s - 1] = left.key[last];
+		} // if
+		left.key[last] = null;
+		n.nKeys++;
+	} // borrowLeft
+	
+	/********************************************************************************
+	 * Move the first pair (or child) of node right to the end of its left
+	 * sibling n, the child at position s of parent, updating the separator
+	 * between them.
+	 * @param parent  the parent of both nodes
+	 * @param s       the position of n in parent
+	 * @param n       the node borrowing
+	 * @param right   the sibling to borrow from
+	 */
+	private void borrowRight(Node parent, int s, Node n, Node right) {
+		int m = --right.nKeys;
+		if (n.isLeaf) {
+			n.key[n.nKeys] = right.key[0];
+			n.ref[n.nKeys] = right.ref[0];
+			System.arraycopy(right.key, 1, right.key, 0, m);
+			System.arraycopy(right.ref, 1, right.ref, 0, m);
+			right.ref[m] = null;
+			parent.key[s] = right.key[0];
+		} else {
+			n.key[n.nKeys] = parent.key[s];
+			n.ref[n.nKeys + 1] = right.ref[0];
+			parent.key[s] = right.key[0];
+			System.arraycopy(right.key, 1, right.key, 0, m);
+			System.arraycopy(right.ref, 1, right.ref, 0, m + 1);
+			right.ref[m + 1] = null;
+		} // if
+		right.key[m] = null;
+		n.nKeys++;
+	} // borrowRight
+	
+	/********************************************************************************
+	 * Merge node right into its left sibling, the children at positions c and
+	 * c + 1 of parent, and remove the separator between them (and right) from
+	 * the parent. Merged leaves are unlinked from the leaf chain; an internal
+	 * merge pulls the separator down between the two nodes' keys.
+	 * @param parent  the parent of both nodes
+	 * @param c       the position of left in parent
+	 * @param left    the node kept
+	 * @param right   the node merged into left
+	 */
+	private void merge(Node parent, int c, Node left, Node right) {
+		if (left.isLeaf) {
+			System.arraycopy(right.key, 0, left.key, left.nKeys, right.nKeys);
+			System.arraycopy(right.ref, 0, left.ref, left.nKeys, right.nKeys);
+			left.nKeys += right.nKeys;
+			left.ref[order - 1] = right.ref[order - 1];
+			if (right == tail) {
+				tail = left;
+			}
+		} else {
+			left.key[left.nKeys] = parent.key[c];
+			System.arraycopy(right.key, 0, left.key, left.nKeys + 1, right.nKeys);
+			System.arraycopy(right.ref, 0, left.ref, left.nKeys + 1, right.nKeys + 1);
+			left.nKeys += right.nKeys + 1;
+		} // if
+		
+		//remove the separator and the reference to right from the parent
+		int n = --parent.nKeys;
+		System.arraycopy(parent.key, c + 1, parent.key, c, n - c);
+		System.arraycopy(parent.ref, c + 2, parent.ref, c + 1, n - c);
+		parent.key[n] = null;
+		parent.ref[n + 1] = null;
+	} // merge
+	
+	/********************************************************************************
+	 * Non-Recursive helper function for locating the leaf where insertion will
+	 * occur. The nodes on the way are left in path [0 .. depth] and the child
+	 * position taken at each internal node in slot [0 .. depth - 1], reusing
+	 * both arrays from insert to insert.
+	 * @param key  the key to insert
+	 * @return     the depth of the leaf (0 for a root leaf)
 	 */
 	@SuppressWarnings("unchecked")
-	private Node locate(K key, Stack<Node> stack) {
+	private int locate(K key) {
 		//set the starting node
 		Node node = root;
+		int depth = 0;
 		
-		//find the value
-		for (int i = 0; i < node.nKeys; i++) {
-			if (node.isLeaf) { //node is a leaf
-				return node;
-			} else if (i == 0 && key.compareTo(node.key[i]) < 0) { //first reference
-				stack.push(node); //adds parent to stack
-				node = (Node) node.ref[i];
-				i = -1;
-			} else if (i > 0 && key.compareTo(node.key[i-1]) >= 0 && key.compareTo(node.key[i]) < 0) { //go left
-				stack.push(node);
-				node = (Node) node.ref[i];
-				i = -1;
-			} else if (i == node.nKeys-1) { //go right
-				stack.push(node);
-				node = (Node) node.ref[i+1];
-				i = -1;
+		//descend to the leaf, recording the internal nodes on the way
+		while (!node.isLeaf) {
+			if (path == null || depth + 1 >= path.length) {
+				path = Arrays.copyOf((path == null) ? (Node[]) Array.newInstance(Node.class, 0) : path, depth + 8);
+				slot = Arrays.copyOf((slot == null) ? new int[0] : slot, depth + 8);
 			}
+			path[depth] = node;
+			slot[depth] = position(node, key);
+			node = (Node) node.ref[slot[depth++]];
+		} // while
+		if (path == null) {
+			path = (Node[]) Array.newInstance(Node.class, 8);
+			slot = new int[8];
 		}
-		
-		if (DEBUG) System.out.println("RRRRRRRRRRRRRR");
-		
-		return null;
+		path[depth] = node;
+		return depth;
 	} // locate
 	
 	/********************************************************************************
-	 * Wedge the key-ref pair into node n.
+	 * Return the child of internal node n whose subtree may hold the key.
+	 * @param n    the internal node
+	 * @param key  the key to descend with
+	 * @return     the child node
+	 */
+	@SuppressWarnings("unchecked")
+	private Node child(Node n, K key) {
+		return (Node) n.ref[position(n, key)];
+	} // child
+	
+	/********************************************************************************
+	 * Return the position of the child of internal node n whose subtree may hold
+	 * the key, found by binary search: the number of separators {@literal <}= key.
+	 * @param n    the internal node
+	 * @param key  the key to descend with
+	 * @return     the child position
+	 */
+	private int position(Node n, K key) {
+		int lo = 0, hi = n.nKeys;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (key.compareTo(n.key[mid]) >= 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		} // while
+		return lo;
+	} // position
+	
+	/********************************************************************************
+	 * Wedge the key-ref pair into node n, which is not full, at key position i:
+	 * the ref goes at position i of a leaf, or at i + 1 (right of the key) in an
+	 * internal node. The keys and refs after them are shifted right by one.
 	 * @param key  the key to insert
 	 * @param ref  the value/node to insert
 	 * @param n    the current node
-	 * @param i    the insertion position offset within node n
+	 * @param i    the insertion position within node n
 	 */
-	@SuppressWarnings("unchecked")
-	private void wedge(K key, V ref, Node n, int i) {
-		//empty Node
-		if (n.nKeys == 0) {
-			n.key[n.nKeys] = key;
-			n.ref[n.nKeys] = ref;
-			
-			//increment # of keys
-			n.nKeys++;
-		} 
-		//not empty nodes
-		else {
-			//Map to store node key and ref pairs
-			Map<K, V> sortedMap = new TreeMap<K, V>();
-			
-			//Add node current pairs to map
-			for (int j = 0; j < n.nKeys; j++) {
-				sortedMap.put(n.key[j], (V) n.ref[j+i]);
-			}
-			//Add key and ref to add
-			sortedMap.put(key, ref);
-			
-			//set # of keys
-			n.nKeys = sortedMap.size();
-			
-			/*
-			 * Override values with sorted values
-			 * src, srcPos, dest, destPos, length
-			 */
-			System.arraycopy(sortedMap.keySet().toArray(), 0, n.key, 0, n.nKeys);
-			System.arraycopy(sortedMap.values().toArray(), 0, n.ref, i, n.nKeys);
-		}
+	private void wedge(K key, Object ref, Node n, int i) {
+		int r = n.isLeaf ? i : i + 1;
+		System.arraycopy(n.key, i, n.key, i + 1, n.nKeys - i);
+		System.arraycopy(n.ref, r, n.ref, r + 1, n.nKeys - i);
+		n.key[i] = key;
+		n.ref[r] = ref;
+		n.nKeys++;
 	} // wedge
 	
 	/********************************************************************************
-	 * Split internal node n and return the key to be bubbled up the tree
+	 * Split full internal node left, inserting the key-ref pair at key position
+	 * i, and return the key to be bubbled up the tree. Of the order keys (the
+	 * order - 1 keys of the full node plus the new one) the first half stay in
+	 * left, the next one moves up and the remaining order - half - 1 go to right,
+	 * each with the child to its right; right's first child is the one right of
+	 * the key moving up.
 	 * @param key   the key to insert
-	 * @param ref   the value/node to insert
+	 * @param ref   the node to insert (right of the key)
 	 * @param left  the current node
 	 * @param right the newer node
+	 * @param i     the insertion position within node left
 	 * @return      key
 	 */
-	@SuppressWarnings("unchecked")
-	private K iSplit(K key, V ref, Node left, Node right) {
-		//Map to store node key and ref pairs
-		Map<K, V> sortedMap = new TreeMap<K, V>();
-		
-		//Add node current pairs to map
-		for (int j = 0; j < left.nKeys; j++) {
-			sortedMap.put(left.key[j], (V) left.ref[j+1]);
-		}
-		//Add key and ref to add
-		sortedMap.put(key, ref);
+	private K iSplit(K key, Object ref, Node left, Node right, int i) {
+		int n = order - 1;
+		K middleKey;
+		if (i < half) {
+			//the new pair stays left: the last key of left's half moves up
+			middleKey = left.key[half - 1];
+			System.arraycopy(left.key, half, right.key, 0, n - half);
+			System.arraycopy(left.ref, half, right.ref, 0, n - half + 1);
+			System.arraycopy(left.key, i, left.key, i + 1, half - 1 - i);
+			System.arraycopy(left.ref, i + 1, left.ref, i + 2, half - 1 - i);
+			left.key[i] = key;
+			left.ref[i + 1] = ref;
+		} else if (i == half) {
+			//the new key moves up and its node becomes right's first child
+			middleKey = key;
+			System.arraycopy(left.key, half, right.key, 0, n - half);
+			System.arraycopy(left.ref, half + 1, right.ref, 1, n - half);
+			right.ref[0] = ref;
+		} else {
+			//the new pair goes right
+			middleKey = left.key[half];
+			System.arraycopy(left.key, half + 1, right.key, 0, i - half - 1);
+			System.arraycopy(left.ref, half + 1, right.ref, 0, i - half);
+			right.key[i - half - 1] = key;
+			right.ref[i - half] = ref;
+			System.arraycopy(left.key, i, right.key, i - half, n - i);
+			System.arraycopy(left.ref, i + 1, right.ref, i - half + 1, n - i);
+		} // if
 		
 		//clean array - a, fromIndex, toIndex, val
-		Arrays.fill(left.key, 0, ORDER - 1, null);
-		Arrays.fill(left.ref, 1, ORDER, null);
-		
-		//left - src, srcPos, dest, destPos, length
-		System.arraycopy(sortedMap.keySet().toArray(), 0, left.key, 0, HALF);
-		System.arraycopy(sortedMap.values().toArray(), 0, left.ref, 1, HALF);
-		left.nKeys = HALF;
+		Arrays.fill(left.key, half, n, null);
+		Arrays.fill(left.ref, half + 1, order, null);
+		left.nKeys = half;
+		right.nKeys = n - half;
 		
-		//right - src, srcPos, dest, destPos, length
-		System.arraycopy(sortedMap.keySet().toArray(), MIDDLE, right.key, 0, HALF);
-		System.arraycopy(sortedMap.values().toArray(), MIDDLE-1, right.ref, 0, HALF+1);
-		right.nKeys = HALF;
+		if (DEBUG) System.out.println("MIDDLER: " + middleKey);
 		
-		if (DEBUG) System.out.println("MIDDLER: " + (K) sortedMap.keySet().toArray()[MIDDLE -1]);
-		
-		return (K) sortedMap.keySet().toArray()[MIDDLE -1];
-	} // split
+		return middleKey;
+	} // iSplit
 	
 	/********************************************************************************
-	 * Split node n and return the newly created node.
+	 * Split full leaf n, inserting the key-ref pair at position i, and return
+	 * the newly created node, linked in after n. Of the order pairs the first
+	 * half stay in n and the other order - half move to the new node.
 	 * @param key  the key to insert
-	 * @param ref  the value/node to insert
+	 * @param ref  the value to insert
 	 * @param n    the current node
+	 * @param i    the insertion position within node n
 	 * @return     right split node
 	 */
-	@SuppressWarnings("unchecked")
-	private Node split(K key, V ref, Node n) {
-		/*
-		 * Node n START
-		 * [3, 5, 7, 9]
-		 * [9, 25, 49, 81, null]
-		 * key = 1
-		 * ref = 1
-		 */
-		
+	private Node split(K key, Object ref, Node n, int i) {
 		//Creates a new right node
 		Node right = new Node(n.isLeaf);
+		int m = order - 1;
 		
-		//Map to store node key and ref pairs
-		Map<K, V> sortedMap = new TreeMap<K, V>();
+		if (i < half) {
+			//the new pair stays in n: its last half - 1 .. pairs move right
+			System.arraycopy(n.key, half - 1, right.key, 0, m - half + 1);
+			System.arraycopy(n.ref, half - 1, right.ref, 0, m - half + 1);
+			System.arraycopy(n.key, i, n.key, i + 1, half - 1 - i);
+			System.arraycopy(n.ref, i, n.ref, i + 1, half - 1 - i);
+			n.key[i] = key;
+			n.ref[i] = ref;
+		} else {
+			//the new pair goes right, between the pairs before and after it
+			System.arraycopy(n.key, half, right.key, 0, i - half);
+			System.arraycopy(n.ref, half, right.ref, 0, i - half);
+			right.key[i - half] = key;
+			right.ref[i - half] = ref;
+			System.arraycopy(n.key, i, right.key, i - half + 1, m - i);
+			System.arraycopy(n.ref, i, right.ref, i - half + 1, m - i);
+		} // if
 		
-		//Add node current pairs to map
-		for (int i = 0; i < n.nKeys; i++) {
-			sortedMap.put(n.key[i], (V) n.ref[i]);
-		}
-		//Add key and ref to insert
-		sortedMap.put(key, ref);
-		
-		/*
-		 * Fill with null to 'n'
-		 * a, fromIndex, toIndex, val
-		 * [3, 5, null, null]
-		 * [9, 25, null, null, null]
-		 */
-		Arrays.fill(n.key, HALF, ORDER - 1, null);
-		Arrays.fill(n.ref, HALF, ORDER - 1, null);
-		
-		/*
-		 * Copy over first half to 'n'
-		 * src, srcPos, dest, destPos, length
-		 * [1, 3, null, null]
-		 * [1, 9, null, null, null]
-		 */
-		System.arraycopy(sortedMap.keySet().toArray(), 0, n.key, 0, HALF);
-		System.arraycopy(sortedMap.values().toArray(), 0, n.ref, 0, HALF);
-		n.nKeys = HALF; //set n.nKeys
-		
-		/*
-		 * Copy over rest to 'right'
-		 * src, srcPos, dest, destPos, length
-		 * [5, 7, 9, null]
-		 * [25, 49, 81, null, null]
-		 */
-		System.arraycopy(sortedMap.keySet().toArray(), HALF, right.key, 0, ORDER-HALF);
-		System.arraycopy(sortedMap.values().toArray(), HALF, right.ref, 0, ORDER-HALF);
-		right.nKeys = ORDER-HALF; //set right.nKeys
-		
-		//link n to right
-		if (n.isLeaf && right.isLeaf) {
-			if (DEBUG) System.out.println("both are leaf");
-			//right -> (n.next)
-			right.ref[ORDER - 1] = n.ref[ORDER - 1];
-			
-			//n -> right
-			n.ref[ORDER - 1] = right;
-			
+		//clean array - a, fromIndex, toIndex, val
+		Arrays.fill(n.key, half, m, null);
+		Arrays.fill(n.ref, half, m, null);
+		n.nKeys = half;
+		right.nKeys = order - half;
+		
+		//link n to right: right -> (n.next), n -> right
+		right.ref[order - 1] = n.ref[order - 1];
+		n.ref[order - 1] = right;
+		if (n == tail) {
+			tail = right;
 		}
 		
 		return right;
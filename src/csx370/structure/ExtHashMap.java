@@ -15,7 +15,9 @@ import java.util.*;
 /************************************************************************************
 * This class provides hash maps that use the Extendable Hashing algorithm.
 * Buckets are allocated and stored in a hash table and are referenced using
-* directory dir.
+* directory dir. Full buckets split (doubling the directory when needed) as
+* pairs are put; as pairs are removed, buddy buckets coalesce and the directory
+* halves once no bucket needs its full depth.
 */
 public class ExtHashMap<K, V> extends AbstractMap<K, V> implements
 	Serializable, Cloneable, Map<K, V> {
@@ -25,6 +27,9 @@ public class ExtHashMap<K, V> extends AbstractMap<K, V> implements
 	/** The number of slots (for key-value pairs) per bucket. */
 	private static final int SLOTS = 4;
 	
+	/** The largest global depth; past it full buckets grow instead of splitting. */
+	private static final int MAX_DEPTH = 24;
+	
 	/** The class for type K. */
 	private final Class<K> classK;
 	
@@ -36,32 +41,43 @@ public class ExtHashMap<K, V> extends AbstractMap<K, V> implements
 	 */
 	private class Bucket {
 		int nKeys;
+		int depth;
 		K[] key;
 		V[] value;
 		
 		@SuppressWarnings("unchecked")
-		Bucket() {
+		Bucket(int _depth) {
 			nKeys = 0;
+			depth = _depth;
 			key = (K[]) Array.newInstance(classK, SLOTS);
 			value = (V[]) Array.newInstance(classV, SLOTS);
 		} // constructor
 	} // Bucket inner class
 	
-	/** The hash table storing the buckets (buckets in physical order) */
-	private final List<Bucket> hTable;
+	/** The hash table storing the buckets (buckets in allocation order, streamed by writeObject) */
+	private transient Set<Bucket> hTable;
 	
 	/**
 	 * The directory providing access paths to the buckets (buckets in logical
-	 * order)
+	 * order, streamed by writeObject)
 	 */
-	private final List<Bucket> dir;
+	private transient List<Bucket> dir;
 	
 	/** The modulus for hashing (= 2^D) where D is the global depth */
 	private int mod;
 	
+	/** The global depth D */
+	private int depth;
+	
 	/** The number of buckets */
 	private int nBuckets;
 	
+	/** The number of buckets whose local depth is the global depth D */
+	private transient int atDepth;
+	
+	/** Number of pairs currently held in the hash map */
+	private int pairs = 0;
+	
 	/** Counter for the number buckets accessed (for performance testing). */
 	private int count = 0;
 	
@@ -75,13 +91,19 @@ public class ExtHashMap<K, V> extends AbstractMap<K, V> implements
 	public ExtHashMap(Class<K> _classK, Class<V> _classV, int initSize) {
 		classK = _classK;
 		classV = _classV;
-		hTable = new ArrayList<>(); // for bucket storage
+		hTable = new LinkedHashSet<>(); // for bucket storage
 		dir = new ArrayList<>(); // for bucket access
-		mod = nBuckets = initSize;
+		
+		// round up to a power of 2 so the directory can double
+		depth = 0;
+		while ((1 << depth) < initSize) {
+			depth++;
+		}
+		mod = nBuckets = atDepth = 1 << depth;
 		
 		for (int x = 0; x < nBuckets; x++) {
 			
-			Bucket basicBucket = new Bucket();
+			Bucket basicBucket = new Bucket(depth);
 			
 			hTable.add(basicBucket);
 			dir.add(basicBucket);
@@ -115,8 +137,8 @@ public class ExtHashMap<K, V> extends AbstractMap<K, V> implements
 	 */
 	public V get(Object key) {
 		
-		int i = h(key);
-		Bucket b = dir.get(i);
+		Bucket b = dir.get(h(key));
+		count++;
 		
 		for (int x = 0; x < b.nKeys; x++) {
 			if (b.key[x].equals(key)) {
@@ -131,55 +153,221 @@ public class ExtHashMap<K, V> extends AbstractMap<K, V> implements
 	 * 
 	 * @param key   the key to insert
 	 * @param value the value to insert
-	 * @return      null (not the previous value)
+	 * @return      the previous value for the key (null if it was absent)
 	 */
-	@SuppressWarnings("unchecked")
 	public V put(K key, V value) {
 		if (key == null) {
 			return null;
 		}
 		
-		int i = h(key);
-		Bucket b = dir.get(i);
+		while (true) {
+			int i = h(key);
+			Bucket b = dir.get(i);
 		
-		// Determine if bucket is full
-		if (b.nKeys < SLOTS) {
-			insertIntoBucket(b, key, value);
-			
-		// Extendible part of the hash table
-		} else {
-			
-			K[] tempKey = (K[]) Array.newInstance(classK, SLOTS+1);
-			V[] tempValue = (V[]) Array.newInstance(classV, SLOTS+1);
-			
-			for (int x = 0; x < SLOTS; x++) {
-				
-				tempKey[x] = b.key[x];
-				tempValue[x] = b.value[x];
-				
+			// Replace the value of an existing key
+			for (int x = 0; x < b.nKeys; x++) {
+				if (b.key[x].equals(key)) {
+					V old = b.value[x];
+					b.value[x] = value;
+					return old;
+				}
 			}
 			
-			tempKey[SLOTS] = key;
-			tempValue[SLOTS] = value;
-			
-			dir.set(i, new Bucket());
+			// Determine if bucket is full
+			if (b.nKeys < b.key.length) {
+				insertIntoBucket(b, key, value);
+				pairs++;
+				return null;
+			}
 			
-			Bucket bucket = new Bucket();
+			// Extendible part of the hash table: split b, then try again
+			// (keys sharing one hash code can never be separated, so grow b instead)
+			if (b.depth < MAX_DEPTH && !sameHash(b, key)) {
+				split(b);
+			} else {
+				b.key = Arrays.copyOf(b.key, 2 * b.key.length);
+				b.value = Arrays.copyOf(b.value, 2 * b.value.length);
+			}
+		}
+	} // put
+		
+	/********************************************************************************
+	 * Put all the pairs of the given map in the hash table. An empty hash table
+	 * first gets a directory of one bucket per SLOTS pairs (rounded up to a
+	 * power of 2), so few buckets are split while they are inserted.
+	 *
+	 * @param m the map whose pairs to put
+	 */
+	@Override
+	public void putAll(Map<? extends K, ? extends V> m) {
+		int d = depth;
+		while (d < MAX_DEPTH && (long) SLOTS << d < m.size()) {
+			d++;
+		}
+		if (pairs == 0 && d > depth) {
+			hTable = new LinkedHashSet<>(1 << d);
+			dir = new ArrayList<>(1 << d);
+			depth = d;
+			mod = nBuckets = atDepth = 1 << d;
+			for (int x = 0; x < nBuckets; x++) {
+				Bucket b = new Bucket(depth);
+				hTable.add(b);
+				dir.add(b);
+			}
+		}
+		
+		for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+			put(e.getKey(), e.getValue());
+		}
+	} // putAll
+	
+	/********************************************************************************
+	 * Split a full bucket into two buckets one level deeper, doubling the
+	 * directory first when the bucket is already at the global depth.
+	 *
+	 * @param b the bucket to split
+	 */
+	private void split(Bucket b) {
+		if (b.depth == depth) {
+			// double the directory: entry i + mod shares the bucket of entry i
+			dir.addAll(new ArrayList<>(dir));
+			mod *= 2;
+			depth++;
+			atDepth = 0;
+		}
+		if (b.depth + 1 == depth) {
+			atDepth += 2;
+		}
+		
+		// entries referencing b agree with its keys on the low b.depth bits
+		int bit = 1 << b.depth;
+		int low = h(b.key[0]) & (bit - 1);
+		Bucket b2 = new Bucket(b.depth + 1);
+		if (b.key.length > SLOTS) {
+			// b grew to hold keys sharing a hash code, which may all move to b2
+			b2.key = Arrays.copyOf(b2.key, b.key.length);
+			b2.value = Arrays.copyOf(b2.value, b.value.length);
+		}
+		b.depth++;
+		hTable.add(b2);
+		nBuckets++;
+		
+		// repoint the directory entries whose new distinguishing bit is set
+		for (int x = low | bit; x < dir.size(); x += 2 * bit) {
+			dir.set(x, b2);
+		}
+		
+		// redistribute the pairs of b between b and b2
+		int n = b.nKeys;
+		b.nKeys = 0;
+		for (int x = 0; x < n; x++) {
+			K k = b.key[x];
+			V v = b.value[x];
+			b.key[x] = null;
+			b.value[x] = null;
+			insertIntoBucket(dir.get(h(k)), k, v);
+		}
+	} // split
+	
+	/********************************************************************************
+	 * Remove the key and its value from the hash table. The hole is filled with
+	 * the bucket's last pair, then the bucket is coalesced with its buddy while
+	 * they fit together (see coalesce).
+	 *
+	 * @param key the key to remove
+	 * @return    the value the key had (null if it was absent)
+	 */
+	public V remove(Object key) {
+		if (key == null) {
+			return null;
+		}
+		
+		int i = h(key);
+		Bucket b = dir.get(i);
+		for (int x = 0; x < b.nKeys; x++) {
+			if (b.key[x].equals(key)) {
+				V old = b.value[x];
+				int n = --b.nKeys;
+				b.key[x] = b.key[n];
+				b.value[x] = b.value[n];
+				b.key[n] = null;
+				b.value[n] = null;
+				pairs--;
+				coalesce(b, i);
+				return old;
+			}
+		}
+		return null;
+	} // remove
+	
+	/********************************************************************************
+	 * Merge bucket b with its buddy (the bucket whose directory entries differ
+	 * from b's only in the last of b's local depth bits) while both have the
+	 * same local depth and their pairs leave a free slot in one bucket, so a
+	 * merged bucket is not split again by the next put. Then halve the directory
+	 * while no bucket needs the global depth.
+	 *
+	 * @param b the bucket a pair was removed from
+	 * @param i a directory entry referencing b
+	 */
+	private void coalesce(Bucket b, int i) {
+		while (b.depth > 0) {
+			int bit = 1 << (b.depth - 1);
+			Bucket buddy = dir.get(i ^ bit);
+			int capacity = Math.max(b.key.length, buddy.key.length);
+			if (buddy == b || buddy.depth != b.depth || b.nKeys + buddy.nKeys >= capacity) {
+				break;
+			}
 			
-			hTable.add(bucket);
-			dir.add(i, bucket);
-			mod++;
-			nBuckets++;
+			// keep the bucket with the larger arrays, moving the other's pairs into it
+			Bucket keep = (buddy.key.length > b.key.length) ? buddy : b;
+			Bucket gone = (keep == b) ? buddy : b;
+			for (int x = 0; x < gone.nKeys; x++) {
+				insertIntoBucket(keep, gone.key[x], gone.value[x]);
+			}
+			if (keep.depth == depth) {
+				atDepth -= 2;
+			}
+			keep.depth--;
+			hTable.remove(gone);
+			nBuckets--;
 			
-			for (int x = 0; x < tempKey.length; x++) {
-				
-				put(tempKey[x], tempValue[x]);
-				
+			// repoint the directory entries that referenced either bucket
+			for (int x = i & (bit - 1); x < dir.size(); x += bit) {
+				dir.set(x, keep);
 			}
+			b = keep;
 		}
 		
-		return null;
-	} // put
+		// halve the directory: its upper half then repeats the lower half
+		while (depth > 0 && atDepth == 0) {
+			mod /= 2;
+			depth--;
+			dir = new ArrayList<>(dir.subList(0, mod));
+			for (Bucket bucket : hTable) {
+				if (bucket.depth == depth) {
+					atDepth++;
+				}
+			}
+		}
+	} // coalesce
+	
+	/********************************************************************************
+	 * Determine whether every key in bucket b has the same hash code as key.
+	 *
+	 * @param b   the full bucket
+	 * @param key the key being inserted
+	 * @return    whether splitting b could not separate the keys
+	 */
+	private boolean sameHash(Bucket b, K key) {
+		int hc = key.hashCode();
+		for (int x = 0; x < b.nKeys; x++) {
+			if (b.key[x].hashCode() != hc) {
+				return false;
+			}
+		}
+		return true;
+	} // sameHash
 	
 	/**
 	 * Adds a value to a non-full bucket
@@ -200,24 +388,79 @@ public class ExtHashMap<K, V> extends AbstractMap<K, V> implements
 	}
 	
 	/********************************************************************************
-	 * Return the size (SLOTS * number of buckets) of the hash table.
+	 * Return the size (number of key-value pairs) of the hash table.
 	 * 
 	 * @return the size of the hash table
 	 */
 	public int size() {
-		
-		int count = 0;
-		
-		for (int x = 0; x < dir.size(); x++) {
-			for (int y = 0; y < SLOTS; y++) {
-				if (dir.get(x).key[y] != null) {
-					count++;
-				}
+		return pairs;
+	} // size
+	
+	/********************************************************************************
+	 * Serialize the hash table compactly: the global depth and counts (default
+	 * fields), then each bucket's local depth, capacity and pairs, then the
+	 * position in hTable of the bucket each directory entry references.
+	 *
+	 * @param stream the stream to write to
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void writeObject(ObjectOutputStream stream) throws IOException {
+		stream.defaultWriteObject();
+		Map<Bucket, Integer> position = new IdentityHashMap<>(hTable.size());
+		stream.writeInt(hTable.size());
+		for (Bucket b : hTable) {
+			position.put(b, position.size());
+			stream.writeInt(b.depth);
+			stream.writeInt(b.key.length);
+			stream.writeInt(b.nKeys);
+			for (int x = 0; x < b.nKeys; x++) {
+				stream.writeObject(b.key[x]);
+				stream.writeObject(b.value[x]);
 			}
 		}
-		
-		return count;
-	} // size
+		stream.writeInt(dir.size());
+		for (Bucket b : dir) {
+			stream.writeInt(position.get(b));
+		}
+	} // writeObject
+	
+	/********************************************************************************
+	 * Rebuild a serialized hash table bucket by bucket, repointing the directory
+	 * without rehashing any key.
+	 *
+	 * @param stream the stream to read from
+	 * @throws IOException            if the stream cannot be read
+	 * @throws ClassNotFoundException if a key or value class cannot be found
+	 */
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+		stream.defaultReadObject();
+		int buckets = stream.readInt();
+		List<Bucket> position = new ArrayList<>(buckets);
+		for (int i = 0; i < buckets; i++) {
+			Bucket b = new Bucket(stream.readInt());
+			int capacity = stream.readInt();
+			if (capacity != SLOTS) {
+				b.key = Arrays.copyOf(b.key, capacity);
+				b.value = Arrays.copyOf(b.value, capacity);
+			}
+			b.nKeys = stream.readInt();
+			for (int x = 0; x < b.nKeys; x++) {
+				b.key[x] = (K) stream.readObject();
+				b.value[x] = (V) stream.readObject();
+			}
+			position.add(b);
+			if (b.depth == depth) {
+				atDepth++;
+			}
+		}
+		hTable = new LinkedHashSet<>(position);
+		int entries = stream.readInt();
+		dir = new ArrayList<>(entries);
+		for (int x = 0; x < entries; x++) {
+			dir.add(position.get(stream.readInt()));
+		}
+	} // readObject
 	
 	/********************************************************************************
 	 * Print the hash table.
@@ -229,10 +472,10 @@ public class ExtHashMap<K, V> extends AbstractMap<K, V> implements
 		int bucketCount = 0;
 		int itemCount = 0;
 		
-		for (Bucket bucket : dir) {
+		for (Bucket bucket : hTable) {
 			
 			out.println("------------------Bucket #" + bucketCount
-					+ "-----------------");
+					+ " (depth " + bucket.depth + ")-----------------");
 			
 			for (int x = 0; x < bucket.nKeys; x++) {
 				
@@ -249,19 +492,15 @@ public class ExtHashMap<K, V> extends AbstractMap<K, V> implements
 	} // print
 	
 	/********************************************************************************
-	 * Hash the key using the hash function.
+	 * Hash the key using the hash function. The low D bits of the (spread) hash
+	 * code select the directory entry.
 	 * 
 	 * @param key the key to hash
 	 * @return    the location of the directory entry referencing the bucket
 	 */
 	private int h(Object key) {
-	        int rVal = Math.abs(key.hashCode()) % mod;
-		if(rVal > mod)
-		{
-		  rVal -= mod;
-		}// if
-		
-		return rVal;
+		int hc = key.hashCode();
+		return (hc ^ (hc >>> 16)) & (mod - 1);
 	} // h
 	
 	/********************************************************************************
@@ -286,4 +525,4 @@ public class ExtHashMap<K, V> extends AbstractMap<K, V> implements
 		out.println("Average number of buckets accessed = " + ht.count
 				/ (double) nKeys);
 	} // main
-} // ExtHashMap class
\ No newline at end of file
+} // ExtHashMap class
@@ -12,7 +12,9 @@ import java.util.*;
 
 /************************************************************************************
  * This class provides hash maps that use the Linear Hashing algorithm. A hash
- * table is created that is an array of buckets.
+ * table is created that is an array of buckets. It grows by splitting one
+ * bucket at a time as pairs are put, and contracts the same way, merging the
+ * last bucket back into its buddy, as pairs are removed.
  */
 public class LinHashMap<K, V> extends AbstractMap<K, V> implements
 		Serializable, Cloneable, Map<K, V> {
@@ -25,6 +27,9 @@ public class LinHashMap<K, V> extends AbstractMap<K, V> implements
 	/** The max load factor for the hashtable */
 	private static final float LOAD_FACTOR = .75f;
 	
+	/** The min load factor for the hashtable (below it, buckets are merged) */
+	private static final float MIN_LOAD_FACTOR = .5f;
+	
 	/** The class for type K. */
 	private final Class<K> classK;
 	
@@ -49,8 +54,8 @@ public class LinHashMap<K, V> extends AbstractMap<K, V> implements
 		} // constructor
 	} // Bucket inner class
 	
-	/** The list of buckets making up the hash table */
-	private final List<Bucket> hTable;
+	/** The list of buckets making up the hash table (streamed by writeObject) */
+	private transient List<Bucket> hTable;
 	
 	/** The modulus for low resolution hashing */
 	private int mod1;
@@ -67,6 +72,9 @@ public class LinHashMap<K, V> extends AbstractMap<K, V> implements
 	/** Number of pairs currently held in the hash map */
 	private int pairs = 0;
 	
+	/** The initial number of home buckets, which contraction stops at. */
+	private int minBuckets;
+	
 	/********************************************************************************
 	 * Construct a hash table that uses Linear Hashing.
 	 * 
@@ -81,7 +89,7 @@ public class LinHashMap<K, V> extends AbstractMap<K, V> implements
 		for (int i = 0; i < initSize; i++) {
 			hTable.add(new Bucket(null));
 		}// for
-		mod1 = initSize;
+		mod1 = minBuckets = initSize;
 		mod2 = 2 * mod1;
 	} // constructor
 	
@@ -164,21 +172,28 @@ public class LinHashMap<K, V> extends AbstractMap<K, V> implements
 	 * 
 	 * @param key   the key to insert
 	 * @param value the value to insert
-	 * @return      null (not the previous value)
+	 * @return      the previous value for the key (null if it was absent)
 	 */
 	public V put(K key, V value) {
-		// prevent storage of duplicates, don't increment this.count here
-		if (value == this.get(key, false)) {
-			return null;
-		}// if
-		
 		// determine index in hashtable where the value needs to be put
 		int i = hash(key);
+		
+		// replace the value of an existing key, don't increment this.count here
+		for (Bucket b = hTable.get(i); b != null; b = b.next) {
+			for (int j = 0; j < b.nKeys; j++) {
+				if (key.equals(b.key[j])) {
+					V old = b.value[j];
+					b.value[j] = value;
+					return old;
+				}// if
+			}// for
+		}// for
+		
 		insert(key, value, i);
 		pairs++;
 		
 		// determine if a bucket needs to be split
-		if (pairs / size() > LOAD_FACTOR) {
+		if (pairs / capacity() > LOAD_FACTOR) {
 			// extend hashtable by one
 			hTable.add(new Bucket(null));
 			
@@ -220,14 +235,162 @@ public class LinHashMap<K, V> extends AbstractMap<K, V> implements
 	} // put
 	
 	/********************************************************************************
-	 * Return the size (SLOTS * number of home buckets) of the hash table.
+	 * Put all the pairs of the given map in the hash table. An empty hash table
+	 * first gets as many home buckets as put would split it into for that many
+	 * pairs (one per SLOTS pairs), so no bucket is split while they are inserted.
+	 * 
+	 * @param m the map whose pairs to put
+	 */
+	@Override
+	public void putAll(Map<? extends K, ? extends V> m) {
+		int buckets = m.size() / SLOTS;
+		if (pairs == 0 && split == 0 && buckets > mod1) {
+			hTable = new ArrayList<>(buckets);
+			for (int i = 0; i < buckets; i++) {
+				hTable.add(new Bucket(null));
+			}// for
+			mod1 = buckets;
+			mod2 = 2 * mod1;
+		}// if
+		
+		for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+			put(e.getKey(), e.getValue());
+		}// for
+	} // putAll
+	
+	/********************************************************************************
+	 * Remove the key and its value from the hash table. The hole left in the
+	 * key's bucket chain is filled with the chain's last pair, so only the last
+	 * bucket of a chain is ever partly full, and an overflow bucket emptied this
+	 * way is dropped. Once the load falls below MIN_LOAD_FACTOR the table is
+	 * contracted (see contract).
+	 * 
+	 * @param key the key to remove
+	 * @return    the value the key had (null if it was absent)
+	 */
+	public V remove(Object key) {
+		Bucket home = hTable.get(hash(key));
+		for (Bucket b = home; b != null; b = b.next) {
+			for (int j = 0; j < b.nKeys; j++) {
+				if (key.equals(b.key[j])) {
+					V old = b.value[j];
+					
+					// move the last pair of the chain into the hole
+					Bucket before = null, last = home;
+					while (last.next != null) {
+						before = last;
+						last = last.next;
+					}// while
+					int n = --last.nKeys;
+					b.key[j] = last.key[n];
+					b.value[j] = last.value[n];
+					last.key[n] = null;
+					last.value[n] = null;
+					if (n == 0 && before != null) {
+						before.next = null;
+					}// if
+					
+					pairs--;
+					contract();
+					return old;
+				}// if
+			}// for
+		}// for
+		return null;
+	} // remove
+	
+	/********************************************************************************
+	 * Undo splits while the load is below MIN_LOAD_FACTOR: the split pointer
+	 * moves back one bucket (or, at the start of a round, the moduli are halved
+	 * and it moves to the end of the previous round) and the last bucket, the
+	 * image of the one it now points at, is merged back into that bucket. The
+	 * table never contracts below its initial number of home buckets.
+	 */
+	private void contract() {
+		while (pairs < MIN_LOAD_FACTOR * capacity() && (split > 0 || (mod1 > minBuckets && mod1 % 2 == 0))) {
+			if (split == 0) {
+				mod1 /= 2;
+				mod2 /= 2;
+				split = mod1;
+			}// if
+			split--;
+			
+			// every key in the last bucket hashes (low resolution) to the split bucket
+			Bucket image = hTable.remove(hTable.size() - 1);
+			for (Bucket b = image; b != null; b = b.next) {
+				for (int j = 0; j < b.nKeys; j++) {
+					insert(b.key[j], b.value[j], split);
+				}// for
+			}// for
+		}// while
+	} // contract
+	
+	/********************************************************************************
+	 * Return the size (number of key-value pairs) of the hash table.
 	 * 
 	 * @return the size of the hash table
 	 */
 	public int size() {
-		return SLOTS * (mod1 + split);
+		return pairs;
 	} // size
 	
+	/********************************************************************************
+	 * Return the capacity (SLOTS * number of home buckets) of the hash table.
+	 * 
+	 * @return the capacity of the hash table
+	 */
+	private int capacity() {
+		return SLOTS * (mod1 + split);
+	} // capacity
+	
+	/********************************************************************************
+	 * Serialize the hash table compactly: the split pointer and moduli (default
+	 * fields), then for each home bucket the number of pairs in its chain
+	 * followed by the pairs themselves.
+	 * 
+	 * @param stream the stream to write to
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void writeObject(ObjectOutputStream stream) throws IOException {
+		stream.defaultWriteObject();
+		stream.writeInt(hTable.size());
+		for (Bucket home : hTable) {
+			int n = 0;
+			for (Bucket b = home; b != null; b = b.next) {
+				n += b.nKeys;
+			}
+			stream.writeInt(n);
+			for (Bucket b = home; b != null; b = b.next) {
+				for (int j = 0; j < b.nKeys; j++) {
+					stream.writeObject(b.key[j]);
+					stream.writeObject(b.value[j]);
+				}
+			}
+		}// for
+	} // writeObject
+	
+	/********************************************************************************
+	 * Rebuild a serialized hash table. Each pair goes straight back into the
+	 * chain of its recorded home bucket, so nothing is rehashed or split.
+	 * 
+	 * @param stream the stream to read from
+	 * @throws IOException            if the stream cannot be read
+	 * @throws ClassNotFoundException if a key or value class cannot be found
+	 */
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+		stream.defaultReadObject();
+		int buckets = stream.readInt();
+		hTable = new ArrayList<>(buckets);
+		for (int i = 0; i < buckets; i++) {
+			hTable.add(new Bucket(null));
+			int n = stream.readInt();
+			for (int j = 0; j < n; j++) {
+				insert((K) stream.readObject(), (V) stream.readObject(), i);
+			}
+		}// for
+	} // readObject
+	
 	/********************************************************************************
 	 * Print the hash table.
 	 */
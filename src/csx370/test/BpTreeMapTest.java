@@ -0,0 +1,278 @@
+package csx370.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import csx370.operator.KeyType;
+import csx370.operator.Table;
+import csx370.structure.BpTreeMap;
+
+/**
+ * B+Tree maps of various orders vs TreeMap tests
+ */
+public class BpTreeMapTest {
+	/** Orders to build trees of, odd and even, narrow and wide */
+	private static final int[] ORDERS = { 3, 4, 5, 8, 17, 32, 64, 128, 256 };
+	
+	/** Number of keys put in each tree */
+	private static final int KEYS = 20000;
+	
+	/**
+	 * Print the average lookup latency against the order, for Integer keys and
+	 * for (String) KeyType keys, in trees of 5M keys
+	 */
+	public static void main(String[] args) {
+		int n = (args.length > 0) ? Integer.parseInt(args[0]) : 5000000;
+		Random rand = new Random(1);
+		Integer[] ints = new Integer[n];
+		KeyType[] strings = new KeyType[n];
+		for (int i = 0; i < n; i++) {
+			ints[i] = rand.nextInt();
+			strings[i] = new KeyType("key" + ints[i]);
+		}
+		System.out.println("order\tInteger ns/get\tKeyType ns/get");
+		for (int order : new int[] { 5, 8, 16, 32, 64, 128, 256 }) {
+			System.out.println(order + "\t" + lookupTime(ints, order) + "\t" + lookupTime(strings, order));
+		}
+	}// main
+	
+	/**
+	 * Return the average time in ns of looking up every key of a tree of the
+	 * given order in random order (best of 3 passes)
+	 */
+	private static <K extends Comparable<K>> long lookupTime(K[] keys, int order) {
+		@SuppressWarnings("unchecked")
+		BpTreeMap<K, Integer> map = new BpTreeMap<>((Class<K>) keys[0].getClass(), Integer.class, order);
+		for (int i = 0; i < keys.length; i++) {
+			map.put(keys[i], i);
+		}
+		long best = Long.MAX_VALUE, sum = 0;
+		for (int pass = 0; pass < 3; pass++) {
+			long begin = System.nanoTime();
+			for (K k : keys) {
+				sum += map.get(k);
+			}
+			best = Math.min(best, (System.nanoTime() - begin) / keys.length);
+		}
+		return (sum == 0) ? -1 : best;
+	}
+	
+	/**
+	 * Check a B+Tree holds exactly the pairs of the TreeMap, in order
+	 */
+	private static void check(String name, TreeMap<Integer, Integer> expected, BpTreeMap<Integer, Integer> map) {
+		assertEquals(name + " Size", expected.size(), map.size());
+		assertEquals(name + " Order", new ArrayList<>(expected.entrySet()), new ArrayList<>(map.entrySet()));
+		for (Map.Entry<Integer, Integer> e : expected.entrySet()) {
+			assertEquals(name + " Get", e.getValue(), map.get(e.getKey()));
+		}
+		assertEquals(name + " First", expected.firstKey(), map.firstKey());
+		assertEquals(name + " Last", expected.lastKey(), map.lastKey());
+	}
+	
+	/**
+	 * Random, ascending and descending puts (with duplicates, which return the
+	 * replaced value) into trees of every order leave them holding the same
+	 * pairs as a TreeMap
+	 */
+	@Test
+	public void orderTest() {
+		Random rand = new Random(370);
+		for (int order : ORDERS) {
+			TreeMap<Integer, Integer> expected = new TreeMap<>();
+			BpTreeMap<Integer, Integer> random = new BpTreeMap<>(Integer.class, Integer.class, order);
+			BpTreeMap<Integer, Integer> ascending = new BpTreeMap<>(Integer.class, Integer.class, order);
+			BpTreeMap<Integer, Integer> descending = new BpTreeMap<>(Integer.class, Integer.class, order);
+			for (int i = 0; i < KEYS; i++) {
+				int k = rand.nextInt(2 * KEYS);
+				assertEquals("Previous " + order, expected.put(k, i), random.put(k, i));
+			}
+			for (int i = 0; i < KEYS; i++) {
+				ascending.put(i, 31 * i);
+				descending.put(KEYS - 1 - i, 31 * (KEYS - 1 - i));
+			}
+			assertEquals("Order", order, random.order());
+			check("Random " + order, expected, random);
+			for (int i = -1; i <= 2 * KEYS; i += 3) {
+				if (!expected.containsKey(i)) {
+					assertNull("Missing " + order, random.get(i));
+				}
+			}
+			
+			expected.clear();
+			for (int i = 0; i < KEYS; i++) {
+				expected.put(i, 31 * i);
+			}
+			check("Ascending " + order, expected, ascending);
+			check("Descending " + order, expected, descending);
+		}
+	}
+	
+	/**
+	 * Range views hold the same pairs as the TreeMap's, follow later puts into
+	 * the tree and reject keys outside their range
+	 */
+	@Test
+	public void rangeTest() {
+		Random rand = new Random(23);
+		for (int order : new int[] { 3, 4, 16, 64 }) {
+			TreeMap<Integer, Integer> expected = new TreeMap<>();
+			BpTreeMap<Integer, Integer> map = new BpTreeMap<>(Integer.class, Integer.class, order);
+			for (int i = 0; i < KEYS; i++) {
+				int k = rand.nextInt(4 * KEYS);
+				expected.put(k, i);
+				map.put(k, i);
+			}
+			for (int q = 0; q < 200; q++) {
+				int lo = rand.nextInt(4 * KEYS + 2) - 1, hi = lo + rand.nextInt(KEYS / 10);
+				SortedMap<Integer, Integer> sub = map.subMap(lo, hi);
+				assertEquals("Sub " + order, new ArrayList<>(expected.subMap(lo, hi).entrySet()),
+						new ArrayList<>(sub.entrySet()));
+				assertEquals("Sub Size " + order, expected.subMap(lo, hi).size(), sub.size());
+				assertEquals("Head " + order, expected.headMap(hi).size(), map.headMap(hi).size());
+				assertEquals("Tail " + order, new ArrayList<>(expected.tailMap(hi).keySet()),
+						new ArrayList<>(map.tailMap(hi).keySet()));
+				if (!expected.subMap(lo, hi).isEmpty()) {
+					assertEquals("Sub First " + order, expected.subMap(lo, hi).firstKey(), sub.firstKey());
+					assertEquals("Sub Last " + order, expected.subMap(lo, hi).lastKey(), sub.lastKey());
+				}
+				assertEquals("Head Last " + order, expected.headMap(lo).isEmpty() ? null : expected.headMap(lo).lastKey(),
+						map.headMap(lo).isEmpty() ? null : map.headMap(lo).lastKey());
+			}
+			
+			// views are not copies: they see later puts
+			SortedMap<Integer, Integer> view = map.subMap(-10, 0);
+			assertEquals("Empty View", 0, view.size());
+			map.put(-5, 5);
+			assertEquals("Live View", Integer.valueOf(5), view.get(-5));
+			assertEquals("Live First", Integer.valueOf(-5), map.firstKey());
+			assertEquals("Nested View", 1, view.tailMap(-6).headMap(-4).size());
+			try {
+				view.put(1, 1);
+				fail("Put Out Of Range");
+			} catch (IllegalArgumentException ex) {
+				// expected
+			}
+		}
+		
+		try {
+			new BpTreeMap<>(Integer.class, Integer.class).firstKey();
+			fail("First Of Empty");
+		} catch (NoSuchElementException ex) {
+			// expected
+		}
+	}
+	
+	/**
+	 * Bulk loaded trees hold the same pairs as the TreeMap at every fill factor,
+	 * get no taller as it grows (packed full, no taller than put-built ones) and
+	 * take later puts; unsorted keys, bad fill factors and non-empty maps are
+	 * rejected
+	 */
+	@Test
+	public void bulkLoadTest() {
+		Random rand = new Random(24);
+		for (int order : new int[] { 3, 4, 5, 16, 64 }) {
+			for (int n : new int[] { 0, 1, 2, order, 5 * order + 1, KEYS }) {
+				TreeMap<Integer, Integer> expected = new TreeMap<>();
+				BpTreeMap<Integer, Integer> put = new BpTreeMap<>(Integer.class, Integer.class, order);
+				while (expected.size() < n) {
+					int k = rand.nextInt(4 * KEYS);
+					expected.put(k, 31 * k);
+					put.put(k, 31 * k);
+				}
+				int previous = Integer.MAX_VALUE;
+				for (double fill : new double[] { 0.1, 0.5, 0.7, 1.0 }) {
+					BpTreeMap<Integer, Integer> map = new BpTreeMap<>(Integer.class, Integer.class, order);
+					map.bulkLoad(expected.entrySet(), fill);
+					String name = "Bulk " + order + " " + n + " " + fill;
+					if (n > 0) {
+						check(name, expected, map);
+					}
+					assertEquals(name + " Empty", n == 0, map.isEmpty());
+					assertEquals(name + " Height", true, fill < 1 || map.height() <= put.height());
+					assertEquals(name + " Denser", true, map.height() <= previous);
+					previous = map.height();
+					
+					TreeMap<Integer, Integer> more = new TreeMap<>(expected);
+					for (int i = 0; i < 2 * order; i++) {
+						int k = rand.nextInt(4 * KEYS);
+						assertEquals(name + " Put", more.put(k, i), map.put(k, i));
+					}
+					check(name + " Put", more, map);
+				}
+			}
+		}
+		
+		BpTreeMap<Integer, Integer> map = new BpTreeMap<>(Integer.class, Integer.class);
+		TreeMap<Integer, Integer> unsorted = new TreeMap<>(Collections.reverseOrder());
+		unsorted.put(1, 1);
+		unsorted.put(2, 2);
+		for (double fill : new double[] { 0, -1, 1.5, Double.NaN }) {
+			try {
+				map.bulkLoad(unsorted.entrySet(), fill);
+				fail("Fill " + fill);
+			} catch (IllegalArgumentException ex) {
+				// expected
+			}
+		}
+		try {
+			map.bulkLoad(unsorted.entrySet(), 1.0);
+			fail("Unsorted");
+		} catch (IllegalArgumentException ex) {
+			// expected
+		}
+		map.put(1, 1);
+		try {
+			map.bulkLoad(new TreeMap<Integer, Integer>().entrySet(), 1.0);
+			fail("Not Empty");
+		} catch (IllegalStateException ex) {
+			// expected
+		}
+	}
+	
+	/**
+	 * Orders below 3 are rejected
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidOrderTest() {
+		new BpTreeMap<>(Integer.class, Integer.class, 2);
+	}
+	
+	/**
+	 * Tables select a B+Tree order through their structure ("BPTreeMap:64"),
+	 * which is kept when the table is saved and reloaded
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void tableTest() {
+		Table t = new Table("BpTreeMapTest", "id name", "Integer String", "id", "BPTreeMap:64");
+		for (int i = 0; i < KEYS; i++) {
+			t.insert(new Comparable[] { i, "name" + i });
+		}
+		for (int i = 0; i < KEYS; i += 7) {
+			assertEquals("Key Select", 1, t.select(new KeyType(i)).select(x -> true).size());
+		}
+		t.save();
+		Table back = Table.load("BpTreeMapTest");
+		for (int i = 0; i < KEYS; i += 7) {
+			assertEquals("Loaded Key Select", 1, back.select(new KeyType(i)).select(x -> true).size());
+		}
+		Table mapped = Table.map("BpTreeMapTest");
+		assertEquals("Mapped Key Select", 1, mapped.select(new KeyType(7)).select(x -> true).size());
+		for (String ext : new String[] { ".dbf", ".idx", ".wal" }) {
+			new java.io.File("store" + java.io.File.separator + "BpTreeMapTest" + ext).delete();
+		}
+	}
+}
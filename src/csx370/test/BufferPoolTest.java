@@ -0,0 +1,144 @@
+package csx370.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import csx370.operator.KeyType;
+import csx370.operator.Table;
+import csx370.storage.BufferPool;
+
+/**
+ * Buffer pool pin/unpin, eviction and write back tests
+ */
+public class BufferPoolTest {
+	/** Number of pages in the test file */
+	private static final int PAGES = 10;
+	
+	/** The test file (page p is filled with byte p) */
+	private static final Path FILE = Paths.get("store", "BufferPoolTest.dat");
+	
+	/**
+	 * Set up Data
+	 */
+	@BeforeClass
+	public static void setUpBeforeClass() throws IOException {
+		new File("store").mkdir();
+		byte[] bytes = new byte[PAGES * BufferPool.PAGE_SIZE];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) (i / BufferPool.PAGE_SIZE);
+		}
+		Files.write(FILE, bytes);
+	}
+	
+	/**
+	 * Remove the test files
+	 */
+	@AfterClass
+	public static void tearDownAfterClass() throws IOException {
+		BufferPool.shared().invalidate(FILE);
+		Files.deleteIfExists(FILE);
+		new File("store" + File.separator + "BufferPoolTest.dbf").delete();
+		new File("store" + File.separator + "BufferPoolTest.idx").delete();
+		new File("store" + File.separator + "BufferPoolTest.wal").delete();
+	}
+	
+	/**
+	 * A cached page is a hit, a missing one a miss
+	 */
+	@Test
+	public void hitTest() throws IOException {
+		BufferPool pool = new BufferPool(4 * BufferPool.PAGE_SIZE);
+		assertEquals("Frames", 4, pool.frames());
+		for (int k = 0; k < 3; k++) {
+			ByteBuffer b = pool.pin(FILE, 7);
+			assertEquals("Contents", 7, b.get(100));
+			pool.unpin(FILE, 7, false);
+		}
+		assertEquals("Misses", 1, pool.misses());
+		assertEquals("Hits", 2, pool.hits());
+		assertEquals("Past End", 0, pool.copy(FILE, PAGES).get(0));
+	}
+	
+	/**
+	 * CLOCK gives referenced frames a second chance
+	 */
+	@Test
+	public void clockTest() throws IOException {
+		BufferPool pool = new BufferPool(3 * BufferPool.PAGE_SIZE);
+		for (int p = 0; p < 3; p++) {
+			pool.copy(FILE, p);
+		}
+		pool.copy(FILE, 3); // clears every reference bit, then evicts page 0
+		assertEquals("Evictions", 1, pool.evictions());
+		pool.copy(FILE, 1); // the hand points at page 1, but it is referenced again
+		pool.copy(FILE, 4); // so page 1 gets a second chance and page 2 goes
+		assertEquals("Hits", 1, pool.hits());
+		pool.copy(FILE, 1);
+		assertEquals("Second Chance", 2, pool.hits());
+		pool.copy(FILE, 2);
+		assertEquals("Evicted", 6, pool.misses());
+	}
+	
+	/**
+	 * Pinned frames are never evicted
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void pinnedTest() throws IOException {
+		BufferPool pool = new BufferPool(2 * BufferPool.PAGE_SIZE);
+		pool.pin(FILE, 0);
+		pool.pin(FILE, 1);
+		pool.pin(FILE, 2);
+	}
+	
+	/**
+	 * Dirty pages are written back on flush and on eviction
+	 */
+	@Test
+	public void dirtyTest() throws IOException {
+		BufferPool pool = new BufferPool(2 * BufferPool.PAGE_SIZE);
+		pool.pin(FILE, 8).put(0, (byte) 42);
+		pool.unpin(FILE, 8, true);
+		pool.flush(FILE);
+		assertEquals("Flushed", 42, Files.readAllBytes(FILE)[8 * BufferPool.PAGE_SIZE]);
+		
+		pool.pin(FILE, 9).put(0, (byte) 43);
+		pool.unpin(FILE, 9, true);
+		for (int p = 0; p < 4; p++) {
+			pool.copy(FILE, p);
+		}
+		assertEquals("Written Back", 43, Files.readAllBytes(FILE)[9 * BufferPool.PAGE_SIZE]);
+		assertEquals("Reread", 43, pool.copy(FILE, 9).get(0));
+	}
+	
+	/**
+	 * Repeated key lookups on a mapped table are served from the shared pool
+	 */
+	@Test
+	public void indexTest() {
+		Table t = new Table("BufferPoolTest", "id name", "Integer String", "id", "BPTreeMap");
+		for (int i = 0; i < 20000; i++) {
+			t.insert(new Comparable<?>[] { i, "name" + i });
+		}
+		t.save();
+		
+		Table m = Table.map("BufferPoolTest");
+		for (int i = 0; i < 20000; i += 97) {
+			assertEquals("Lookup", 1, m.select(new KeyType(i)).size());
+		}
+		long misses = BufferPool.shared().misses();
+		for (int i = 0; i < 20000; i += 97) {
+			assertEquals("Lookup Again", 1, m.select(new KeyType(i)).size());
+		}
+		assertEquals("No Rereads", misses, BufferPool.shared().misses());
+	}
+}
@@ -0,0 +1,113 @@
+package csx370.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import csx370.impl.TupleGenerator;
+import csx370.impl.TupleGeneratorImpl;
+import csx370.operator.KeyType;
+import csx370.operator.Table;
+
+/**
+ * Bulk loaded tables vs tables loaded one insert at a time tests
+ */
+public class BulkLoadTest {
+	/** Number of tuples per table */
+	private static final int TUPLES = 20000;
+	
+	/** Data structures to index with */
+	private static final String[] STRUCTURES = { "TreeMap", "BPTreeMap", "LinHashMap", "ExtHashMap" };
+	
+	/** Generated Random Data Storage */
+	@SuppressWarnings("rawtypes")
+	private static Comparable[][] data;
+	
+	/**
+	 * Generate Data
+	 */
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		TupleGenerator test = new TupleGeneratorImpl();
+		test.addRelSchema("Teaching", "crsCode semester profId", "String String Integer", "crsCode semester", null);
+		data = test.generate(new int[] { TUPLES })[0];
+	}
+	
+	/**
+	 * Create an empty Teaching table
+	 */
+	private static Table teaching(String ds) {
+		return new Table("Teaching", "crsCode semester profId", "String String Integer", "crsCode semester", ds);
+	}
+	
+	/**
+	 * Every tuple is found under its key, as after inserting them one at a time
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void indexTest() {
+		for (String ds : STRUCTURES) {
+			Table inserted = teaching(ds);
+			for (Comparable[] tup : data) {
+				inserted.insert(tup);
+			}
+			Table loaded = teaching(ds);
+			assertEquals(ds + " Loaded", TUPLES, loaded.bulkLoad(data));
+			assertEquals(ds + " Size", inserted.size(), loaded.size());
+			for (Comparable[] tup : data) {
+				KeyType k = new KeyType(new Comparable[] { tup[0], tup[1] });
+				assertEquals(ds + " Key Select", 1, loaded.select(k).size());
+			}
+			assertEquals(ds + " Missing Key", 0,
+					loaded.select(new KeyType(new Comparable[] { "none", "none" })).size());
+		}
+	}
+	
+	/**
+	 * Later tuples with the same key win, and tuples failing the type check are skipped
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void duplicateTest() {
+		Comparable[] first = { "crsCode1", "semester1", 1 };
+		Comparable[] second = { "crsCode1", "semester1", 2 };
+		Comparable[][] rows = { first, { "crsCode2", "semester2", "3" }, { "crsCode3", "semester3" }, null, second };
+		// (a LinHashMap keeps the first value put for a key)
+		for (String ds : new String[] { "TreeMap", "BPTreeMap", "ExtHashMap" }) {
+			Table loaded = teaching(ds);
+			assertEquals(ds + " Valid", 2, loaded.bulkLoad(rows));
+			KeyType k = new KeyType(new Comparable[] { "crsCode1", "semester1" });
+			assertEquals(ds + " Last Wins", 1, loaded.select(k).select(t -> t[2].equals(2)).size());
+			assertEquals(ds + " Skipped", 0,
+					loaded.select(new KeyType(new Comparable[] { "crsCode2", "semester2" })).size());
+		}
+	}
+	
+	/**
+	 * A second bulk load goes into a non-empty index, and the stream variant
+	 * and columnar tables load the same tuples
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void appendTest() {
+		for (String ds : STRUCTURES) {
+			Table loaded = teaching(ds);
+			loaded.bulkLoad(Arrays.copyOf(data, TUPLES / 2));
+			loaded.bulkLoad(Arrays.stream(data, TUPLES / 2, TUPLES));
+			for (int i = 0; i < TUPLES; i += 7) {
+				KeyType k = new KeyType(new Comparable[] { data[i][0], data[i][1] });
+				assertEquals(ds + " Appended", 1, loaded.select(k).size());
+			}
+			assertEquals(ds + " Appended Size", TUPLES, loaded.select(t -> true).size());
+		}
+		
+		Table columnar = new Table("Teaching", "crsCode semester profId".split(" "),
+				new Class[] { String.class, String.class, Integer.class }, "crsCode semester".split(" "), "BPTreeMap",
+				true);
+		columnar.bulkLoad(data);
+		assertEquals("Columnar Size", TUPLES, columnar.select(t -> true).size());
+	}
+}
@@ -0,0 +1,105 @@
+package csx370.test;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import csx370.impl.TupleGenerator;
+import csx370.impl.TupleGeneratorImpl;
+import csx370.operator.Table;
+
+/**
+ * Row storage vs columnar storage tests
+ */
+public class ColumnarTableTest {
+	/** Number of tuples per table */
+	private static final int TUPLES = 2000;
+
+	/** Row store tables */
+	private static Table Student, Professor, Teaching;
+
+	/** Column store tables */
+	private static Table Student_Col, Professor_Col, Teaching_Col;
+
+	/** Generated Random Data Storage */
+	@SuppressWarnings("rawtypes")
+	private static Comparable[][][] data;
+
+	/**
+	 * Set up Tables and Data
+	 */
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		Student = new Table("Student", "id name address status", "Integer String String String", "id", "TreeMap");
+		Professor = new Table("Professor", "id name deptId", "Integer String String", "id", "TreeMap");
+		Teaching = new Table("Teaching", "crsCode semester profId", "String String Integer", "crsCode semester", "TreeMap");
+
+		Student_Col = new Table("Student", "id name address status", "Integer String String String", "id", "TreeMap", true);
+		Professor_Col = new Table("Professor", "id name deptId", "Integer String String", "id", "TreeMap", true);
+		Teaching_Col = new Table("Teaching", "crsCode semester profId", "String String Integer", "crsCode semester", "TreeMap", true);
+
+		TupleGenerator test = new TupleGeneratorImpl();
+		test.addRelSchema("Student", "id name address status", "Integer String String String", "id", null);
+		test.addRelSchema("Professor", "id name deptId", "Integer String String", "id", null);
+		test.addRelSchema("Teaching", "crsCode semester profId", "String String Integer", "crsCode semester",
+				new String[][] { { "profId", "Professor", "id" } });
+		data = test.generate(new int[] { TUPLES, TUPLES, TUPLES });
+
+		for (int i = 0; i < TUPLES; i++) {
+			Student.insert(data[0][i]);
+			Student_Col.insert(data[0][i]);
+			Professor.insert(data[1][i]);
+			Professor_Col.insert(data[1][i]);
+			Teaching.insert(data[2][i]);
+			Teaching_Col.insert(data[2][i]);
+		}
+	}
+
+	/**
+	 * Both storage modes hold every tuple
+	 */
+	@Test
+	public void sizeTest() {
+		assertEquals("Student Table Size", Student.size(), Student_Col.size());
+		assertEquals("Professor Table Size", Professor.size(), Professor_Col.size());
+		assertEquals("Teaching Table Size", Teaching.size(), Teaching_Col.size());
+	}
+
+	/**
+	 * Sequential select agrees between storage modes
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void selectTest() {
+		for (int i = 0; i < 100; i++) {
+			Comparable[] instance = data[0][i];
+			Table row = Student.select(t -> t[Student.col("name")].equals(instance[1])
+					&& t[Student.col("status")].equals(instance[3]));
+			Table col = Student_Col.select(t -> t[Student_Col.col("name")].equals(instance[1])
+					&& t[Student_Col.col("status")].equals(instance[3]));
+			assertEquals("Student Select Size", row.size(), col.size());
+		}
+	}
+
+	/**
+	 * Projection agrees between storage modes
+	 */
+	@Test
+	public void projectTest() {
+		assertEquals("Student Project Size", Student.project("id name").size(),
+				Student_Col.project("id name").size());
+		assertEquals("Teaching Project Size", Teaching.project("semester").size(),
+				Teaching_Col.project("semester").size());
+	}
+
+	/**
+	 * Indexed join agrees between storage modes
+	 */
+	@Test
+	public void joinTest() {
+		assertEquals("Teaching Join Size", Teaching.join("profId", "id", Professor).size(),
+				Teaching_Col.join("profId", "id", Professor_Col).size());
+		assertEquals("Teaching Join Size", TUPLES, Teaching_Col.join("profId", "id", Professor).size());
+	}
+}
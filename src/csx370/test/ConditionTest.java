@@ -0,0 +1,87 @@
+package csx370.test;
+
+import static csx370.operator.Condition.Op.*;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import csx370.impl.TupleGenerator;
+import csx370.impl.TupleGeneratorImpl;
+import csx370.operator.Table;
+
+/**
+ * Lambda select vs condition (where/and) select tests
+ */
+public class ConditionTest {
+	/** Number of tuples per table */
+	private static final int TUPLES = 5000;
+
+	/** Row store and column store tables */
+	private static Table Student, Student_Col;
+
+	/** Generated Random Data Storage */
+	@SuppressWarnings("rawtypes")
+	private static Comparable[][] data;
+
+	/**
+	 * Set up Tables and Data
+	 */
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		Student = new Table("Student", "id name address status", "Integer String String String", "id", "TreeMap");
+		Student_Col = new Table("Student", "id name address status", "Integer String String String", "id", "TreeMap", true);
+
+		TupleGenerator test = new TupleGeneratorImpl();
+		test.addRelSchema("Student", "id name address status", "Integer String String String", "id", null);
+		data = test.generate(new int[] { TUPLES })[0];
+
+		for (Comparable<?>[] tup : data) {
+			Student.insert(tup);
+			Student_Col.insert(tup);
+		}
+	}
+
+	/**
+	 * Three attributes ANDed
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void conjunctionTest() {
+		for (int i = 0; i < 200; i++) {
+			Comparable[] instance = data[i];
+			int expected = Student.select(t -> t[Student.col("name")].equals(instance[1])
+					&& t[Student.col("address")].equals(instance[2])
+					&& t[Student.col("status")].equals(instance[3])).size();
+
+			assertEquals("Row Condition Select", expected, Student.where("name", EQ, instance[1])
+					.and("address", EQ, instance[2]).and("status", EQ, instance[3]).select().size());
+			assertEquals("Column Condition Select", expected, Student_Col.where("name", EQ, instance[1])
+					.and("address", EQ, instance[2]).and("status", EQ, instance[3]).select().size());
+		}
+	}
+
+	/**
+	 * Range conditions on integer and string columns
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void rangeTest() {
+		Integer id = (Integer) data[TUPLES / 2][0];
+		String name = (String) data[TUPLES / 2][1];
+
+		int expected = Student.select(t -> t[0].compareTo(id) < 0 && t[1].compareTo(name) >= 0).size();
+		assertEquals("Row Range Select", expected, Student.where("id", LT, id).and("name", GE, name).select().size());
+		assertEquals("Column Range Select", expected,
+				Student_Col.where("id", LT, id).and("name", GE, name).select().size());
+		assertEquals("Column Not Equal Select", TUPLES - 1, Student_Col.where("id", NE, id).select().size());
+	}
+
+	/**
+	 * Unknown attributes and values outside the domain are rejected up front
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void domainTest() {
+		Student.where("id", EQ, "not an integer");
+	}
+}
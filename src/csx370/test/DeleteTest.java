@@ -0,0 +1,249 @@
+package csx370.test;
+
+import static csx370.operator.Condition.Op.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Future;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import csx370.operator.Cursor;
+import csx370.operator.KeyType;
+import csx370.operator.Table;
+import csx370.structure.BpTreeMap;
+import csx370.structure.ExtHashMap;
+import csx370.structure.LinHashMap;
+
+/**
+ * Deletes and updates vs TreeMap tests
+ */
+public class DeleteTest {
+	/** Number of keys (and tuples) to start from */
+	private static final int KEYS = 20000;
+	
+	/** Data structures to index with */
+	private static final String[] STRUCTURES = { "TreeMap", "BPTreeMap", "LinHashMap", "ExtHashMap" };
+	
+	/** Statuses of the generated students */
+	private static final String[] STATUS = { "UG", "G", "PhD" };
+	
+	/**
+	 * Remove the saved tables
+	 */
+	@AfterClass
+	public static void tearDownAfterClass() {
+		for (String ds : STRUCTURES) {
+			for (String ext : new String[] { ".dbf", ".idx", ".wal" }) {
+				new File("store" + File.separator + "DeleteTest" + ds + ext).delete();
+			}
+		}
+	}
+	
+	/**
+	 * Return the tallest a B+Tree of the given order holding n keys can be, with
+	 * every node but the root at least half full
+	 */
+	private static int maxHeight(int n, int order) {
+		int h = 1;
+		for (long min = 2L * (order / 2); min <= n; min *= order - order / 2) {
+			h++;
+		}
+		return h;
+	}
+	
+	/**
+	 * Create the i-th student
+	 */
+	@SuppressWarnings("rawtypes")
+	private static Comparable[] student(int i) {
+		return new Comparable[] { i, "name" + i, "addr" + (i % 50), STATUS[i % STATUS.length] };
+	}
+	
+	/**
+	 * Puts and removes mixed at random, growing and then shrinking each map,
+	 * leave it holding the same pairs as a TreeMap, with B+Trees no taller than
+	 * half full nodes allow; emptied maps take puts again
+	 */
+	@Test
+	public void mapRemoveTest() {
+		List<Map<Integer, Integer>> maps = new ArrayList<>();
+		for (int order : new int[] { 3, 4, 5, 64 }) {
+			maps.add(new BpTreeMap<>(Integer.class, Integer.class, order));
+		}
+		maps.add(new LinHashMap<>(Integer.class, Integer.class, 4));
+		maps.add(new ExtHashMap<>(Integer.class, Integer.class, 4));
+		
+		Random rand = new Random(25);
+		for (Map<Integer, Integer> map : maps) {
+			String name = (map instanceof BpTreeMap) ? "BpTreeMap " + ((BpTreeMap<?, ?>) map).order()
+					: map.getClass().getSimpleName();
+			TreeMap<Integer, Integer> expected = new TreeMap<>();
+			for (double removes : new double[] { 0.3, 0.8 }) {
+				for (int i = 0; i < 3 * KEYS; i++) {
+					int k = rand.nextInt(2 * KEYS);
+					if (rand.nextDouble() < removes) {
+						assertEquals(name + " Remove", expected.remove(k), map.remove(k));
+					} else {
+						assertEquals(name + " Put", expected.put(k, i), map.put(k, i));
+					}
+				}
+				assertEquals(name + " Size", expected.size(), map.size());
+				assertEquals(name + " Pairs", expected, new HashMap<>(map));
+				for (int k = 0; k < 2 * KEYS; k += 7) {
+					assertEquals(name + " Get", expected.get(k), map.get(k));
+				}
+				if (map instanceof BpTreeMap) {
+					BpTreeMap<Integer, Integer> tree = (BpTreeMap<Integer, Integer>) map;
+					assertEquals(name + " Order", new ArrayList<>(expected.entrySet()), new ArrayList<>(tree.entrySet()));
+					assertEquals(name + " First", expected.firstKey(), tree.firstKey());
+					assertEquals(name + " Last", expected.lastKey(), tree.lastKey());
+					assertEquals(name + " Height " + tree.height(), true,
+							tree.height() <= maxHeight(expected.size(), tree.order()));
+				}
+			}
+			
+			for (Integer k : new ArrayList<>(expected.keySet())) {
+				assertEquals(name + " Remove All", expected.remove(k), map.remove(k));
+			}
+			assertEquals(name + " Empty", 0, map.size());
+			assertNull(name + " Absent", map.remove(1));
+			if (map instanceof BpTreeMap) {
+				assertEquals(name + " Shrunk", 1, ((BpTreeMap<?, ?>) map).height());
+			}
+			map.put(1, 1);
+			assertEquals(name + " Put Again", Integer.valueOf(1), map.get(1));
+		}
+	}
+	
+	/**
+	 * Deletes by key and by predicate and updates (of the key too) leave every
+	 * structure, row or columnar, and its secondary index agreeing with a map
+	 * of the expected tuples
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void tableTest() {
+		for (String ds : STRUCTURES) {
+			for (boolean columnar : new boolean[] { false, true }) {
+				String name = ds + (columnar ? " Columnar" : "");
+				Table t = new Table("Student", "id name address status", "Integer String String String", "id", ds,
+						columnar);
+				Map<Integer, Comparable[]> expected = new HashMap<>();
+				for (int i = 0; i < KEYS; i++) {
+					t.insert(student(i));
+					expected.put(i, student(i));
+				}
+				t.createIndex("status", ds);
+				
+				for (int i = 0; i < KEYS; i += 3) {
+					assertEquals(name + " Delete", true, t.delete(new KeyType(i)));
+					assertEquals(name + " Delete Again", false, t.delete(new KeyType(i)));
+					expected.remove(i);
+				}
+				int addr7 = (int) expected.values().stream().filter(x -> x[2].equals("addr7")).count();
+				assertEquals(name + " Delete Where", addr7, t.delete(x -> x[2].equals("addr7")));
+				expected.values().removeIf(x -> x[2].equals("addr7"));
+				
+				for (int i = 1; i < KEYS; i += 5) {
+					Comparable[] tup = expected.get(i);
+					assertEquals(name + " Update", tup != null, t.update(new KeyType(i), "name status", "new" + i, "G"));
+					if (tup != null) {
+						expected.put(i, new Comparable[] { i, "new" + i, tup[2], "G" });
+					}
+				}
+				for (int i = 2; i < KEYS; i += 11) {
+					Comparable[] tup = expected.remove(i);
+					assertEquals(name + " Update Key", tup != null, t.update(new KeyType(i), "id", i + KEYS));
+					if (tup != null) {
+						expected.put(i + KEYS, new Comparable[] { i + KEYS, tup[1], tup[2], tup[3] });
+					}
+				}
+				assertEquals(name + " Key Taken", false, t.update(new KeyType(1), "id", 4));
+				assertEquals(name + " Wrong Type", false, t.update(new KeyType(1), "name", 5));
+				assertEquals(name + " No Attribute", false, t.update(new KeyType(1), "grade", "A"));
+				
+				assertEquals(name + " Size", expected.size(), t.size());
+				assertEquals(name + " Scan", expected.size(), t.select(x -> true).size());
+				for (int i = 0; i < 2 * KEYS; i++) {
+					Comparable[] tup = expected.get(i);
+					Cursor c = t.select(new KeyType(i)).pipeline().cursor();
+					c.open();
+					if (tup == null) {
+						assertNull(name + " Gone " + i, c.next());
+					} else {
+						assertArrayEquals(name + " Tuple " + i, tup, c.next());
+					}
+					c.close();
+				}
+				for (String status : STATUS) {
+					int n = (int) expected.values().stream().filter(x -> x[3].equals(status)).count();
+					assertEquals(name + " Index " + status, n, t.where("status", EQ, status).select().size());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Deletes and updates after a save are logged and replayed by load, and a
+	 * background snapshot keeps the tuples as they were when it was taken
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void logTest() throws Exception {
+		for (String ds : STRUCTURES) {
+			String name = "DeleteTest" + ds;
+			Table t = new Table(name, "id name address status", "Integer String String String", "id", ds);
+			for (int i = 0; i < KEYS; i++) {
+				t.insert(student(i));
+			}
+			t.save();
+			for (int i = 0; i < KEYS; i += 2) {
+				t.delete(new KeyType(i));
+			}
+			t.update(new KeyType(1), "name", "one");
+			t.update(new KeyType(3), "id", 0);
+			t.insert(student(2));
+			assertEquals(ds + " Commit", true, t.commit());
+			
+			Table back = Table.load(name);
+			assertEquals(ds + " Replayed", KEYS / 2 + 1, back.select(x -> true).size());
+			assertEquals(ds + " Replayed Delete", 0, back.select(new KeyType(4)).size());
+			assertEquals(ds + " Replayed Update", 1, back.select(x -> x[1].equals("one")).size());
+			assertEquals(ds + " Replayed Key Update", 0, back.select(new KeyType(3)).size());
+			assertEquals(ds + " Replayed Moved", 1, back.select(x -> x[0].equals(0) && x[1].equals("name3")).size());
+			
+			// the snapshot keeps the tuples as they were, the log the later changes
+			Future<Boolean> done = back.saveAsync();
+			back.update(new KeyType(5), "name", "five");
+			back.delete(x -> x[2].equals("addr7"));
+			assertEquals(ds + " Snapshot Written", true, done.get());
+			List<Comparable[]> snap = StorageTest.stored(name);
+			assertEquals(ds + " Snapshot Size", KEYS / 2 + 1, snap.size());
+			assertEquals(ds + " Snapshot Old Value", 1, snap.stream().filter(x -> x[1].equals("name5")).count());
+			assertEquals(ds + " Commit Again", true, back.commit());
+			Table again = Table.load(name);
+			assertEquals(ds + " Snapshot Replayed", back.size(), again.size());
+			assertEquals(ds + " Snapshot Replayed Update", 1, again.select(x -> x[1].equals("five")).size());
+			assertEquals(ds + " Snapshot Replayed Delete", 0, again.select(x -> x[2].equals("addr7")).size());
+			
+			// a deleted tuple whose key was inserted again is replayed by value, not by key
+			again.insert(new Comparable[] { 9, "nine", "addr9", STATUS[0] });
+			assertEquals(ds + " Delete Shadowed", 1, again.delete(x -> x[1].equals("name9")));
+			assertEquals(ds + " Commit Shadowed", true, again.commit());
+			Table last = Table.load(name);
+			assertEquals(ds + " Replayed Shadowed", again.size(), last.size());
+			assertEquals(ds + " Replayed Shadowed Key", 1, last.select(x -> x[1].equals("nine")).size());
+			assertEquals(ds + " Replayed Shadowed Delete", 0, last.select(x -> x[1].equals("name9")).size());
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package csx370.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import csx370.impl.TupleGenerator;
+import csx370.impl.TupleGeneratorImpl;
+import csx370.operator.KeyType;
+import csx370.operator.Table;
+import csx370.storage.DelimitedFile;
+
+/**
+ * Imported delimited files vs exported tables tests
+ */
+public class DelimitedFileTest {
+	/** Number of tuples per table */
+	private static final int TUPLES = 5000;
+	
+	/** Directory of the delimited files */
+	private static final Path DIR = Paths.get("store");
+	
+	/** Generated Random Data Storage */
+	@SuppressWarnings("rawtypes")
+	private static Comparable[][] data;
+	
+	/**
+	 * Set up Data
+	 */
+	@BeforeClass
+	public static void setUpBeforeClass() throws IOException {
+		TupleGenerator test = new TupleGeneratorImpl();
+		test.addRelSchema("Student", "id name address status", "Integer String String String", "id", null);
+		data = test.generate(new int[] { TUPLES })[0];
+		Files.createDirectories(DIR);
+	}
+	
+	/**
+	 * Remove the delimited files
+	 */
+	@AfterClass
+	public static void tearDownAfterClass() throws IOException {
+		for (String s : new String[] { "Student.csv", "Student.tsv", "Types.csv", "Bad.csv", "Big.csv" }) {
+			Files.deleteIfExists(DIR.resolve("DelimitedFileTest" + s));
+		}
+	}
+	
+	/**
+	 * Create an empty Student table
+	 */
+	private static Table student() {
+		return new Table("Student", "id name address status", "Integer String String String", "id");
+	}
+	
+	/**
+	 * Exported tables import to the same tuples, comma and tab separated, with
+	 * and without parallel parsing
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void roundTripTest() {
+		Table t = student();
+		t.bulkLoad(data);
+		for (String ext : new String[] { ".csv", ".tsv" }) {
+			Path path = DIR.resolve("DelimitedFileTest" + "Student" + ext);
+			assertEquals(ext + " Exported", true, t.exportDelimited(path));
+			for (boolean parallel : new boolean[] { false, true }) {
+				Table u = student();
+				char delimiter = ext.equals(".csv") ? ',' : '\t';
+				assertEquals(ext + " Imported", TUPLES, u.importDelimited(path, delimiter, true, parallel));
+				for (int i = 0; i < TUPLES; i += 7) {
+					Comparable[] tup = data[i];
+					Table hit = u.select(new KeyType(tup[0]));
+					assertEquals(ext + " Tuple", 1, hit.select(x -> Arrays.equals(x, tup)).size());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Every domain and strings needing quotes survive a round trip
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void typesTest() throws IOException {
+		Table t = new Table("Types", "s i l d f h b c", "String Integer Long Double Float Short Byte Character", "s");
+		Comparable[][] rows = {
+				{ "a,b", Integer.MIN_VALUE, Long.MIN_VALUE, 1.5e300, -0.25f, Short.MAX_VALUE, Byte.MIN_VALUE, ',' },
+				{ "say \"hi\"", Integer.MAX_VALUE, Long.MAX_VALUE, -0.0, Float.MIN_VALUE, (short) -1, (byte) 7, '"' },
+				{ "two\nlines\r\n", 0, 0L, Double.MAX_VALUE, 3f, (short) 0, (byte) 0, '\u00e9' },
+				{ "", -1, -1L, 0.1, 0.1f, (short) 2, (byte) -2, 'x' } };
+		t.bulkLoad(rows);
+		Path path = DIR.resolve("DelimitedFileTest" + "Types.csv");
+		t.exportDelimited(path, ',', false);
+		
+		Comparable[][] back = DelimitedFile.read(path, new Class[] { String.class, Integer.class, Long.class,
+				Double.class, Float.class, Short.class, Byte.class, Character.class }, ',', false, false);
+		assertEquals("Rows", rows.length, back.length);
+		for (Comparable[] row : rows) {
+			boolean found = false;
+			for (Comparable[] b : back) {
+				found = found || b[0].equals(row[0]);
+				if (b[0].equals(row[0])) {
+					assertArrayEquals("Types " + row[0], row, b);
+				}
+			}
+			assertEquals("Found " + row[0], true, found);
+		}
+	}
+	
+	/**
+	 * Lines with the wrong number of fields or unparsable fields are skipped;
+	 * blank lines and carriage returns are ignored
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void malformedTest() throws IOException {
+		Path path = DIR.resolve("DelimitedFileTest" + "Bad.csv");
+		String text = "id,name,address,status\r\n" + "1,one,addr,ok\r\n" + "\r\n" + "2,two,addr\n" + "x3,three,addr,ok\n"
+				+ "99999999999,big,addr,ok\n" + "4,four,addr,ok,extra\n" + "5,\"fi,ve\",addr,ok\n" + "\n"
+				+ "6,six,addr,ok";
+		Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+		
+		Comparable[][] rows = DelimitedFile.read(path, new Class[] { Integer.class, String.class, String.class,
+				String.class }, ',', true, false);
+		assertEquals("Lines", 7, rows.length);
+		assertArrayEquals("CR Stripped", new Comparable[] { 1, "one", "addr", "ok" }, rows[0]);
+		assertNull("Too Few Fields", rows[1]);
+		assertNull("Not A Number", rows[2][0]);
+		assertNull("Out Of Range", rows[3][0]);
+		assertNull("Too Many Fields", rows[4]);
+		assertEquals("Quoted", "fi,ve", rows[5][1]);
+		assertArrayEquals("No Final Line Break", new Comparable[] { 6, "six", "addr", "ok" }, rows[6]);
+		
+		Table t = student();
+		assertEquals("Imported", 3, t.importDelimited(path));
+	}
+	
+	/**
+	 * A file of several chunks parses to the same tuples in parallel as sequentially
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void chunkTest() throws IOException {
+		Path path = DIR.resolve("DelimitedFileTest" + "Big.csv");
+		StringBuilder text = new StringBuilder();
+		for (int k = 0; text.length() < (40 << 20); k++) {
+			for (Comparable[] row : data) {
+				text.append(row[0]).append(',').append(row[1]).append(k).append(',').append(row[2]).append(',')
+						.append(row[3]).append('\n');
+			}
+		}
+		Files.write(path, text.toString().getBytes(StandardCharsets.UTF_8));
+		
+		Class[] domain = { Integer.class, String.class, String.class, String.class };
+		Comparable[][] sequential = DelimitedFile.read(path, domain, ',', false, false);
+		Comparable[][] parallel = DelimitedFile.read(path, domain, ',', false, true);
+		assertEquals("Rows", sequential.length, parallel.length);
+		for (int i = 0; i < sequential.length; i++) {
+			assertArrayEquals("Row " + i, sequential[i], parallel[i]);
+		}
+	}
+}
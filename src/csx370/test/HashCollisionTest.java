@@ -0,0 +1,78 @@
+package csx370.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import csx370.structure.ExtHashMap;
+import csx370.structure.LinHashMap;
+
+/**
+ * Keys sharing one hash code in the hash maps vs HashMap tests
+ */
+public class HashCollisionTest {
+	/** Number of distinct keys put after the colliding ones */
+	private static final int KEYS = 10000;
+	
+	/**
+	 * Return the 2^n strings made of n "Aa" or "BB" pieces, which all share one
+	 * hash code
+	 */
+	private static List<String> colliding(int n) {
+		List<String> keys = new ArrayList<>();
+		keys.add("");
+		for (int i = 0; i < n; i++) {
+			List<String> longer = new ArrayList<>();
+			for (String k : keys) {
+				longer.add(k + "Aa");
+				longer.add(k + "BB");
+			}
+			keys = longer;
+		}
+		return keys;
+	}
+	
+	/**
+	 * Colliding keys overflowing a bucket, followed by enough other keys to split
+	 * that bucket again and again, then removes, leave each map holding the same
+	 * pairs as a HashMap
+	 */
+	@Test
+	public void collisionTest() {
+		List<String> same = colliding(3);
+		assertEquals("Same Hash", 1, same.stream().map(String::hashCode).distinct().count());
+		
+		List<Map<String, Integer>> maps = new ArrayList<>();
+		maps.add(new ExtHashMap<>(String.class, Integer.class, 4));
+		maps.add(new LinHashMap<>(String.class, Integer.class, 4));
+		for (Map<String, Integer> map : maps) {
+			String name = map.getClass().getSimpleName();
+			Map<String, Integer> expected = new HashMap<>();
+			for (int i = 0; i < same.size(); i++) {
+				assertEquals(name + " Put Same", expected.put(same.get(i), i), map.put(same.get(i), i));
+			}
+			for (int i = 0; i < KEYS; i++) {
+				assertEquals(name + " Put", expected.put("k" + i, i), map.put("k" + i, i));
+			}
+			assertEquals(name + " Size", expected.size(), map.size());
+			assertEquals(name + " Pairs", expected, new HashMap<>(map));
+			for (String k : same) {
+				assertEquals(name + " Get Same", expected.get(k), map.get(k));
+			}
+			
+			for (int i = 0; i < KEYS; i += 2) {
+				assertEquals(name + " Remove", expected.remove("k" + i), map.remove("k" + i));
+			}
+			for (int i = 0; i < same.size(); i += 3) {
+				assertEquals(name + " Remove Same", expected.remove(same.get(i)), map.remove(same.get(i)));
+			}
+			assertEquals(name + " Size After Removes", expected.size(), map.size());
+			assertEquals(name + " Pairs After Removes", expected, new HashMap<>(map));
+		}
+	}
+}
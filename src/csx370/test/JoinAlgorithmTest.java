@@ -0,0 +1,114 @@
+package csx370.test;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import csx370.impl.TupleGenerator;
+import csx370.impl.TupleGeneratorImpl;
+import csx370.operator.Table;
+
+/**
+ * Nested loop join vs the other join algorithms tests
+ */
+public class JoinAlgorithmTest {
+	/** Number of tuples per table */
+	private static final int TUPLES = 1000;
+
+	/** Tables */
+	private static Table Student, Professor, Course, Teaching, Transcript;
+
+	/** B+ Tree Map indexed Tables */
+	private static Table Teaching_Bp, Transcript_Bp;
+
+	/**
+	 * Set up Tables and Data (with foreign keys so that joins produce matches)
+	 */
+	@SuppressWarnings("rawtypes")
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		Student = new Table("Student", "id name address status", "Integer String String String", "id", "TreeMap");
+		Professor = new Table("Professor", "id name deptId", "Integer String String", "id", "TreeMap");
+		Course = new Table("Course", "crsCode deptId crsName descr", "String String String String", "crsCode", "TreeMap");
+		Teaching = new Table("Teaching", "crsCode semester profId", "String String Integer", "crsCode semester", "TreeMap");
+		Transcript = new Table("Transcript", "studId crsCode semester grade", "Integer String String String",
+				"studId crsCode semester", "TreeMap");
+		Teaching_Bp = new Table("Teaching", "crsCode semester profId", "String String Integer", "crsCode semester", "BPTreeMap");
+		Transcript_Bp = new Table("Transcript", "studId crsCode semester grade", "Integer String String String",
+				"studId crsCode semester", "BPTreeMap");
+
+		TupleGenerator test = new TupleGeneratorImpl();
+		test.addRelSchema("Student", "id name address status", "Integer String String String", "id", null);
+		test.addRelSchema("Professor", "id name deptId", "Integer String String", "id", null);
+		test.addRelSchema("Course", "crsCode deptId crsName descr", "String String String String", "crsCode", null);
+		test.addRelSchema("Teaching", "crsCode semester profId", "String String Integer", "crsCode semester",
+				new String[][] { { "profId", "Professor", "id" }, { "crsCode", "Course", "crsCode" } });
+		test.addRelSchema("Transcript", "studId crsCode semester grade", "Integer String String String",
+				"studId crsCode semester", new String[][] { { "studId", "Student", "id" },
+						{ "crsCode", "Course", "crsCode" }, { "crsCode semester", "Teaching", "crsCode semester" } });
+
+		Comparable[][][] data = test.generate(new int[] { TUPLES, TUPLES, TUPLES, TUPLES, TUPLES });
+		Table[] tables = { Student, Professor, Course, Teaching, Transcript };
+		for (int i = 0; i < tables.length; i++) {
+			for (Comparable[] tup : data[i]) {
+				tables[i].insert(tup);
+			}
+		}
+		for (Comparable[] tup : data[3]) {
+			Teaching_Bp.insert(tup);
+		}
+		for (Comparable[] tup : data[4]) {
+			Transcript_Bp.insert(tup);
+		}
+	}
+
+	/**
+	 * Hash join agrees with nested loop join on key and non-key joins
+	 */
+	@Test
+	public void hashJoinTest() {
+		assertEquals("Teaching Professor", Teaching.nestedLoopJoin("profId", "id", Professor).size(),
+				Teaching.hashJoin("profId", "id", Professor).size());
+		assertEquals("Transcript Student", Transcript.nestedLoopJoin("studId", "id", Student).size(),
+				Transcript.hashJoin("studId", "id", Student).size());
+		assertEquals("Teaching Transcript", Teaching.nestedLoopJoin("crsCode semester", "crsCode semester", Transcript).size(),
+				Teaching.hashJoin("crsCode semester", "crsCode semester", Transcript).size());
+		assertEquals("Teaching Transcript Size", TUPLES,
+				Teaching.hashJoin("crsCode semester", "crsCode semester", Transcript).size());
+		assertEquals("Transcript Teaching", Transcript.nestedLoopJoin("crsCode", "crsCode", Teaching).size(),
+				Transcript.hashJoin("crsCode", "crsCode", Teaching).size());
+	}
+
+	/**
+	 * Merge join agrees with nested loop join, whether inputs are read from an
+	 * ordered index or sorted
+	 */
+	@Test
+	public void mergeJoinTest() {
+		assertEquals("Teaching Professor", Teaching.nestedLoopJoin("profId", "id", Professor).size(),
+				Teaching.mergeJoin("profId", "id", Professor).size());
+		assertEquals("Transcript Teaching", TUPLES,
+				Transcript.mergeJoin("crsCode semester", "crsCode semester", Teaching).size());
+		assertEquals("Transcript Teaching BpTree", TUPLES,
+				Transcript_Bp.mergeJoin("crsCode semester", "crsCode semester", Teaching_Bp).size());
+		assertEquals("Teaching Transcript BpTree", Teaching.nestedLoopJoin("crsCode", "crsCode", Transcript).size(),
+				Teaching_Bp.mergeJoin("crsCode", "crsCode", Transcript_Bp).size());
+		assertEquals("Transcript Transcript", Transcript.nestedLoopJoin("grade", "grade", Transcript).size(),
+				Transcript.mergeJoin("grade", "grade", Transcript).size());
+	}
+
+	/**
+	 * Parallel partitioned join agrees with nested loop join
+	 */
+	@Test
+	public void parallelJoinTest() {
+		assertEquals("Teaching Professor", Teaching.nestedLoopJoin("profId", "id", Professor).size(),
+				Teaching.parallelJoin("profId", "id", Professor).size());
+		assertEquals("Transcript Teaching", TUPLES,
+				Transcript.parallelJoin("crsCode semester", "crsCode semester", Teaching).size());
+		assertEquals("Transcript Transcript", Transcript.nestedLoopJoin("grade", "grade", Transcript).size(),
+				Transcript.parallelJoin("grade", "grade", Transcript).size());
+		assertEquals("Empty", 0, Transcript.parallelJoin("studId", "profId", Teaching.select(t -> false)).size());
+	}
+}
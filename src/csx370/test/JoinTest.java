@@ -32,6 +32,9 @@ public class JoinTest {
 		jt.indexedTimes("LinHashMap");
 		jt.indexedTimes("ExtHashMap");
 		jt.indexedTimes("BPTreeMap");
+		jt.joinTimes("Hash join", Table::hashJoin);
+		jt.joinTimes("Merge join", Table::mergeJoin);
+		jt.joinTimes("Parallel join", Table::parallelJoin);
 		jt.nestedLoopTimes();
 	}// main
 
@@ -93,6 +96,47 @@ public class JoinTest {
 		System.out.println("50000: " + (System.nanoTime() - this.begin) / (double) 1000000000 + " s");
 	}// nestedLoopTimes
 
+	/*
+	 * A join of two tables on the given attributes, e.g., Table::hashJoin
+	 */
+	interface JoinMethod
+	{
+		Table join(Table table1, String attribute1, String attribute2, Table table2);
+	}// JoinMethod
+
+	/*
+	 * Get times for tables of length 1000, 2000, 5000, 10000, and 50000 for the given
+	 * join method; needs to be run after this.setUp has already been called (any data
+	 * structure). Correctness is checked by JoinAlgorithmTest.
+	 * 
+	 * @param label the name of the join method to print
+	 * @param method the join method, e.g., Table::hashJoin
+	 */
+	public void joinTimes(String label, JoinMethod method)
+	{
+		System.out.println(label + " times:");
+		Table[][] tables = {
+				{Teaching_1000, Professor_1000, Transcript_1000, Student_1000},
+				{Teaching_2000, Professor_2000, Transcript_2000, Student_2000},
+				{Teaching_5000, Professor_5000, Transcript_5000, Student_5000},
+				{Teaching_10000, Professor_10000, Transcript_10000, Student_10000},
+				{Teaching_50000, Professor_50000, Transcript_50000, Student_50000}};
+
+		for (Table[] t : tables)
+		{
+			this.begin = System.nanoTime();
+			for(int i = 0; i < 10; i++)
+			{
+				method.join(t[0], "profId", "id", t[1]);
+				method.join(t[2], "studId",  "id",  t[3]);
+				method.join(t[0], "crsCode semester",  "crsCode semester",  t[2]);
+			}
+			System.out.println(t[0].size() + ": " + (System.nanoTime() - this.begin) / (double) 1000000000 + " s");
+		}
+
+		System.out.println();
+	}// joinTimes
+
 	private void indexed1000()
 	{
 		for(int i = 0; i < 10; i++)
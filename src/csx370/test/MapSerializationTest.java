@@ -0,0 +1,117 @@
+package csx370.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import csx370.operator.KeyType;
+import csx370.structure.BpTreeMap;
+import csx370.structure.ExtHashMap;
+import csx370.structure.LinHashMap;
+
+/**
+ * Serialized and deserialized index maps vs the originals tests
+ */
+public class MapSerializationTest {
+	/** Number of keys per map */
+	private static final int KEYS = 20000;
+	
+	/** Shuffled keys */
+	private static final List<KeyType> keys = new ArrayList<>();
+	
+	/**
+	 * Set up Data
+	 */
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		for (int i = 0; i < KEYS; i++) {
+			keys.add(new KeyType((i * 7919) % KEYS));
+		}
+	}
+	
+	/**
+	 * Write a map to bytes and read it back
+	 */
+	@SuppressWarnings("unchecked")
+	private static <M> M roundTrip(M map) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(map);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (M) in.readObject();
+		}
+	}
+	
+	/**
+	 * Check a deserialized map holds every pair and still takes new ones
+	 */
+	private static void check(String name, Map<KeyType, Integer> map, Map<KeyType, Integer> back) {
+		assertEquals(name + " Size", map.size(), back.size());
+		assertEquals(name + " Entries", new HashMap<>(map), new HashMap<>(back));
+		for (KeyType k : keys) {
+			assertEquals(name + " Get", map.get(k), back.get(k));
+		}
+		for (int i = KEYS; i < KEYS + 1000; i++) {
+			back.put(new KeyType(i), i);
+		}
+		for (int i = KEYS; i < KEYS + 1000; i++) {
+			assertEquals(name + " Put After", Integer.valueOf(i), back.get(new KeyType(i)));
+		}
+		for (KeyType k : keys) {
+			assertEquals(name + " Get After", map.get(k), back.get(k));
+		}
+	}
+	
+	/**
+	 * A B+Tree is rebuilt in key order
+	 */
+	@Test
+	public void bpTreeMapTest() throws IOException, ClassNotFoundException {
+		BpTreeMap<KeyType, Integer> map = new BpTreeMap<>(KeyType.class, Integer.class);
+		for (int i = 0; i < KEYS; i++) {
+			map.put(keys.get(i), i);
+		}
+		BpTreeMap<KeyType, Integer> back = roundTrip(map);
+		assertEquals("BpTreeMap First", map.firstKey(), back.firstKey());
+		assertEquals("BpTreeMap Last", map.lastKey(), back.lastKey());
+		assertEquals("BpTreeMap Order", new ArrayList<>(map.keySet()), new ArrayList<>(back.keySet()));
+		check("BpTreeMap", map, back);
+		assertEquals("BpTreeMap Empty", 0, roundTrip(new BpTreeMap<>(KeyType.class, Integer.class)).size());
+	}
+	
+	/**
+	 * Linear hashing keeps its buckets and split pointer
+	 */
+	@Test
+	public void linHashMapTest() throws IOException, ClassNotFoundException {
+		LinHashMap<KeyType, Integer> map = new LinHashMap<>(KeyType.class, Integer.class, 4);
+		for (int i = 0; i < KEYS; i++) {
+			map.put(keys.get(i), i);
+		}
+		check("LinHashMap", map, roundTrip(map));
+	}
+	
+	/**
+	 * Extendable hashing keeps its buckets and directory
+	 */
+	@Test
+	public void extHashMapTest() throws IOException, ClassNotFoundException {
+		ExtHashMap<KeyType, Integer> map = new ExtHashMap<>(KeyType.class, Integer.class, 4);
+		for (int i = 0; i < KEYS; i++) {
+			map.put(keys.get(i), i);
+		}
+		check("ExtHashMap", map, roundTrip(map));
+	}
+}
@@ -0,0 +1,134 @@
+package csx370.test;
+
+import static csx370.operator.Condition.Op.*;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import csx370.impl.TupleGenerator;
+import csx370.impl.TupleGeneratorImpl;
+import csx370.operator.Cursor;
+import csx370.operator.Pipeline;
+import csx370.operator.Table;
+
+/**
+ * Pipelined operators vs materialized operators tests
+ */
+public class PipelineTest {
+	/** Number of tuples per table */
+	private static final int TUPLES = 2000;
+
+	/** Tables */
+	private static Table Student, Professor, Teaching, Transcript;
+
+	/**
+	 * Set up Tables and Data
+	 */
+	@SuppressWarnings("rawtypes")
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		Student = new Table("Student", "id name address status", "Integer String String String", "id", "TreeMap");
+		Professor = new Table("Professor", "id name deptId", "Integer String String", "id", "TreeMap");
+		Teaching = new Table("Teaching", "crsCode semester profId", "String String Integer", "crsCode semester",
+				"TreeMap", true);
+		Transcript = new Table("Transcript", "studId crsCode semester grade", "Integer String String String",
+				"studId crsCode semester", "TreeMap");
+
+		TupleGenerator test = new TupleGeneratorImpl();
+		test.addRelSchema("Student", "id name address status", "Integer String String String", "id", null);
+		test.addRelSchema("Professor", "id name deptId", "Integer String String", "id", null);
+		test.addRelSchema("Teaching", "crsCode semester profId", "String String Integer", "crsCode semester",
+				new String[][] { { "profId", "Professor", "id" } });
+		test.addRelSchema("Transcript", "studId crsCode semester grade", "Integer String String String",
+				"studId crsCode semester",
+				new String[][] { { "studId", "Student", "id" }, { "crsCode semester", "Teaching", "crsCode semester" } });
+		Comparable[][][] data = test.generate(new int[] { TUPLES, TUPLES, TUPLES, TUPLES });
+
+		Table[] tables = { Student, Professor, Teaching, Transcript };
+		for (int i = 0; i < tables.length; i++) {
+			for (Comparable[] tup : data[i]) {
+				tables[i].insert(tup);
+			}
+		}
+	}
+
+	/**
+	 * Select then project agrees with the materialized chain
+	 */
+	@Test
+	public void selectProjectTest() {
+		Pipeline p = Student.pipeline();
+		Table expected = Student.select(t -> (Integer) t[0] < 500000).project("status");
+		Table actual = p.select(t -> (Integer) t[p.col("id")] < 500000).project("status").toTable();
+		assertEquals("Select Project", expected.size(), actual.size());
+		assertEquals("Where", Student.where("id", LT, 500000).select().size(),
+				Student.pipeline().where("id", LT, 500000).toTable().size());
+		assertEquals("Project Key", TUPLES, Student.pipeline().project("id name").toTable().size());
+	}
+
+	/**
+	 * Joins agree with the materialized joins (index probe and hash build)
+	 */
+	@Test
+	public void joinTest() {
+		assertEquals("Teaching Professor", Teaching.join("profId", "id", Professor).size(),
+				Teaching.pipeline().join("profId", "id", Professor).toTable().size());
+		assertEquals("Transcript Teaching", TUPLES, Transcript.pipeline()
+				.join("crsCode semester", "crsCode semester", Teaching).toTable().size());
+		assertEquals("Teaching Transcript", Teaching.hashJoin("crsCode", "crsCode", Transcript).size(),
+				Teaching.pipeline().join("crsCode", "crsCode", Transcript).toTable().size());
+	}
+
+	/**
+	 * Projecting a hash join (one tuple joining many) onto the pipeline's key
+	 * still drops duplicates, as the materialized join does
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void joinProjectTest() {
+		Table c = new Table("Customer", "cid name", "Integer String", "cid", "TreeMap");
+		Table e = new Table("Order", "oid cid", "Integer Integer", "oid", "TreeMap");
+		c.insert(new Comparable[] { 1, "a" });
+		c.insert(new Comparable[] { 2, "b" });
+		e.insert(new Comparable[] { 10, 1 });
+		e.insert(new Comparable[] { 11, 1 });
+		e.insert(new Comparable[] { 12, 2 });
+		assertEquals("Join", 3, c.pipeline().join("cid", "cid", e).toTable().size());
+		assertEquals("Join Project Key", c.hashJoin("cid", "cid", e).project("cid").size(),
+				c.pipeline().join("cid", "cid", e).project("cid").toTable().size());
+		assertEquals("Join Project Both Keys", 3, c.pipeline().join("cid", "cid", e).project("cid oid").toTable().size());
+		assertEquals("Index Join Project Key", 3, e.pipeline().join("cid", "cid", c).project("oid").toTable().size());
+	}
+
+	/**
+	 * Multi-step chain agrees with the materialized chain
+	 */
+	@Test
+	public void chainTest() {
+		Table expected = Transcript.join("studId", "id", Student).project("name crsCode semester")
+				.hashJoin("crsCode semester", "crsCode semester", Teaching).project("name profId");
+		Table actual = Transcript.pipeline().join("studId", "id", Student).project("name crsCode semester")
+				.join("crsCode semester", "crsCode semester", Teaching).project("name profId").toTable();
+		assertEquals("Chain", expected.size(), actual.size());
+	}
+
+	/**
+	 * Cursors can be pulled directly and reopened
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void cursorTest() {
+		Cursor c = Professor.pipeline().project("deptId").cursor();
+		for (int pass = 0; pass < 2; pass++) {
+			int n = 0;
+			c.open();
+			for (Comparable[] t = c.next(); t != null; t = c.next()) {
+				assertEquals("Arity", 1, t.length);
+				n++;
+			}
+			c.close();
+			assertEquals("Distinct deptId", Professor.project("deptId").size(), n);
+		}
+	}
+}
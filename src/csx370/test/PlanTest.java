@@ -0,0 +1,133 @@
+package csx370.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import csx370.impl.TupleGenerator;
+import csx370.impl.TupleGeneratorImpl;
+import csx370.operator.Plan;
+import csx370.operator.Table;
+
+/**
+ * Prepared plan vs ad hoc operator tests
+ */
+public class PlanTest {
+	/** Number of tuples per table */
+	private static final int TUPLES = 1000;
+
+	/** Tables */
+	private static Table Student, Professor, Teaching;
+
+	/** Generated Random Data Storage */
+	@SuppressWarnings("rawtypes")
+	private static Comparable[][][] data;
+
+	/**
+	 * Set up Tables and Data
+	 */
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		Student = new Table("Student", "id name address status", "Integer String String String", "id", "TreeMap");
+		Professor = new Table("Professor", "id name deptId", "Integer String String", "id", "TreeMap");
+		Teaching = new Table("Teaching", "crsCode semester profId", "String String Integer", "crsCode semester", "TreeMap");
+
+		TupleGenerator test = new TupleGeneratorImpl();
+		test.addRelSchema("Student", "id name address status", "Integer String String String", "id", null);
+		test.addRelSchema("Professor", "id name deptId", "Integer String String", "id", null);
+		test.addRelSchema("Teaching", "crsCode semester profId", "String String Integer", "crsCode semester",
+				new String[][] { { "profId", "Professor", "id" } });
+		data = test.generate(new int[] { TUPLES, TUPLES, TUPLES });
+
+		for (int i = 0; i < TUPLES; i++) {
+			Student.insert(data[0][i]);
+			Professor.insert(data[1][i]);
+			Teaching.insert(data[2][i]);
+		}
+	}
+
+	/**
+	 * Repeated operators reuse one cached plan
+	 */
+	@Test
+	public void cacheTest() {
+		assertSame("Join Plan", Teaching.prepareJoin("profId", "id", Professor),
+				Teaching.prepareJoin("profId", "id", Professor));
+		assertSame("Project Plan", Student.prepareProject("name status"), Student.prepareProject("name status"));
+		assertSame("Select Plan", Student.prepareSelect("status"), Student.prepareSelect("status"));
+	}
+
+	/**
+	 * Each table keeps only its recently used plans
+	 */
+	@Test
+	public void cacheBoundTest() {
+		Plan.Project old = Student.prepareProject("name");
+		Plan.Project used = Student.prepareProject("status");
+		List<String> attrs = new ArrayList<>();
+		orders("", Arrays.asList("id", "name", "address", "status"), attrs);
+		for (String a : attrs) {
+			Student.prepareSelect(a);
+			assertSame("Used Plan", used, Student.prepareProject("status"));
+		}
+		assertNotSame("Evicted Plan", old, Student.prepareProject("name"));
+	}
+
+	/**
+	 * Add every ordering of every nonempty subset of the attributes, after the
+	 * given prefix, to out
+	 */
+	private static void orders(String prefix, List<String> rest, List<String> out) {
+		for (int i = 0; i < rest.size(); i++) {
+			String next = prefix.isEmpty() ? rest.get(i) : prefix + " " + rest.get(i);
+			out.add(next);
+			List<String> left = new ArrayList<>(rest);
+			left.remove(i);
+			orders(next, left, out);
+		}
+	}
+
+	/**
+	 * Executing a plan agrees with the operator
+	 */
+	@Test
+	public void executeTest() {
+		Plan.Join join = Teaching.prepareJoin("profId", "id", Professor);
+		assertEquals("Join Size", TUPLES, join.execute().size());
+		assertEquals("Join Size", Teaching.nestedLoopJoin("profId", "id", Professor).size(), join.execute().size());
+		assertEquals("Project Size", Student.project("status").size(),
+				Student.prepareProject("status").execute().size());
+	}
+
+	/**
+	 * Parametrized selects agree with lambda selects
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void selectTest() {
+		Plan.Select byNameStatus = Student.prepareSelect("name status");
+		Plan.Select byId = Student.prepareSelect("id");
+		for (int i = 0; i < 100; i++) {
+			Comparable[] instance = data[0][i];
+			int expected = Student.select(t -> t[Student.col("name")].equals(instance[1])
+					&& t[Student.col("status")].equals(instance[3])).size();
+			assertEquals("Select Size", expected, byNameStatus.execute(instance[1], instance[3]).size());
+			assertEquals("Key Select Size", 1, byId.execute(instance[0]).size());
+		}
+	}
+
+	/**
+	 * Parameters must match the prepared attributes
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void parameterTest() {
+		Student.prepareSelect("name status").execute("Joe");
+	}
+}
@@ -0,0 +1,109 @@
+package csx370.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import csx370.impl.TupleGenerator;
+import csx370.impl.TupleGeneratorImpl;
+import csx370.operator.Table;
+
+/**
+ * Hash based projection vs brute force duplicate elimination tests
+ */
+public class ProjectTest {
+	/** Number of tuples per table (enough for the parallel path) */
+	private static final int TUPLES = 20000;
+
+	/** Tables */
+	private static Table Student, Transcript;
+
+	/** Generated Random Data Storage */
+	@SuppressWarnings("rawtypes")
+	private static Comparable[][][] data;
+
+	/**
+	 * Set up Tables and Data
+	 */
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		Student = new Table("Student", "id name address status", "Integer String String String", "id", "TreeMap");
+		Transcript = new Table("Transcript", "studId crsCode semester grade", "Integer String String String",
+				"studId crsCode semester", "TreeMap");
+
+		TupleGenerator test = new TupleGeneratorImpl();
+		test.addRelSchema("Student", "id name address status", "Integer String String String", "id", null);
+		test.addRelSchema("Transcript", "studId crsCode semester grade", "Integer String String String",
+				"studId crsCode semester", null);
+		data = test.generate(new int[] { TUPLES, TUPLES });
+
+		for (int i = 0; i < TUPLES; i++) {
+			Student.insert(data[0][i]);
+			Transcript.insert(data[1][i]);
+		}
+	}
+
+	/**
+	 * Count the distinct values of the given columns
+	 */
+	@SuppressWarnings("rawtypes")
+	private static int distinct(Comparable[][] rows, int... cols) {
+		Set<List<Comparable>> seen = new HashSet<>();
+		for (Comparable[] t : rows) {
+			Comparable[] v = new Comparable[cols.length];
+			for (int j = 0; j < cols.length; j++) {
+				v[j] = t[cols[j]];
+			}
+			seen.add(Arrays.asList(v));
+		}
+		return seen.size();
+	}
+
+	/**
+	 * Projections drop exactly the duplicate tuples
+	 */
+	@Test
+	public void distinctTest() {
+		assertEquals("Student status", distinct(data[0], 3), Student.project("status").size());
+		assertEquals("Student name status", distinct(data[0], 1, 3), Student.project("name status").size());
+		assertEquals("Transcript grade crsCode", distinct(data[1], 3, 1), Transcript.project("grade crsCode").size());
+	}
+
+	/**
+	 * Projections keeping the primary key keep every tuple
+	 */
+	@Test
+	public void keyTest() {
+		assertEquals("Student id name", TUPLES, Student.project("id name").size());
+		assertEquals("Transcript key", TUPLES, Transcript.project("semester crsCode studId").size());
+	}
+
+	/**
+	 * Distinct tuples with colliding hash codes are both kept
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void collisionTest() {
+		Table t = new Table("Collide", "id code", "Integer String", "id", "TreeMap");
+		t.insert(new Comparable[] { 1, "Aa" });
+		t.insert(new Comparable[] { 2, "BB" });
+		t.insert(new Comparable[] { 3, "Aa" });
+		assertEquals("Collide code", 2, t.project("code").size());
+	}
+
+	/**
+	 * Derived tables (no index) can be projected
+	 */
+	@Test
+	public void derivedTest() {
+		Table some = Student.select(t -> (Integer) t[0] % 2 == 0);
+		assertEquals("Derived id", some.size(), some.project("id").size());
+		assertEquals("Derived status", distinct(data[0], 3), Student.select(t -> true).project("status").size());
+	}
+}
@@ -0,0 +1,93 @@
+package csx370.test;
+
+import static csx370.operator.Condition.Op.*;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import csx370.impl.TupleGenerator;
+import csx370.impl.TupleGeneratorImpl;
+import csx370.operator.KeyType;
+import csx370.operator.Table;
+import csx370.structure.ExtHashMap;
+import csx370.structure.LinHashMap;
+
+/**
+ * Sequential select vs secondary index select tests
+ */
+public class SecondaryIndexTest {
+	/** Number of tuples per table */
+	private static final int TUPLES = 5000;
+
+	/** Data structures to index with */
+	private static final String[] STRUCTURES = { "TreeMap", "BPTreeMap", "LinHashMap", "ExtHashMap" };
+
+	/** Generated Random Data Storage */
+	@SuppressWarnings("rawtypes")
+	private static Comparable[][] data;
+
+	/**
+	 * Generate Data
+	 */
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		TupleGenerator test = new TupleGeneratorImpl();
+		test.addRelSchema("Transcript", "studId crsCode semester grade", "Integer String String String",
+				"studId crsCode semester", null);
+		data = test.generate(new int[] { TUPLES })[0];
+	}
+
+	/**
+	 * Indexed select agrees with sequential select for every data structure,
+	 * including tuples inserted after the index was created
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void indexedSelectTest() {
+		for (String ds : STRUCTURES) {
+			Table scan = new Table("Transcript", "studId crsCode semester grade",
+					"Integer String String String", "studId crsCode semester", ds);
+			Table indexed = new Table("Transcript", "studId crsCode semester grade",
+					"Integer String String String", "studId crsCode semester", ds);
+
+			for (int i = 0; i < TUPLES; i++) {
+				scan.insert(data[i]);
+				indexed.insert(data[i]);
+				if (i == TUPLES / 2) {
+					indexed.createIndex("crsCode semester", ds);
+					indexed.createIndex("grade", ds);
+				}
+			}
+
+			for (int i = 0; i < TUPLES; i += 50) {
+				Comparable[] instance = data[i];
+				assertEquals(ds + " Composite Index Select",
+						scan.select(t -> t[1].equals(instance[1]) && t[2].equals(instance[2])).size(),
+						indexed.where("crsCode", EQ, instance[1]).and("semester", EQ, instance[2]).select().size());
+				assertEquals(ds + " Index Select",
+						scan.select(t -> t[3].equals(instance[3]) && t[0].equals(instance[0])).size(),
+						indexed.where("grade", EQ, instance[3]).and("studId", EQ, instance[0]).select().size());
+			}
+		}
+	}
+
+	/**
+	 * Hash structures find keys built from fresh KeyType instances
+	 */
+	@Test
+	public void keyLookupTest() {
+		ExtHashMap<KeyType, Integer> ext = new ExtHashMap<>(KeyType.class, Integer.class, 4);
+		LinHashMap<KeyType, Integer> lin = new LinHashMap<>(KeyType.class, Integer.class, 4);
+		for (int i = 0; i < TUPLES; i++) {
+			ext.put(new KeyType(data[i][0], data[i][1], data[i][2]), i);
+			lin.put(new KeyType(data[i][0], data[i][1], data[i][2]), i);
+		}
+
+		assertEquals("ExtHashMap Size", TUPLES, ext.size());
+		for (int i = 0; i < TUPLES; i++) {
+			assertEquals("ExtHashMap Lookup", Integer.valueOf(i), ext.get(new KeyType(data[i][0], data[i][1], data[i][2])));
+			assertEquals("LinHashMap Lookup", Integer.valueOf(i), lin.get(new KeyType(data[i][0], data[i][1], data[i][2])));
+		}
+	}
+}
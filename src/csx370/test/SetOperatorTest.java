@@ -0,0 +1,101 @@
+package csx370.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import csx370.impl.TupleGenerator;
+import csx370.impl.TupleGeneratorImpl;
+import csx370.operator.Table;
+
+/**
+ * Hash based set operators vs brute force tests
+ */
+public class SetOperatorTest {
+	/** Number of tuples per table (enough for the parallel path) */
+	private static final int TUPLES = 10000;
+
+	/** Overlapping tables: A holds the first 2/3 of the tuples, B the last 2/3 */
+	private static Table A, B;
+
+	/** Distinct tuples of A and B */
+	@SuppressWarnings("rawtypes")
+	private static Set<List<Comparable>> setA, setB;
+
+	/**
+	 * Set up Tables and Data
+	 */
+	@SuppressWarnings("rawtypes")
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		A = new Table("A", "id name address status", "Integer String String String", "id", "TreeMap");
+		B = new Table("B", "id name address status", "Integer String String String", "id", "LinHashMap");
+
+		TupleGenerator test = new TupleGeneratorImpl();
+		test.addRelSchema("Student", "id name address status", "Integer String String String", "id", null);
+		Comparable[][] data = test.generate(new int[] { TUPLES })[0];
+
+		setA = new HashSet<>();
+		setB = new HashSet<>();
+		for (int i = 0; i < TUPLES; i++) {
+			if (i < 2 * TUPLES / 3) {
+				A.insert(data[i]);
+				setA.add(Arrays.asList(data[i]));
+			}
+			if (i >= TUPLES / 3) {
+				B.insert(data[i]);
+				setB.add(Arrays.asList(data[i]));
+			}
+		}
+	}
+
+	/**
+	 * Union keeps shared tuples once, unionAll keeps both copies
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void unionTest() {
+		Set<List<Comparable>> expected = new HashSet<>(setA);
+		expected.addAll(setB);
+		assertEquals("Union", expected.size(), A.union(B).size());
+		assertEquals("Union All", setA.size() + setB.size(), A.unionAll(B).size());
+		assertEquals("Union Self", setA.size(), A.union(A).size());
+	}
+
+	/**
+	 * Minus compares whole tuples
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void minusTest() {
+		Set<List<Comparable>> expected = new HashSet<>(setA);
+		expected.removeAll(setB);
+		assertEquals("A Minus B", expected.size(), A.minus(B).size());
+		assertEquals("A Minus A", 0, A.minus(A).size());
+
+		// same key, different tuple: not removed
+		Table c = new Table("C", "id name address status", "Integer String String String", "id", "TreeMap");
+		Table d = new Table("D", "id name address status", "Integer String String String", "id", "TreeMap");
+		c.insert(new Comparable[] { 1, "Joe", "Athens", "UG" });
+		d.insert(new Comparable[] { 1, "Joe", "Athens", "GR" });
+		assertEquals("Same Key Minus", 1, c.minus(d).size());
+	}
+
+	/**
+	 * Intersect keeps the shared tuples once
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void intersectTest() {
+		Set<List<Comparable>> expected = new HashSet<>(setA);
+		expected.retainAll(setB);
+		assertEquals("Intersect", expected.size(), A.intersect(B).size());
+		assertEquals("Intersect Small", expected.size(), A.select(t -> true).intersect(B.unionAll(B)).size());
+	}
+}
@@ -0,0 +1,413 @@
+package csx370.test;
+
+import static csx370.operator.Condition.Op.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import csx370.impl.TupleGenerator;
+import csx370.impl.TupleGeneratorImpl;
+import csx370.operator.Cursor;
+import csx370.operator.KeyType;
+import csx370.operator.Table;
+import csx370.storage.TableFile;
+
+/**
+ * Saved and reloaded tables vs the originals tests
+ */
+public class StorageTest {
+	/** Number of tuples per table (spans many pages) */
+	private static final int TUPLES = 5000;
+
+	/** Index structures to round trip */
+	private static final String[] STRUCTURES = { "TreeMap", "BPTreeMap", "LinHashMap", "ExtHashMap" };
+
+	/** Generated Random Data Storage */
+	@SuppressWarnings("rawtypes")
+	private static Comparable[][] data;
+
+	/**
+	 * Set up Data
+	 */
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		TupleGenerator test = new TupleGeneratorImpl();
+		test.addRelSchema("Student", "id name address status", "Integer String String String", "id", null);
+		data = test.generate(new int[] { TUPLES })[0];
+	}
+
+	/**
+	 * Remove the saved tables
+	 */
+	@AfterClass
+	public static void tearDownAfterClass() {
+		String[] names = { "TreeMap", "BPTreeMap", "LinHashMap", "ExtHashMap", "Columnar", "Types", "Mapped", "Index",
+				"Log", "Packed", "Student", "Snapshot", "ColumnarSnapshot", "MappedTreeMap", "MappedLinHashMap",
+				"MappedLogTreeMap", "MappedLogBPTreeMap" };
+		for (String s : names) {
+			for (String ext : new String[] { ".dbf", ".idx", ".wal" }) {
+				new File("store" + File.separator + "StorageTest" + s + ext).delete();
+			}
+		}
+	}
+
+	/**
+	 * Read the tuples in the file of a saved table, without the changes logged
+	 * since (unlike load and map)
+	 */
+	@SuppressWarnings("rawtypes")
+	static List<Comparable[]> stored(String name) throws IOException {
+		List<Comparable[]> rows = new ArrayList<>();
+		try (TableFile file = TableFile.open(Paths.get("store", name + ".dbf"))) {
+			for (int p = 0; p < file.pages(); p++) {
+				rows.addAll(Arrays.asList(file.page(p).tuples()));
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Check a reloaded table holds every original tuple under its key
+	 */
+	private static void check(String name) {
+		Table t = Table.load(name);
+		assertNotNull(name + " Loaded", t);
+		assertEquals(name + " Name", name, t.getName());
+		assertEquals(name + " Size", TUPLES, t.select(x -> true).size());
+		for (int i = 0; i < TUPLES; i += 7) {
+			Table hit = t.select(new KeyType(data[i][0]));
+			assertEquals(name + " Key Select", 1, hit.select(x -> true).size());
+		}
+	}
+
+	/**
+	 * Every index structure survives a save and load
+	 */
+	@Test
+	public void roundTripTest() {
+		for (String s : STRUCTURES) {
+			Table t = new Table("StorageTest" + s, "id name address status", "Integer String String String", "id", s);
+			for (Comparable<?>[] tup : data) {
+				t.insert(tup);
+			}
+			t.save();
+			check("StorageTest" + s);
+		}
+
+		Table c = new Table("StorageTestColumnar", "id name address status", "Integer String String String", "id",
+				"TreeMap", true);
+		for (Comparable<?>[] tup : data) {
+			c.insert(tup);
+		}
+		c.save();
+		check("StorageTestColumnar");
+	}
+
+	/**
+	 * Every supported domain keeps its type and value
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void domainTest() {
+		Table t = new Table("StorageTestTypes", "i l s b d f c str", "Integer Long Short Byte Double Float Character String",
+				"i", "TreeMap");
+		Comparable[] tup = { 7, -8L, (short) 9, (byte) -10, 1.5, 2.5f, 'x', "Athens, GA \u00e9" };
+		t.insert(tup);
+		t.save();
+
+		Cursor c = Table.load("StorageTestTypes").pipeline().cursor();
+		c.open();
+		Comparable[] back = c.next();
+		c.close();
+		assertArrayEquals("Types", tup, back);
+	}
+
+	/**
+	 * Mapped tables answer selections, scans and joins like the original
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void mapTest() {
+		Table t = new Table("StorageTestMapped", "id name address status", "Integer String String String", "id",
+				"TreeMap");
+		for (Comparable<?>[] tup : data) {
+			t.insert(tup);
+		}
+		t.save();
+
+		Table m = Table.map("StorageTestMapped");
+		assertNotNull("Mapped", m);
+		assertEquals("Mapped Size", TUPLES, m.size());
+		for (int i = 0; i < 50; i++) {
+			Comparable[] instance = data[i];
+			assertEquals("Mapped Select", t.select(x -> x[1].equals(instance[1])).size(),
+					m.select(x -> x[1].equals(instance[1])).size());
+			assertEquals("Mapped Condition", t.where("name", EQ, instance[1]).and("status", EQ, instance[3])
+					.select().size(), m.where("name", EQ, instance[1]).and("status", EQ, instance[3]).select().size());
+		}
+		assertEquals("Mapped Range", t.where("id", GE, data[0][0]).select().size(),
+				m.where("id", GE, data[0][0]).select().size());
+		assertEquals("Mapped Pipeline", TUPLES, m.pipeline().toTable().size());
+		assertEquals("Mapped Project", t.project("status").size(), m.project("status").size());
+		assertEquals("Mapped Join", TUPLES, m.hashJoin("id", "id", t).size());
+		assertEquals("Mapped Insert", false, m.insert(data[0]));
+	}
+
+	/**
+	 * Mapped tables without an index file still find tuples by key, for key
+	 * selections, joins (ad hoc, pipelined or prepared) and prepared selections
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void mapKeyTest() {
+		Table fk = new Table("StorageTestFk", "fk", "Integer", "fk", "TreeMap");
+		for (int i = 0; i < TUPLES; i += 3) {
+			fk.insert(new Comparable[] { data[i][0] });
+		}
+		for (String ds : new String[] { "TreeMap", "LinHashMap" }) {
+			String name = "StorageTestMapped" + ds;
+			Table t = new Table(name, "id name address status", "Integer String String String", "id", ds);
+			for (Comparable<?>[] tup : data) {
+				t.insert(tup);
+			}
+			t.save();
+
+			Table m = Table.map(name);
+			assertNotNull(ds + " Mapped", m);
+			for (int i = 0; i < 50; i++) {
+				assertEquals(ds + " Key Select", 1, m.select(new KeyType(data[i][0])).size());
+				assertEquals(ds + " Prepared Select", 1, m.prepareSelect("id").execute(data[i][0]).size());
+			}
+			assertEquals(ds + " Key Absent", 0, m.select(new KeyType(-1)).size());
+			int joined = fk.join("fk", "id", t).size();
+			assertEquals(ds + " Join", joined, fk.join("fk", "id", m).size());
+			assertEquals(ds + " Pipeline Join", joined, fk.pipeline().join("fk", "id", m).toTable().size());
+		}
+	}
+
+	/**
+	 * Mapped tables show the inserts, deletes and updates committed to the log
+	 * since the save, as load does
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void mapLogTest() {
+		for (String ds : new String[] { "TreeMap", "BPTreeMap" }) {
+			String name = "StorageTestMappedLog" + ds;
+			Table t = new Table(name, "id name address status", "Integer String String String", "id", ds);
+			for (Comparable<?>[] tup : data) {
+				t.insert(tup);
+			}
+			t.save();
+			t.insert(new Comparable[] { -1, "inserted", "addr", "UG" });
+			t.delete(new KeyType(data[0][0]));
+			t.update(new KeyType(data[1][0]), "name", "updated");
+			t.update(new KeyType(data[2][0]), "id", -2);
+			assertEquals(ds + " Commit", true, t.commit());
+
+			Table m = Table.map(name);
+			Table back = Table.load(name);
+			assertNotNull(ds + " Mapped", m);
+			assertEquals(ds + " Size", back.size(), m.size());
+			assertEquals(ds + " Scan", back.select(x -> true).size(), m.select(x -> true).size());
+			assertEquals(ds + " Pipeline", back.size(), m.pipeline().toTable().size());
+			for (Comparable k : new Comparable[] { -1, -2, data[0][0], data[1][0], data[2][0], data[3][0] }) {
+				assertEquals(ds + " Key Select " + k, back.select(new KeyType(k)).size(), m.select(new KeyType(k)).size());
+			}
+			assertEquals(ds + " Inserted", 1, m.select(x -> x[1].equals("inserted")).size());
+			assertEquals(ds + " Updated", 1, m.select(x -> x[1].equals("updated")).size());
+			assertEquals(ds + " Old Value", 0, m.select(x -> x[1].equals(data[1][1])).size());
+			assertEquals(ds + " Condition", 1, m.where("name", EQ, "updated").select().size());
+			assertEquals(ds + " Join", back.hashJoin("id", "id", t).size(), m.hashJoin("id", "id", t).size());
+		}
+	}
+
+	/**
+	 * Mapped BPTreeMap tables look keys up in the saved B+Tree index file
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void indexTest() {
+		// long keys give few entries per node, so the tree has several levels
+		Table t = new Table("StorageTestIndex", "k v", "String Integer", "k", "BPTreeMap");
+		for (int i = 0; i < TUPLES; i++) {
+			int v = (i * 7919) % TUPLES;
+			t.insert(new Comparable[] { String.format("%0200d", 2 * v), v });
+		}
+		t.insert(new Comparable[] { String.format("%0200d", 0), -1 }); // duplicate key, replaces
+		t.save();
+
+		Table m = Table.map("StorageTestIndex");
+		assertNotNull("Index Mapped", m);
+		for (int v = 0; v < TUPLES; v++) {
+			Table hit = m.select(new KeyType(String.format("%0200d", 2 * v)));
+			Integer value = (v == 0) ? -1 : v;
+			assertEquals("Index Hit", 1, hit.select(x -> x[1].equals(value)).size());
+		}
+		assertEquals("Index Below", 0, m.select(new KeyType("")).size());
+		assertEquals("Index Between", 0, m.select(new KeyType(String.format("%0200d", 2 * 17 + 1))).size());
+		assertEquals("Index Above", 0, m.select(new KeyType(String.format("%0200d", 2 * TUPLES))).size());
+
+		// joins probing the mapped table go through the stored tree
+		Table fk = new Table("StorageTestIndexFk", "fk", "String", "fk", "TreeMap");
+		for (int v = 0; v < 2 * TUPLES; v += 3) {
+			fk.insert(new Comparable[] { String.format("%0200d", v) });
+		}
+		assertEquals("Index Join", fk.join("fk", "k", t).size(), fk.join("fk", "k", m).size());
+		assertEquals("Index Join Size", TUPLES / 3 + 1, fk.join("fk", "k", m).size());
+	}
+
+	/**
+	 * Inserts after a save are logged and replayed by load
+	 */
+	@Test
+	public void logTest() throws IOException {
+		Table t = new Table("StorageTestLog", "id name address status", "Integer String String String", "id",
+				"TreeMap");
+		for (int i = 0; i < TUPLES / 2; i++) {
+			t.insert(data[i]);
+		}
+		t.save();
+		File wal = new File("store" + File.separator + "StorageTestLog.wal");
+		long empty = wal.length();
+		for (int i = TUPLES / 2; i < TUPLES; i++) {
+			t.insert(data[i]);
+		}
+		assertEquals("Commit", true, t.commit());
+		assertEquals("Logged", true, wal.length() > empty);
+
+		Table back = Table.load("StorageTestLog");
+		assertEquals("Replayed", TUPLES, back.select(x -> true).size());
+		assertEquals("Replayed Key", 1, back.select(new KeyType(data[TUPLES - 1][0])).size());
+
+		// a torn record at the end is dropped, the intact ones survive
+		try (FileOutputStream out = new FileOutputStream(wal, true)) {
+			out.write(new byte[] { 0, 0, 1, 0, 7, 7 });
+		}
+		assertEquals("Torn Tail", TUPLES, Table.load("StorageTestLog").select(x -> true).size());
+
+		// a save folds the log into the snapshot
+		back.save();
+		assertEquals("Truncated", empty, wal.length());
+		assertEquals("Saved", TUPLES, Table.load("StorageTestLog").select(x -> true).size());
+	}
+
+	/**
+	 * Compressed pages decode to the original tuples, scanned or looked up by key,
+	 * and generated data takes at least 3 times fewer bytes than plain values
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void compressTest() {
+		Table t = new Table("StorageTestPacked", "i l s c d name tag", "Integer Long Short Character Double String String",
+				"i", "BPTreeMap");
+		Map<Comparable, Comparable[]> expected = new HashMap<>();
+		Random rand = new Random(7);
+		for (int i = 0; i < TUPLES; i++) {
+			long l = (i % 1000 == 0) ? Long.MIN_VALUE + i : (i % 1000 == 1) ? Long.MAX_VALUE - i : rand.nextInt(500);
+			String name = (i % 1500 == 0) ? "name00" + i : "name" + rand.nextInt(1000000);
+			Comparable[] tup = { i, l, (short) (rand.nextInt(200) - 100), (char) ('a' + rand.nextInt(26)),
+					0.5 + rand.nextInt(3), name, "Athens, GA \u00e9" + rand.nextInt(10) };
+			t.insert(tup);
+			expected.put(i, tup);
+		}
+		t.save();
+
+		Cursor c = Table.load("StorageTestPacked").pipeline().cursor();
+		c.open();
+		int n = 0;
+		for (Comparable[] tup = c.next(); tup != null; tup = c.next(), n++) {
+			assertArrayEquals("Packed Scan", expected.get(tup[0]), tup);
+		}
+		c.close();
+		assertEquals("Packed Size", TUPLES, n);
+
+		Table m = Table.map("StorageTestPacked");
+		for (int i = 0; i < TUPLES; i += 3) {
+			Cursor hit = m.select(new KeyType(i)).pipeline().cursor();
+			hit.open();
+			assertArrayEquals("Packed Lookup", expected.get(i), hit.next());
+			hit.close();
+		}
+
+		Table student = new Table("StorageTestStudent", "id name address status", "Integer String String String",
+				"id", "TreeMap");
+		long plain = 0;
+		for (Comparable<?>[] tup : data) {
+			student.insert(tup);
+			plain += 4 + 6 + tup[1].toString().length() + tup[2].toString().length() + tup[3].toString().length();
+		}
+		student.save();
+		long stored = new File("store" + File.separator + "StorageTestStudent.dbf").length();
+		assertEquals("Compressed " + stored + " of " + plain, true, 3 * stored < plain);
+	}
+
+	/**
+	 * Background snapshots hold the tuples stored when they were taken, while
+	 * inserts made meanwhile are logged and replayed on top
+	 */
+	@Test
+	public void snapshotTest() throws IOException, InterruptedException, ExecutionException {
+		Table t = new Table("StorageTestSnapshot", "id name address status", "Integer String String String", "id",
+				"BPTreeMap");
+		for (int i = 0; i < TUPLES / 2; i++) {
+			t.insert(data[i]);
+		}
+		Future<Boolean> done = t.saveAsync();
+		for (int i = TUPLES / 2; i < TUPLES; i++) {
+			t.insert(data[i]);
+		}
+		assertEquals("Snapshot Written", true, done.get());
+		assertEquals("Snapshot Size", TUPLES / 2, stored("StorageTestSnapshot").size());
+		assertEquals("Commit", true, t.commit());
+		assertEquals("Snapshot Replayed", TUPLES, Table.load("StorageTestSnapshot").select(x -> true).size());
+
+		// a crash before the log is restarted leaves the old log, whose first records the snapshot holds
+		File wal = new File("store" + File.separator + "StorageTestSnapshot.wal");
+		File old = new File("store" + File.separator + "StorageTestSnapshot.old");
+		Files.copy(wal.toPath(), old.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		assertEquals("Snapshot Written Again", true, t.saveAsync().get());
+		assertEquals("Snapshot Size Again", TUPLES, stored("StorageTestSnapshot").size());
+		Files.move(old.toPath(), wal.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		Table back = Table.load("StorageTestSnapshot");
+		assertEquals("Not Replayed Twice", TUPLES, back.select(x -> true).size());
+		assertEquals("No Temporary File", false, Files.exists(Paths.get("store", "StorageTestSnapshot.dbf.tmp")));
+		
+		// a columnar snapshot keeps the values its rows had, though updates change the rows in place
+		Table c = new Table("StorageTestColumnarSnapshot", "id name address status", "Integer String String String",
+				"id", "TreeMap", true);
+		for (int i = 0; i < TUPLES; i++) {
+			c.insert(data[i]);
+		}
+		done = c.saveAsync();
+		c.update(new KeyType(data[0][0]), "name", "changed");
+		c.delete(new KeyType(data[1][0]));
+		assertEquals("Columnar Snapshot Written", true, done.get());
+		List<Comparable[]> snap = stored("StorageTestColumnarSnapshot");
+		assertEquals("Columnar Snapshot Size", TUPLES, snap.size());
+		assertEquals("Columnar Snapshot Old Value", 0, snap.stream().filter(x -> x[1].equals("changed")).count());
+		assertEquals("Columnar Commit", true, c.commit());
+		Table again = Table.load("StorageTestColumnarSnapshot");
+		assertEquals("Columnar Snapshot Replayed", TUPLES - 1, again.size());
+		assertEquals("Columnar Snapshot Replayed Update", 1, again.select(x -> x[1].equals("changed")).size());
+	}
+}